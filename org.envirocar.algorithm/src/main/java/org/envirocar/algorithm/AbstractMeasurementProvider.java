@@ -19,27 +19,90 @@
 package org.envirocar.algorithm;
 
 import org.envirocar.core.entity.Measurement;
-import org.envirocar.obd.commands.PID;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Base class of measurement providers, which samples a measurement at fixed-rate ticks of its
+ * scheduler. The scheduler also serves as the clock of the provider.
+ *
+ * @author dewall
+ */
 public abstract class AbstractMeasurementProvider implements MeasurementProvider {
 
-    private List<Position> positionBuffer = new ArrayList<>();
+    /**
+     * The maximum number of buffered positions between two measurements.
+     */
+    protected static final int POSITION_BUFFER_CAPACITY = 1024;
+
+    private final TimestampedRingBuffer<Position> positionBuffer =
+            new TimestampedRingBuffer<>(POSITION_BUFFER_CAPACITY);
+    private final Scheduler scheduler;
+
+    /**
+     * Constructor using the computation scheduler, i.e., the system clock.
+     */
+    public AbstractMeasurementProvider() {
+        this(Schedulers.computation());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param scheduler the scheduler providing the ticks and the clock.
+     */
+    public AbstractMeasurementProvider(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Emits a measurement every sampling period. The ticks follow a fixed rate, i.e., the
+     * scheduler corrects the delay of each tick by the drift of the previous ones, and no thread
+     * is blocked in between.
+     *
+     * @param samplingRate the sampling period in milliseconds.
+     * @return the measurements that have sufficient values.
+     */
+    @Override
+    public Observable<Measurement> measurements(long samplingRate) {
+        return Observable.interval(samplingRate, samplingRate, TimeUnit.MILLISECONDS, scheduler)
+                .map(tick -> createMeasurement())
+                .filter(AbstractMeasurementProvider::isComplete);
+    }
+
+    /**
+     * @return the current time of the clock of this provider in milliseconds.
+     */
+    protected long now() {
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the measurement of the current tick from the values considered since the
+     * previous tick. Ticks are not executed concurrently.
+     *
+     * @return the measurement.
+     */
+    protected abstract Measurement createMeasurement();
+
+    private static boolean isComplete(Measurement m) {
+        return m.getLatitude() != null && m.getLongitude() != null &&
+                (m.hasProperty(Measurement.PropertyKey.SPEED) ||
+                        m.hasProperty(Measurement.PropertyKey.GPS_SPEED));
+    }
 
     @Override
-    public synchronized void newPosition(Position pos) {
+    public void newPosition(Position pos) {
         this.positionBuffer.add(pos);
     }
 
-    public synchronized List<Position> getAndClearPositionBuffer() {
-        List<Position> result = Collections.unmodifiableList(positionBuffer);
-        positionBuffer = new ArrayList<>(result.size());
-        return result;
+    public List<Position> getAndClearPositionBuffer() {
+        return positionBuffer.drain();
     }
 
 }
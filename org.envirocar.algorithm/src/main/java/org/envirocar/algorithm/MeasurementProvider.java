@@ -19,16 +19,24 @@
 package org.envirocar.algorithm;
 
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.trackprocessing.simplification.TrackSimplifier;
 import org.envirocar.obd.events.PropertyKeyEvent;
 import org.envirocar.obd.events.Timestamped;
 
 import io.reactivex.Observable;
 
 /**
- * TODO JavaDoc
+ * Provides measurements sampled from the considered values and positions.
  */
 public interface MeasurementProvider {
 
+    /**
+     * Emits a measurement at a fixed rate on the scheduler of the provider, whose clock also
+     * provides the timestamps of the provider. The subscription must not block a thread.
+     *
+     * @param samplingRate the sampling period in milliseconds.
+     * @return the measurements.
+     */
     Observable<Measurement> measurements(long samplingRate);
 
     void consider(PropertyKeyEvent pke);
@@ -58,5 +66,44 @@ public interface MeasurementProvider {
         public double getLongitude() {
             return longitude;
         }
+
+        /**
+         * Creates a streaming simplifier of positions.
+         *
+         * @param spatialTolerance  the spatial tolerance in meters.
+         * @param temporalTolerance the maximum duration between kept positions in milliseconds.
+         * @return the simplifier.
+         */
+        public static TrackSimplifier<Position> simplifier(double spatialTolerance, long temporalTolerance) {
+            return new TrackSimplifier<>(ACCESSOR, spatialTolerance, temporalTolerance, 0.0);
+        }
+
+        private static final TrackSimplifier.PointAccessor<Position> ACCESSOR =
+                new TrackSimplifier.PointAccessor<Position>() {
+                    @Override
+                    public long getTime(Position point) {
+                        return point.getTimestamp();
+                    }
+
+                    @Override
+                    public double getLatitude(Position point) {
+                        return point.getLatitude();
+                    }
+
+                    @Override
+                    public double getLongitude(Position point) {
+                        return point.getLongitude();
+                    }
+
+                    @Override
+                    public int getValueCount() {
+                        return 0;
+                    }
+
+                    @Override
+                    public double getValue(Position point, int index) {
+                        throw new IndexOutOfBoundsException("Positions have no values");
+                    }
+                };
     }
 }
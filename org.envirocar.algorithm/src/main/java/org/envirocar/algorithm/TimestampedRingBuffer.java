@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.envirocar.obd.events.Timestamped;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A bounded buffer of timestamped elements in time order. When the buffer is full, adding an
+ * element drops the oldest one, so the memory is bounded no matter how fast elements are
+ * produced. Elements that arrive out of order are inserted at their position in time.
+ * <p>
+ * All methods are synchronized on the buffer itself, so producers of different buffers do
+ * not contend with each other.
+ *
+ * @param <T> the type of the elements.
+ * @author dewall
+ */
+public class TimestampedRingBuffer<T extends Timestamped> {
+
+    private final Timestamped[] elements;
+    private int head;
+    private int size;
+    private int dropped;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of buffered elements.
+     */
+    public TimestampedRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.elements = new Timestamped[capacity];
+    }
+
+    /**
+     * Adds an element, dropping the oldest element if the buffer is full.
+     *
+     * @param element the element to add.
+     */
+    public synchronized void add(T element) {
+        int capacity = elements.length;
+        long timestamp = element.getTimestamp();
+        if (size == capacity) {
+            if (timestamp < elements[head].getTimestamp()) {
+                // older than all buffered elements, so it would be dropped right away.
+                dropped++;
+                return;
+            }
+            head = (head + 1) % capacity;
+            size--;
+            dropped++;
+        }
+
+        // elements usually arrive in order, so the insertion position is the end.
+        int position = size;
+        while (position > 0 && elements[(head + position - 1) % capacity].getTimestamp() > timestamp) {
+            elements[(head + position) % capacity] = elements[(head + position - 1) % capacity];
+            position--;
+        }
+        elements[(head + position) % capacity] = element;
+        size++;
+    }
+
+    /**
+     * @return the number of buffered elements.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of elements dropped since the buffer has been created, because the
+     * buffer was full.
+     */
+    public synchronized int getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Removes all buffered elements.
+     *
+     * @return the removed elements in time order.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> drain() {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % elements.length;
+            result.add((T) elements[index]);
+            elements[index] = null;
+        }
+        head = 0;
+        size = 0;
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Finds the first index of a time ordered list, so that the element at the index and its
+     * successor enclose the target timestamp.
+     *
+     * @param elements        the elements in time order.
+     * @param targetTimestamp the target timestamp.
+     * @return the index of the start element, or 0 if no elements enclose the timestamp.
+     */
+    public static int findStartIndex(List<? extends Timestamped> elements, long targetTimestamp) {
+        // the first index with a timestamp not before the target
+        int low = 0;
+        int high = elements.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (elements.get(middle).getTimestamp() < targetTimestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        if (low == 0 || low == elements.size()) {
+            return 0;
+        }
+        return low - 1;
+    }
+}
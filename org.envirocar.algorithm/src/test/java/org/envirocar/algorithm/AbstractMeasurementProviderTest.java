@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.envirocar.obd.events.PropertyKeyEvent;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+public class AbstractMeasurementProviderTest {
+
+    private static final long SAMPLING_RATE = 1000;
+
+    @Test
+    public void testFixedRateTicks() {
+        TestScheduler scheduler = new TestScheduler();
+        scheduler.advanceTimeTo(1500000000000L, TimeUnit.MILLISECONDS);
+        long start = scheduler.now(TimeUnit.MILLISECONDS);
+        SpeedProvider provider = new SpeedProvider(scheduler);
+
+        TestObserver<Measurement> observer = provider.measurements(SAMPLING_RATE).test();
+        observer.assertNoValues();
+
+        // a full hour of sampling in virtual time
+        for (int i = 1; i <= 3600; i++) {
+            provider.newPosition(new MeasurementProvider.Position(provider.now(), 51.9, 7.6));
+            provider.consider(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, 50, provider.now()));
+            scheduler.advanceTimeBy(SAMPLING_RATE, TimeUnit.MILLISECONDS);
+        }
+
+        List<Measurement> measurements = observer.values();
+        Assert.assertThat(measurements.size(), CoreMatchers.is(3600));
+        for (int i = 0; i < measurements.size(); i++) {
+            Assert.assertThat(measurements.get(i).getTime(), CoreMatchers.is(start + (i + 1) * SAMPLING_RATE));
+        }
+    }
+
+    @Test
+    public void testIncompleteMeasurementsAreSkipped() {
+        TestScheduler scheduler = new TestScheduler();
+        SpeedProvider provider = new SpeedProvider(scheduler);
+        TestObserver<Measurement> observer = provider.measurements(SAMPLING_RATE).test();
+
+        // a position without speed
+        provider.newPosition(new MeasurementProvider.Position(provider.now(), 51.9, 7.6));
+        scheduler.advanceTimeBy(SAMPLING_RATE, TimeUnit.MILLISECONDS);
+        observer.assertNoValues();
+
+        provider.consider(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, 30, provider.now()));
+        provider.newPosition(new MeasurementProvider.Position(provider.now(), 51.9, 7.6));
+        scheduler.advanceTimeBy(SAMPLING_RATE, TimeUnit.MILLISECONDS);
+        observer.assertValueCount(1);
+        Assert.assertThat(provider.ticks, CoreMatchers.is(2));
+    }
+
+    @Test
+    public void testDisposeStopsTicks() {
+        TestScheduler scheduler = new TestScheduler();
+        SpeedProvider provider = new SpeedProvider(scheduler);
+        TestObserver<Measurement> observer = provider.measurements(SAMPLING_RATE).test();
+
+        scheduler.advanceTimeBy(3 * SAMPLING_RATE, TimeUnit.MILLISECONDS);
+        observer.dispose();
+        scheduler.advanceTimeBy(10 * SAMPLING_RATE, TimeUnit.MILLISECONDS);
+
+        Assert.assertThat(provider.ticks, CoreMatchers.is(3));
+    }
+
+    /**
+     * Samples the last position and speed at the tick.
+     */
+    private static class SpeedProvider extends AbstractMeasurementProvider {
+        private volatile PropertyKeyEvent speed;
+        private int ticks;
+
+        SpeedProvider(TestScheduler scheduler) {
+            super(scheduler);
+        }
+
+        @Override
+        public void consider(PropertyKeyEvent pke) {
+            this.speed = pke;
+        }
+
+        @Override
+        protected Measurement createMeasurement() {
+            ticks++;
+            Measurement m = new PrimitiveMeasurement();
+            m.setTime(now());
+            List<Position> positions = getAndClearPositionBuffer();
+            if (!positions.isEmpty()) {
+                m.setLatitude(positions.get(positions.size() - 1).getLatitude());
+                m.setLongitude(positions.get(positions.size() - 1).getLongitude());
+            }
+            if (speed != null) {
+                m.setProperty(Measurement.PropertyKey.SPEED, speed.getValue().doubleValue());
+                speed = null;
+            }
+            return m;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.obd.events.PropertyKeyEvent;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class TimestampedRingBufferTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 5000;
+
+    @Test
+    public void testTimeOrder() {
+        TimestampedRingBuffer<PropertyKeyEvent> buffer = new TimestampedRingBuffer<>(8);
+        for (long timestamp : new long[]{1000, 3000, 2000, 4000, 500}) {
+            buffer.add(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, timestamp, timestamp));
+        }
+
+        Assert.assertThat(timestamps(buffer.drain()), CoreMatchers.is(Arrays.asList(500L, 1000L, 2000L, 3000L, 4000L)));
+        Assert.assertThat(buffer.size(), CoreMatchers.is(0));
+        Assert.assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    public void testBoundedMemory() {
+        TimestampedRingBuffer<PropertyKeyEvent> buffer = new TimestampedRingBuffer<>(4);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(new PropertyKeyEvent(Measurement.PropertyKey.RPM, i, 1000L + i));
+        }
+        // an element older than all buffered elements is dropped right away.
+        buffer.add(new PropertyKeyEvent(Measurement.PropertyKey.RPM, -1, 0L));
+
+        Assert.assertThat(buffer.size(), CoreMatchers.is(4));
+        Assert.assertThat(buffer.getDroppedCount(), CoreMatchers.is(97));
+        Assert.assertThat(timestamps(buffer.drain()), CoreMatchers.is(Arrays.asList(1096L, 1097L, 1098L, 1099L)));
+    }
+
+    @Test
+    public void testFindStartIndex() {
+        List<PropertyKeyEvent> events = new ArrayList<>();
+        for (long timestamp : new long[]{1000, 2000, 2000, 3000, 5000}) {
+            events.add(new PropertyKeyEvent(Measurement.PropertyKey.MAF, timestamp, timestamp));
+        }
+
+        for (long target = 0; target <= 6000; target += 250) {
+            Assert.assertThat("target " + target, TimestampedRingBuffer.findStartIndex(events, target),
+                    CoreMatchers.is(findStartIndexLinear(events, target)));
+        }
+        Assert.assertThat(TimestampedRingBuffer.findStartIndex(new ArrayList<PropertyKeyEvent>(), 1000),
+                CoreMatchers.is(0));
+    }
+
+    /**
+     * Feeds events from several OBD threads while a sampler thread drains the buffer.
+     */
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        int events = PRODUCERS * EVENTS_PER_PRODUCER;
+        TimestampedRingBuffer<PropertyKeyEvent> buffer = new TimestampedRingBuffer<>(events);
+        CountDownLatch finished = new CountDownLatch(PRODUCERS);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers.add(new Thread(() -> {
+                for (int i = producer; i < events; i += PRODUCERS) {
+                    buffer.add(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, i, 1000L + i));
+                }
+                finished.countDown();
+            }));
+        }
+        producers.forEach(Thread::start);
+
+        List<PropertyKeyEvent> sampled = new ArrayList<>();
+        boolean done;
+        do {
+            done = finished.getCount() == 0;
+            List<PropertyKeyEvent> drained = buffer.drain();
+            for (int i = 1; i < drained.size(); i++) {
+                Assert.assertTrue(drained.get(i - 1).getTimestamp() <= drained.get(i).getTimestamp());
+            }
+            sampled.addAll(drained);
+        } while (!done);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // nothing is dropped or drained twice.
+        Assert.assertThat(buffer.getDroppedCount(), CoreMatchers.is(0));
+        Set<Long> timestamps = new HashSet<>(timestamps(sampled));
+        Assert.assertThat(sampled.size(), CoreMatchers.is(events));
+        Assert.assertThat(timestamps.size(), CoreMatchers.is(events));
+    }
+
+    private static int findStartIndexLinear(List<PropertyKeyEvent> events, long targetTimestamp) {
+        for (int i = 0; i + 1 < events.size(); i++) {
+            if (events.get(i).getTimestamp() <= targetTimestamp
+                    && events.get(i + 1).getTimestamp() >= targetTimestamp) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static List<Long> timestamps(List<PropertyKeyEvent> events) {
+        List<Long> result = new ArrayList<>();
+        for (PropertyKeyEvent event : events) {
+            result.add(event.getTimestamp());
+        }
+        return result;
+    }
+}
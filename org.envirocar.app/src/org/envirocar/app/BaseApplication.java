@@ -39,7 +39,10 @@ import org.envirocar.app.handler.userstatistics.UserStatisticsProcessor;
 import org.envirocar.app.notifications.AutomaticUploadNotificationHandler;
 import org.envirocar.app.notifications.NotificationHandler;
 import org.envirocar.app.rxutils.RxBroadcastReceiver;
+import org.envirocar.app.recording.provider.RecordingJournal;
+import org.envirocar.core.EnviroCarDB;
 import org.envirocar.core.injection.InjectApplicationScope;
+import org.envirocar.core.injection.InjectDatabaseWriteScheduler;
 import org.envirocar.core.logging.ACRASenderFactory;
 import org.envirocar.core.logging.Logger;
 import org.envirocar.core.util.Util;
@@ -50,10 +53,18 @@ import org.envirocar.remote.service.FuelingService;
 import org.envirocar.remote.service.TermsOfUseService;
 import org.envirocar.remote.service.TrackService;
 import org.envirocar.remote.service.UserService;
+import org.envirocar.storage.RetentionPolicy;
+import org.envirocar.storage.StorageRetention;
+
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
 import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
 
 
 /**
@@ -62,6 +73,7 @@ import io.reactivex.disposables.CompositeDisposable;
 @AcraCore(buildConfigClass = BuildConfig.class, reportSenderFactoryClasses = ACRASenderFactory.class)
 public class BaseApplication extends Application {
     private static Logger LOG = Logger.getLogger(BaseApplication.class);
+    private static final long RETENTION_PERIOD_HOURS = 6;
 
     BaseApplicationComponent baseApplicationComponent;
     protected BroadcastReceiver mScreenReceiver;
@@ -87,6 +99,15 @@ public class BaseApplication extends Application {
     protected LocationHandler locationHandler;
     @Inject
     protected AutomaticUploadNotificationHandler automaticUploadHandler;
+    @Inject
+    protected StorageRetention storageRetention;
+    @Inject
+    protected RecordingJournal recordingJournal;
+    @Inject
+    protected EnviroCarDB enviroCarDB;
+    @Inject
+    @InjectDatabaseWriteScheduler
+    protected Scheduler databaseWriteScheduler;
 
 
     private CompositeDisposable disposables = new CompositeDisposable();
@@ -131,6 +152,29 @@ public class BaseApplication extends Application {
                         .doOnError(LOG::error)
                         .subscribe());
 
+        // recover the measurements of a recording that was interrupted by a crash. This runs on
+        // the write scheduler ahead of any new recording.
+        this.disposables.add(
+                Single.fromCallable(() -> recordingJournal.replay(enviroCarDB))
+                        .subscribeOn(databaseWriteScheduler)
+                        .subscribe(recovered -> LOG.info("Recovered %s measurements", "" + recovered),
+                                LOG::error));
+
+        // enforce the local storage limits in the background while the user opted into them
+        this.disposables.add(
+                ApplicationSettings.getStorageLimitObservable(this)
+                        .doOnNext(limited -> LOG.info("Storage limit enabled: %s", limited.toString()))
+                        .switchMap(limited -> {
+                            storageRetention.setPolicy(limited ?
+                                    RetentionPolicy.LIMITED : RetentionPolicy.DEFAULT);
+                            return limited ? Observable.using(
+                                    () -> storageRetention.start(RETENTION_PERIOD_HOURS, TimeUnit.HOURS),
+                                    enforcement -> Observable.never(),
+                                    Disposable::dispose) : Observable.empty();
+                        })
+                        .doOnError(LOG::error)
+                        .subscribe());
+
         // register Intentfilter for logging screen changes
         IntentFilter screenIntentFilter = new IntentFilter();
         screenIntentFilter.addAction(Intent.ACTION_SCREEN_OFF);
@@ -33,6 +33,7 @@ import org.envirocar.app.handler.TemporaryFileManager;
 import org.envirocar.app.handler.TrackRecordingHandler;
 import org.envirocar.app.injection.modules.RepositoryModule;
 import org.envirocar.app.injection.modules.SchedulerModule;
+import org.envirocar.app.recording.provider.RecordingJournal;
 import org.envirocar.core.injection.InjectApplicationScope;
 import org.envirocar.app.injection.modules.OBDServiceModule;
 import org.envirocar.core.CacheDirectoryProvider;
@@ -42,6 +43,8 @@ import org.envirocar.app.handler.DAOProvider;
 import org.envirocar.remote.injection.modules.RemoteModule;
 import org.envirocar.storage.DatabaseModule;
 
+import java.io.File;
+
 import javax.inject.Singleton;
 
 import dagger.Module;
@@ -138,6 +141,17 @@ public class BaseApplicationModule {
         return new TemporaryFileManager(mAppContext);
     }
 
+    /**
+     * Provides the journal of the recorded measurements that are not yet stored in the database.
+     *
+     * @return the recording journal of the application.
+     */
+    @Provides
+    @Singleton
+    RecordingJournal provideRecordingJournal() {
+        return new RecordingJournal(new File(mAppContext.getFilesDir(), RecordingJournal.FILE_NAME));
+    }
+
     @Provides
     @Singleton
     TrackRecordingHandler provideTrackHandler() {
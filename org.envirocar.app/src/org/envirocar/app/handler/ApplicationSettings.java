@@ -47,6 +47,8 @@ public class ApplicationSettings {
     public static final boolean DEFAULT_BLUETOOTH_SERVICE_AUTOSTART = true;
     public static final boolean DEFAULT_PREF_ENABLE_GPS_BASED_TRACK_RECORDING = false;
     public static final boolean DEFAULT_OBFUSCATION = false;
+    public static final boolean DEFAULT_TRACK_SIMPLIFICATION = false;
+    public static final boolean DEFAULT_STORAGE_LIMIT = false;
     public static final int DEFAULT_BLUETOOTH_DISCOVERY_INTERVAL = 60;
     public static final int DEFAULT_TRACK_TRIM_DURATION = 110;
     public static final boolean DEFAULT_DEBUG_LOGGING = false;
@@ -98,6 +100,16 @@ public class ApplicationSettings {
                 .asObservable();
     }
 
+    public static boolean isTrackSimplificationEnabled(Context context) {
+        return getSharedPreferences(context).getBoolean(s(context, R.string.prefkey_track_simplification), DEFAULT_TRACK_SIMPLIFICATION);
+    }
+
+    public static Observable<Boolean> getStorageLimitObservable(Context context) {
+        return getRxSharedPreferences(context)
+                .getBoolean(s(context, R.string.prefkey_storage_limit), DEFAULT_STORAGE_LIMIT)
+                .asObservable();
+    }
+
     public static boolean isTextToSpeechEnabled(Context context) {
         return getSharedPreferences(context).getBoolean(s(context, R.string.prefkey_text_to_speech), DEFAULT_TEXT_TO_SPEECH);
     }
@@ -23,92 +23,129 @@ import android.location.Location;
 import com.squareup.otto.Subscribe;
 
 import org.envirocar.algorithm.AbstractMeasurementProvider;
+import org.envirocar.algorithm.TimestampedRingBuffer;
 import org.envirocar.core.entity.Measurement;
-import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.PrimitiveMeasurement;
 import org.envirocar.core.events.gps.GpsDOP;
 import org.envirocar.core.events.gps.GpsDOPEvent;
 import org.envirocar.core.events.gps.GpsLocationChangedEvent;
 import org.envirocar.core.logging.Logger;
 import org.envirocar.obd.events.PropertyKeyEvent;
-import org.envirocar.obd.events.Timestamped;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 
 
 /**
- * TODO JavaDoc
+ * Creates measurements by interpolating the values of each property at the middle of the time
+ * window of the values received since the previous measurement.
+ * <p>
+ * The values are buffered in a bounded, time ordered ring buffer per property. Therefore, OBD
+ * threads producing values of different properties do not contend with each other, and the
+ * memory is bounded no matter how fast an adapter produces values.
  */
 public class InterpolationMeasurementProvider extends AbstractMeasurementProvider {
     private static final Logger LOG = Logger.getLogger(InterpolationMeasurementProvider.class);
 
-    private Map<Measurement.PropertyKey, List<PropertyKeyEvent>> bufferedResponses = new
-            HashMap<>();
-    private long firstTimestampToBeConsidered;
+    /**
+     * The maximum number of buffered values per property between two measurements.
+     */
+    private static final int BUFFER_CAPACITY = 256;
+
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+
+    // the buffers indexed by the ordinal of their property key, created on the first value.
+    private final AtomicReferenceArray<TimestampedRingBuffer<PropertyKeyEvent>> bufferedResponses =
+            new AtomicReferenceArray<>(KEYS.length);
     private long lastTimestampToBeConsidered;
 
-    /*
-     * TODO implement listing for GPS DOP Events
+    /**
+     * Constructor using the computation scheduler, i.e., the system clock.
      */
+    public InterpolationMeasurementProvider() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param scheduler the scheduler providing the sampling ticks and the clock.
+     */
+    public InterpolationMeasurementProvider(Scheduler scheduler) {
+        super(scheduler);
+    }
+
     @Override
-    public Observable<Measurement> measurements(long samplingRate) {
-        return Observable.create(emitter -> {
-            LOG.info("measurements(): start collecting data");
-            while (!emitter.isDisposed()) {
-                synchronized (InterpolationMeasurementProvider.this) {
-                    /**
-                     * wait the sampling rate
-                     */
-                    try {
-                        InterpolationMeasurementProvider.this.wait(samplingRate);
-                    } catch (InterruptedException e) {
-                        if (!emitter.isDisposed())
-                            emitter.onError(e);
-                    }
-
-                    Measurement m = createMeasurement();
-
-                    if (m != null && m.getLatitude() != null && m.getLongitude() != null &&
-                            (m.hasProperty(Measurement.PropertyKey.SPEED) ||
-                                    m.hasProperty(Measurement.PropertyKey.GPS_SPEED))) {
-                        LOG.info("Emitting next measuremnet");
-                        emitter.onNext(m);
-                    }
-                }
+    protected Measurement createMeasurement() {
+        /**
+         * take the buffered values, values received from now on are considered for the next
+         * measurement
+         */
+        List<PropertyKeyEvent>[] responses = drainBuffers();
+        List<Position> positions = getAndClearPositionBuffer();
+
+        long firstTimestampToBeConsidered = 0;
+        for (List<PropertyKeyEvent> events : responses) {
+            if (events != null) {
+                firstTimestampToBeConsidered = considerTimestamps(firstTimestampToBeConsidered,
+                        events.get(0).getTimestamp(), events.get(events.size() - 1).getTimestamp());
             }
-            LOG.info("measurements(): finished the collection of data.");
-            emitter.onComplete();
-        });
-    }
+        }
+        if (!positions.isEmpty()) {
+            firstTimestampToBeConsidered = considerTimestamps(firstTimestampToBeConsidered,
+                    positions.get(0).getTimestamp(), positions.get(positions.size() - 1).getTimestamp());
+        }
 
-    private synchronized Measurement createMeasurement() {
         /**
          * use the middle of the time window
          */
         long targetTimestamp = firstTimestampToBeConsidered + ((lastTimestampToBeConsidered -
                 firstTimestampToBeConsidered) / 2);
 
-        Measurement m = new MeasurementImpl();
+        Measurement m = new PrimitiveMeasurement();
         m.setTime(targetTimestamp);
 
-        for (Measurement.PropertyKey pk : this.bufferedResponses.keySet()) {
-            appendToMeasurement(pk, this.bufferedResponses.get(pk), m);
-            LOG.info("append key " + pk.toString());
+        for (int i = 0; i < responses.length; i++) {
+            if (responses[i] != null) {
+                appendToMeasurement(KEYS[i], responses[i], m);
+                LOG.info("append key " + KEYS[i].toString());
+            }
         }
 
-        /**
-         * clear the buffer of DataResponses to be considered
-         */
-        clearBuffer();
-        setPosition(m, getAndClearPositionBuffer());
+        setPosition(m, positions);
 
         return m;
     }
 
+    /**
+     * @return the buffered values per property key ordinal in time order, null for property
+     * keys without values.
+     */
+    @SuppressWarnings("unchecked")
+    private List<PropertyKeyEvent>[] drainBuffers() {
+        List<PropertyKeyEvent>[] result = new List[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++) {
+            TimestampedRingBuffer<PropertyKeyEvent> buffer = bufferedResponses.get(i);
+            if (buffer != null) {
+                List<PropertyKeyEvent> events = buffer.drain();
+                result[i] = events.isEmpty() ? null : events;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Extends the time window by the given timestamps.
+     *
+     * @return the first timestamp of the time window.
+     */
+    private long considerTimestamps(long firstTimestamp, long start, long end) {
+        this.lastTimestampToBeConsidered = Math.max(this.lastTimestampToBeConsidered, end);
+        return firstTimestamp == 0 ? start : Math.min(firstTimestamp, start);
+    }
+
     private void setPosition(Measurement m, List<Position> positionBuffer) {
         if (positionBuffer == null || positionBuffer.isEmpty()) {
             return;
@@ -124,7 +161,7 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
             /**
              * find the closest two measurements
              */
-            int startIndex = findStartIndex(positionBuffer, targetTimestamp);
+            int startIndex = TimestampedRingBuffer.findStartIndex(positionBuffer, targetTimestamp);
             Position start = positionBuffer.get(startIndex);
             Position end = startIndex + 1 < positionBuffer.size() ? positionBuffer.get(startIndex
                     + 1) : null;
@@ -171,7 +208,7 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
         /**
          * find the closest two measurements
          */
-        int startIndex = findStartIndex(dataResponses, targetTimestamp);
+        int startIndex = TimestampedRingBuffer.findStartIndex(dataResponses, targetTimestamp);
         PropertyKeyEvent start = dataResponses.get(startIndex);
         PropertyKeyEvent end = startIndex + 1 < dataResponses.size() ? dataResponses.get
                 (startIndex + 1) : null;
@@ -181,20 +218,6 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
                 end != null ? end.getTimestamp() : 0L);
     }
 
-    private int findStartIndex(List<? extends Timestamped> dataResponses, long targetTimestamp) {
-        int i = 0;
-        while (i + 1 < dataResponses.size()) {
-            if (dataResponses.get(i).getTimestamp() <= targetTimestamp
-                    && dataResponses.get(i + 1).getTimestamp() >= targetTimestamp) {
-                return i;
-            }
-
-            i++;
-        }
-
-        return 0;
-    }
-
     /**
      * @param start           the start value
      * @param end             the end value
@@ -222,47 +245,28 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
         return start.doubleValue() * startWeight + end.doubleValue() * endWeight;
     }
 
-    private void clearBuffer() {
-        for (List<PropertyKeyEvent> drl : this.bufferedResponses.values()) {
-            drl.clear();
-        }
-
-        /**
-         * reset the first timestamp
-         */
-        this.firstTimestampToBeConsidered = 0;
-    }
-
     @Override
     @Subscribe
-    public synchronized void consider(PropertyKeyEvent pke) {
-        updateTimestamps(pke);
-
+    public void consider(PropertyKeyEvent pke) {
         Measurement.PropertyKey pk = pke.getPropertyKey();
 
         if (pk == null) {
             return;
         }
 
-        if (bufferedResponses.containsKey(pk)) {
-            bufferedResponses.get(pk).add(pke);
-        } else {
-            List<PropertyKeyEvent> list = new ArrayList<>();
-            list.add(pke);
-            bufferedResponses.put(pk, list);
+        TimestampedRingBuffer<PropertyKeyEvent> buffer = bufferedResponses.get(pk.ordinal());
+        if (buffer == null) {
+            bufferedResponses.compareAndSet(pk.ordinal(), null,
+                    new TimestampedRingBuffer<>(BUFFER_CAPACITY));
+            buffer = bufferedResponses.get(pk.ordinal());
         }
-    }
-
-    @Override
-    public synchronized void newPosition(Position pos) {
-        super.newPosition(pos);
-        updateTimestamps(pos);
+        buffer.add(pke);
     }
 
     @Subscribe
     public void newLocation(GpsLocationChangedEvent loc) {
         Location location = loc.mLocation;
-        long now = System.currentTimeMillis();
+        long now = now();
 
         newPosition(new Position(now, location.getLatitude(), location.getLongitude()));
 
@@ -287,22 +291,10 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
         }
     }
 
-    private void updateTimestamps(Timestamped dr) {
-        this.lastTimestampToBeConsidered = Math.max(this.lastTimestampToBeConsidered, dr
-                .getTimestamp());
-
-        if (this.firstTimestampToBeConsidered == 0) {
-            this.firstTimestampToBeConsidered = dr.getTimestamp();
-        } else {
-            this.firstTimestampToBeConsidered = Math.min(this.firstTimestampToBeConsidered, dr
-                    .getTimestamp());
-        }
-    }
-
     @Subscribe
     public void receiveGpsDOP(GpsDOPEvent e) {
         GpsDOP dop = e.mDOP;
-        long now = System.currentTimeMillis();
+        long now = now();
 
         if (dop.hasHdop()) {
             consider(new PropertyKeyEvent(Measurement.PropertyKey.GPS_HDOP, dop.getHdop(), now));
@@ -140,8 +140,7 @@ public class TrackDAOHandler {
     }
 
     public Observable<Integer> getLocalTrackCount() {
-        return enviroCarDB.getAllLocalTracks(true)
-                .map(tracks -> tracks.size());
+        return enviroCarDB.getAllLocalTracksCount();
     }
 
     public Observable<TrackMetadata> updateTrackMetadataObservable(Track track, String touVersion) {
@@ -37,11 +37,13 @@ import org.envirocar.core.logging.Logger;
 import org.envirocar.core.utils.TrackUtils;
 import org.envirocar.core.utils.rx.OptionalOrError;
 
+import java.util.EnumSet;
 import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.ObservableOperator;
 import io.reactivex.ObservableTransformer;
@@ -180,10 +182,10 @@ public class TrackUploadHandler {
                 .compose(validateCarOfTrack())
                 // Update the track metadata.
                 .compose(updateTrackMetadata())
-                // obfuscate the track.
-                .map(asObfuscatedTrackWhenChecked())
-                // Upload the track
-                .flatMap(obfTrack -> mDAOProvider.getTrackDAO().createTrackObservable(obfTrack))
+                // Upload the track while its (non obfuscated) measurements are streamed from
+                // the database.
+                .flatMap(validTrack -> mDAOProvider.getTrackDAO().createTrackObservable(
+                        validTrack, getMeasurementsForUpload(validTrack)))
                 // Update the database entry
                 .flatMap(uploadedTrack -> mEnviroCarDB.updateTrackObservable(uploadedTrack))
                 .lift(new UploadExceptionMappingOperator());
@@ -214,18 +216,23 @@ public class TrackUploadHandler {
         };
     }
 
-    private Function<Track, Track> asObfuscatedTrackWhenChecked() {
-        return track -> {
-            LOG.info("asObfuscatedTrackWhenChecked()");
-            if (ApplicationSettings.isObfuscationEnabled(mContext)) {
-                LOG.info(String.format("obfuscation is enabled. Obfuscating track with %s " +
-                        "measurements.", "" + track.getMeasurements().size()));
-                return TrackUtils.getObfuscatedTrack(track);
-            } else {
-                LOG.info("obfuscation is disabled.");
-                return track;
-            }
-        };
+    private Flowable<Measurement> getMeasurementsForUpload(Track track)
+            throws NoMeasurementsException {
+        LOG.info("getMeasurementsForUpload()");
+        if (ApplicationSettings.isObfuscationEnabled(mContext)) {
+            LOG.info(String.format("obfuscation is enabled. Obfuscating track %s.",
+                    track.getTrackID()));
+            // only the positions are read to determine the obfuscated measurements.
+            long[] range = TrackUtils.getNonObfuscatedTimeRange(track, mEnviroCarDB
+                    .getMeasurementsFlowable(track.getTrackID(), Long.MIN_VALUE, Long.MAX_VALUE,
+                            EnumSet.noneOf(Measurement.PropertyKey.class))
+                    .blockingIterable());
+            return mEnviroCarDB.getMeasurementsFlowable(track.getTrackID(), range[0], range[1],
+                    null);
+        } else {
+            LOG.info("obfuscation is disabled.");
+            return mEnviroCarDB.getMeasurementsFlowable(track.getTrackID());
+        }
     }
 
     private ObservableTransformer<Track, Track> validateCarOfTrack() {
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.interactor;
+
+import org.envirocar.core.EnviroCarDB;
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.injection.InjectDatabaseWriteScheduler;
+import org.envirocar.core.injection.InjectIOScheduler;
+import org.envirocar.core.injection.InjectUIScheduler;
+import org.envirocar.core.interactor.Interactor;
+import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.MeasurementEnhancer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Recomputes the derived properties of stored tracks (see
+ * {@link MeasurementEnhancer#DERIVED_PROPERTIES}), e.g., after the car of the tracks has been
+ * corrected or the consumption algorithms have changed. Tracks are reprocessed in parallel on a
+ * bounded pool and written back in batches on the database write scheduler. The progress is
+ * emitted after each batch, and disposing the subscription cancels the reprocessing of all
+ * remaining tracks. Tracks that are currently recorded are skipped and counted as failed.
+ *
+ * @author dewall
+ */
+@Singleton
+public class ReprocessTracks extends Interactor<ReprocessTracks.Progress, ReprocessTracks.Params> {
+    private static final Logger LOG = Logger.getLogger(ReprocessTracks.class);
+
+    protected static final int BATCH_SIZE = 10;
+    protected static final int MAX_PARALLELISM = 4;
+
+    private final EnviroCarDB enviroCarDB;
+    private final Scheduler writeScheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param observeOn
+     * @param subscribeOn
+     * @param enviroCarDB
+     * @param writeScheduler the scheduler to perform all database writes on.
+     */
+    @Inject
+    public ReprocessTracks(@InjectUIScheduler Scheduler observeOn, @InjectIOScheduler Scheduler subscribeOn,
+                           EnviroCarDB enviroCarDB, @InjectDatabaseWriteScheduler Scheduler writeScheduler) {
+        super(observeOn, subscribeOn);
+        this.enviroCarDB = enviroCarDB;
+        this.writeScheduler = writeScheduler;
+    }
+
+    @Override
+    protected Observable<Progress> buildObservable(Params params) {
+        return Observable.defer(() -> {
+            int total = params.trackIds.size();
+            int parallelism = Math.max(1, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors() - 1));
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            Scheduler pool = Schedulers.from(executor);
+            AtomicInteger failed = new AtomicInteger();
+            AtomicInteger processed = new AtomicInteger();
+
+            return Observable.fromIterable(params.trackIds)
+                    // large tracks are loaded without the timeout of getTrack().
+                    .flatMap(trackId -> enviroCarDB.findTrack(trackId, false)
+                            .subscribeOn(pool)
+                            .map(track -> reprocess(track, params.car))
+                            .doOnComplete(() -> {
+                                LOG.warn(String.format("Track %s has been deleted in the meantime", trackId));
+                                failed.incrementAndGet();
+                            })
+                            .toObservable()
+                            .onErrorResumeNext(throwable -> {
+                                LOG.error(String.format("Unable to reprocess track %s", trackId), throwable);
+                                failed.incrementAndGet();
+                                return Observable.empty();
+                            }), parallelism)
+                    .buffer(BATCH_SIZE)
+                    .observeOn(writeScheduler)
+                    .map(tracks -> {
+                        // tracks whose recording has been resumed in the meantime are skipped.
+                        int replaced = enviroCarDB.replaceMeasurements(tracks);
+                        failed.addAndGet(tracks.size() - replaced);
+                        return new Progress(processed.addAndGet(replaced), failed.get(), total);
+                    })
+                    .startWith(new Progress(0, 0, total))
+                    // failed tracks after the last batch are reported separately.
+                    .concatWith(Observable.defer(() -> failed.get() > 0 ?
+                            Observable.just(new Progress(processed.get(), failed.get(), total)) :
+                            Observable.empty()))
+                    .doFinally(executor::shutdownNow);
+        });
+    }
+
+    private Track reprocess(Track track, Car car) {
+        if (track.getTrackStatus() == Track.TrackStatus.ONGOING) {
+            throw new IllegalStateException(String.format("Track %s is being recorded",
+                    track.getTrackID()));
+        }
+        if (car != null) {
+            track.setCar(car);
+        }
+        track.setMeasurements(new MeasurementEnhancer(track.getCar()).reprocess(track.getMeasurements()));
+        return track;
+    }
+
+    public static class Params {
+        private final Collection<Track.TrackId> trackIds;
+        private final Car car;
+
+        /**
+         * Constructor.
+         *
+         * @param trackIds the ids of the tracks to reprocess.
+         * @param car      the corrected car of the tracks, or null to keep the car of each track.
+         */
+        public Params(Collection<Track.TrackId> trackIds, Car car) {
+            this.trackIds = new ArrayList<>(trackIds);
+            this.car = car;
+        }
+    }
+
+    public static class Progress {
+        private final int processedTracks;
+        private final int failedTracks;
+        private final int totalNumberOfTracks;
+
+        public Progress(int processedTracks, int failedTracks, int totalNumberOfTracks) {
+            this.processedTracks = processedTracks;
+            this.failedTracks = failedTracks;
+            this.totalNumberOfTracks = totalNumberOfTracks;
+        }
+
+        /**
+         * @return the number of tracks that have been reprocessed and stored.
+         */
+        public int getProcessedTracks() {
+            return processedTracks;
+        }
+
+        /**
+         * @return the number of tracks that could not be reprocessed.
+         */
+        public int getFailedTracks() {
+            return failedTracks;
+        }
+
+        public int getTotalNumberOfTracks() {
+            return totalNumberOfTracks;
+        }
+
+        public boolean isCompleted() {
+            return processedTracks + failedTracks == totalNumberOfTracks;
+        }
+    }
+}
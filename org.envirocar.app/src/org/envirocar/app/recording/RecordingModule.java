@@ -30,16 +30,19 @@ import org.envirocar.app.handler.preferences.CarPreferenceHandler;
 import org.envirocar.app.recording.notification.SpeechOutput;
 import org.envirocar.app.recording.provider.LocationProvider;
 import org.envirocar.app.recording.provider.RecordingDetailsProvider;
+import org.envirocar.app.recording.provider.RecordingJournal;
 import org.envirocar.app.recording.provider.TrackDatabaseSink;
 import org.envirocar.app.recording.strategy.GPSRecordingStrategy;
 import org.envirocar.app.recording.strategy.OBDRecordingStrategy;
 import org.envirocar.app.recording.strategy.RecordingStrategy;
 import org.envirocar.app.recording.strategy.obd.OBDConnectionHandler;
 import org.envirocar.core.injection.InjectApplicationScope;
+import org.envirocar.core.injection.InjectDatabaseWriteScheduler;
 import org.envirocar.core.EnviroCarDB;
 
 import dagger.Module;
 import dagger.Provides;
+import io.reactivex.Scheduler;
 
 @Module
 public class RecordingModule {
@@ -59,8 +62,10 @@ public class RecordingModule {
     @Provides
     @RecordingScope
     public TrackDatabaseSink provideTrackDatabaseSink(
-            @InjectApplicationScope Context context, CarPreferenceHandler carHandler, EnviroCarDB enviroCarDB, Bus eventBus) {
-        return new TrackDatabaseSink(context, carHandler, enviroCarDB, eventBus);
+            @InjectApplicationScope Context context, CarPreferenceHandler carHandler, EnviroCarDB enviroCarDB, Bus eventBus,
+            @InjectDatabaseWriteScheduler Scheduler writeScheduler, RecordingJournal journal) {
+        return new TrackDatabaseSink(context, carHandler, enviroCarDB, eventBus, writeScheduler,
+                journal);
     }
 
     @Provides
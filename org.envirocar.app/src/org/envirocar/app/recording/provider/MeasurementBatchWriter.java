@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.recording.provider;
+
+import org.envirocar.core.EnviroCarDB;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.exception.MeasurementSerializationException;
+import org.envirocar.core.logging.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Writes the measurements of a recorded track to the database in batches. Measurements are
+ * appended to a {@link RecordingJournal} as they are enqueued and written either when
+ * {@link #MAX_BATCH_SIZE} measurements are pending or, at the latest, every
+ * {@link #FLUSH_INTERVAL_MILLIS}, even if no further measurements arrive. After each batch, the
+ * journal is truncated. The periodic flush runs on the database write scheduler.
+ *
+ * @author dewall
+ */
+public class MeasurementBatchWriter {
+    private static final Logger LOG = Logger.getLogger(MeasurementBatchWriter.class);
+
+    public static final int MAX_BATCH_SIZE = 50;
+    public static final long FLUSH_INTERVAL_MILLIS = 10 * 1000;
+
+    private final EnviroCarDB enviroCarDB;
+    private final RecordingJournal journal;
+    private final Scheduler writeScheduler;
+
+    private final List<Measurement> pendingMeasurements = new ArrayList<>(MAX_BATCH_SIZE);
+    private Track track;
+    private Disposable flushTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param enviroCarDB    the database to write the measurements to.
+     * @param journal        the journal to append the measurements to until they are written.
+     * @param writeScheduler the scheduler to perform the periodic flush on.
+     */
+    public MeasurementBatchWriter(EnviroCarDB enviroCarDB, RecordingJournal journal,
+                                  Scheduler writeScheduler) {
+        this.enviroCarDB = enviroCarDB;
+        this.journal = journal;
+        this.writeScheduler = writeScheduler;
+    }
+
+    /**
+     * Starts writing the measurements of a track, which has to be stored already.
+     *
+     * @param track the recorded track.
+     */
+    public synchronized void start(Track track) {
+        stopFlushTimer();
+        this.track = track;
+        this.flushTimer = writeScheduler.schedulePeriodicallyDirect(this::flushPeriodically,
+                FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a measurement of the track to the journal and schedules it for the next batch.
+     *
+     * @param measurement the measurement to write.
+     * @throws MeasurementSerializationException if the batch could not be written.
+     */
+    public synchronized void enqueue(Measurement measurement) throws MeasurementSerializationException {
+        try {
+            journal.append(measurement);
+        } catch (IOException e) {
+            // the measurement is still stored with the next batch.
+            LOG.error("Unable to append the measurement to the recording journal", e);
+        }
+        pendingMeasurements.add(measurement);
+        if (pendingMeasurements.size() >= MAX_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all pending measurements and the progress of the track within one transaction. The
+     * remaining track attributes do not change while recording and are therefore not rewritten.
+     *
+     * @throws MeasurementSerializationException if the batch could not be written.
+     */
+    public synchronized void flush() throws MeasurementSerializationException {
+        if (pendingMeasurements.isEmpty() || track == null) {
+            return;
+        }
+
+        enviroCarDB.appendMeasurements(track, pendingMeasurements);
+        LOG.info(String.format("%s measurements stored", pendingMeasurements.size()));
+        pendingMeasurements.clear();
+
+        try {
+            journal.truncate();
+        } catch (IOException e) {
+            LOG.error("Unable to truncate the recording journal", e);
+        }
+    }
+
+    /**
+     * Writes the pending measurements and stops the periodic flush.
+     *
+     * @throws MeasurementSerializationException if the batch could not be written.
+     */
+    public synchronized void stop() throws MeasurementSerializationException {
+        stopFlushTimer();
+        try {
+            flush();
+        } finally {
+            pendingMeasurements.clear();
+            track = null;
+        }
+    }
+
+    private synchronized void flushPeriodically() {
+        try {
+            flush();
+        } catch (MeasurementSerializationException e) {
+            // the measurements remain pending and are retried with the next batch.
+            LOG.error("Unable to store the pending measurements", e);
+        }
+    }
+
+    private void stopFlushTimer() {
+        if (flushTimer != null) {
+            flushTimer.dispose();
+            flushTimer = null;
+        }
+    }
+}
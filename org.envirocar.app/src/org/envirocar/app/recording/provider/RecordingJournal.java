@@ -0,0 +1,354 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.recording.provider;
+
+import org.envirocar.core.EnviroCarDB;
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.exception.MeasurementSerializationException;
+import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsAccumulator;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProcessor;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProvider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file in which recorded measurements are kept until they are stored in the
+ * database. Appending a measurement only costs a buffered write; the buffer is flushed and
+ * synced to the storage device at most every {@link #SYNC_INTERVAL_MILLIS} milliseconds. Once
+ * the measurements are stored in the database, the journal is truncated.
+ * <p>
+ * Each record consists of its length, its payload and a CRC32 checksum of the payload, so that a
+ * record which was only partially written when the process died is detected and ignored. After
+ * a crash, {@link #replay(EnviroCarDB)} stores the journaled measurements that did not make it
+ * into the database and finishes their tracks.
+ *
+ * @author dewall
+ */
+public class RecordingJournal {
+    private static final Logger LOG = Logger.getLogger(RecordingJournal.class);
+
+    public static final String FILE_NAME = "recording.journal";
+    public static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final File file;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private long lastSyncTime;
+
+    /**
+     * Constructor.
+     *
+     * @param file the journal file.
+     */
+    public RecordingJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Appends a measurement to the journal. The measurement must already be assigned to its
+     * track.
+     *
+     * @param measurement the measurement to append.
+     * @throws IOException if the journal could not be written.
+     */
+    public synchronized void append(Measurement measurement) throws IOException {
+        record.reset();
+        recordOut.writeLong(measurement.getTrackId().getId());
+        recordOut.writeLong(measurement.getTime());
+        recordOut.writeDouble(measurement.getLatitude());
+        recordOut.writeDouble(measurement.getLongitude());
+
+        Map<Measurement.PropertyKey, Double> properties = measurement.getAllProperties();
+        recordOut.writeShort(properties.size());
+        for (Map.Entry<Measurement.PropertyKey, Double> entry : properties.entrySet()) {
+            // stored by name, which stays stable when the enum is extended.
+            recordOut.writeUTF(entry.getKey().name());
+            recordOut.writeDouble(entry.getValue());
+        }
+        recordOut.flush();
+
+        crc.reset();
+        crc.update(record.toByteArray(), 0, record.size());
+
+        DataOutputStream out = getOutputStream();
+        out.writeInt(record.size());
+        record.writeTo(out);
+        out.writeInt((int) crc.getValue());
+
+        if (System.currentTimeMillis() - lastSyncTime >= SYNC_INTERVAL_MILLIS) {
+            sync();
+        }
+    }
+
+    /**
+     * Writes all buffered records to the storage device.
+     *
+     * @throws IOException if the journal could not be written.
+     */
+    public synchronized void sync() throws IOException {
+        lastSyncTime = System.currentTimeMillis();
+        if (out != null) {
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Discards all records, e.g., after they have been stored in the database.
+     *
+     * @throws IOException if the journal could not be truncated.
+     */
+    public synchronized void truncate() throws IOException {
+        if (out != null) {
+            out.flush();
+            fileOut.getChannel().truncate(0);
+        } else if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to delete journal " + file);
+        }
+    }
+
+    /**
+     * Closes the journal without discarding its records.
+     */
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                sync();
+                out.close();
+            } catch (IOException e) {
+                LOG.error("Unable to close the recording journal", e);
+            }
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    /**
+     * Reads all complete records of the journal. Reading stops at the first record that was
+     * not written completely.
+     *
+     * @return the journaled measurements in the order they were appended.
+     * @throws IOException if the journal could not be read.
+     */
+    public synchronized List<Measurement> read() throws IOException {
+        List<Measurement> result = new ArrayList<>();
+        if (out != null) {
+            out.flush();
+        }
+        if (!file.exists()) {
+            return result;
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            byte[] payload = new byte[256];
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_SIZE) {
+                    LOG.warn("Corrupt record in recording journal. Ignoring the remainder.");
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+                int checksum = in.readInt();
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    LOG.warn("Corrupt record in recording journal. Ignoring the remainder.");
+                    break;
+                }
+                result.add(decode(new DataInputStream(
+                        new ByteArrayInputStream(payload, 0, length))));
+            }
+        } catch (EOFException e) {
+            // a record at the end was written partially, or the journal has been read entirely.
+        } finally {
+            in.close();
+        }
+        return result;
+    }
+
+    /**
+     * Stores all journaled measurements that are not yet in the database, finishes their tracks
+     * and truncates the journal. Measurements of tracks that do not exist anymore are discarded.
+     * If the measurements of a track could not be recovered, the journal is kept entirely, so
+     * that they are recovered by the next replay. Must be called before a new recording starts.
+     *
+     * @param enviroCarDB the database to store the measurements in.
+     * @return the number of recovered measurements.
+     * @throws IOException if the journal could not be read.
+     */
+    public synchronized int replay(EnviroCarDB enviroCarDB) throws IOException {
+        List<Measurement> measurements = read();
+        Map<Long, List<Measurement>> measurementsByTrack = new LinkedHashMap<>();
+        for (Measurement measurement : measurements) {
+            long trackId = measurement.getTrackId().getId();
+            if (!measurementsByTrack.containsKey(trackId)) {
+                measurementsByTrack.put(trackId, new ArrayList<>());
+            }
+            measurementsByTrack.get(trackId).add(measurement);
+        }
+
+        int recovered = 0;
+        boolean failed = false;
+        for (Map.Entry<Long, List<Measurement>> entry : measurementsByTrack.entrySet()) {
+            try {
+                Track track = enviroCarDB.findTrack(new Track.TrackId(entry.getKey()), true).blockingGet();
+                if (track == null) {
+                    LOG.warn(String.format("Track %s of journaled measurements does not exist anymore",
+                            entry.getKey()));
+                    continue;
+                }
+                recovered += replay(enviroCarDB, track, entry.getValue());
+            } catch (MeasurementSerializationException | RuntimeException e) {
+                // the journal is kept, so that the measurements are recovered next time.
+                LOG.error(String.format("Unable to recover the measurements of track %s",
+                        entry.getKey()), e);
+                failed = true;
+            }
+        }
+
+        if (recovered > 0) {
+            LOG.info(String.format("Recovered %s measurements from the recording journal",
+                    recovered));
+        }
+        if (!failed) {
+            truncate();
+        }
+        return recovered;
+    }
+
+    /**
+     * Stores the journaled measurements of a track that are not yet in the database and finishes
+     * the track.
+     *
+     * @return the number of recovered measurements.
+     */
+    private int replay(EnviroCarDB enviroCarDB, Track track, List<Measurement> measurements)
+            throws MeasurementSerializationException {
+        // the journal is only truncated after a database write, so that some of its
+        // measurements may already be stored.
+        Long storedEndTime = track.getEndTime();
+        List<Measurement> missing = new ArrayList<>();
+        for (Measurement measurement : measurements) {
+            if (storedEndTime == null || measurement.getTime() > storedEndTime) {
+                missing.add(measurement);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            // the stored statistics are continued, so that the summary, the length and the
+            // statistics of the track cover the same measurements.
+            TrackStatisticsAccumulator accumulator = resumeStatistics(enviroCarDB, track);
+            for (Measurement measurement : missing) {
+                accumulator.add(measurement);
+            }
+            TrackStatistics statistics = accumulator.getStatistics();
+            track.setStatistics(statistics);
+            track.setLength(statistics.getDistance());
+            track.setEndTime(missing.get(missing.size() - 1).getTime());
+            enviroCarDB.appendMeasurements(track, missing);
+        }
+
+        if (track.getTrackStatus() == Track.TrackStatus.ONGOING) {
+            track.setTrackStatus(Track.TrackStatus.FINISHED);
+            enviroCarDB.updateTrack(track);
+        }
+        return missing.size();
+    }
+
+    /**
+     * @return an accumulator continuing the stored statistics of the lazily loaded track.
+     */
+    private static TrackStatisticsAccumulator resumeStatistics(EnviroCarDB enviroCarDB, Track track) {
+        Car car = track.getCar();
+        TrackStatisticsProcessor processor = new TrackStatisticsProcessor(
+                car != null ? car.getFuelType() : null);
+        Long storedEndTime = track.getEndTime();
+        if (!(track instanceof TrackStatisticsProvider) || storedEndTime == null) {
+            return processor.newAccumulator();
+        }
+
+        // the distance continues at the last stored measurement.
+        Measurement last = enviroCarDB.getMeasurementsFlowable(track.getTrackID(),
+                storedEndTime, storedEndTime, Collections.emptySet())
+                .blockingFirst(null);
+        return processor.resumeAccumulator(((TrackStatisticsProvider) track).getStatistics(),
+                last != null ? last.getLatitudeValue() : Double.NaN,
+                last != null ? last.getLongitudeValue() : Double.NaN);
+    }
+
+    private DataOutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            fileOut = new FileOutputStream(file, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut, 8 * 1024));
+        }
+        return out;
+    }
+
+    private static Measurement decode(DataInputStream in) throws IOException {
+        Measurement measurement = new PrimitiveMeasurement();
+        measurement.setTrackId(new Track.TrackId(in.readLong()));
+        measurement.setTime(in.readLong());
+        measurement.setLatitude(in.readDouble());
+        measurement.setLongitude(in.readDouble());
+
+        int count = in.readShort();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            double value = in.readDouble();
+            try {
+                measurement.setPropertyValue(Measurement.PropertyKey.valueOf(name), value);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Unknown property in recording journal: " + name);
+            }
+        }
+        return measurement;
+    }
+}
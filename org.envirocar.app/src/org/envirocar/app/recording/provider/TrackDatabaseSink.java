@@ -23,6 +23,7 @@ import android.content.Context;
 import com.squareup.otto.Bus;
 
 import org.envirocar.app.R;
+import org.envirocar.app.handler.ApplicationSettings;
 import org.envirocar.app.handler.preferences.CarPreferenceHandler;
 import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
@@ -32,18 +33,39 @@ import org.envirocar.core.events.recording.RecordingNewMeasurementEvent;
 import org.envirocar.core.exception.MeasurementSerializationException;
 import org.envirocar.core.exception.TrackSerializationException;
 import org.envirocar.core.logging.Logger;
-import org.envirocar.core.utils.LocationUtils;
+import org.envirocar.core.trackprocessing.simplification.TrackSimplifier;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProvider;
 import org.envirocar.core.EnviroCarDB;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
 
 /**
+ * Write-behind sink for recorded measurements. Measurements are appended to a
+ * {@link RecordingJournal} as they arrive and written to the database in batches by a
+ * {@link MeasurementBatchWriter}. In case of a crash, the journal is replayed on the next start,
+ * so that at most the measurements of one journal sync interval are lost. All writes are
+ * performed on the database write scheduler, so that recording never blocks the threads serving
+ * UI queries.
+ * <p>
+ * The statistics of the track are accumulated per measurement, published with each
+ * {@link RecordingNewMeasurementEvent} and stored with each batch, so that neither finishing the
+ * track nor showing it requires a recomputation.
+ * <p>
+ * If enabled in the settings, the measurements are simplified by a {@link TrackSimplifier}
+ * before they are stored. The measurements it has not decided on yet are stored when the track
+ * is finished, so that the last measurement is always kept.
+ *
  * @author dewall
  */
 public class TrackDatabaseSink {
@@ -54,68 +76,97 @@ public class TrackDatabaseSink {
     private final CarPreferenceHandler carHandler;
     private final EnviroCarDB enviroCarDB;
     private final Bus eventBus;
+    private final Scheduler writeScheduler;
+    private final RecordingJournal journal;
+    private final MeasurementBatchWriter batchWriter;
     private Track track;
 
+    private TrackSimplifier<Measurement> simplifier;
+
     /**
      * Constructor.
      *
      * @param context
      * @param carHandler
      * @param enviroCarDB
+     * @param writeScheduler the scheduler to perform all database writes on.
+     * @param journal        the journal to append the measurements to until they are stored.
      */
-    public TrackDatabaseSink(Context context, CarPreferenceHandler carHandler, EnviroCarDB enviroCarDB, Bus eventBus) {
+    public TrackDatabaseSink(Context context, CarPreferenceHandler carHandler, EnviroCarDB enviroCarDB,
+                             Bus eventBus, Scheduler writeScheduler, RecordingJournal journal) {
         this.context = context;
         this.carHandler = carHandler;
         this.enviroCarDB = enviroCarDB;
         this.eventBus = eventBus;
+        this.writeScheduler = writeScheduler;
+        this.journal = journal;
+        this.batchWriter = new MeasurementBatchWriter(enviroCarDB, journal, writeScheduler);
     }
 
     /**
      * @return
      */
     public ObservableTransformer<Measurement, Track> storeInDatabase() {
-        return upstream -> upstream.flatMap(measurement -> Observable.create((ObservableOnSubscribe<Track>) emitter -> {
-            LOG.info("Storing new measurement into database");
-
-            // If not rack exists, then create one.
-            if (track == null) {
-                try {
-                    track = createNewTrack(measurement.getTime());
-                    emitter.onNext(track);
-                } catch (TrackSerializationException e) {
-                    LOG.error("Unable to create track instance", e);
-                    emitter.onError(e);
+        return upstream -> {
+            simplifier = ApplicationSettings.isTrackSimplificationEnabled(context) ?
+                    TrackSimplifier.forMeasurements() : null;
+
+            return upstream.flatMap(measurement -> Observable.create((ObservableOnSubscribe<Track>) emitter -> {
+                LOG.info("Storing new measurement into database");
+
+                for (Measurement kept : simplify(measurement)) {
+                    // If not rack exists, then create one.
+                    if (track == null) {
+                        try {
+                            track = createNewTrack(kept.getTime());
+                            emitter.onNext(track);
+                        } catch (TrackSerializationException e) {
+                            LOG.error("Unable to create track instance", e);
+                            emitter.onError(e);
+                            return;
+                        }
+                    }
+
+                    try {
+                        store(kept);
+                    } catch (MeasurementSerializationException e) {
+                        LOG.error(e.getMessage(), e);
+                        emitter.onError(e);
+                        return;
+                    }
                 }
-            }
+            }).subscribeOn(writeScheduler))
+                    .doOnDispose(this::scheduleFinishTrack)
+                    .doOnComplete(this::scheduleFinishTrack);
+        };
+    }
 
-            try {
-                // inserting measurement
-                measurement.setTrackId(track.getTrackID());
-                enviroCarDB.insertMeasurement(measurement);
-
-                // updating track information
-                track.setEndTime(measurement.getTime());
-
-                // update distance
-                int numOfTracks = track.getMeasurements().size();
-                if (numOfTracks > 0) {
-                    Measurement lastMeasurement = track.getMeasurements().get(numOfTracks - 1);
-                    double distanceToLast = LocationUtils.getDistance(lastMeasurement, measurement);
-                    track.setLength(track.getLength() + distanceToLast);
-                }
+    /**
+     * @return the measurements that are decided to be stored.
+     */
+    private synchronized List<Measurement> simplify(Measurement measurement) {
+        if (simplifier == null) {
+            return Collections.singletonList(measurement);
+        }
+        List<Measurement> kept = new ArrayList<>(2);
+        simplifier.offer(measurement, kept);
+        return kept;
+    }
 
-                // update track in databse
-                track.getMeasurements().add(measurement);
-                enviroCarDB.updateTrack(track);
-                eventBus.post(new RecordingNewMeasurementEvent(measurement));
-                LOG.info("Measurement stored");
-            } catch (MeasurementSerializationException e) {
-                LOG.error(e.getMessage(), e);
-                emitter.onError(e);
-            }
-        }))
-                .doOnDispose(() -> finishTrack(track))
-                .doOnComplete(() -> finishTrack(track));
+    private void store(Measurement measurement) throws MeasurementSerializationException {
+        measurement.setTrackId(track.getTrackID());
+
+        // updating track information
+        track.setEndTime(measurement.getTime());
+
+        // update the statistics and the distance
+        track.getMeasurements().add(measurement);
+        TrackStatistics statistics = ((TrackStatisticsProvider) track).getStatistics();
+        track.setLength(statistics.getDistance());
+        eventBus.post(new RecordingNewMeasurementEvent(measurement, statistics));
+
+        // schedule the measurement for the next batched write
+        batchWriter.enqueue(measurement);
     }
 
     private Track createNewTrack(long startTime) throws TrackSerializationException {
@@ -130,22 +181,50 @@ public class TrackDatabaseSink {
         track.setStartTime(startTime);
 
         enviroCarDB.insertTrack(track);
+        batchWriter.start(track);
         return track;
     }
 
-    private void finishTrack(Track track) {
-        if (track == null)
-            return;
-        LOG.info(String.format("Finishing current track %s", track.getDescription()));
-
-        if (track.getMeasurements().size() <= 1) {
-            LOG.info("Track had not enough measurements. Deleting track.");
-            enviroCarDB.deleteTrack(track);
-        } else {
-            track.setTrackStatus(Track.TrackStatus.FINISHED);
-            enviroCarDB.updateTrack(track);
+    /**
+     * Finishes the track on the write scheduler, i.e., after the measurements that are still
+     * queued there and without blocking the disposing thread.
+     */
+    private void scheduleFinishTrack() {
+        writeScheduler.scheduleDirect(() -> finishTrack(track));
+    }
+
+    private synchronized void finishTrack(Track track) {
+        try {
+            if (track == null)
+                return;
+            LOG.info(String.format("Finishing current track %s", track.getDescription()));
+
+            try {
+                // the measurements the simplifier has not decided on yet include the last one.
+                if (simplifier != null) {
+                    List<Measurement> remaining = new ArrayList<>(1);
+                    simplifier.flush(remaining);
+                    for (Measurement measurement : remaining) {
+                        store(measurement);
+                    }
+                }
+                batchWriter.stop();
+            } catch (MeasurementSerializationException e) {
+                LOG.error("Unable to store the pending measurements", e);
+            }
+
+            if (track.getMeasurements().size() <= 1) {
+                LOG.info("Track had not enough measurements. Deleting track.");
+                enviroCarDB.deleteTrack(track);
+            } else {
+                track.setTrackStatus(Track.TrackStatus.FINISHED);
+                enviroCarDB.updateTrack(track);
+            }
+        } finally {
+            // the next recording must neither reuse the track nor the open journal.
+            journal.close();
+            this.track = null;
         }
-        this.track = null;
     }
 
 }
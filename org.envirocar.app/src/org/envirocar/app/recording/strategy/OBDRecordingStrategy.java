@@ -41,13 +41,8 @@ import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.events.gps.GpsLocationChangedEvent;
-import org.envirocar.core.exception.FuelConsumptionException;
-import org.envirocar.core.exception.NoMeasurementsException;
-import org.envirocar.core.exception.UnsupportedFuelTypeException;
 import org.envirocar.core.logging.Logger;
-import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
-import org.envirocar.core.trackprocessing.consumption.LoadBasedEnergyConsumptionAlgorithm;
-import org.envirocar.core.trackprocessing.statistics.CalculatedMAFWithStaticVolumetricEfficiency;
+import org.envirocar.core.trackprocessing.MeasurementEnhancer;
 import org.envirocar.obd.ConnectionListener;
 import org.envirocar.obd.OBDController;
 import org.envirocar.obd.OBDSchedulers;
@@ -90,9 +85,7 @@ public class OBDRecordingStrategy implements RecordingStrategy {
     private OBDConnectionRecognizer recognizer = new OBDConnectionRecognizer();
 
     // computation algorithms
-    private ConsumptionAlgorithm consumptionAlgorithm;
-    private CalculatedMAFWithStaticVolumetricEfficiency mafAlgorithm;
-    private LoadBasedEnergyConsumptionAlgorithm energyConsumptionAlgorithm;
+    private MeasurementEnhancer measurementEnhancer;
 
     private boolean isRecording = false;
     private Track track = null;
@@ -117,9 +110,7 @@ public class OBDRecordingStrategy implements RecordingStrategy {
 
         // set the car specific properties.
         Car car = carPreferenceHandler.getCar();
-        this.consumptionAlgorithm = ConsumptionAlgorithm.fromFuelType(car.getFuelType());
-        this.mafAlgorithm = new CalculatedMAFWithStaticVolumetricEfficiency(car);
-        this.energyConsumptionAlgorithm = new LoadBasedEnergyConsumptionAlgorithm(car.getFuelType());
+        this.measurementEnhancer = new MeasurementEnhancer(car);
     }
 
     @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
@@ -322,35 +313,7 @@ public class OBDRecordingStrategy implements RecordingStrategy {
     private ObservableTransformer<Measurement, Measurement> enhanceMeasurements() {
         return upstream -> upstream.map(measurement -> {
             LOG.info("Receieved next recorded measurement.");
-            try {
-                if (!measurement.hasProperty(Measurement.PropertyKey.MAF)) {
-                    try {
-                        measurement.setProperty(Measurement.PropertyKey.CALCULATED_MAF, mafAlgorithm.calculateMAF(measurement));
-                    } catch (NoMeasurementsException e) {
-                        LOG.warn(e.getMessage());
-                    }
-                }
-
-                if (consumptionAlgorithm != null) {
-                    double consumption = consumptionAlgorithm.calculateConsumption(measurement);
-                    measurement.setProperty(Measurement.PropertyKey.CONSUMPTION, consumption);
-                    double co2 = consumptionAlgorithm.calculateCO2FromConsumption(consumption);
-                    measurement.setProperty(Measurement.PropertyKey.CO2, co2);
-                }
-
-                try {
-                    double consumption = energyConsumptionAlgorithm.calculateConsumption(measurement);
-                    measurement.setProperty(Measurement.PropertyKey.ENERGY_CONSUMPTION, consumption);
-                    double co2 = energyConsumptionAlgorithm.calculateCO2FromConsumption(consumption);
-                    measurement.setProperty(Measurement.PropertyKey.ENERGY_CONSUMPTION_CO2, co2);
-                } catch (Exception e) {
-                    LOG.warn(e.getMessage(), e);
-                }
-            } catch (FuelConsumptionException e) {
-                LOG.warn(e.getMessage());
-            } catch (UnsupportedFuelTypeException e) {
-                LOG.warn(e.getMessage());
-            }
+            measurementEnhancer.enhance(measurement);
             return measurement;
         });
     }
@@ -144,7 +144,7 @@ public class MapExpandedActivity extends BaseInjectorActivity {
         // Get the track to show.
         int trackID = getIntent().getIntExtra(EXTRA_TRACKID, -1);
         Track.TrackId trackid = new Track.TrackId(trackID);
-        Track track = enviroCarDB.getTrack(trackid)
+        Track track = enviroCarDB.getPagedTrack(trackid)
                 .subscribeOn(Schedulers.io())
                 .blockingFirst();
         this.track = track;
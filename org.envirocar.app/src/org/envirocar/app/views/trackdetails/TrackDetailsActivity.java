@@ -188,7 +188,7 @@ public class TrackDetailsActivity extends BaseInjectorActivity {
         // Get the track to show.
         int mTrackID = getIntent().getIntExtra(EXTRA_TRACKID, -1);
         Track.TrackId trackid = new Track.TrackId(mTrackID);
-        Track track = mEnvirocarDB.getTrack(trackid)
+        Track track = mEnvirocarDB.getPagedTrack(trackid)
                 .subscribeOn(Schedulers.io())
                 .blockingFirst();
         this.track = track;
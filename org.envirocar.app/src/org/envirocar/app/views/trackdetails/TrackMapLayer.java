@@ -35,11 +35,11 @@ import com.mapbox.mapboxsdk.style.sources.GeoJsonOptions;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.logging.Logger;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import static com.mapbox.mapboxsdk.style.expressions.Expression.interpolate;
@@ -63,7 +63,6 @@ public class TrackMapLayer extends MapLayer{
 
     private Float gradMax, gradMin;
     private final Track mTrack;
-    private List<Measurement> measurementList = new ArrayList<>();
     private Boolean hasNoMeasurements;
     protected LatLngBounds mTrackBoundingBox;
     protected LatLngBounds mViewBoundingBox;
@@ -77,13 +76,7 @@ public class TrackMapLayer extends MapLayer{
     public TrackMapLayer(Track track) {
         super();
         mTrack = track;
-        if(mTrack.getMeasurements() != null)
-        {
-            measurementList = mTrack.getMeasurements();
-            hasNoMeasurements = false;
-        }
-        else
-            hasNoMeasurements = true;
+        hasNoMeasurements = mTrack.getMeasurements() == null;
 
         initPath();
     }
@@ -97,11 +90,14 @@ public class TrackMapLayer extends MapLayer{
             // For each measurement value add the longitude and latitude coordinates as a new
             // mappoint to the point list. In addition, try to find out the maximum and minimum
             // lon/lat coordinates for the zoom value of the mapview.
-            for (Measurement measurement : measurementList) {
-                double latitude = measurement.getLatitude();
-                double longitude = measurement.getLongitude();
-
-                if(latitude == 0.0 || longitude == 0.0) {
+            // the series is read column-wise instead of paging through the measurements.
+            MeasurementSeries series = mTrack.getMeasurementSeries();
+            for (int i = 0; i < series.size(); i++) {
+                double latitude = series.getLatitude(i);
+                double longitude = series.getLongitude(i);
+
+                if(Double.isNaN(latitude) || Double.isNaN(longitude)
+                        || latitude == 0.0 || longitude == 0.0) {
                     LOG.warn("An coordinate was 0.0");
                     continue;
                 }
@@ -188,28 +184,33 @@ public class TrackMapLayer extends MapLayer{
 
         if(!hasNoMeasurements)
         {
-            float size = (float)measurementList.size(), i= 0f;
+            MeasurementSeries series = mTrack.getMeasurementSeries();
+            float size = (float)series.size(), i= 0f;
             if(size>2)
             {
-                List<Double> propertyValues = new ArrayList<>();
-                for(Measurement measurement : measurementList){
-                    if(measurement.hasProperty(propertyKey))
-                        propertyValues.add(measurement.getProperty(propertyKey));
-                    else {
-                        propertyValues.add((double) 0);
-                        LOG.info("Measurement doesnt have " + propertyKey.toString());
+                // measurements without the property are drawn as zero.
+                double[] propertyValues = new double[series.size()];
+                int missing = 0;
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for(int index = 0; index < propertyValues.length; index++){
+                    double value = series.getProperty(propertyKey, index);
+                    if(Double.isNaN(value)) {
+                        value = 0;
+                        missing++;
                     }
+                    propertyValues[index] = value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
                 }
+                if(missing > 0)
+                    LOG.info(missing + " measurements dont have " + propertyKey.toString());
 
-                Double min ;
                 if(propertyKey.equals(Measurement.PropertyKey.SPEED))
-                    min = (double) 0;
-                else
-                    min = Collections.min(propertyValues);
+                    min = 0;
 
-                Double max = Collections.max(propertyValues);
-                gradMax = max.floatValue();
-                gradMin = min.floatValue();
+                gradMax = (float) max;
+                gradMin = (float) min;
 
                 //Set the start and end colors for the map legend
                 int startColor = Color.parseColor("#00FF00");
@@ -217,7 +218,7 @@ public class TrackMapLayer extends MapLayer{
                 ArgbEvaluator evaluator = new ArgbEvaluator();
                 List<Expression.Stop> stops  = new ArrayList<>();
 
-                for(Double value : propertyValues){
+                for(double value : propertyValues){
                     //Calculate the color that each point on the line should be and add it to
                     // the list of stops
                     Double fraction = value / max;
@@ -22,7 +22,6 @@ import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.Fragment;
 import android.content.Intent;
-import android.location.Location;
 import android.os.Bundle;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.Toolbar;
@@ -35,6 +34,7 @@ import android.view.ViewGroup;
 import org.envirocar.app.BaseApplicationComponent;
 import org.envirocar.app.R;
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.entity.Track;
 import org.envirocar.app.injection.BaseInjectorActivity;
 import org.envirocar.core.EnviroCarDB;
@@ -97,7 +97,7 @@ public class TrackStatisticsActivity extends BaseInjectorActivity {
         int trackID = getIntent().getIntExtra(EXTRA_TRACKID, -1);
         Track.TrackId trackid = new Track.TrackId(trackID);
 
-        enviroCarDB.getTrack(trackid)
+        enviroCarDB.getPagedTrack(trackid)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(track -> {
@@ -252,23 +252,12 @@ public class TrackStatisticsActivity extends BaseInjectorActivity {
                                                             Track track) {
             List<PointValue> values = new ArrayList<PointValue>();
 
-            // temporary array for computing distances.
-            float[] tmp = new float[1];
-            float distance = 0;
-
-            // temporary value for the last measurement
-            Measurement lastMeasurement = null;
-
-            for (Measurement m : track.getMeasurements()) {
-                if (lastMeasurement != null) {
-                    Location.distanceBetween(lastMeasurement.getLatitude(), lastMeasurement
-                            .getLongitude(), m.getLatitude(), m.getLongitude(), tmp);
-                    distance += tmp[0] / 1000f; // we need km not meters.
-                }
-                if (m != null && m.hasProperty(propertyKey)) {
-                    values.add(new PointValue(distance, m.getProperty(propertyKey).floatValue()));
+            MeasurementSeries series = track.getMeasurementSeries();
+            for (int i = 0; i < series.size(); i++) {
+                double value = series.getProperty(propertyKey, i);
+                if (!Double.isNaN(value)) {
+                    values.add(new PointValue((float) series.getDistance(i), (float) value));
                 }
-                lastMeasurement = m;
             }
 
             return values;
@@ -25,6 +25,8 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.afollestad.materialdialogs.DialogAction;
 import com.afollestad.materialdialogs.MaterialDialog;
@@ -67,6 +69,11 @@ import io.reactivex.schedulers.Schedulers;
 public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<TrackListLocalCardAdapter> {
     private static final Logger LOG = Logger.getLogger(TrackListLocalCardFragment.class);
 
+    // number of track headers loaded at once and the number of remaining cards below the last
+    // visible one that triggers loading the next page.
+    private static final int TRACK_PAGE_SIZE = 20;
+    private static final int TRACK_PAGE_PREFETCH = 5;
+
     interface OnTrackUploadedListener {
         void onTrackUploaded(Track track);
     }
@@ -79,6 +86,9 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
     private OnTrackUploadedListener onTrackUploadedListener;
 
     private Disposable loadTracksSubscription;
+    private boolean loadingTrackPage = false;
+    private boolean allTracksLoaded = false;
+    private Track lastLoadedTrack;
     private Disposable uploadTrackSubscription;
 
     @Override
@@ -226,69 +236,99 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
                 }
             }
 
-            loadTracksSubscription = mEnvirocarDB.getAllLocalTracks()
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribeWith(new DisposableObserver<List<Track>>() {
+            mMainThreadWorker.schedule(() -> {
+                mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                    @Override
+                    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                        int lastVisible = ((LinearLayoutManager) mRecylcerViewLayoutManager)
+                                .findLastVisibleItemPosition();
+                        if (lastVisible >= mTrackList.size() - TRACK_PAGE_PREFETCH) {
+                            loadNextTrackPage();
+                        }
+                    }
+                });
+                loadNextTrackPage();
+            });
 
-                        @Override
-                        public void onStart() {
-                            LOG.info("onStart() allLocalTracks");
-                            mMainThreadWorker.schedule(() -> {
-                                mProgressView.setVisibility(View.VISIBLE);
-                                mProgressText.setText(R.string.track_list_loading_tracks);
-                            });
+            return null;
+        }
+    }
 
+    /**
+     * Loads the next page of track headers, unless a page is currently loading or all tracks
+     * have been loaded. Has to be called on the main thread.
+     */
+    private void loadNextTrackPage() {
+        if (loadingTrackPage || allTracksLoaded) {
+            return;
+        }
+        loadingTrackPage = true;
+
+        loadTracksSubscription = mEnvirocarDB.getLocalTrackHeaders(lastLoadedTrack, TRACK_PAGE_SIZE)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribeWith(new DisposableObserver<List<Track>>() {
+
+                    @Override
+                    public void onStart() {
+                        LOG.info("onStart() localTrackHeaders");
+                        if (mTrackList.isEmpty()) {
+                            mProgressView.setVisibility(View.VISIBLE);
+                            mProgressText.setText(R.string.track_list_loading_tracks);
                         }
+                    }
 
-                        @Override
-                        public void onComplete() {
-                            LOG.info("onCompleted() allLocalTracks");
-                        }
+                    @Override
+                    public void onComplete() {
+                        LOG.info("onCompleted() localTrackHeaders");
+                        loadingTrackPage = false;
+                    }
 
-                        @Override
-                        public void onError(Throwable e) {
-                            LOG.error(e.getMessage(), e);
+                    @Override
+                    public void onError(Throwable e) {
+                        LOG.error(e.getMessage(), e);
+                        loadingTrackPage = false;
 
-                            showText(R.drawable.img_alert,
-                                    R.string.track_list_bg_error,
-                                    R.string.track_list_bg_error_sub);
+                        showText(R.drawable.img_alert,
+                                R.string.track_list_bg_error,
+                                R.string.track_list_bg_error_sub);
 
-                            Snackbar.make(getView(),
-                                    R.string.track_list_loading_tracks_error_snackbar,
-                                    Snackbar.LENGTH_LONG).show();
-                        }
+                        Snackbar.make(getView(),
+                                R.string.track_list_loading_tracks_error_snackbar,
+                                Snackbar.LENGTH_LONG).show();
+                    }
 
-                        @Override
-                        public void onNext(List<Track> tracks) {
-                            LOG.info(String.format("onNext(%s)", tracks.size()));
+                    @Override
+                    public void onNext(List<Track> tracks) {
+                        LOG.info(String.format("onNext(%s)", tracks.size()));
+                        allTracksLoaded = tracks.size() < TRACK_PAGE_SIZE;
+                        if (!tracks.isEmpty()) {
+                            lastLoadedTrack = tracks.get(tracks.size() - 1);
+                        }
 
-                            boolean newTrackAdded = false;
-                            for (Track track : tracks) {
-                                if (!mTrackList.contains(track)) {
-                                    mTrackList.add(track);
-                                    newTrackAdded = true;
-                                }
+                        boolean newTrackAdded = false;
+                        for (Track track : tracks) {
+                            if (!mTrackList.contains(track)) {
+                                mTrackList.add(track);
+                                newTrackAdded = true;
                             }
+                        }
 
-                            mProgressView.setVisibility(View.INVISIBLE);
-                            if (newTrackAdded) {
-                                Collections.sort(mTrackList);
+                        mProgressView.setVisibility(View.INVISIBLE);
+                        if (newTrackAdded) {
+                            Collections.sort(mTrackList);
 
-                                mRecyclerView.setVisibility(View.VISIBLE);
-                                infoView.setVisibility(View.GONE);
-                                mRecyclerViewAdapter.notifyDataSetChanged();
+                            mRecyclerView.setVisibility(View.VISIBLE);
+                            infoView.setVisibility(View.GONE);
+                            mRecyclerViewAdapter.notifyDataSetChanged();
 
-                                ECAnimationUtils.animateShowView(getActivity(), mFAB,
-                                        R.anim.translate_slide_in_bottom_fragment);
-                            } else if (mTrackList.isEmpty()) {
-                                showNoLocalTracksInfo();
-                            }
+                            ECAnimationUtils.animateShowView(getActivity(), mFAB,
+                                    R.anim.translate_slide_in_bottom_fragment);
+                        } else if (mTrackList.isEmpty()) {
+                            showNoLocalTracksInfo();
                         }
-                    });
-
-            return null;
-        }
+                    }
+                });
     }
 
     private void showNoLocalTracksInfo() {
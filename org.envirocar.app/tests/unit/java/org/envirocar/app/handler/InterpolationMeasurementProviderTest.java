@@ -16,8 +16,9 @@
  * You should have received a copy of the GNU General Public License along
  * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
  */
-package org.envirocar.algorithm;
+package org.envirocar.app.handler;
 
+import org.envirocar.algorithm.MeasurementProvider;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.obd.events.PropertyKeyEvent;
 import org.hamcrest.CoreMatchers;
@@ -27,9 +28,10 @@ import org.junit.Test;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-import rx.observers.TestSubscriber;
-import rx.schedulers.Schedulers;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
 
 public class InterpolationMeasurementProviderTest {
 
@@ -56,7 +58,8 @@ public class InterpolationMeasurementProviderTest {
 
     @Test
     public void testInterpolation() {
-        InterpolationMeasurementProvider imp = new InterpolationMeasurementProvider();
+        TestScheduler scheduler = new TestScheduler();
+        InterpolationMeasurementProvider imp = new InterpolationMeasurementProvider(scheduler);
 
         PropertyKeyEvent m1 = new PropertyKeyEvent(Measurement.PropertyKey.MAF, 16.0, 1000);
         PropertyKeyEvent m2 = new PropertyKeyEvent(Measurement.PropertyKey.MAF, 48.0, 3500); // this should be the result
@@ -75,15 +78,10 @@ public class InterpolationMeasurementProviderTest {
         imp.newPosition(new MeasurementProvider.Position(1000, 52.0, 7.0));
         imp.newPosition(new MeasurementProvider.Position(3500, 52.5, 7.25)); //this should be the result
 
-        TestSubscriber<Measurement> ts = new TestSubscriber<Measurement>();
-
-        imp.measurements(500)
-                .subscribeOn(Schedulers.immediate())
-                .observeOn(Schedulers.immediate())
-                .first()
-                .subscribe(ts);
+        TestObserver<Measurement> ts = imp.measurements(500).test();
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
 
-        List<Measurement> events = ts.getOnNextEvents();
+        List<Measurement> events = ts.values();
         Assert.assertThat(events.size(), CoreMatchers.is(1));
 
         Measurement first = events.get(0);
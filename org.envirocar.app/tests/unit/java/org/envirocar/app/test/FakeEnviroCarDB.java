@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.test;
+
+import org.envirocar.core.EnviroCarDB;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.internal.TrackSummary;
+import org.envirocar.core.exception.MeasurementSerializationException;
+import org.envirocar.core.exception.TrackSerializationException;
+import org.envirocar.core.util.TrackMetadata;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+
+/**
+ * Base class of database fakes for unit tests. Every method throws an
+ * {@link UnsupportedOperationException}; tests override the methods they require.
+ */
+public class FakeEnviroCarDB implements EnviroCarDB {
+
+    @Override
+    public Observable<Track> getTrack(Track.TrackId trackId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> getTrack(Track.TrackId trackId, boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> getPagedTrack(Track.TrackId trackId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getAllTracks() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getAllTracks(boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getAllTracksByCar(String id, boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getAllLocalTracks() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getAllLocalTracks(boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Integer> getAllLocalTracksCount() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getLocalTrackHeaders(Track after, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<TrackSummary>> getAllLocalTrackSummaries() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getAllRemoteTracks() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track>> getAllRemoteTracks(boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Void> clearTables() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertTrack(Track track) throws TrackSerializationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> insertTrackObservable(Track track) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean updateTrack(Track track) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> updateTrackObservable(Track track) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean updateTrackProgress(Track track) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean updateCarIdOfTracks(String currentId, String newId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTrack(Track.TrackId trackId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTrack(Track track) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTracks(Collection<Track.TrackId> trackIds) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> deleteTrackObservable(Track track) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<List<Track.TrackId>> deleteAllRemoteTracks() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertMeasurement(Measurement measurement) throws MeasurementSerializationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertMeasurements(List<Measurement> measurements) throws MeasurementSerializationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void appendMeasurements(Track track, List<Measurement> measurements) throws MeasurementSerializationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int replaceMeasurements(List<Track> tracks) throws MeasurementSerializationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId, long startTime, long endTime, Set<Measurement.PropertyKey> properties) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean archiveTrack(Track.TrackId trackId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteMeasurements(Track.TrackId trackId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void automaticDeleteMeasurements(long time, Track.TrackId trackId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Void> insertMeasurementObservable(Measurement measurement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateTrackRemoteID(Track track, String remoteID) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Void> updateTrackRemoteIDObservable(Track track, String remoteID) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> fetchTracks(Observable<List<Track>> track, boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> fetchTrack(Observable<Track> track, boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Track> getActiveTrackObservable(boolean lazy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateTrackMetadata(Track track, TrackMetadata trackMetadata) throws TrackSerializationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<TrackMetadata> updateTrackMetadataObservable(Track track, TrackMetadata trackMetadata) throws TrackSerializationException {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.test.interactor;
+
+import org.envirocar.app.interactor.ReprocessTracks;
+import org.envirocar.app.test.FakeEnviroCarDB;
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.CarImpl;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Maybe;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+
+public class ReprocessTracksTest {
+
+    private static final Car CAR = new CarImpl("manufacturer", "model", Car.FuelType.GASOLINE, 2010, 1600);
+
+    @Test
+    public void testBatchesAndProgress() {
+        FakeDB db = new FakeDB();
+        TestObserver<ReprocessTracks.Progress> observer = newInteractor(db)
+                .execute(new ReprocessTracks.Params(createTrackIds(25), CAR))
+                .test();
+
+        Assert.assertTrue(observer.awaitTerminalEvent(10, TimeUnit.SECONDS));
+        observer.assertNoErrors();
+
+        List<Integer> batchSizes = new ArrayList<>();
+        for (List<Track> batch : db.batches) {
+            batchSizes.add(batch.size());
+        }
+        Assert.assertThat(batchSizes, CoreMatchers.is(Arrays.asList(10, 10, 5)));
+
+        List<ReprocessTracks.Progress> progress = observer.values();
+        Assert.assertThat(progress.size(), CoreMatchers.is(4));
+        Assert.assertThat(progress.get(0).getProcessedTracks(), CoreMatchers.is(0));
+        Assert.assertThat(progress.get(1).getProcessedTracks(), CoreMatchers.is(10));
+        Assert.assertThat(progress.get(2).getProcessedTracks(), CoreMatchers.is(20));
+        ReprocessTracks.Progress last = progress.get(3);
+        Assert.assertThat(last.getProcessedTracks(), CoreMatchers.is(25));
+        Assert.assertThat(last.getFailedTracks(), CoreMatchers.is(0));
+        Assert.assertTrue(last.isCompleted());
+
+        // the measurements have been recomputed for the car.
+        Track track = db.batches.get(0).get(0);
+        Assert.assertThat(track.getCar(), CoreMatchers.is(CAR));
+        Assert.assertTrue(track.getMeasurements().get(1).hasProperty(Measurement.PropertyKey.ENERGY_CONSUMPTION));
+    }
+
+    @Test
+    public void testOngoingAndMissingTracksAreSkipped() {
+        FakeDB db = new FakeDB();
+        db.ongoing.add(3L);
+        db.missing.add(5L);
+        TestObserver<ReprocessTracks.Progress> observer = newInteractor(db)
+                .execute(new ReprocessTracks.Params(createTrackIds(8), CAR))
+                .test();
+
+        Assert.assertTrue(observer.awaitTerminalEvent(10, TimeUnit.SECONDS));
+        observer.assertNoErrors();
+
+        Set<Long> replaced = new HashSet<>();
+        for (List<Track> batch : db.batches) {
+            for (Track track : batch) {
+                replaced.add(track.getTrackID().getId());
+            }
+        }
+        Assert.assertThat(replaced.size(), CoreMatchers.is(6));
+        Assert.assertFalse(replaced.contains(3L));
+        Assert.assertFalse(replaced.contains(5L));
+
+        ReprocessTracks.Progress last = observer.values().get(observer.valueCount() - 1);
+        Assert.assertThat(last.getProcessedTracks(), CoreMatchers.is(6));
+        Assert.assertThat(last.getFailedTracks(), CoreMatchers.is(2));
+        Assert.assertTrue(last.isCompleted());
+    }
+
+    @Test
+    public void testTracksRecordedMeanwhileAreCountedAsFailed() {
+        FakeDB db = new FakeDB();
+        // the database refuses the track, e.g., because its recording has been resumed.
+        db.refused.add(2L);
+        TestObserver<ReprocessTracks.Progress> observer = newInteractor(db)
+                .execute(new ReprocessTracks.Params(createTrackIds(4), CAR))
+                .test();
+
+        Assert.assertTrue(observer.awaitTerminalEvent(10, TimeUnit.SECONDS));
+        ReprocessTracks.Progress last = observer.values().get(observer.valueCount() - 1);
+        Assert.assertThat(last.getProcessedTracks(), CoreMatchers.is(3));
+        Assert.assertThat(last.getFailedTracks(), CoreMatchers.is(1));
+        Assert.assertTrue(last.isCompleted());
+    }
+
+    @Test
+    public void testDisposeCancelsRemainingTracks() throws InterruptedException {
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FakeDB db = new FakeDB() {
+            @Override
+            public int replaceMeasurements(List<Track> tracks) {
+                int replaced = super.replaceMeasurements(tracks);
+                firstBatch.countDown();
+                return replaced;
+            }
+
+            @Override
+            Track readTrack(long id) {
+                if (id >= 10) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return super.readTrack(id);
+            }
+        };
+
+        TestObserver<ReprocessTracks.Progress> observer = newInteractor(db)
+                .execute(new ReprocessTracks.Params(createTrackIds(50), CAR))
+                .test();
+        Assert.assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+        observer.dispose();
+        release.countDown();
+        Thread.sleep(200);
+
+        Assert.assertThat(db.batches.size(), CoreMatchers.is(1));
+        Assert.assertThat(db.read.size() < 50, CoreMatchers.is(true));
+    }
+
+    private static ReprocessTracks newInteractor(FakeDB db) {
+        return new ReprocessTracks(Schedulers.trampoline(), Schedulers.trampoline(), db,
+                Schedulers.single());
+    }
+
+    private static List<Track.TrackId> createTrackIds(int count) {
+        List<Track.TrackId> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new Track.TrackId(i));
+        }
+        return result;
+    }
+
+    private static class FakeDB extends FakeEnviroCarDB {
+        final List<List<Track>> batches = new CopyOnWriteArrayList<>();
+        final List<Long> read = new CopyOnWriteArrayList<>();
+        final Set<Long> ongoing = Collections.synchronizedSet(new HashSet<>());
+        final Set<Long> missing = Collections.synchronizedSet(new HashSet<>());
+        final Set<Long> refused = Collections.synchronizedSet(new HashSet<>());
+
+        @Override
+        public Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy) {
+            return Maybe.fromCallable(() -> readTrack(trackId.getId()));
+        }
+
+        Track readTrack(long id) {
+            read.add(id);
+            if (missing.contains(id)) {
+                // the track has been deleted.
+                return null;
+            }
+
+            Track track = new TrackImpl();
+            track.setTrackID(new Track.TrackId(id));
+            track.setTrackStatus(ongoing.contains(id) ? Track.TrackStatus.ONGOING : Track.TrackStatus.FINISHED);
+            List<Measurement> measurements = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Measurement measurement = new PrimitiveMeasurement(51.9 + i * 1e-3, 7.6);
+                measurement.setTrackId(track.getTrackID());
+                measurement.setTime(1500000000000L + i * 1000L);
+                measurement.setProperty(Measurement.PropertyKey.GPS_SPEED, 50.0);
+                measurement.setProperty(Measurement.PropertyKey.GPS_ALTITUDE, 60.0);
+                measurements.add(measurement);
+            }
+            track.setMeasurements(measurements);
+            return track;
+        }
+
+        @Override
+        public int replaceMeasurements(List<Track> tracks) {
+            batches.add(new ArrayList<>(tracks));
+            int replaced = 0;
+            for (Track track : tracks) {
+                if (!refused.contains(track.getTrackID().getId())) {
+                    replaced++;
+                }
+            }
+            return replaced;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.test.recording;
+
+import org.envirocar.app.recording.provider.MeasurementBatchWriter;
+import org.envirocar.app.recording.provider.RecordingJournal;
+import org.envirocar.app.test.FakeEnviroCarDB;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.envirocar.core.exception.MeasurementSerializationException;
+import org.hamcrest.CoreMatchers;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+
+public class MeasurementBatchWriterTest {
+
+    private File file;
+    private RecordingJournal journal;
+    private TestScheduler scheduler;
+    private List<Integer> batches;
+    private MeasurementBatchWriter writer;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("recording", ".journal");
+        file.delete();
+        journal = new RecordingJournal(file);
+        scheduler = new TestScheduler();
+        batches = new ArrayList<>();
+        writer = new MeasurementBatchWriter(new FakeEnviroCarDB() {
+            @Override
+            public void appendMeasurements(Track track, List<Measurement> measurements) {
+                batches.add(measurements.size());
+            }
+        }, journal, scheduler);
+
+        Track track = new TrackImpl();
+        track.setTrackID(new Track.TrackId(1));
+        writer.start(track);
+    }
+
+    @After
+    public void tearDown() {
+        journal.close();
+        file.delete();
+    }
+
+    @Test
+    public void testFullBatchIsWritten() throws Exception {
+        for (int i = 0; i < MeasurementBatchWriter.MAX_BATCH_SIZE - 1; i++) {
+            writer.enqueue(createMeasurement(i));
+        }
+        Assert.assertTrue(batches.isEmpty());
+        Assert.assertThat(journal.read().size(), CoreMatchers.is(MeasurementBatchWriter.MAX_BATCH_SIZE - 1));
+
+        writer.enqueue(createMeasurement(MeasurementBatchWriter.MAX_BATCH_SIZE));
+        Assert.assertThat(batches, CoreMatchers.is(list(MeasurementBatchWriter.MAX_BATCH_SIZE)));
+        Assert.assertTrue(journal.read().isEmpty());
+    }
+
+    @Test
+    public void testPendingMeasurementsAreWrittenWithoutFurtherMeasurements() throws Exception {
+        writer.enqueue(createMeasurement(0));
+        writer.enqueue(createMeasurement(1));
+
+        scheduler.advanceTimeBy(MeasurementBatchWriter.FLUSH_INTERVAL_MILLIS - 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(batches.isEmpty());
+
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        Assert.assertThat(batches, CoreMatchers.is(list(2)));
+        Assert.assertTrue(journal.read().isEmpty());
+
+        // nothing is written while no measurements are pending.
+        scheduler.advanceTimeBy(MeasurementBatchWriter.FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Assert.assertThat(batches, CoreMatchers.is(list(2)));
+    }
+
+    @Test
+    public void testStopWritesPendingMeasurementsAndCancelsTimer() throws Exception {
+        writer.enqueue(createMeasurement(0));
+        writer.stop();
+        Assert.assertThat(batches, CoreMatchers.is(list(1)));
+
+        scheduler.advanceTimeBy(MeasurementBatchWriter.FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Assert.assertThat(batches, CoreMatchers.is(list(1)));
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() throws Exception {
+        List<Integer> attempts = new ArrayList<>();
+        MeasurementBatchWriter failingWriter = new MeasurementBatchWriter(new FakeEnviroCarDB() {
+            @Override
+            public void appendMeasurements(Track track, List<Measurement> measurements)
+                    throws MeasurementSerializationException {
+                attempts.add(measurements.size());
+                if (attempts.size() == 1) {
+                    throw new MeasurementSerializationException(new JSONException("disk full"));
+                }
+            }
+        }, journal, scheduler);
+        Track track = new TrackImpl();
+        track.setTrackID(new Track.TrackId(2));
+        failingWriter.start(track);
+
+        failingWriter.enqueue(createMeasurement(0));
+        scheduler.advanceTimeBy(MeasurementBatchWriter.FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Assert.assertThat(journal.read().size(), CoreMatchers.is(1));
+
+        failingWriter.enqueue(createMeasurement(1));
+        scheduler.advanceTimeBy(MeasurementBatchWriter.FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Assert.assertThat(attempts, CoreMatchers.is(list(1, 2)));
+        Assert.assertTrue(journal.read().isEmpty());
+    }
+
+    private static Measurement createMeasurement(int index) {
+        Measurement measurement = new MeasurementImpl(51.9, 7.6);
+        measurement.setTime(1500000000000L + index * 1000L);
+        measurement.setTrackId(new Track.TrackId(1));
+        return measurement;
+    }
+
+    private static List<Integer> list(Integer... values) {
+        List<Integer> result = new ArrayList<>();
+        for (Integer value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+}
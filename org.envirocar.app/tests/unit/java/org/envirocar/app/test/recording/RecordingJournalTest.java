@@ -0,0 +1,285 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.test.recording;
+
+import org.envirocar.app.recording.provider.RecordingJournal;
+import org.envirocar.app.test.FakeEnviroCarDB;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsAccumulator;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProcessor;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProvider;
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+
+public class RecordingJournalTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("recording", ".journal");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testKillAndRecover() throws IOException {
+        RecordingJournal journal = new RecordingJournal(file);
+        List<Measurement> measurements = createMeasurements(100);
+        for (int i = 0; i < 60; i++) {
+            journal.append(measurements.get(i));
+        }
+        journal.sync();
+        for (int i = 60; i < 100; i++) {
+            journal.append(measurements.get(i));
+        }
+
+        // the process is killed without closing the journal; a new process reads the file.
+        List<Measurement> recovered = new RecordingJournal(file).read();
+
+        Assert.assertTrue(recovered.size() >= 60);
+        for (int i = 0; i < recovered.size(); i++) {
+            assertMeasurement(measurements.get(i), recovered.get(i));
+        }
+    }
+
+    @Test
+    public void testPartialRecordIsIgnored() throws IOException {
+        RecordingJournal journal = new RecordingJournal(file);
+        List<Measurement> measurements = createMeasurements(10);
+        for (Measurement measurement : measurements) {
+            journal.append(measurement);
+        }
+        journal.close();
+
+        // cut the last record in half.
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 20);
+        raf.close();
+
+        List<Measurement> recovered = new RecordingJournal(file).read();
+        Assert.assertThat(recovered.size(), CoreMatchers.is(9));
+        assertMeasurement(measurements.get(8), recovered.get(8));
+    }
+
+    @Test
+    public void testCorruptRecordIsIgnored() throws IOException {
+        RecordingJournal journal = new RecordingJournal(file);
+        for (Measurement measurement : createMeasurements(5)) {
+            journal.append(measurement);
+        }
+        journal.close();
+
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{0, 0, 0, 8, 1, 2, 3, 4, 5, 6, 7, 8, 0, 0, 0, 0});
+        out.close();
+
+        Assert.assertThat(new RecordingJournal(file).read().size(), CoreMatchers.is(5));
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        RecordingJournal journal = new RecordingJournal(file);
+        List<Measurement> measurements = createMeasurements(20);
+        for (int i = 0; i < 10; i++) {
+            journal.append(measurements.get(i));
+        }
+        journal.truncate();
+        for (int i = 10; i < 20; i++) {
+            journal.append(measurements.get(i));
+        }
+        journal.sync();
+
+        List<Measurement> recovered = new RecordingJournal(file).read();
+        Assert.assertThat(recovered.size(), CoreMatchers.is(10));
+        assertMeasurement(measurements.get(10), recovered.get(0));
+    }
+
+    @Test
+    public void testReplayStoresMissingMeasurements() throws IOException {
+        writeJournal(createMeasurements(10));
+        Track track = new TrackImpl();
+        track.setTrackID(new Track.TrackId(7));
+        track.setTrackStatus(Track.TrackStatus.ONGOING);
+        List<Measurement> appended = new ArrayList<>();
+        List<Track> updated = new ArrayList<>();
+
+        int recovered = new RecordingJournal(file).replay(new FakeEnviroCarDB() {
+            @Override
+            public Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy) {
+                return Maybe.just(track);
+            }
+
+            @Override
+            public void appendMeasurements(Track track, List<Measurement> measurements) {
+                appended.addAll(measurements);
+            }
+
+            @Override
+            public boolean updateTrack(Track track) {
+                return updated.add(track);
+            }
+        });
+
+        Assert.assertThat(recovered, CoreMatchers.is(10));
+        Assert.assertThat(appended.size(), CoreMatchers.is(10));
+        Assert.assertThat(track.getTrackStatus(), CoreMatchers.is(Track.TrackStatus.FINISHED));
+        Assert.assertThat(updated.size(), CoreMatchers.is(1));
+        Assert.assertTrue(new RecordingJournal(file).read().isEmpty());
+    }
+
+    @Test
+    public void testReplayContinuesStoredStatistics() throws IOException {
+        List<Measurement> measurements = createMeasurements(10);
+        writeJournal(measurements);
+
+        // the first half of the measurements made it into the database before the crash.
+        TrackStatisticsAccumulator stored = new TrackStatisticsProcessor(null).newAccumulator();
+        for (int i = 0; i < 5; i++) {
+            stored.add(measurements.get(i));
+        }
+        Track track = new TrackImpl();
+        track.setTrackID(new Track.TrackId(7));
+        track.setTrackStatus(Track.TrackStatus.ONGOING);
+        track.setLazyMeasurements(true);
+        track.setEndTime(measurements.get(4).getTime());
+        track.setLength(stored.getStatistics().getDistance());
+        track.setStatistics(stored.getStatistics());
+        List<TrackStatistics> storedStatistics = new ArrayList<>();
+
+        int recovered = new RecordingJournal(file).replay(new FakeEnviroCarDB() {
+            @Override
+            public Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy) {
+                return Maybe.just(track);
+            }
+
+            @Override
+            public Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId,
+                    long startTime, long endTime, Set<Measurement.PropertyKey> properties) {
+                return Flowable.just(measurements.get(4));
+            }
+
+            @Override
+            public void appendMeasurements(Track track, List<Measurement> measurements) {
+                storedStatistics.add(((TrackStatisticsProvider) track).getStatistics());
+            }
+
+            @Override
+            public boolean updateTrack(Track track) {
+                return true;
+            }
+        });
+
+        TrackStatisticsAccumulator expected = new TrackStatisticsProcessor(null).newAccumulator();
+        for (Measurement measurement : measurements) {
+            expected.add(measurement);
+        }
+        Assert.assertThat(recovered, CoreMatchers.is(5));
+        Assert.assertThat(storedStatistics.size(), CoreMatchers.is(1));
+        TrackStatistics statistics = storedStatistics.get(0);
+        Assert.assertThat(statistics.getMeasurementCount(), CoreMatchers.is(10));
+        Assert.assertEquals(34.5, statistics.getAverageSpeed(), 1e-9);
+        Assert.assertEquals(expected.getStatistics().getDistance(), statistics.getDistance(), 1e-9);
+        Assert.assertEquals(statistics.getDistance(), track.getLength(), 0.0);
+        Assert.assertThat(track.getEndTime(), CoreMatchers.is(measurements.get(9).getTime()));
+    }
+
+    @Test
+    public void testReplayDiscardsDeletedTracks() throws IOException {
+        writeJournal(createMeasurements(10));
+
+        int recovered = new RecordingJournal(file).replay(new FakeEnviroCarDB() {
+            @Override
+            public Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy) {
+                return Maybe.empty();
+            }
+        });
+
+        Assert.assertThat(recovered, CoreMatchers.is(0));
+        Assert.assertTrue(new RecordingJournal(file).read().isEmpty());
+    }
+
+    @Test
+    public void testReplayKeepsJournalOnError() throws IOException {
+        writeJournal(createMeasurements(10));
+
+        int recovered = new RecordingJournal(file).replay(new FakeEnviroCarDB() {
+            @Override
+            public Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy) {
+                // e.g., the database is still being migrated.
+                return Maybe.error(new TimeoutException());
+            }
+        });
+
+        Assert.assertThat(recovered, CoreMatchers.is(0));
+        Assert.assertThat(new RecordingJournal(file).read().size(), CoreMatchers.is(10));
+    }
+
+    private void writeJournal(List<Measurement> measurements) throws IOException {
+        RecordingJournal journal = new RecordingJournal(file);
+        for (Measurement measurement : measurements) {
+            journal.append(measurement);
+        }
+        journal.close();
+    }
+
+    private static void assertMeasurement(Measurement expected, Measurement actual) {
+        Assert.assertThat(actual.getTrackId(), CoreMatchers.is(expected.getTrackId()));
+        Assert.assertThat(actual.getTime(), CoreMatchers.is(expected.getTime()));
+        Assert.assertThat(actual.getLatitude(), CoreMatchers.is(expected.getLatitude()));
+        Assert.assertThat(actual.getLongitude(), CoreMatchers.is(expected.getLongitude()));
+        Assert.assertThat(actual.getAllProperties(), CoreMatchers.is(expected.getAllProperties()));
+    }
+
+    private static List<Measurement> createMeasurements(int size) {
+        List<Measurement> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Measurement measurement = new MeasurementImpl(51.9 + i * 1e-5, 7.6 - i * 1e-5);
+            measurement.setTrackId(new Track.TrackId(7));
+            measurement.setTime(1500000000000L + i * 1000);
+            measurement.setProperty(Measurement.PropertyKey.SPEED, 30.0 + i);
+            measurement.setProperty(Measurement.PropertyKey.RPM, 1500.0);
+            result.add(measurement);
+        }
+        return result;
+    }
+}
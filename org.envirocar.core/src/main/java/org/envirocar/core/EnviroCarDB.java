@@ -20,12 +20,17 @@ package org.envirocar.core;
 
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.internal.TrackSummary;
 import org.envirocar.core.exception.MeasurementSerializationException;
 import org.envirocar.core.exception.TrackSerializationException;
 import org.envirocar.core.util.TrackMetadata;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 
 
@@ -40,6 +45,31 @@ public interface EnviroCarDB {
 
     Observable<Track> getTrack(Track.TrackId trackId, boolean lazy);
 
+    /**
+     * Reads the track with the given id once. Unlike {@link #getTrack(Track.TrackId, boolean)},
+     * a missing track is not reported as an error, and the query is not subject to a timeout.
+     *
+     * @param trackId the id of the track.
+     * @param lazy    indicates whether the measurements should be loaded or not.
+     * @return the track, or an empty maybe if no such track exists.
+     */
+    Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy);
+
+    /**
+     * Returns an observable providing the track with the given id, whose measurements are loaded
+     * page-wise from the database when they are accessed. Only a bounded number of measurements
+     * is kept in memory, which makes this suitable for very long tracks. The measurement list is
+     * read-only.
+     * <p>
+     * The measurement series of the track is not memory-flat: it is read column-wise from the
+     * database without creating the measurements, but holds the values of all measurements in
+     * primitive arrays.
+     *
+     * @param trackId the id of the track.
+     * @return the track as observable.
+     */
+    Observable<Track> getPagedTrack(Track.TrackId trackId);
+
     /**
      * Returns an observable providing all tracks as an {@link List}.
      *
@@ -63,6 +93,26 @@ public interface EnviroCarDB {
 
     Observable<Integer> getAllLocalTracksCount();
 
+    /**
+     * Returns a page of local tracks for list screens, ordered by descending start time. The
+     * tracks only carry their header attributes; their measurements are loaded page-wise once
+     * they are accessed. Pages are addressed by the last track of the previous page, so that
+     * they stay stable while tracks are added or removed.
+     *
+     * @param after the last track of the previous page, or null for the first page.
+     * @param limit the maximum number of tracks of the page.
+     * @return the page of tracks as observable.
+     */
+    Observable<List<Track>> getLocalTrackHeaders(Track after, int limit);
+
+    /**
+     * Returns the summaries of all local tracks. Tracks without any measurements are included
+     * with an empty summary.
+     *
+     * @return the summaries of all local tracks as observable.
+     */
+    Observable<List<TrackSummary>> getAllLocalTrackSummaries();
+
     Observable<List<Track>> getAllRemoteTracks();
 
     Observable<List<Track>> getAllRemoteTracks(boolean lazy);
@@ -77,18 +127,111 @@ public interface EnviroCarDB {
 
     Observable<Track> updateTrackObservable(Track track);
 
+    /**
+     * Updates only the columns of a track that change while it is recorded, i.e., its end time
+     * and its length. All other attributes are left untouched. Other than the remaining
+     * updates, this does not notify any observed query.
+     *
+     * @param track the track to update.
+     * @return true if the track has been updated.
+     */
+    boolean updateTrackProgress(Track track);
+
     boolean updateCarIdOfTracks(String currentId, String newId);
 
     void deleteTrack(Track.TrackId trackId);
 
     void deleteTrack(Track track);
 
+    /**
+     * Deletes tracks together with all their measurements within a single transaction.
+     *
+     * @param trackIds the ids of the tracks to delete.
+     */
+    void deleteTracks(Collection<Track.TrackId> trackIds);
+
     Observable<Track> deleteTrackObservable(Track track);
 
     Observable<List<Track.TrackId>> deleteAllRemoteTracks();
 
     void insertMeasurement(Measurement measurement) throws MeasurementSerializationException;
 
+    /**
+     * Inserts a batch of measurements within a single transaction.
+     *
+     * @param measurements the measurements to insert.
+     * @throws MeasurementSerializationException if a measurement could not be stored.
+     */
+    void insertMeasurements(List<Measurement> measurements) throws MeasurementSerializationException;
+
+    /**
+     * Inserts a batch of measurements of a recording track and updates the progress of the track
+     * (see {@link #updateTrackProgress(Track)}) within a single transaction.
+     *
+     * @param track        the track the measurements belong to.
+     * @param measurements the measurements to insert.
+     * @throws MeasurementSerializationException if a measurement could not be stored.
+     */
+    void appendMeasurements(Track track, List<Measurement> measurements) throws
+            MeasurementSerializationException;
+
+    /**
+     * Replaces the stored measurements of tracks by their current measurements, e.g., after
+     * their derived properties have been recomputed. The tracks themselves and their summaries
+     * are updated as well, all within a single transaction. Archived tracks remain archived.
+     * Tracks that are currently recorded or do not exist anymore are left untouched, as their
+     * measurements may have changed since they have been read.
+     *
+     * @param tracks the tracks with their complete measurements.
+     * @return the number of tracks whose measurements have been replaced.
+     * @throws MeasurementSerializationException if a measurement could not be stored.
+     */
+    int replaceMeasurements(List<Track> tracks) throws MeasurementSerializationException;
+
+    /**
+     * Streams all measurements of a track in time order directly from the database. The
+     * measurements are read from the cursor as they are requested downstream, i.e., the whole
+     * track is never held in memory.
+     *
+     * @param trackId the id of the track.
+     * @return a flowable emitting the measurements of the track.
+     */
+    Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId);
+
+    /**
+     * Streams the measurements of a track within a time range in time order directly from the
+     * database. Only the coordinates, the time, and the requested properties are read.
+     *
+     * @param trackId    the id of the track.
+     * @param startTime  the inclusive lower bound of the measurement time.
+     * @param endTime    the inclusive upper bound of the measurement time.
+     * @param properties the properties to read, or null for all properties.
+     * @return a flowable emitting the matching measurements.
+     */
+    Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId, long startTime,
+                                                  long endTime,
+                                                  Set<Measurement.PropertyKey> properties);
+
+    /**
+     * Compacts the measurements of a finished track into an archive, which requires a fraction
+     * of the space of the individual measurement rows. Archived measurements are decoded
+     * transparently when the track is read. Timestamps are kept exactly, coordinates to 1e-7
+     * degrees, and property values to 1e-4 of their unit.
+     *
+     * @param trackId the id of the track to archive.
+     * @return true if the track has been archived, false if it has no measurements or has
+     * already been archived.
+     */
+    boolean archiveTrack(Track.TrackId trackId);
+
+    /**
+     * Deletes all measurements of a track including its archive. The track itself and its
+     * summary are kept, i.e., the track remains listed with its statistics.
+     *
+     * @param trackId the id of the track.
+     */
+    void deleteMeasurements(Track.TrackId trackId);
+
     void automaticDeleteMeasurements(long time, Track.TrackId trackId);
 
     Observable<Void> insertMeasurementObservable(Measurement measurement);
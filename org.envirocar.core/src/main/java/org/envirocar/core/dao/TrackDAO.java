@@ -18,6 +18,7 @@
  */
 package org.envirocar.core.dao;
 
+import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.exception.DataCreationFailureException;
 import org.envirocar.core.exception.DataRetrievalFailureException;
@@ -28,6 +29,7 @@ import org.envirocar.core.exception.UnauthorizedException;
 
 import java.util.List;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 
 /**
@@ -67,6 +69,20 @@ public interface TrackDAO {
 
     Observable<Track> createTrackObservable(Track track);
 
+    /**
+     * Creates a track whose measurements are streamed, e.g., from the database, instead of
+     * being taken from the track's measurement list.
+     *
+     * @param track        the track to create.
+     * @param measurements the measurements of the track in time order.
+     * @return the created track with its remote id.
+     */
+    Track createTrack(Track track, Flowable<Measurement> measurements) throws
+            DataCreationFailureException, NotConnectedException, ResourceConflictException,
+            UnauthorizedException;
+
+    Observable<Track> createTrackObservable(Track track, Flowable<Measurement> measurements);
+
     void deleteTrack(Track track) throws DataUpdateFailureException, NotConnectedException,
             UnauthorizedException;
 }
@@ -374,6 +374,43 @@ public interface Measurement extends BaseEntity<Measurement> {
 
     boolean hasProperty(PropertyKey key);
 
+    /**
+     * @return the latitude, or NaN if it is not set.
+     */
+    default double getLatitudeValue() {
+        Double latitude = getLatitude();
+        return latitude != null ? latitude : Double.NaN;
+    }
+
+    /**
+     * @return the longitude, or NaN if it is not set.
+     */
+    default double getLongitudeValue() {
+        Double longitude = getLongitude();
+        return longitude != null ? longitude : Double.NaN;
+    }
+
+    /**
+     * Returns the value of a property without boxing it, if supported by the implementation.
+     *
+     * @param key the key of the property.
+     * @return the value of the property, or NaN if it is not set.
+     */
+    default double getPropertyValue(PropertyKey key) {
+        Double value = getProperty(key);
+        return value != null ? value : Double.NaN;
+    }
+
+    /**
+     * Sets the value of a property without boxing it, if supported by the implementation.
+     *
+     * @param key   the key of the property.
+     * @param value the value of the property.
+     */
+    default void setPropertyValue(PropertyKey key, double value) {
+        setProperty(key, value);
+    }
+
     Map<PropertyKey, Double> getAllProperties();
 
     void setAllProperties(Map<PropertyKey, Double> properties);
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import org.envirocar.core.utils.GeodesicDistance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only, column-wise copy of the measurements of a track. The times, coordinates and each
+ * property that is present in at least one measurement are held in primitive arrays, so that
+ * scans over a whole track run as tight loops without unboxing or virtual calls per value.
+ * Absent property values are NaN.
+ *
+ * @author dewall
+ */
+public final class MeasurementSeries {
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+
+    private final int size;
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[][] properties = new double[KEYS.length][];
+
+    private double[] cumulativeDistances;
+
+    /**
+     * Implemented by measurement lists that can create their series without creating each
+     * measurement, e.g., by reading the database column-wise.
+     */
+    public interface Source {
+
+        /**
+         * @return the series of all measurements of the list.
+         */
+        MeasurementSeries toMeasurementSeries();
+    }
+
+    /**
+     * Creates the series of a list of measurements.
+     *
+     * @param measurements the measurements in time order.
+     * @return the series.
+     */
+    public static MeasurementSeries of(List<Measurement> measurements) {
+        return new MeasurementSeries(measurements);
+    }
+
+    /**
+     * Creates a series of column values, e.g., read column-wise from the database. The arrays
+     * are taken over without copying them.
+     *
+     * @param times      the times of the measurements in time order.
+     * @param latitudes  the latitudes of the measurements.
+     * @param longitudes the longitudes of the measurements.
+     * @param properties the values per property indexed by the ordinal of its key, or null for
+     *                   a property that no measurement has. Absent values are NaN.
+     * @return the series.
+     */
+    public static MeasurementSeries of(long[] times, double[] latitudes, double[] longitudes,
+                                       double[][] properties) {
+        return new MeasurementSeries(times, latitudes, longitudes, properties);
+    }
+
+    private MeasurementSeries(long[] times, double[] latitudes, double[] longitudes,
+                              double[][] properties) {
+        this.size = times.length;
+        this.times = times;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        System.arraycopy(properties, 0, this.properties, 0, KEYS.length);
+    }
+
+    private MeasurementSeries(List<Measurement> measurements) {
+        this.size = measurements.size();
+        this.times = new long[size];
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            Measurement measurement = measurements.get(i);
+            times[i] = measurement.getTime();
+            latitudes[i] = measurement.getLatitudeValue();
+            longitudes[i] = measurement.getLongitudeValue();
+
+            for (Measurement.PropertyKey key : KEYS) {
+                if (!measurement.hasProperty(key)) {
+                    continue;
+                }
+                double[] values = properties[key.ordinal()];
+                if (values == null) {
+                    values = new double[size];
+                    Arrays.fill(values, Double.NaN);
+                    properties[key.ordinal()] = values;
+                }
+                values[i] = measurement.getPropertyValue(key);
+            }
+        }
+    }
+
+    /**
+     * @return the number of measurements.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    /**
+     * @param key the key of the property.
+     * @return true if at least one measurement has the property.
+     */
+    public boolean hasProperty(Measurement.PropertyKey key) {
+        return properties[key.ordinal()] != null;
+    }
+
+    /**
+     * @param key   the key of the property.
+     * @param index the index of the measurement.
+     * @return true if the measurement has the property.
+     */
+    public boolean hasProperty(Measurement.PropertyKey key, int index) {
+        double[] values = properties[key.ordinal()];
+        return values != null && !Double.isNaN(values[index]);
+    }
+
+    /**
+     * @param key   the key of the property.
+     * @param index the index of the measurement.
+     * @return the value of the property, or NaN if the measurement does not have it.
+     */
+    public double getProperty(Measurement.PropertyKey key, int index) {
+        double[] values = properties[key.ordinal()];
+        return values != null ? values[index] : Double.NaN;
+    }
+
+    /**
+     * Creates a measurement holding the values at the given index, e.g., for algorithms that
+     * work on single measurements.
+     *
+     * @param index the index of the measurement.
+     * @return a new measurement without track id.
+     */
+    public Measurement getMeasurement(int index) {
+        Measurement measurement = new PrimitiveMeasurement(latitudes[index], longitudes[index]);
+        measurement.setTime(times[index]);
+        for (Measurement.PropertyKey key : KEYS) {
+            double[] values = properties[key.ordinal()];
+            if (values != null && !Double.isNaN(values[index])) {
+                measurement.setPropertyValue(key, values[index]);
+            }
+        }
+        return measurement;
+    }
+
+    /**
+     * @return the keys of all properties that are present in at least one measurement.
+     */
+    public List<Measurement.PropertyKey> getSupportedProperties() {
+        List<Measurement.PropertyKey> result = new ArrayList<>();
+        for (Measurement.PropertyKey key : KEYS) {
+            if (hasProperty(key)) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distance along the track from the first measurement to the measurement at the
+     * given index in kilometers. The distances are computed once on first access.
+     *
+     * @param index the index of the measurement.
+     * @return the distance in km.
+     */
+    public double getDistance(int index) {
+        return getCumulativeDistances()[index];
+    }
+
+    /**
+     * @return the length of the track in kilometers.
+     */
+    public double getTotalDistance() {
+        return size == 0 ? 0 : getCumulativeDistances()[size - 1];
+    }
+
+    private synchronized double[] getCumulativeDistances() {
+        if (cumulativeDistances == null) {
+            double[] distances = new double[size];
+            for (int i = 1; i < size; i++) {
+                distances[i] = distances[i - 1] + GeodesicDistance.distance(latitudes[i - 1],
+                        longitudes[i - 1], latitudes[i], longitudes[i]) / 1000.0d;
+            }
+            cumulativeDistances = distances;
+        }
+        return cumulativeDistances;
+    }
+}
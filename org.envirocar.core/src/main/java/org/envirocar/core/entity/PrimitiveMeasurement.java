@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Measurement that keeps its coordinates and properties in primitive fields. The property values
+ * are stored in an array indexed by the ordinal of their {@link PropertyKey}, together with a
+ * bitmask of the present properties. Therefore, the primitive accessors neither box nor hash,
+ * and a measurement needs considerably less heap than a {@link MeasurementImpl}.
+ * <p>
+ * In contrast to {@link MeasurementImpl}, {@link #getAllProperties()} returns a copy of the
+ * properties.
+ *
+ * @author dewall
+ */
+public class PrimitiveMeasurement implements Measurement {
+    private static final PropertyKey[] KEYS = PropertyKey.values();
+
+    static {
+        if (KEYS.length > Long.SIZE) {
+            throw new IllegalStateException("Too many property keys for the presence bitmask");
+        }
+    }
+
+    private Track.TrackId trackId;
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private long time;
+    private long presence;
+    private final double[] values;
+
+    /**
+     * Constructor.
+     */
+    public PrimitiveMeasurement() {
+        this.values = new double[KEYS.length];
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param latitude  the latitude value
+     * @param longitude the longitude value
+     */
+    public PrimitiveMeasurement(double latitude, double longitude) {
+        this();
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    @Override
+    public Track.TrackId getTrackId() {
+        return trackId;
+    }
+
+    @Override
+    public void setTrackId(Track.TrackId trackId) {
+        this.trackId = trackId;
+    }
+
+    @Override
+    public Double getLatitude() {
+        return Double.isNaN(latitude) ? null : latitude;
+    }
+
+    @Override
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    @Override
+    public double getLatitudeValue() {
+        return latitude;
+    }
+
+    @Override
+    public Double getLongitude() {
+        return Double.isNaN(longitude) ? null : longitude;
+    }
+
+    @Override
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    @Override
+    public double getLongitudeValue() {
+        return longitude;
+    }
+
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    @Override
+    public Double getProperty(PropertyKey key) {
+        return hasProperty(key) ? values[key.ordinal()] : null;
+    }
+
+    @Override
+    public void setProperty(PropertyKey key, Double value) {
+        if (value != null) {
+            setPropertyValue(key, value);
+        }
+    }
+
+    @Override
+    public double getPropertyValue(PropertyKey key) {
+        return hasProperty(key) ? values[key.ordinal()] : Double.NaN;
+    }
+
+    @Override
+    public void setPropertyValue(PropertyKey key, double value) {
+        values[key.ordinal()] = value;
+        presence |= 1L << key.ordinal();
+    }
+
+    @Override
+    public boolean hasProperty(PropertyKey key) {
+        return (presence & (1L << key.ordinal())) != 0;
+    }
+
+    @Override
+    public Map<PropertyKey, Double> getAllProperties() {
+        Map<PropertyKey, Double> result = new EnumMap<>(PropertyKey.class);
+        for (long remaining = presence; remaining != 0; remaining &= remaining - 1) {
+            int ordinal = Long.numberOfTrailingZeros(remaining);
+            result.put(KEYS[ordinal], values[ordinal]);
+        }
+        return result;
+    }
+
+    @Override
+    public void setAllProperties(Map<PropertyKey, Double> properties) {
+        presence = 0;
+        for (Map.Entry<PropertyKey, Double> entry : properties.entrySet()) {
+            setProperty(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Measurement carbonCopy() {
+        PrimitiveMeasurement res = new PrimitiveMeasurement(latitude, longitude);
+        System.arraycopy(values, 0, res.values, 0, values.length);
+        res.presence = presence;
+        res.trackId = trackId;
+        res.time = time;
+        return res;
+    }
+
+    @Override
+    public synchronized void reset() {
+        latitude = Double.NaN;
+        longitude = Double.NaN;
+        presence = 0;
+    }
+}
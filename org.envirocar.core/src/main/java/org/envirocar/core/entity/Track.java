@@ -19,9 +19,11 @@
 package org.envirocar.core.entity;
 
 import org.envirocar.core.exception.NoMeasurementsException;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
 import org.envirocar.core.util.TrackMetadata;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * TODO JavaDoc
@@ -134,10 +136,44 @@ public interface Track extends BaseEntity<Track>, Comparable<Track> {
 
     void setMeasurements(List<Measurement> measurements);
 
+    /**
+     * Returns a read-only, column-wise copy of the measurements of this track for scans over
+     * the whole track. The series is built on first access and cached until the measurements
+     * are replaced or their number changes. Changes of individual measurements are not
+     * reflected.
+     *
+     * @return the series of measurements.
+     */
+    MeasurementSeries getMeasurementSeries();
+
     boolean hasProperty(Measurement.PropertyKey propertyKey);
 
+    /**
+     * @param propertyKey the key of the property.
+     * @return the number of measurements of this track that have a value for the property.
+     */
+    int getPropertyCount(Measurement.PropertyKey propertyKey);
+
+    /**
+     * Sets the number of measurements per property, e.g., from the stored summary of the track,
+     * so that the supported properties are known without reading any measurement. The counts
+     * are discarded when the measurements are replaced.
+     *
+     * @param propertyCounts the number of measurements per property.
+     */
+    void setPropertyCounts(Map<Measurement.PropertyKey, Integer> propertyCounts);
+
     List<Measurement.PropertyKey> getSupportedProperties();
 
+    /**
+     * Sets precomputed statistics, e.g., from the stored summary of the track, so that they are
+     * available without reading any measurement. The statistics are used as long as they cover
+     * the measurements of the track and are discarded when the measurements are replaced.
+     *
+     * @param statistics the statistics of the measurements of this track.
+     */
+    void setStatistics(TrackStatistics statistics);
+
     String getRemoteID();
 
     void setRemoteID(String remoteID);
@@ -22,12 +22,16 @@ import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.exception.NoMeasurementsException;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsAccumulator;
 import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProcessor;
 import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProvider;
 import org.envirocar.core.util.TrackMetadata;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TODO JavaDoc
@@ -53,11 +57,14 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
 
     protected boolean isLazyLoadingMeasurements = false;
 
-    protected Double distanceOfTrack;
-    protected Double consumptionPerHour;
-    protected Double co2Average;
-    protected Double literPerHundredKm;
-    protected Double gramsPerKm;
+    private MeasurementSeries measurementSeries;
+    // number of measurements per property ordinal, covering the first countedMeasurements.
+    private int[] propertyCounts;
+    private int countedMeasurements;
+
+    private TrackStatistics statistics;
+    // extended by appended measurements, covering the first measurements of the track.
+    private TrackStatisticsAccumulator statisticsAccumulator;
 
     /**
      * Default constructor with downloaded state.
@@ -119,6 +126,19 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
         track.setTrackStatus(trackStatus);
         track.setMeasurements(new ArrayList<>(measurements));
         track.setLazyMeasurements(isLazyLoadingMeasurements);
+        synchronized (this) {
+            if (propertyCounts != null) {
+                int[] current = getPropertyCounts();
+                Map<Measurement.PropertyKey, Integer> counts = new EnumMap<>(Measurement.PropertyKey.class);
+                for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                    counts.put(key, current[key.ordinal()]);
+                }
+                track.setPropertyCounts(counts);
+            }
+            if (statistics != null) {
+                track.setStatistics(statistics);
+            }
+        }
         track.setLength(length);
         return track;
     }
@@ -172,6 +192,10 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
     public void setCar(Car car) {
         this.car = car;
         this.STATISTICS_PROCESSOR = new TrackStatisticsProcessor(car.getFuelType());
+        synchronized (this) {
+            this.statistics = null;
+            this.statisticsAccumulator = null;
+        }
     }
 
     @Override
@@ -297,29 +321,80 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
         // track is not" +
         //                " allowed to have empty measuremnts");
         this.measurements = measurements;
+        this.measurementSeries = null;
+        synchronized (this) {
+            this.propertyCounts = null;
+            this.statistics = null;
+            this.statisticsAccumulator = null;
+        }
     }
 
     @Override
-    public boolean hasProperty(Measurement.PropertyKey propertyKey) {
-        for (Measurement m : measurements) {
-            if (m.hasProperty(propertyKey)) {
-                return true;
+    public synchronized MeasurementSeries getMeasurementSeries() {
+        if (measurements instanceof MeasurementSeries.Source) {
+            if (measurementSeries == null) {
+                measurementSeries = ((MeasurementSeries.Source) measurements).toMeasurementSeries();
             }
+        } else if (measurementSeries == null || measurementSeries.size() != measurements.size()) {
+            // measurements are appended to the list while a track is recorded.
+            measurementSeries = MeasurementSeries.of(measurements);
         }
-        return false;
+        return measurementSeries;
+    }
+
+    @Override
+    public boolean hasProperty(Measurement.PropertyKey propertyKey) {
+        return getPropertyCount(propertyKey) > 0;
     }
 
     @Override
     public List<Measurement.PropertyKey> getSupportedProperties() {
+        int[] counts = getPropertyCounts();
         List<Measurement.PropertyKey> result = new ArrayList<>();
         for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
-            if (hasProperty(key)) {
+            if (counts[key.ordinal()] > 0) {
                 result.add(key);
             }
         }
         return result;
     }
 
+    @Override
+    public int getPropertyCount(Measurement.PropertyKey propertyKey) {
+        return getPropertyCounts()[propertyKey.ordinal()];
+    }
+
+    @Override
+    public synchronized void setPropertyCounts(Map<Measurement.PropertyKey, Integer> propertyCounts) {
+        int[] counts = new int[Measurement.PropertyKey.values().length];
+        for (Map.Entry<Measurement.PropertyKey, Integer> entry : propertyCounts.entrySet()) {
+            counts[entry.getKey().ordinal()] = entry.getValue();
+        }
+        this.propertyCounts = counts;
+        this.countedMeasurements = measurements.size();
+    }
+
+    /**
+     * Returns the counts per property ordinal. Only measurements that have been appended since
+     * the last call are counted, so that recording tracks are never scanned twice.
+     */
+    private synchronized int[] getPropertyCounts() {
+        if (propertyCounts == null) {
+            propertyCounts = new int[Measurement.PropertyKey.values().length];
+            countedMeasurements = 0;
+        }
+        for (int i = countedMeasurements; i < measurements.size(); i++) {
+            Measurement measurement = measurements.get(i);
+            for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                if (measurement.hasProperty(key)) {
+                    propertyCounts[key.ordinal()]++;
+                }
+            }
+        }
+        countedMeasurements = measurements.size();
+        return propertyCounts;
+    }
+
     @Override
     public int compareTo(Track another) {
         if (downloadState == DownloadState.REMOTE) {
@@ -406,46 +481,69 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
 
 
     @Override
-    public double getDistanceOfTrack() {
-        if ((distanceOfTrack == null || distanceOfTrack == 0.0) && STATISTICS_PROCESSOR != null) {
-            distanceOfTrack = STATISTICS_PROCESSOR.computeDistanceOfTrack(getMeasurements());
+    public synchronized TrackStatistics getStatistics() {
+        int size = measurements.size();
+        // stored statistics remain valid while the measurements of the track are not loaded.
+        if (statistics != null && (statistics.getMeasurementCount() == size
+                || (size == 0 && isLazyLoadingMeasurements))) {
+            return statistics;
+        }
+
+        if (statisticsAccumulator == null || statisticsAccumulator.getMeasurementCount() > size) {
+            TrackStatisticsProcessor processor = STATISTICS_PROCESSOR != null ?
+                    STATISTICS_PROCESSOR : new TrackStatisticsProcessor(null);
+            statisticsAccumulator = processor.newAccumulator();
+        }
+
+        // whole tracks are scanned column-wise, whereas measurements appended while recording
+        // are added one at a time.
+        int count = statisticsAccumulator.getMeasurementCount();
+        if (count == 0 && size > 1) {
+            MeasurementSeries series = getMeasurementSeries();
+            for (int i = 0; i < size; i++) {
+                statisticsAccumulator.add(series, i);
+            }
+        } else {
+            for (int i = count; i < size; i++) {
+                statisticsAccumulator.add(measurements.get(i));
+            }
         }
-        return distanceOfTrack;
+        statistics = statisticsAccumulator.getStatistics();
+        return statistics;
+    }
+
+    @Override
+    public synchronized void setStatistics(TrackStatistics statistics) {
+        this.statistics = statistics;
+        this.statisticsAccumulator = null;
+    }
+
+    @Override
+    public double getDistanceOfTrack() {
+        return getStatistics().getDistance();
     }
 
     @Override
     public double getFuelConsumptionPerHour() throws FuelConsumptionException {
-        if (consumptionPerHour == null) {
-            consumptionPerHour = STATISTICS_PROCESSOR.getFuelConsumptionPerHour(getMeasurements());
-        }
-        return consumptionPerHour;
+        return getStatistics().getFuelConsumptionPerHour();
     }
 
     @Override
     public double getCO2Average() throws FuelConsumptionException {
-        if (co2Average == null) {
-            co2Average = STATISTICS_PROCESSOR.getCO2Average(getMeasurements());
-        }
-        return co2Average;
+        return getStatistics().getCO2Average();
     }
 
     @Override
     public double getLiterPerHundredKm() throws
             FuelConsumptionException, NoMeasurementsException {
-        if (literPerHundredKm == null) {
-            literPerHundredKm = STATISTICS_PROCESSOR.getLiterPerHundredKm(
-                    getFuelConsumptionPerHour(), getDuration(), getDistanceOfTrack());
-        }
-        return literPerHundredKm;
+        return STATISTICS_PROCESSOR.getLiterPerHundredKm(
+                getFuelConsumptionPerHour(), getDuration(), getDistanceOfTrack());
     }
 
     @Override
     public double getGramsPerKm() throws FuelConsumptionException, NoMeasurementsException,
             UnsupportedFuelTypeException {
-        if (gramsPerKm == null) {
-            gramsPerKm = STATISTICS_PROCESSOR.getGramsPerKm(getLiterPerHundredKm(), getCar().getFuelType());
-        }
-        return gramsPerKm;
+        return STATISTICS_PROCESSOR.getGramsPerKm(getLiterPerHundredKm(), getCar().getFuelType());
     }
 
 }
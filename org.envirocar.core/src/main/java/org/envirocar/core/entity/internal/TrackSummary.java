@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity.internal;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsAccumulator;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Aggregated values of a track that can be maintained incrementally while its measurements are
+ * written, so that track lists and statistics do not need to scan the measurements.
+ * <p>
+ * The distance and speeds are accumulated into the {@link TrackStatistics} of the track by a
+ * {@link TrackStatisticsAccumulator}. The fuel consumption depends on the fuel type of the track
+ * and is therefore only available after the complete statistics of the track have been set with
+ * {@link #setStatistics(TrackStatistics)}.
+ *
+ * @author dewall
+ */
+public class TrackSummary {
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+    private static final TrackStatistics EMPTY = new TrackStatistics(0, 0, false, 0, 0, 0, 0, 0);
+
+    private final Track.TrackId trackId;
+    private Long startTime;
+    private Long endTime;
+    private final int[] propertyCounts = new int[KEYS.length];
+    private TrackStatistics statistics = EMPTY;
+    private boolean statisticsComplete;
+    private double lastLatitude = Double.NaN;
+    private double lastLongitude = Double.NaN;
+    private TrackStatisticsAccumulator accumulator;
+
+    /**
+     * Constructor.
+     *
+     * @param trackId the id of the summarized track.
+     */
+    public TrackSummary(Track.TrackId trackId) {
+        this.trackId = trackId;
+    }
+
+    /**
+     * Adds a measurement to this summary. Measurements have to be added in time order, because
+     * the distance is accumulated between consecutive measurements.
+     *
+     * @param measurement the measurement to add.
+     */
+    public void add(Measurement measurement) {
+        long time = measurement.getTime();
+        if (startTime == null || time < startTime) {
+            startTime = time;
+        }
+        if (endTime == null || time > endTime) {
+            endTime = time;
+        }
+
+        if (accumulator == null) {
+            accumulator = new TrackStatisticsAccumulator(null, statistics, lastLatitude, lastLongitude);
+        }
+        accumulator.add(measurement);
+        statisticsComplete = false;
+
+        for (Measurement.PropertyKey key : KEYS) {
+            if (measurement.hasProperty(key)) {
+                propertyCounts[key.ordinal()]++;
+            }
+        }
+    }
+
+    public Track.TrackId getTrackId() {
+        return trackId;
+    }
+
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Long startTime) {
+        this.startTime = startTime;
+    }
+
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Long endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * @return the duration between the first and the last measurement in milliseconds.
+     */
+    public long getDuration() {
+        return startTime != null && endTime != null ? endTime - startTime : 0;
+    }
+
+    public int getMeasurementCount() {
+        return getAccumulatedStatistics().getMeasurementCount();
+    }
+
+    /**
+     * @return the distance in km.
+     */
+    public double getDistance() {
+        return getAccumulatedStatistics().getDistance();
+    }
+
+    /**
+     * @return the average speed in km/h, or null if no measurement had a speed value.
+     */
+    public Double getAverageSpeed() {
+        return getAccumulatedStatistics().getAverageSpeed();
+    }
+
+    /**
+     * @return the latitude of the last measurement with a position, or NaN if there is none.
+     */
+    public double getLastLatitude() {
+        return accumulator != null ? accumulator.getLastLatitude() : lastLatitude;
+    }
+
+    /**
+     * @return the longitude of the last measurement with a position, or NaN if there is none.
+     */
+    public double getLastLongitude() {
+        return accumulator != null ? accumulator.getLastLongitude() : lastLongitude;
+    }
+
+    /**
+     * @param key the key of the property.
+     * @return the number of measurements having a value for the property.
+     */
+    public int getPropertyCount(Measurement.PropertyKey key) {
+        return propertyCounts[key.ordinal()];
+    }
+
+    /**
+     * @return the number of measurements per property, containing only properties that at least
+     * one measurement has.
+     */
+    public Map<Measurement.PropertyKey, Integer> getPropertyCounts() {
+        Map<Measurement.PropertyKey, Integer> result = new EnumMap<>(Measurement.PropertyKey.class);
+        for (Measurement.PropertyKey key : KEYS) {
+            if (propertyCounts[key.ordinal()] > 0) {
+                result.put(key, propertyCounts[key.ordinal()]);
+            }
+        }
+        return result;
+    }
+
+    public void setPropertyCounts(Map<Measurement.PropertyKey, Integer> propertyCounts) {
+        for (Measurement.PropertyKey key : KEYS) {
+            Integer count = propertyCounts.get(key);
+            this.propertyCounts[key.ordinal()] = count != null ? count : 0;
+        }
+    }
+
+    /**
+     * @return the complete statistics of the track, or null if none have been set or
+     * measurements have been added since.
+     */
+    public TrackStatistics getStatistics() {
+        return statisticsComplete ? statistics : null;
+    }
+
+    /**
+     * Sets the statistics accumulated for the track, e.g., while it is recorded, which have to
+     * cover all summarized measurements. Otherwise, they are ignored.
+     *
+     * @param statistics the statistics of the summarized measurements.
+     */
+    public void setStatistics(TrackStatistics statistics) {
+        if (statistics.getMeasurementCount() == getMeasurementCount()) {
+            restoreStatistics(statistics, true, getLastLatitude(), getLastLongitude());
+        }
+    }
+
+    /**
+     * Restores stored statistics together with the position of the last measurement, which is
+     * required to continue the distance.
+     *
+     * @param statistics    the statistics of the summarized measurements.
+     * @param complete      whether the statistics contain the fuel consumption.
+     * @param lastLatitude  the latitude of the last measurement with a position, or NaN.
+     * @param lastLongitude the longitude of the last measurement with a position, or NaN.
+     */
+    public void restoreStatistics(TrackStatistics statistics, boolean complete,
+                                  double lastLatitude, double lastLongitude) {
+        this.lastLatitude = lastLatitude;
+        this.lastLongitude = lastLongitude;
+        this.accumulator = null;
+        this.statistics = statistics;
+        this.statisticsComplete = complete;
+    }
+
+    /**
+     * @return the statistics of all summarized measurements, which only contain the fuel
+     * consumption if they are complete.
+     * @see #getStatistics()
+     */
+    public TrackStatistics getAccumulatedStatistics() {
+        return accumulator != null ? accumulator.getStatistics() : statistics;
+    }
+}
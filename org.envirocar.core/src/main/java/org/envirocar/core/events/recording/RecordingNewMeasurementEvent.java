@@ -21,6 +21,7 @@ package org.envirocar.core.events.recording;
 import com.google.common.base.MoreObjects;
 
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
 
 
 /**
@@ -31,14 +32,17 @@ import org.envirocar.core.entity.Measurement;
 public class RecordingNewMeasurementEvent {
 
     public final Measurement mMeasurement;
+    public final TrackStatistics mStatistics;
 
     /**
      * Constructor.
      *
      * @param measurement
+     * @param statistics  the statistics of the recorded track including the new measurement.
      */
-    public RecordingNewMeasurementEvent(Measurement measurement) {
+    public RecordingNewMeasurementEvent(Measurement measurement, TrackStatistics statistics) {
         this.mMeasurement = measurement;
+        this.mStatistics = statistics;
     }
 
     @Override
@@ -21,9 +21,9 @@ package org.envirocar.core.interactor;
 import com.google.common.base.Preconditions;
 
 import org.envirocar.core.EnviroCarDB;
-import org.envirocar.core.entity.Track;
 import org.envirocar.core.entity.UserStatistic;
 import org.envirocar.core.entity.internal.AggregatedUserStatistic;
+import org.envirocar.core.entity.internal.TrackSummary;
 import org.envirocar.core.injection.InjectIOScheduler;
 import org.envirocar.core.injection.InjectUIScheduler;
 import org.envirocar.core.repository.UserStatisticRepository;
@@ -62,12 +62,12 @@ public class GetAggregatedUserStatistic extends Interactor<AggregatedUserStatist
                 result.setTotalDuration(result.getTotalDuration() + userStatistic.getDuration());
             }
 
-            enviroCarDB.getAllLocalTracks(true)
-                    .doOnNext(tracks -> {
-                        for (Track track : tracks){
+            enviroCarDB.getAllLocalTrackSummaries()
+                    .doOnNext(summaries -> {
+                        for (TrackSummary summary : summaries){
                             result.setNumTracks(result.getNumTracks() + 1);
-                            result.setTotalDistance(result.getTotalDistance() + track.getLength());
-                            result.setTotalDuration(result.getTotalDuration() + track.getDuration());
+                            result.setTotalDistance(result.getTotalDistance() + summary.getDistance());
+                            result.setTotalDuration(result.getTotalDuration() + summary.getDuration());
                         }
                     }).blockingFirst();
 
@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.envirocar.core.exception.FuelConsumptionException;
+import org.envirocar.core.exception.NoMeasurementsException;
+import org.envirocar.core.exception.UnsupportedFuelTypeException;
+import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
+import org.envirocar.core.trackprocessing.consumption.LoadBasedEnergyConsumptionAlgorithm;
+import org.envirocar.core.trackprocessing.statistics.CalculatedMAFWithStaticVolumetricEfficiency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes the properties of measurements that are derived from the recorded values and the
+ * car, i.e., the calculated MAF, the fuel consumption and the energy consumption together with
+ * their CO2 emissions. It is used for measurements while they are recorded as well as for
+ * reprocessing stored tracks, e.g., after the car of a track has been corrected.
+ * <p>
+ * While recording, the energy consumption depends on the previous measurement passed to
+ * {@link #enhance(Measurement)}. Therefore, an instance must only be used for the measurements
+ * of one track at a time and is not thread-safe.
+ *
+ * @author dewall
+ */
+public class MeasurementEnhancer {
+    private static final Logger LOG = Logger.getLogger(MeasurementEnhancer.class);
+
+    /**
+     * The properties computed by this class.
+     */
+    public static final Set<Measurement.PropertyKey> DERIVED_PROPERTIES = Collections.unmodifiableSet(
+            EnumSet.of(Measurement.PropertyKey.CALCULATED_MAF,
+                    Measurement.PropertyKey.CONSUMPTION,
+                    Measurement.PropertyKey.CO2,
+                    Measurement.PropertyKey.ENERGY_CONSUMPTION,
+                    Measurement.PropertyKey.ENERGY_CONSUMPTION_CO2));
+
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+
+    private final Car car;
+    private final ConsumptionAlgorithm consumptionAlgorithm;
+    private final CalculatedMAFWithStaticVolumetricEfficiency mafAlgorithm;
+    private final LoadBasedEnergyConsumptionAlgorithm energyConsumptionAlgorithm;
+
+    /**
+     * Constructor.
+     *
+     * @param car the car the measurements have been recorded with.
+     */
+    public MeasurementEnhancer(Car car) {
+        this.car = car;
+        this.consumptionAlgorithm = ConsumptionAlgorithm.fromFuelType(car.getFuelType());
+        this.mafAlgorithm = new CalculatedMAFWithStaticVolumetricEfficiency(car);
+        this.energyConsumptionAlgorithm = new LoadBasedEnergyConsumptionAlgorithm(car.getFuelType());
+    }
+
+    /**
+     * Adds the derived properties to the next measurement of a recorded track.
+     *
+     * @param measurement the measurement to enhance.
+     */
+    public void enhance(Measurement measurement) {
+        enhance(measurement, true);
+    }
+
+    /**
+     * Recomputes the derived properties of all measurements of a track. Derived values that can
+     * no longer be computed are removed. The given measurements are left unchanged.
+     *
+     * @param measurements the measurements of the track in time order.
+     * @return copies of the measurements with recomputed derived properties.
+     */
+    public List<Measurement> reprocess(List<Measurement> measurements) {
+        List<Measurement> result = new ArrayList<>(measurements.size());
+        for (Measurement measurement : measurements) {
+            result.add(copyWithoutDerivedProperties(measurement));
+        }
+
+        // the energy consumption of the whole track is computed at once, independent of the
+        // previously recorded or reprocessed track.
+        double[] energyConsumptions = energyConsumptionAlgorithm
+                .calculateConsumption(MeasurementSeries.of(result));
+
+        int incomplete = 0;
+        for (int i = 0; i < result.size(); i++) {
+            Measurement copy = result.get(i);
+            boolean complete = enhanceFuelConsumption(copy, false);
+            if (Double.isNaN(energyConsumptions[i])) {
+                complete = false;
+            } else {
+                complete &= setEnergyConsumption(copy, energyConsumptions[i], false);
+            }
+            if (!complete) {
+                incomplete++;
+            }
+        }
+        if (incomplete > 0) {
+            LOG.info(String.format("%s of %s measurements lack parameters for derived properties",
+                    incomplete, measurements.size()));
+        }
+        return result;
+    }
+
+    /**
+     * @return true if all derived properties could be computed.
+     */
+    private boolean enhance(Measurement measurement, boolean logFailures) {
+        boolean complete = enhanceFuelConsumption(measurement, logFailures);
+
+        // the energy consumption does not require OBD values and is computed for GPS only
+        // measurements as well.
+        double consumption;
+        try {
+            consumption = energyConsumptionAlgorithm.calculateConsumption(measurement);
+        } catch (Exception e) {
+            if (logFailures) {
+                LOG.warn(e.getMessage(), e);
+            }
+            return false;
+        }
+        return setEnergyConsumption(measurement, consumption, logFailures) && complete;
+    }
+
+    /**
+     * Adds the calculated MAF and the fuel consumption together with its CO2 emission.
+     *
+     * @return true if all of them could be computed.
+     */
+    private boolean enhanceFuelConsumption(Measurement measurement, boolean logFailures) {
+        boolean complete = true;
+        if (!measurement.hasProperty(Measurement.PropertyKey.MAF)) {
+            try {
+                measurement.setProperty(Measurement.PropertyKey.CALCULATED_MAF, mafAlgorithm.calculateMAF(measurement));
+            } catch (NoMeasurementsException e) {
+                complete = false;
+                if (logFailures) {
+                    LOG.warn(e.getMessage());
+                }
+            }
+        }
+
+        if (consumptionAlgorithm != null) {
+            try {
+                double consumption = consumptionAlgorithm.calculateConsumption(measurement);
+                measurement.setProperty(Measurement.PropertyKey.CONSUMPTION, consumption);
+                double co2 = consumptionAlgorithm.calculateCO2FromConsumption(consumption);
+                measurement.setProperty(Measurement.PropertyKey.CO2, co2);
+            } catch (FuelConsumptionException | UnsupportedFuelTypeException e) {
+                complete = false;
+                if (logFailures) {
+                    LOG.warn(e.getMessage());
+                }
+            }
+        }
+
+        return complete;
+    }
+
+    /**
+     * Adds the energy consumption together with its CO2 emission.
+     *
+     * @return true if the CO2 emission could be computed.
+     */
+    private boolean setEnergyConsumption(Measurement measurement, double consumption, boolean logFailures) {
+        measurement.setProperty(Measurement.PropertyKey.ENERGY_CONSUMPTION, consumption);
+        try {
+            double co2 = energyConsumptionAlgorithm.calculateCO2FromConsumption(consumption);
+            measurement.setProperty(Measurement.PropertyKey.ENERGY_CONSUMPTION_CO2, co2);
+            return true;
+        } catch (FuelConsumptionException e) {
+            if (logFailures) {
+                LOG.warn(e.getMessage(), e);
+            }
+            return false;
+        }
+    }
+
+    private static Measurement copyWithoutDerivedProperties(Measurement measurement) {
+        Measurement copy = new PrimitiveMeasurement();
+        copy.setTrackId(measurement.getTrackId());
+        copy.setTime(measurement.getTime());
+        copy.setLatitude(measurement.getLatitudeValue());
+        copy.setLongitude(measurement.getLongitudeValue());
+        for (Measurement.PropertyKey key : KEYS) {
+            if (!DERIVED_PROPERTIES.contains(key) && measurement.hasProperty(key)) {
+                copy.setPropertyValue(key, measurement.getPropertyValue(key));
+            }
+        }
+        return copy;
+    }
+}
@@ -21,6 +21,7 @@ package org.envirocar.core.trackprocessing.consumption;
 
 import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
 
@@ -44,6 +45,36 @@ public interface ConsumptionAlgorithm {
     double calculateConsumption(Measurement measurement) throws
             FuelConsumptionException, UnsupportedFuelTypeException;
 
+    /**
+     * Calculates the fuel consumption (l/h) of a measurement. Unlike
+     * {@link #calculateConsumption(Measurement)}, measurements lacking the required parameters
+     * do not raise an exception, so that measurements can be processed without exception
+     * handling per measurement. Implementations should override this to avoid the exceptions.
+     *
+     * @param measurement the measurement providing the required parameters
+     * @return fuel consumption in l/h, or NaN if it cannot be calculated for the measurement
+     */
+    default double calculateConsumptionValue(Measurement measurement) {
+        try {
+            return calculateConsumption(measurement);
+        } catch (FuelConsumptionException | UnsupportedFuelTypeException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Calculates the fuel consumption (l/h) of a measurement of a series like
+     * {@link #calculateConsumptionValue(Measurement)}. Implementations should override this to
+     * read the columns of the series directly.
+     *
+     * @param series the measurements of a track
+     * @param index  the index of the measurement
+     * @return fuel consumption in l/h, or NaN if it cannot be calculated for the measurement
+     */
+    default double calculateConsumption(MeasurementSeries series, int index) {
+        return calculateConsumptionValue(series.getMeasurement(index));
+    }
+
     /**
      * An implementation shall calculate the CO2 emission (kg/h) for a fuel consumption value (l/h)
      *
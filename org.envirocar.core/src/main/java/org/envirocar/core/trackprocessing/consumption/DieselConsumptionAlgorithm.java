@@ -21,6 +21,7 @@ package org.envirocar.core.trackprocessing.consumption;
 import com.google.common.base.Preconditions;
 
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.logging.Logger;
 
@@ -89,9 +90,54 @@ public class DieselConsumptionAlgorithm implements ConsumptionAlgorithm {
         }
 
         double lambdaER = calculateLambdaVoltageER(measurement.getProperty(LAMBDA_VOLTAGE_ER), lambdaV);
+        return calculateVolumetricFuelFlow(resolveMassAirFlow(measurement), lambdaER);
+    }
+
+    @Override
+    public double calculateConsumptionValue(Measurement measurement) {
+        return calculateConsumption(measurement.getPropertyValue(LAMBDA_VOLTAGE),
+                measurement.getPropertyValue(LAMBDA_VOLTAGE_ER), measurement.getPropertyValue(MAF),
+                measurement.getPropertyValue(CALCULATED_MAF));
+    }
+
+    @Override
+    public double calculateConsumption(MeasurementSeries series, int index) {
+        return calculateConsumption(series.getProperty(LAMBDA_VOLTAGE, index),
+                series.getProperty(LAMBDA_VOLTAGE_ER, index), series.getProperty(MAF, index),
+                series.getProperty(CALCULATED_MAF, index));
+    }
+
+    /**
+     * Exception-free variant of {@link #calculateConsumption(Measurement)}, where missing values
+     * are NaN.
+     */
+    private double calculateConsumption(double lambdaV, double lambdaER, double maf, double calculatedMaf) {
+        if (Double.isNaN(lambdaV) || Double.isNaN(lambdaER)) {
+            return Double.NaN;
+        }
+
+        // we assume a consumption of zero if the lambda voltage exceeds 1.1
+        if (lambdaV > 1.1) {
+            return 0.0;
+        }
+
+        if (lambdaER > 1.97) {
+            double denominator = CO_EFFICIENT_X2 - CO_EFFICIENT_X3 * lambdaV;
+            if (denominator == 0.0) {
+                return Double.NaN;
+            }
+            lambdaER = CO_EFFICIENT_X1 / denominator;
+        }
+
+        if (Double.isNaN(maf)) {
+            maf = calculatedMaf;
+        }
+        return calculateVolumetricFuelFlow(maf, lambdaER);
+    }
 
+    private double calculateVolumetricFuelFlow(double maf, double lambdaER) {
         //mass air flow in kilogram
-        double mafKG = resolveMassAirFlow(measurement) / 1000;
+        double mafKG = maf / 1000;
 
         /**
          * calculate mass fuel flow in kg/h
@@ -19,6 +19,7 @@
 package org.envirocar.core.trackprocessing.consumption;
 
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.exception.FuelConsumptionException;
 
 /**
@@ -49,6 +50,28 @@ public class GasolineConsumptionAlgorithm implements ConsumptionAlgorithm {
         return result_in_seconds * 3600;
     }
 
+    @Override
+    public double calculateConsumptionValue(Measurement measurement) {
+        return calculateConsumption(measurement.getPropertyValue(Measurement.PropertyKey.MAF),
+                measurement.getPropertyValue(Measurement.PropertyKey.CALCULATED_MAF));
+    }
+
+    @Override
+    public double calculateConsumption(MeasurementSeries series, int index) {
+        return calculateConsumption(series.getProperty(Measurement.PropertyKey.MAF, index),
+                series.getProperty(Measurement.PropertyKey.CALCULATED_MAF, index));
+    }
+
+    private double calculateConsumption(double maf, double calculatedMaf) {
+        if (Double.isNaN(maf)) {
+            maf = calculatedMaf;
+        }
+
+        // a missing MAF value results in NaN
+        double result_in_seconds = (maf / AIR_FUEL_RATIO) / FUEL_DENSITY;
+        return result_in_seconds * 3600;
+    }
+
     /**
      * @param consumption fuel consumption in l/h
      * @return the estimated co2 consumption
@@ -20,11 +20,18 @@ package org.envirocar.core.trackprocessing.consumption;
 
 import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
 
 /**
- * TODO JavaDoc
+ * Estimates the energy consumption of a vehicle from the driving resistance, which is derived
+ * from the speed, the acceleration and the road gradient between consecutive measurements.
+ * <p>
+ * The series methods are stateless and thread-safe, and compute the consumption of a whole
+ * track or a chunk of it in one call. {@link #calculateConsumption(Measurement)} keeps the
+ * previous measurement instead, so it must be called for the measurements of one track in
+ * order and is not thread-safe. Both result in the same values.
  *
  * @author dewall
  */
@@ -42,29 +49,12 @@ public class LoadBasedEnergyConsumptionAlgorithm implements ConsumptionAlgorithm
     private final double mass;            // total mass of the vehicle (including people) in kg
     private final double idlePower;       // power use at idling state in W
     private final double energyDensity;   // energy density of fuel (gasoline/diesel) in kWh/l
-
-    /* Geometric parameters */
-    private double theta = 0.0;                 // road gradient angle in °
-    private double distanceMeter;         // distance on spherical earth in m
-    private double distanceRadians;       // distance on spherical earth in radians
-    private double distanceRadiansTemp;   // temporary variable in radians
-
-    /* Resistance and power */
-    private double rollingResistance;     // in N
-    private double climbingResistance;    // in N
-    private double airResistance;         // in N
-    private double inertialResistance;    // in N
-    private double drivingResistance;     // in N
-    private double power;                 // in W
-    private double efficiency;            // dimensionless
     private final double efficiencyMin;   // dimensionless
     private final double efficiencyMax;   // dimensionless
 
-    // previous state
+    // previous state of calculateConsumption(Measurement)
     private boolean isFirstValue = true;  // boolean flag for first value
     private double speedPrev;             // in km/h (prev=previous)
-    private int dt;                       // temporal sampling in s
-    private double acceleration = 0.0;    // in km/h per second
     private long datePrev;
     private double latitudePrev;          // in °
     private double longitudePrev;         // in °
@@ -97,6 +87,9 @@ public class LoadBasedEnergyConsumptionAlgorithm implements ConsumptionAlgorithm
     }
 
     /**
+     * Calculates the consumption of the next measurement of a track relative to the previous
+     * measurement passed to this method.
+     *
      * @param measurement the measurement providing the required parameters
      * @return the estimated fuel consumption for gasoline.
      * @throws FuelConsumptionException
@@ -110,61 +103,186 @@ public class LoadBasedEnergyConsumptionAlgorithm implements ConsumptionAlgorithm
         double latitudeNow = measurement.getLatitude();
         double altitudeNow = measurement.getProperty(Measurement.PropertyKey.GPS_ALTITUDE);
 
+        double acceleration = 0.0;   // in km/h per second
+        double theta = 0.0;          // road gradient angle in °
         if (!isFirstValue) {
-            // calculate acceleration
-            this.acceleration = (speedNow - speedPrev) / ((datetimeNow - this.datePrev) / 1000);
-
-            // calculate road gradient angle
-            this.distanceRadiansTemp =
-                    Math.sin(Math.toRadians(latitudeNow))
-                            * Math.sin(Math.toRadians(this.latitudePrev))
-                            + Math.cos(Math.toRadians(latitudeNow))
-                            * Math.cos(Math.toRadians(this.latitudePrev))
-                            * Math.cos(Math.toRadians(longitudeNow) - Math.toRadians(this.longitudePrev));
-
-            // check cases where the argument is outside of the domain of definition
-            this.distanceRadiansTemp = Math.min(this.distanceRadiansTemp, 1);
-            this.distanceRadiansTemp = Math.max(this.distanceRadiansTemp, -1);
-
-            this.distanceRadians = Math.acos(distanceRadiansTemp);
-            this.distanceMeter = this.distanceRadians * RADIUS_EARTH;
-
-            // atan returns angle between -pi/2 and pi/2
-            this.theta = Math.toDegrees(Math.atan((altitudeNow - this.altitudePrev) / this.distanceMeter));
-
-            // Check cases where the angle is unreasonably large or the distance is very small (unstable results)
-            // The steepest slope on a road is measured in New Zealand with 19,3° or 35 %
-            if (Math.abs(this.theta) > 19 || distanceMeter < 25) {
-                this.theta = 0.0;
+            acceleration = calculateAcceleration(speedNow, datetimeNow, speedPrev, datePrev);
+            theta = calculateRoadGradient(
+                    Math.sin(Math.toRadians(latitudeNow)), Math.cos(Math.toRadians(latitudeNow)),
+                    Math.toRadians(longitudeNow), altitudeNow,
+                    Math.sin(Math.toRadians(this.latitudePrev)), Math.cos(Math.toRadians(this.latitudePrev)),
+                    Math.toRadians(this.longitudePrev), this.altitudePrev);
+        }
+
+        // Cache values
+        this.speedPrev = speedNow;
+        this.datePrev = (long) datetimeNow;
+        this.latitudePrev = latitudeNow;
+        this.longitudePrev = longitudeNow;
+        this.altitudePrev = altitudeNow;
+        this.isFirstValue = false;
+
+        return calculateConsumption(speedNow, acceleration, theta);
+    }
+
+    /**
+     * Calculates the consumption of a measurement of a series without keeping any state. For
+     * consecutive measurements, prefer {@link #calculateConsumption(MeasurementSeries, int, int)}.
+     *
+     * @param series the measurements of a track
+     * @param index  the index of the measurement
+     * @return fuel consumption in l/h, or NaN if the measurement lacks required parameters
+     */
+    @Override
+    public double calculateConsumption(MeasurementSeries series, int index) {
+        return calculateConsumption(series, index, index + 1)[0];
+    }
+
+    /**
+     * Calculates the consumption of all measurements of a series.
+     *
+     * @param series the measurements of a track
+     * @return the fuel consumption in l/h per measurement, NaN for measurements lacking required
+     * parameters
+     */
+    public double[] calculateConsumption(MeasurementSeries series) {
+        return calculateConsumption(series, 0, series.size());
+    }
+
+    /**
+     * Calculates the consumption of a chunk of measurements of a series. The first measurement
+     * of the chunk refers to the last preceding measurement with all required parameters, so
+     * that chunks result in the same values as the whole series. Therefore, chunks of a track
+     * can be computed concurrently.
+     *
+     * @param series the measurements of a track
+     * @param from   the index of the first measurement of the chunk
+     * @param to     the index after the last measurement of the chunk
+     * @return the fuel consumption in l/h per measurement of the chunk, NaN for measurements
+     * lacking required parameters
+     */
+    public double[] calculateConsumption(MeasurementSeries series, int from, int to) {
+        double[] consumptions = new double[to - from];
+
+        int previous = from - 1;
+        while (previous >= 0 && !hasRequiredParameters(series, previous)) {
+            previous--;
+        }
+
+        // the trigonometric functions of each position are computed once, as they are also
+        // required for the following measurement.
+        double speedPrev = 0.0;
+        long timePrev = 0;
+        double sinLatitudePrev = 0.0;
+        double cosLatitudePrev = 0.0;
+        double longitudePrev = 0.0;
+        double altitudePrev = 0.0;
+        if (previous >= 0) {
+            double latitude = Math.toRadians(series.getLatitude(previous));
+            speedPrev = getSpeed(series, previous);
+            timePrev = series.getTime(previous);
+            sinLatitudePrev = Math.sin(latitude);
+            cosLatitudePrev = Math.cos(latitude);
+            longitudePrev = Math.toRadians(series.getLongitude(previous));
+            altitudePrev = series.getProperty(Measurement.PropertyKey.GPS_ALTITUDE, previous);
+        }
+
+        for (int i = from; i < to; i++) {
+            if (!hasRequiredParameters(series, i)) {
+                consumptions[i - from] = Double.NaN;
+                continue;
             }
+
+            double speed = getSpeed(series, i);
+            double time = series.getTime(i);
+            double latitude = Math.toRadians(series.getLatitude(i));
+            double sinLatitude = Math.sin(latitude);
+            double cosLatitude = Math.cos(latitude);
+            double longitude = Math.toRadians(series.getLongitude(i));
+            double altitude = series.getProperty(Measurement.PropertyKey.GPS_ALTITUDE, i);
+
+            double acceleration = 0.0;
+            double theta = 0.0;
+            if (previous >= 0) {
+                acceleration = calculateAcceleration(speed, time, speedPrev, timePrev);
+                theta = calculateRoadGradient(sinLatitude, cosLatitude, longitude, altitude,
+                        sinLatitudePrev, cosLatitudePrev, longitudePrev, altitudePrev);
+            }
+            consumptions[i - from] = calculateConsumption(speed, acceleration, theta);
+
+            previous = i;
+            speedPrev = speed;
+            timePrev = series.getTime(i);
+            sinLatitudePrev = sinLatitude;
+            cosLatitudePrev = cosLatitude;
+            longitudePrev = longitude;
+            altitudePrev = altitude;
         }
+        return consumptions;
+    }
+
+    /**
+     * @return the acceleration in km/h per second.
+     */
+    private static double calculateAcceleration(double speedNow, double datetimeNow, double speedPrev, long datePrev) {
+        return (speedNow - speedPrev) / ((datetimeNow - datePrev) / 1000);
+    }
+
+    /**
+     * Calculates the road gradient between two positions given by the sine and cosine of their
+     * latitudes and their longitudes in radians.
+     *
+     * @return the road gradient angle in °.
+     */
+    private static double calculateRoadGradient(double sinLatitudeNow, double cosLatitudeNow,
+                                                double longitudeNow, double altitudeNow,
+                                                double sinLatitudePrev, double cosLatitudePrev,
+                                                double longitudePrev, double altitudePrev) {
+        double distanceRadiansTemp = sinLatitudeNow * sinLatitudePrev
+                + cosLatitudeNow * cosLatitudePrev * Math.cos(longitudeNow - longitudePrev);
+
+        // check cases where the argument is outside of the domain of definition
+        distanceRadiansTemp = Math.min(distanceRadiansTemp, 1);
+        distanceRadiansTemp = Math.max(distanceRadiansTemp, -1);
+
+        double distanceRadians = Math.acos(distanceRadiansTemp);
+        double distanceMeter = distanceRadians * RADIUS_EARTH;
 
+        // atan returns angle between -pi/2 and pi/2
+        double theta = Math.toDegrees(Math.atan((altitudeNow - altitudePrev) / distanceMeter));
 
+        // Check cases where the angle is unreasonably large or the distance is very small (unstable results)
+        // The steepest slope on a road is measured in New Zealand with 19,3° or 35 %
+        if (Math.abs(theta) > 19 || distanceMeter < 25) {
+            theta = 0.0;
+        }
+        return theta;
+    }
+
+    /**
+     * @param speedNow     the speed in km/h
+     * @param acceleration the acceleration in km/h per second
+     * @param theta        the road gradient angle in °
+     * @return the consumption in l/h
+     */
+    private double calculateConsumption(double speedNow, double acceleration, double theta) {
         // Calculate driving resistance (in N = kg*m/s²)
-        this.rollingResistance = mass * G * cr * Math.cos(Math.toRadians(theta));
-        this.climbingResistance = mass * G * Math.sin(Math.toRadians(theta));
-        this.airResistance = 0.5 * cw * width * height * RHO_AIR * speedNow / 3.6 * speedNow / 3.6;
-        this.inertialResistance = mass * acceleration / 3.6;
-        this.drivingResistance = rollingResistance + climbingResistance + airResistance + inertialResistance;
+        double rollingResistance = mass * G * cr * Math.cos(Math.toRadians(theta));
+        double climbingResistance = mass * G * Math.sin(Math.toRadians(theta));
+        double airResistance = 0.5 * cw * width * height * RHO_AIR * speedNow / 3.6 * speedNow / 3.6;
+        double inertialResistance = mass * acceleration / 3.6;
+        double drivingResistance = rollingResistance + climbingResistance + airResistance + inertialResistance;
 
         // Calculate power (in W = kg*m²/s³)
-        this.power = drivingResistance * speedNow / 3.6;
-        this.power = Math.max(power, idlePower);  // Apply idle power consumption
+        double power = drivingResistance * speedNow / 3.6;
+        power = Math.max(power, idlePower);  // Apply idle power consumption
 
         // Estimate efficiency
-        this.efficiency = drivingResistance * (efficiencyMax - efficiencyMin) / (4000) + efficiencyMin - ((efficiencyMax - efficiencyMin) * (-2000)) / (4000); // linearly interpolate between efficiencyMax at 2000 N and efficiencyMin at -2000 N
+        double efficiency = drivingResistance * (efficiencyMax - efficiencyMin) / (4000) + efficiencyMin - ((efficiencyMax - efficiencyMin) * (-2000)) / (4000); // linearly interpolate between efficiencyMax at 2000 N and efficiencyMin at -2000 N
 
         // Check if efficiency is outside defined range
-        this.efficiency = Math.max(this.efficiency, this.efficiencyMin);
-        this.efficiency = Math.min(this.efficiency, this.efficiencyMax);
-
-        // Cache values
-        this.speedPrev = speedNow;
-        this.datePrev = (long) datetimeNow;
-        this.latitudePrev = latitudeNow;
-        this.longitudePrev = longitudeNow;
-        this.altitudePrev = altitudeNow;
-        this.isFirstValue = false;
+        efficiency = Math.max(efficiency, this.efficiencyMin);
+        efficiency = Math.min(efficiency, this.efficiencyMax);
 
         // Calculate consumption (in l/h)
         return (power / 1000 / (energyDensity * efficiency));
@@ -190,4 +308,21 @@ public class LoadBasedEnergyConsumptionAlgorithm implements ConsumptionAlgorithm
                 measurement.getProperty(Measurement.PropertyKey.SPEED) :
                 measurement.getProperty(Measurement.PropertyKey.GPS_SPEED);
     }
+
+    private static double getSpeed(MeasurementSeries series, int index) {
+        return series.hasProperty(Measurement.PropertyKey.SPEED, index) ?
+                series.getProperty(Measurement.PropertyKey.SPEED, index) :
+                series.getProperty(Measurement.PropertyKey.GPS_SPEED, index);
+    }
+
+    /**
+     * @return true if the measurement has the parameters that
+     * {@link #calculateConsumption(Measurement)} requires.
+     */
+    private static boolean hasRequiredParameters(MeasurementSeries series, int index) {
+        return !Double.isNaN(getSpeed(series, index))
+                && !Double.isNaN(series.getLatitude(index))
+                && !Double.isNaN(series.getLongitude(index))
+                && series.hasProperty(Measurement.PropertyKey.GPS_ALTITUDE, index);
+    }
 }
@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.simplification;
+
+import org.envirocar.core.entity.Measurement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming simplification of the points of a track. Intermediate points are dropped as long as
+ * the kept points reproduce them within the configured tolerances:
+ * <ul>
+ * <li>spatial: the position interpolated in time between the enclosing kept points differs at
+ * most by this distance from the dropped position (the synchronized euclidean distance), so
+ * that the position at any time is preserved, not only the shape of the path.</li>
+ * <li>temporal: kept points are at most this duration apart.</li>
+ * <li>values: the values interpolated in time between the enclosing kept points differ at most
+ * by this fraction from the dropped values, so that integrals over time, e.g., of the
+ * consumption, are preserved.</li>
+ * </ul>
+ * The first and the last point are always kept, as well as points without a position and the
+ * first point after them. Each point is decided within the temporal tolerance after it has been
+ * offered; the last point is only kept once {@link #flush(List)} is called, e.g., when the
+ * recording of the track is finished.
+ * <p>
+ * Distances are computed on the plane tangent to the earth at the last kept point, which is
+ * exact enough for tolerances of a few meters within the temporal tolerance. Instances are not
+ * thread-safe.
+ *
+ * @param <T> the type of the points.
+ * @author dewall
+ */
+public class TrackSimplifier<T> {
+
+    /**
+     * The properties a measurement can only be dropped for if they can be interpolated, i.e.,
+     * the values required for the consumption and the emissions over time.
+     */
+    public static final Measurement.PropertyKey[] MEASUREMENT_VALUE_KEYS = {
+            Measurement.PropertyKey.SPEED,
+            Measurement.PropertyKey.GPS_SPEED,
+            Measurement.PropertyKey.GPS_ALTITUDE,
+            Measurement.PropertyKey.MAF,
+            Measurement.PropertyKey.CALCULATED_MAF,
+            Measurement.PropertyKey.CONSUMPTION,
+            Measurement.PropertyKey.CO2,
+            Measurement.PropertyKey.ENERGY_CONSUMPTION,
+            Measurement.PropertyKey.ENERGY_CONSUMPTION_CO2};
+
+    /**
+     * The default spatial tolerance in meters, which is in the order of the GPS accuracy.
+     */
+    public static final double DEFAULT_SPATIAL_TOLERANCE = 5.0;
+
+    /**
+     * The default maximum duration between kept points in milliseconds.
+     */
+    public static final long DEFAULT_TEMPORAL_TOLERANCE = 30000;
+
+    /**
+     * The default relative tolerance of values.
+     */
+    public static final double DEFAULT_VALUE_TOLERANCE = 0.05;
+
+    /**
+     * Provides the time, position and values of a point.
+     *
+     * @param <T> the type of the points.
+     */
+    public interface PointAccessor<T> {
+
+        long getTime(T point);
+
+        /**
+         * @return the latitude in degrees, or NaN if the point has no position.
+         */
+        double getLatitude(T point);
+
+        /**
+         * @return the longitude in degrees, or NaN if the point has no position.
+         */
+        double getLongitude(T point);
+
+        /**
+         * @return the number of values per point that have to be preserved.
+         */
+        int getValueCount();
+
+        /**
+         * @return the value, or NaN if the point has no such value.
+         */
+        double getValue(T point, int index);
+    }
+
+    private static final double METERS_PER_DEGREE = 6371008.8 * Math.PI / 180.0;
+
+    private static final PointAccessor<Measurement> MEASUREMENT_ACCESSOR = new PointAccessor<Measurement>() {
+        @Override
+        public long getTime(Measurement point) {
+            return point.getTime();
+        }
+
+        @Override
+        public double getLatitude(Measurement point) {
+            return point.getLatitudeValue();
+        }
+
+        @Override
+        public double getLongitude(Measurement point) {
+            return point.getLongitudeValue();
+        }
+
+        @Override
+        public int getValueCount() {
+            return MEASUREMENT_VALUE_KEYS.length;
+        }
+
+        @Override
+        public double getValue(Measurement point, int index) {
+            return point.getPropertyValue(MEASUREMENT_VALUE_KEYS[index]);
+        }
+    };
+
+    private final PointAccessor<T> accessor;
+    private final double spatialTolerance;
+    private final long temporalTolerance;
+    private final double valueTolerance;
+
+    // the last kept point and the points after it, which are not decided yet.
+    private T anchor;
+    private final List<T> window = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param accessor          the accessor of the points.
+     * @param spatialTolerance  the spatial tolerance in meters.
+     * @param temporalTolerance the maximum duration between kept points in milliseconds.
+     * @param valueTolerance    the relative tolerance of the values.
+     */
+    public TrackSimplifier(PointAccessor<T> accessor, double spatialTolerance,
+                           long temporalTolerance, double valueTolerance) {
+        this.accessor = accessor;
+        this.spatialTolerance = spatialTolerance;
+        this.temporalTolerance = temporalTolerance;
+        this.valueTolerance = valueTolerance;
+    }
+
+    /**
+     * Creates a simplifier for measurements, which preserves the values of
+     * {@link #MEASUREMENT_VALUE_KEYS}.
+     *
+     * @param spatialTolerance  the spatial tolerance in meters.
+     * @param temporalTolerance the maximum duration between kept measurements in milliseconds.
+     * @param valueTolerance    the relative tolerance of the values.
+     * @return the simplifier.
+     */
+    public static TrackSimplifier<Measurement> forMeasurements(double spatialTolerance,
+                                                               long temporalTolerance,
+                                                               double valueTolerance) {
+        return new TrackSimplifier<>(MEASUREMENT_ACCESSOR, spatialTolerance, temporalTolerance,
+                valueTolerance);
+    }
+
+    /**
+     * Creates a simplifier for measurements with the default tolerances.
+     *
+     * @return the simplifier.
+     */
+    public static TrackSimplifier<Measurement> forMeasurements() {
+        return forMeasurements(DEFAULT_SPATIAL_TOLERANCE, DEFAULT_TEMPORAL_TOLERANCE,
+                DEFAULT_VALUE_TOLERANCE);
+    }
+
+    /**
+     * Offers the next point of the track.
+     *
+     * @param point the next point in time order.
+     * @param kept  receives the points that are decided to be kept, in time order.
+     */
+    public void offer(T point, List<? super T> kept) {
+        if (anchor == null || !hasPosition(anchor)) {
+            keep(point, kept);
+            return;
+        }
+        if (!hasPosition(point)) {
+            flush(kept);
+            keep(point, kept);
+            return;
+        }
+
+        if (accessor.getTime(point) - accessor.getTime(anchor) <= temporalTolerance
+                && reproducesWindow(point)) {
+            window.add(point);
+            return;
+        }
+
+        // the previous point is the last one that reproduces the points since the anchor.
+        if (!window.isEmpty()) {
+            keep(window.get(window.size() - 1), kept);
+        }
+        if (accessor.getTime(point) - accessor.getTime(anchor) > temporalTolerance) {
+            keep(point, kept);
+        } else {
+            window.add(point);
+        }
+    }
+
+    /**
+     * Keeps the last offered point, e.g., when the track is finished.
+     *
+     * @param kept receives the last point if it has not been kept yet.
+     */
+    public void flush(List<? super T> kept) {
+        if (!window.isEmpty()) {
+            keep(window.get(window.size() - 1), kept);
+        }
+    }
+
+    /**
+     * Simplifies a complete track.
+     *
+     * @param points the points of the track in time order.
+     * @return the kept points in time order.
+     */
+    public List<T> simplify(List<T> points) {
+        List<T> kept = new ArrayList<>();
+        for (T point : points) {
+            offer(point, kept);
+        }
+        flush(kept);
+        return kept;
+    }
+
+    private boolean hasPosition(T point) {
+        return !Double.isNaN(accessor.getLatitude(point)) && !Double.isNaN(accessor.getLongitude(point));
+    }
+
+    private void keep(T point, List<? super T> kept) {
+        kept.add(point);
+        anchor = point;
+        window.clear();
+    }
+
+    /**
+     * @return true if the segment from the anchor to the given end reproduces all points of the
+     * window.
+     */
+    private boolean reproducesWindow(T end) {
+        double anchorLatitude = accessor.getLatitude(anchor);
+        double anchorLongitude = accessor.getLongitude(anchor);
+        long anchorTime = accessor.getTime(anchor);
+        double metersPerDegreeLongitude = METERS_PER_DEGREE * Math.cos(Math.toRadians(anchorLatitude));
+
+        double endX = (accessor.getLongitude(end) - anchorLongitude) * metersPerDegreeLongitude;
+        double endY = (accessor.getLatitude(end) - anchorLatitude) * METERS_PER_DEGREE;
+        long duration = accessor.getTime(end) - anchorTime;
+
+        for (int i = 0; i < window.size(); i++) {
+            T point = window.get(i);
+            double fraction = duration > 0 ? (double) (accessor.getTime(point) - anchorTime) / duration : 0.0;
+
+            double x = (accessor.getLongitude(point) - anchorLongitude) * metersPerDegreeLongitude;
+            double y = (accessor.getLatitude(point) - anchorLatitude) * METERS_PER_DEGREE;
+            if (Math.hypot(x - fraction * endX, y - fraction * endY) > spatialTolerance) {
+                return false;
+            }
+
+            for (int k = 0; k < accessor.getValueCount(); k++) {
+                if (!isInterpolated(accessor.getValue(point, k), accessor.getValue(anchor, k),
+                        accessor.getValue(end, k), fraction)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isInterpolated(double value, double start, double end, double fraction) {
+        if (Double.isNaN(value) || Double.isNaN(start) || Double.isNaN(end)) {
+            // a value is only dropped together with its enclosing values.
+            return Double.isNaN(value) && Double.isNaN(start) && Double.isNaN(end);
+        }
+        double interpolated = start + fraction * (end - start);
+        return Math.abs(value - interpolated) <= valueTolerance * Math.max(Math.abs(value), Math.abs(interpolated));
+    }
+}
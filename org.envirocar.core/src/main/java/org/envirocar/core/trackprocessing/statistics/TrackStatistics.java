@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.exception.FuelConsumptionException;
+
+/**
+ * The statistics of a track, either computed in a single pass over its measurements by
+ * {@link TrackStatisticsProcessor#computeStatistics(org.envirocar.core.entity.MeasurementSeries)},
+ * accumulated per measurement by a {@link TrackStatisticsAccumulator}, or restored from stored
+ * sums.
+ *
+ * @author dewall
+ */
+public final class TrackStatistics {
+
+    private final int measurementCount;
+    private final double distance;
+    private final boolean consumptionSupported;
+    private final double co2Sum;
+    private final double consumptionSum;
+    private final int consumptionCount;
+    private final double speedSum;
+    private final int speedCount;
+
+    /**
+     * Constructor.
+     *
+     * @param measurementCount     the number of measurements the statistics cover.
+     * @param distance             the length of the track in km.
+     * @param consumptionSupported whether the consumption can be computed for the fuel type.
+     * @param co2Sum               the sum of the CO2 emissions (kg/h) of all measurements.
+     * @param consumptionSum       the sum of the fuel consumptions (l/h) of all measurements.
+     * @param consumptionCount     the number of measurements having a fuel consumption.
+     * @param speedSum             the sum of the speeds (km/h) of all measurements.
+     * @param speedCount           the number of measurements having a speed.
+     */
+    public TrackStatistics(int measurementCount, double distance, boolean consumptionSupported,
+                           double co2Sum, double consumptionSum, int consumptionCount,
+                           double speedSum, int speedCount) {
+        this.measurementCount = measurementCount;
+        this.distance = distance;
+        this.consumptionSupported = consumptionSupported;
+        this.co2Sum = co2Sum;
+        this.consumptionSum = consumptionSum;
+        this.consumptionCount = consumptionCount;
+        this.speedSum = speedSum;
+        this.speedCount = speedCount;
+    }
+
+    /**
+     * @return the number of measurements the statistics have been computed of.
+     */
+    public int getMeasurementCount() {
+        return measurementCount;
+    }
+
+    /**
+     * @return the length of the track in km.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return true if the fuel consumption and CO2 emission can be computed for the fuel type.
+     */
+    public boolean isConsumptionSupported() {
+        return consumptionSupported;
+    }
+
+    /**
+     * @return the average CO2 emission in kg/h, where measurements without a consumption value
+     * count as zero emission.
+     * @throws FuelConsumptionException if the fuel type of the track is not supported.
+     */
+    public double getCO2Average() throws FuelConsumptionException {
+        if (!consumptionSupported) {
+            throw new FuelConsumptionException("No CO2 computation possible for the fuel type");
+        }
+        return co2Sum / measurementCount;
+    }
+
+    /**
+     * @return the sum of the CO2 emissions in kg/h of all measurements.
+     */
+    public double getCO2Sum() {
+        return co2Sum;
+    }
+
+    /**
+     * @return the average fuel consumption in l/h of all measurements it could be computed of.
+     * @throws FuelConsumptionException if the fuel type is not supported or no measurement has
+     *                                  the required parameters.
+     */
+    public double getFuelConsumptionPerHour() throws FuelConsumptionException {
+        if (!consumptionSupported) {
+            throw new FuelConsumptionException("No fuel consumption computation possible for the fuel type");
+        }
+        if (consumptionCount <= 0) {
+            throw new FuelConsumptionException("No fuel consumption computation possible. No values with required parameters");
+        }
+        return consumptionSum / consumptionCount;
+    }
+
+    /**
+     * @return the sum of the fuel consumptions in l/h of all measurements.
+     */
+    public double getConsumptionSum() {
+        return consumptionSum;
+    }
+
+    /**
+     * @return the number of measurements the fuel consumption could be computed of.
+     */
+    public int getConsumptionCount() {
+        return consumptionCount;
+    }
+
+    /**
+     * @return the average speed in km/h, or null if no measurement had a speed value.
+     */
+    public Double getAverageSpeed() {
+        return speedCount > 0 ? speedSum / speedCount : null;
+    }
+
+    public double getSpeedSum() {
+        return speedSum;
+    }
+
+    public int getSpeedCount() {
+        return speedCount;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.exception.FuelConsumptionException;
+import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
+import org.envirocar.core.utils.GeodesicDistance;
+
+/**
+ * Online computation of the {@link TrackStatistics} of a track. Measurements are added one at a
+ * time in their order within the track, e.g., while a track is recorded, so that the statistics
+ * are available at any time without rescanning the measurements. Adding all measurements of a
+ * track results in the same statistics as
+ * {@link TrackStatisticsProcessor#computeStatistics(MeasurementSeries)}.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author dewall
+ */
+public final class TrackStatisticsAccumulator {
+    private static final Logger LOG = Logger.getLogger(TrackStatisticsAccumulator.class);
+
+    private final ConsumptionAlgorithm consumptionAlgorithm;
+
+    private int measurementCount;
+    private double meters;
+    private double lastLatitude = Double.NaN;
+    private double lastLongitude = Double.NaN;
+
+    private boolean consumptionSupported;
+    private double co2Sum;
+    private double consumptionSum;
+    private int consumptionCount;
+
+    private double speedSum;
+    private int speedCount;
+
+    /**
+     * Constructor.
+     *
+     * @param consumptionAlgorithm the algorithm for the fuel type of the track, or null if the
+     *                             consumption cannot be computed.
+     */
+    public TrackStatisticsAccumulator(ConsumptionAlgorithm consumptionAlgorithm) {
+        this.consumptionAlgorithm = consumptionAlgorithm;
+        this.consumptionSupported = consumptionAlgorithm != null;
+    }
+
+    /**
+     * Constructor that resumes the accumulation of stored statistics, e.g., when further
+     * measurements are appended to a stored track.
+     *
+     * @param consumptionAlgorithm the algorithm for the fuel type of the track, or null if the
+     *                             consumption cannot be computed.
+     * @param statistics           the statistics of the measurements added so far.
+     * @param lastLatitude         the latitude of the last measurement with a position, or NaN.
+     * @param lastLongitude        the longitude of the last measurement with a position, or NaN.
+     */
+    public TrackStatisticsAccumulator(ConsumptionAlgorithm consumptionAlgorithm,
+                                      TrackStatistics statistics,
+                                      double lastLatitude, double lastLongitude) {
+        this(consumptionAlgorithm);
+        this.consumptionSupported &= statistics.isConsumptionSupported();
+        this.measurementCount = statistics.getMeasurementCount();
+        this.meters = statistics.getDistance() * 1000.0d;
+        this.lastLatitude = lastLatitude;
+        this.lastLongitude = lastLongitude;
+        this.co2Sum = statistics.getCO2Sum();
+        this.consumptionSum = statistics.getConsumptionSum();
+        this.consumptionCount = statistics.getConsumptionCount();
+        this.speedSum = statistics.getSpeedSum();
+        this.speedCount = statistics.getSpeedCount();
+    }
+
+    /**
+     * Adds the next measurement of the track.
+     *
+     * @param measurement the measurement to add.
+     */
+    public void add(Measurement measurement) {
+        double speed = measurement.getPropertyValue(Measurement.PropertyKey.SPEED);
+        if (Double.isNaN(speed)) {
+            speed = measurement.getPropertyValue(Measurement.PropertyKey.GPS_SPEED);
+        }
+        accumulate(measurement.getLatitudeValue(), measurement.getLongitudeValue(), speed,
+                measurement.getPropertyValue(Measurement.PropertyKey.CONSUMPTION));
+        if (consumptionSupported) {
+            addConsumption(consumptionAlgorithm.calculateConsumptionValue(measurement));
+        }
+    }
+
+    /**
+     * Adds the next measurement of the track from a series.
+     *
+     * @param series the measurements of the track.
+     * @param index  the index of the measurement to add.
+     */
+    public void add(MeasurementSeries series, int index) {
+        double speed = series.getProperty(Measurement.PropertyKey.SPEED, index);
+        if (Double.isNaN(speed)) {
+            speed = series.getProperty(Measurement.PropertyKey.GPS_SPEED, index);
+        }
+        accumulate(series.getLatitude(index), series.getLongitude(index), speed,
+                series.getProperty(Measurement.PropertyKey.CONSUMPTION, index));
+        if (consumptionSupported) {
+            addConsumption(consumptionAlgorithm.calculateConsumption(series, index));
+        }
+    }
+
+    private void accumulate(double latitude, double longitude, double speed, double consumption) {
+        measurementCount++;
+
+        // measurements without a position are skipped for the distance.
+        if (!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+            if (!Double.isNaN(lastLatitude)) {
+                meters += GeodesicDistance.distance(lastLatitude, lastLongitude, latitude, longitude);
+            }
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+        }
+
+        if (!Double.isNaN(speed)) {
+            speedSum += speed;
+            speedCount++;
+        }
+
+        if (consumptionSupported && !Double.isNaN(consumption)) {
+            try {
+                co2Sum += consumptionAlgorithm.calculateCO2FromConsumption(consumption);
+            } catch (FuelConsumptionException e) {
+                // only raised for unsupported fuel types, i.e., at most once per track.
+                LOG.warn(e.getMessage());
+                consumptionSupported = false;
+            }
+        }
+    }
+
+    private void addConsumption(double consumption) {
+        if (consumptionSupported && !Double.isNaN(consumption)) {
+            consumptionSum += consumption;
+            consumptionCount++;
+        }
+    }
+
+    /**
+     * @return the number of measurements added so far.
+     */
+    public int getMeasurementCount() {
+        return measurementCount;
+    }
+
+    /**
+     * @return the latitude of the last measurement with a position, or NaN if there is none.
+     */
+    public double getLastLatitude() {
+        return lastLatitude;
+    }
+
+    /**
+     * @return the longitude of the last measurement with a position, or NaN if there is none.
+     */
+    public double getLastLongitude() {
+        return lastLongitude;
+    }
+
+    /**
+     * @return the statistics of all measurements added so far.
+     */
+    public TrackStatistics getStatistics() {
+        return new TrackStatistics(measurementCount, meters / 1000.0d, consumptionSupported,
+                co2Sum, consumptionSum, consumptionCount, speedSum, speedCount);
+    }
+}
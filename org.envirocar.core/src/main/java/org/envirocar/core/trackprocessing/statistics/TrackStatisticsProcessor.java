@@ -18,14 +18,14 @@
  */
 package org.envirocar.core.trackprocessing.statistics;
 
-import android.location.Location;
-
 import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
 import org.envirocar.core.logging.Logger;
 import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
+import org.envirocar.core.utils.GeodesicDistance;
 
 import java.util.List;
 
@@ -43,10 +43,49 @@ public class TrackStatisticsProcessor {
     /**
      * Constructor.
      *
-     * @param fuelType the fuel type of the corresponding car.
+     * @param fuelType the fuel type of the corresponding car, or null if it is unknown.
      */
     public TrackStatisticsProcessor(Car.FuelType fuelType) {
-        this.consumptionAlgorithm = ConsumptionAlgorithm.fromFuelType(fuelType);
+        this.consumptionAlgorithm = fuelType != null ? ConsumptionAlgorithm.fromFuelType(fuelType) : null;
+    }
+
+    /**
+     * Computes the distance, the CO2 average and the fuel consumption of a track together in a
+     * single pass over its measurements. Measurements lacking parameters for the consumption are
+     * skipped without raising exceptions. The results are equal to the ones of
+     * {@link #computeDistanceOfTrack(List)}, {@link #getCO2Average(List)} and
+     * {@link #getFuelConsumptionPerHour(List)}.
+     *
+     * @param series the measurements of the track.
+     * @return the statistics of the track.
+     */
+    public TrackStatistics computeStatistics(MeasurementSeries series) {
+        TrackStatisticsAccumulator accumulator = newAccumulator();
+        for (int i = 0, size = series.size(); i < size; i++) {
+            accumulator.add(series, i);
+        }
+        return accumulator.getStatistics();
+    }
+
+    /**
+     * @return a new accumulator for the statistics of a track with the fuel type of this
+     * processor.
+     */
+    public TrackStatisticsAccumulator newAccumulator() {
+        return new TrackStatisticsAccumulator(consumptionAlgorithm);
+    }
+
+    /**
+     * @param statistics    the stored statistics of the track.
+     * @param lastLatitude  the latitude of the last stored measurement with a position, or NaN.
+     * @param lastLongitude the longitude of the last stored measurement with a position, or NaN.
+     * @return an accumulator with the fuel type of this processor that continues the stored
+     * statistics of a track.
+     */
+    public TrackStatisticsAccumulator resumeAccumulator(TrackStatistics statistics,
+                                                        double lastLatitude, double lastLongitude) {
+        return new TrackStatisticsAccumulator(consumptionAlgorithm, statistics,
+                lastLatitude, lastLongitude);
     }
 
     public double computeDistanceOfTrack(List<Measurement> measurements) {
@@ -59,16 +98,13 @@ public class TrackStatisticsProcessor {
 
         Measurement m1 = measurements.get(0);
         Measurement m2;
-        float[] distanceArray = new float[1];
 
         for (int i = 1; i < measurements.size(); i++) {
             m2 = measurements.get(i);
-            Location.distanceBetween(m1.getLatitude(), m1.getLongitude(), m2
-                    .getLatitude(), m2.getLongitude(), distanceArray);
-            distance += distanceArray[0];
+            distance += GeodesicDistance.distance(m1.getLatitude(), m1.getLongitude(), m2
+                    .getLatitude(), m2.getLongitude());
 
             m1 = m2;
-            distanceArray[0] = 0;
         }
 
         return distance / 1000.0d;
@@ -29,6 +29,11 @@ import org.envirocar.core.exception.UnsupportedFuelTypeException;
  */
 public interface TrackStatisticsProvider {
 
+    /**
+     * @return the statistics of all measurements, computed once until the measurements change.
+     */
+    TrackStatistics getStatistics();
+
     double getDistanceOfTrack();
 
     double getFuelConsumptionPerHour() throws FuelConsumptionException;
@@ -18,8 +18,6 @@
  */
 package org.envirocar.core.utils;
 
-import android.location.Location;
-
 import org.envirocar.core.entity.Measurement;
 
 /**
@@ -40,9 +38,7 @@ public class LocationUtils {
      * @return distance in km
      */
     public static double getDistance(double lat1, double lng1, double lat2, double lng2) {
-        float[] res = new float[1];
-        Location.distanceBetween(lat1, lng1, lat2, lng2, res);
-        return res[0] / 1000.0d;
+        return GeodesicDistance.distance(lat1, lng1, lat2, lng2) / 1000.0d;
     }
 
     /**
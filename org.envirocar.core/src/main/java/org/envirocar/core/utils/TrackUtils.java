@@ -19,6 +19,7 @@
 package org.envirocar.core.utils;
 
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.exception.NoMeasurementsException;
 import org.envirocar.core.logging.Logger;
@@ -54,13 +55,57 @@ public class TrackUtils {
         return result;
     }
 
+    /**
+     * resolve the time range of the not obfuscated measurements of a track without holding
+     * the track in memory, e.g., to stream them from the database afterwards.
+     * <p>
+     * The same measurements as in {@link #getObfuscatedTrack(Track)} are considered
+     * obfuscated. As the end position is only known after the last measurement, the
+     * measurements are iterated twice. Only their time and position are read.
+     *
+     * @param track        the track providing the start and end time.
+     * @param measurements the measurements of the track in time order.
+     * @return the times of the first and the last not obfuscated measurement.
+     */
+    public static long[] getNonObfuscatedTimeRange(Track track, Iterable<Measurement> measurements)
+            throws NoMeasurementsException {
+        Measurement first = null;
+        Measurement last = null;
+        for (Measurement measurement : measurements) {
+            if (first == null) {
+                first = measurement;
+            }
+            last = measurement;
+        }
+        if (first == null) {
+            throw new NoMeasurementsException("Track with no measurements!");
+        }
+
+        long[] range = null;
+        for (Measurement measurement : measurements) {
+            if (!isObfuscated(measurement, first, last, track)) {
+                if (range == null) {
+                    range = new long[]{measurement.getTime(), measurement.getTime()};
+                }
+                range[1] = measurement.getTime();
+            }
+        }
+
+        if (range == null) {
+            LOG.warn("Could not determine first/last non-obfuscated measurements.");
+            throw new NoMeasurementsException("No obfuscated measurements available.");
+        }
+        return range;
+    }
+
     private static List<Measurement> getNonObfuscatedMeasurements(Track track) throws NoMeasurementsException {
         List<Measurement> measurements = track.getMeasurements();
 
         List<Measurement> nonPrivateMeasurements = new ArrayList<Measurement>();
         try {
-            int first = determineFirstNonObfuscatedIndex(measurements, track);
-            int last = determineLastNonObfuscatedIndex(measurements, track);
+            MeasurementSeries series = track.getMeasurementSeries();
+            int first = determineFirstNonObfuscatedIndex(series, track);
+            int last = determineLastNonObfuscatedIndex(series, track);
 
             if (first == -1 || last == -1) {
                 LOG.warn("Could not determine first/last non-obfuscated measurements.");
@@ -78,10 +123,9 @@ public class TrackUtils {
         }
     }
 
-    private static int determineFirstNonObfuscatedIndex(List<Measurement> measurements, Track track) throws NoMeasurementsException {
-        for (int i = 0; i < measurements.size(); i++) {
-            Measurement m = measurements.get(i);
-            if (!isTemporalObfuscated(m, track) && !isSpatialObfuscated(m, track)) {
+    private static int determineFirstNonObfuscatedIndex(MeasurementSeries series, Track track) throws NoMeasurementsException {
+        for (int i = 0; i < series.size(); i++) {
+            if (!isObfuscated(series, i, track)) {
                 return i;
             }
         }
@@ -89,10 +133,9 @@ public class TrackUtils {
         return -1;
     }
 
-    private static int determineLastNonObfuscatedIndex(List<Measurement> measurements, Track track) throws NoMeasurementsException {
-        for (int i = measurements.size()-1; i >= 0; i--) {
-            Measurement m = measurements.get(i);
-            if (!isTemporalObfuscated(m, track) && !isSpatialObfuscated(m, track)) {
+    private static int determineLastNonObfuscatedIndex(MeasurementSeries series, Track track) throws NoMeasurementsException {
+        for (int i = series.size()-1; i >= 0; i--) {
+            if (!isObfuscated(series, i, track)) {
                 return i;
             }
         }
@@ -100,6 +143,33 @@ public class TrackUtils {
         return -1;
     }
 
+    private static boolean isObfuscated(MeasurementSeries series, int index, Track track) throws NoMeasurementsException {
+        if (series.size() == 0) {
+            throw new NoMeasurementsException("Track with no measurements!");
+        }
+        long time = series.getTime(index);
+        if (time - track.getStartTime() <= OBFUSCATION_TIME_MS || track.getEndTime() - time <= OBFUSCATION_TIME_MS) {
+            return true;
+        }
+
+        double latitude = series.getLatitude(index);
+        double longitude = series.getLongitude(index);
+        int last = series.size() - 1;
+        return LocationUtils.getDistance(series.getLatitude(0), series.getLongitude(0), latitude, longitude) <= OBFUSCATION_DISTANCE_KM
+                || LocationUtils.getDistance(series.getLatitude(last), series.getLongitude(last), latitude, longitude) <= OBFUSCATION_DISTANCE_KM;
+    }
+
+    private static boolean isObfuscated(Measurement measurement, Measurement first,
+                                        Measurement last, Track track) {
+        long time = measurement.getTime();
+        if (time - track.getStartTime() <= OBFUSCATION_TIME_MS || track.getEndTime() - time <= OBFUSCATION_TIME_MS) {
+            return true;
+        }
+
+        return LocationUtils.getDistance(first, measurement) <= OBFUSCATION_DISTANCE_KM
+                || LocationUtils.getDistance(last, measurement) <= OBFUSCATION_DISTANCE_KM;
+    }
+
     public static final boolean isSpatialObfuscated(Measurement measurement, Track track) throws NoMeasurementsException {
         return (LocationUtils.getDistance(track.getFirstMeasurement(), measurement) <= OBFUSCATION_DISTANCE_KM)
                 || (LocationUtils.getDistance(track.getLastMeasurement(), measurement) <= OBFUSCATION_DISTANCE_KM);
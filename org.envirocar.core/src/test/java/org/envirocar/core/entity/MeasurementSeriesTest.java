@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MeasurementSeriesTest {
+
+    private static final int FIXTURE_SIZE = 50000;
+
+    @Test
+    public void testColumnsMatchMeasurements() {
+        List<Measurement> measurements = createFixture(FIXTURE_SIZE);
+        MeasurementSeries series = MeasurementSeries.of(measurements);
+
+        Assert.assertThat(series.size(), CoreMatchers.is(measurements.size()));
+        for (int i = 0; i < measurements.size(); i += 97) {
+            Measurement measurement = measurements.get(i);
+            Assert.assertThat(series.getTime(i), CoreMatchers.is(measurement.getTime()));
+            Assert.assertThat(series.getLatitude(i), CoreMatchers.is(measurement.getLatitude()));
+            Assert.assertThat(series.getLongitude(i), CoreMatchers.is(measurement.getLongitude()));
+            for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                Assert.assertThat(series.hasProperty(key, i), CoreMatchers.is(measurement.hasProperty(key)));
+                if (measurement.hasProperty(key)) {
+                    Assert.assertThat(series.getProperty(key, i), CoreMatchers.is(measurement.getProperty(key)));
+                } else {
+                    Assert.assertTrue(Double.isNaN(series.getProperty(key, i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSupportedProperties() {
+        MeasurementSeries series = MeasurementSeries.of(createFixture(10));
+        Assert.assertTrue(series.hasProperty(Measurement.PropertyKey.SPEED));
+        Assert.assertTrue(series.hasProperty(Measurement.PropertyKey.CONSUMPTION));
+        Assert.assertFalse(series.hasProperty(Measurement.PropertyKey.MAF));
+
+        TrackImpl track = new TrackImpl();
+        track.setMeasurements(createFixture(10));
+        Assert.assertThat(series.getSupportedProperties(), CoreMatchers.is(track.getSupportedProperties()));
+
+        MeasurementSeries empty = MeasurementSeries.of(new ArrayList<>());
+        Assert.assertThat(empty.size(), CoreMatchers.is(0));
+        Assert.assertTrue(empty.getSupportedProperties().isEmpty());
+        Assert.assertThat(empty.getTotalDistance(), CoreMatchers.is(0.0));
+    }
+
+    @Test
+    public void testTrackCachesSeries() {
+        TrackImpl track = new TrackImpl();
+        List<Measurement> measurements = createFixture(10);
+        track.setMeasurements(measurements);
+
+        MeasurementSeries series = track.getMeasurementSeries();
+        Assert.assertSame(series, track.getMeasurementSeries());
+
+        // appending while recording invalidates the series
+        measurements.add(createMeasurement(10));
+        Assert.assertThat(track.getMeasurementSeries().size(), CoreMatchers.is(11));
+
+        track.setMeasurements(createFixture(5));
+        Assert.assertThat(track.getMeasurementSeries().size(), CoreMatchers.is(5));
+    }
+
+    private static List<Measurement> createFixture(int size) {
+        List<Measurement> measurements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            measurements.add(createMeasurement(i));
+        }
+        return measurements;
+    }
+
+    private static Measurement createMeasurement(int index) {
+        Measurement measurement = new MeasurementImpl(51.9 + index * 1e-5, 7.6 + index * 1e-5);
+        measurement.setTime(1500000000000L + index * 1000L);
+        measurement.setProperty(Measurement.PropertyKey.SPEED, (double) (index % 120));
+        measurement.setProperty(Measurement.PropertyKey.RPM, 800.0 + index % 3000);
+        if (index % 2 == 1) {
+            measurement.setProperty(Measurement.PropertyKey.CONSUMPTION, 2.0 + index % 7);
+        }
+        return measurement;
+    }
+}
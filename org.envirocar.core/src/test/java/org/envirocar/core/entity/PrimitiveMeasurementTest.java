@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class PrimitiveMeasurementTest {
+
+    private static final Measurement.PropertyKey[] KEYS = {
+            Measurement.PropertyKey.SPEED, Measurement.PropertyKey.RPM,
+            Measurement.PropertyKey.MAF, Measurement.PropertyKey.INTAKE_TEMPERATURE,
+            Measurement.PropertyKey.INTAKE_PRESSURE, Measurement.PropertyKey.CONSUMPTION,
+            Measurement.PropertyKey.CO2, Measurement.PropertyKey.GPS_ACCURACY,
+            Measurement.PropertyKey.GPS_SPEED, Measurement.PropertyKey.GPS_ALTITUDE};
+
+    @Test
+    public void testBehavesLikeMeasurementImpl() {
+        Measurement expected = fill(new MeasurementImpl(51.9, 7.6));
+        Measurement actual = fill(new PrimitiveMeasurement(51.9, 7.6));
+
+        Assert.assertThat(actual.getLatitude(), CoreMatchers.is(expected.getLatitude()));
+        Assert.assertThat(actual.getLongitude(), CoreMatchers.is(expected.getLongitude()));
+        Assert.assertThat(actual.getTime(), CoreMatchers.is(expected.getTime()));
+        Assert.assertThat(actual.getTrackId(), CoreMatchers.is(expected.getTrackId()));
+        for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+            Assert.assertThat(actual.hasProperty(key), CoreMatchers.is(expected.hasProperty(key)));
+            Assert.assertThat(actual.getProperty(key), CoreMatchers.is(expected.getProperty(key)));
+        }
+        Assert.assertThat(actual.getAllProperties(), CoreMatchers.is(expected.getAllProperties()));
+    }
+
+    @Test
+    public void testUnsetValues() {
+        Measurement measurement = new PrimitiveMeasurement();
+        Assert.assertNull(measurement.getLatitude());
+        Assert.assertNull(measurement.getLongitude());
+        Assert.assertTrue(Double.isNaN(measurement.getLatitudeValue()));
+        Assert.assertNull(measurement.getProperty(Measurement.PropertyKey.SPEED));
+        Assert.assertTrue(Double.isNaN(measurement.getPropertyValue(Measurement.PropertyKey.SPEED)));
+
+        measurement.setProperty(Measurement.PropertyKey.SPEED, null);
+        Assert.assertFalse(measurement.hasProperty(Measurement.PropertyKey.SPEED));
+
+        measurement.setPropertyValue(Measurement.PropertyKey.SPEED, 0.0);
+        Assert.assertTrue(measurement.hasProperty(Measurement.PropertyKey.SPEED));
+        Assert.assertThat(measurement.getProperty(Measurement.PropertyKey.SPEED), CoreMatchers.is(0.0));
+    }
+
+    @Test
+    public void testCarbonCopyAndReset() {
+        Measurement original = fill(new PrimitiveMeasurement(51.9, 7.6));
+        Measurement copy = original.carbonCopy();
+        original.setPropertyValue(Measurement.PropertyKey.SPEED, 99.0);
+        original.reset();
+
+        Assert.assertFalse(original.hasProperty(Measurement.PropertyKey.RPM));
+        Assert.assertNull(original.getLatitude());
+        Assert.assertThat(copy.getProperty(Measurement.PropertyKey.SPEED), CoreMatchers.is(0.0));
+        Assert.assertThat(copy.getLatitude(), CoreMatchers.is(51.9));
+        Assert.assertThat(copy.getAllProperties().size(), CoreMatchers.is(KEYS.length));
+    }
+
+    @Test
+    public void testSetAllProperties() {
+        Map<Measurement.PropertyKey, Double> properties = new EnumMap<>(Measurement.PropertyKey.class);
+        properties.put(Measurement.PropertyKey.CO2, 3.5);
+        Measurement measurement = fill(new PrimitiveMeasurement());
+        measurement.setAllProperties(properties);
+        Assert.assertThat(measurement.getAllProperties(), CoreMatchers.is(properties));
+    }
+
+    private static Measurement fill(Measurement measurement) {
+        measurement.setTrackId(new Track.TrackId(1));
+        measurement.setTime(1500000000000L);
+        for (int i = 0; i < KEYS.length; i++) {
+            measurement.setProperty(KEYS[i], (double) i);
+        }
+        return measurement;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class TrackImplTest {
+
+    @Test
+    public void testPropertyCountsFollowAppendedMeasurements() {
+        List<Measurement> measurements = new ArrayList<>();
+        measurements.add(createMeasurement(Measurement.PropertyKey.SPEED));
+        TrackImpl track = new TrackImpl();
+        track.setMeasurements(measurements);
+
+        Assert.assertThat(track.getPropertyCount(Measurement.PropertyKey.SPEED), CoreMatchers.is(1));
+        Assert.assertFalse(track.hasProperty(Measurement.PropertyKey.RPM));
+
+        measurements.add(createMeasurement(Measurement.PropertyKey.SPEED, Measurement.PropertyKey.RPM));
+        Assert.assertThat(track.getPropertyCount(Measurement.PropertyKey.SPEED), CoreMatchers.is(2));
+        Assert.assertThat(track.getPropertyCount(Measurement.PropertyKey.RPM), CoreMatchers.is(1));
+        Assert.assertThat(track.getSupportedProperties(), CoreMatchers.is(
+                Arrays.asList(Measurement.PropertyKey.SPEED, Measurement.PropertyKey.RPM)));
+
+        track.setMeasurements(new ArrayList<>());
+        Assert.assertTrue(track.getSupportedProperties().isEmpty());
+    }
+
+    @Test
+    public void testStoredPropertyCountsDoNotReadMeasurements() {
+        TrackImpl track = new TrackImpl();
+        track.setMeasurements(new ArrayList<Measurement>() {
+            @Override
+            public int size() {
+                return 50000;
+            }
+
+            @Override
+            public Measurement get(int index) {
+                throw new AssertionError("measurement " + index + " has been read");
+            }
+        });
+
+        Map<Measurement.PropertyKey, Integer> counts = new EnumMap<>(Measurement.PropertyKey.class);
+        counts.put(Measurement.PropertyKey.CO2, 40000);
+        track.setPropertyCounts(counts);
+
+        Assert.assertTrue(track.hasProperty(Measurement.PropertyKey.CO2));
+        Assert.assertFalse(track.hasProperty(Measurement.PropertyKey.SPEED));
+        Assert.assertThat(track.getSupportedProperties(), CoreMatchers.is(
+                Arrays.asList(Measurement.PropertyKey.CO2)));
+    }
+
+    private static Measurement createMeasurement(Measurement.PropertyKey... keys) {
+        Measurement measurement = new MeasurementImpl(51.9, 7.6);
+        for (Measurement.PropertyKey key : keys) {
+            measurement.setProperty(key, 1.0);
+        }
+        return measurement;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.CarImpl;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MeasurementEnhancerTest {
+
+    private static final Car GASOLINE_CAR = new CarImpl("manufacturer", "model", Car.FuelType.GASOLINE, 2010, 1600);
+    private static final Car DIESEL_CAR = new CarImpl("manufacturer", "model", Car.FuelType.DIESEL, 2010, 2000);
+
+    private static final int PARALLEL_TRACKS = 40;
+    private static final int PARALLEL_TRACK_SIZE = 500;
+
+    @Test
+    public void testReprocessEqualsRecording() {
+        List<Measurement> recorded = createTrack(500, new Random(1));
+        List<Measurement> reprocessed = new MeasurementEnhancer(GASOLINE_CAR).reprocess(recorded);
+
+        MeasurementEnhancer recording = new MeasurementEnhancer(GASOLINE_CAR);
+        for (Measurement measurement : recorded) {
+            recording.enhance(measurement);
+        }
+
+        Assert.assertThat(reprocessed.size(), CoreMatchers.is(recorded.size()));
+        for (int i = 0; i < recorded.size(); i++) {
+            for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                Assert.assertThat(key.name(), reprocessed.get(i).getPropertyValue(key),
+                        CoreMatchers.is(recorded.get(i).getPropertyValue(key)));
+            }
+            Assert.assertThat(reprocessed.get(i).getTime(), CoreMatchers.is(recorded.get(i).getTime()));
+        }
+    }
+
+    @Test
+    public void testReprocessWithCorrectedCar() {
+        List<Measurement> recorded = createTrack(100, new Random(2));
+        MeasurementEnhancer gasoline = new MeasurementEnhancer(GASOLINE_CAR);
+        for (Measurement measurement : recorded) {
+            gasoline.enhance(measurement);
+        }
+
+        List<Measurement> reprocessed = new MeasurementEnhancer(DIESEL_CAR).reprocess(recorded);
+        for (int i = 0; i < recorded.size(); i++) {
+            Measurement before = recorded.get(i);
+            Measurement after = reprocessed.get(i);
+            Assert.assertThat(after.getPropertyValue(Measurement.PropertyKey.SPEED),
+                    CoreMatchers.is(before.getPropertyValue(Measurement.PropertyKey.SPEED)));
+            if (before.hasProperty(Measurement.PropertyKey.CALCULATED_MAF)) {
+                // computed for the corrected engine displacement.
+                Assert.assertThat(after.getPropertyValue(Measurement.PropertyKey.CALCULATED_MAF),
+                        CoreMatchers.not(before.getPropertyValue(Measurement.PropertyKey.CALCULATED_MAF)));
+            }
+            // the diesel algorithm requires lambda values, so the stale consumption is removed.
+            Assert.assertFalse(after.hasProperty(Measurement.PropertyKey.CONSUMPTION));
+            Assert.assertFalse(after.hasProperty(Measurement.PropertyKey.CO2));
+        }
+    }
+
+    @Test
+    public void testGpsOnlyMeasurementsKeepEnergyConsumption() {
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Measurement measurement = new PrimitiveMeasurement(51.9 + i * 1e-3, 7.6);
+            measurement.setTime(1500000000000L + i * 1000L);
+            measurement.setProperty(Measurement.PropertyKey.GPS_SPEED, 50.0 + i);
+            measurement.setProperty(Measurement.PropertyKey.GPS_ALTITUDE, 60.0);
+            measurements.add(measurement);
+        }
+
+        for (Measurement measurement : new MeasurementEnhancer(GASOLINE_CAR).reprocess(measurements)) {
+            Assert.assertTrue(measurement.hasProperty(Measurement.PropertyKey.ENERGY_CONSUMPTION));
+            Assert.assertFalse(measurement.hasProperty(Measurement.PropertyKey.CONSUMPTION));
+        }
+    }
+
+    /**
+     * Reprocesses tracks in parallel on a bounded pool, each with its own enhancer.
+     */
+    @Test
+    public void testParallelReprocessingEqualsSequential() throws Exception {
+        List<List<Measurement>> tracks = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < PARALLEL_TRACKS; i++) {
+            tracks.add(createTrack(PARALLEL_TRACK_SIZE, random));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Measurement>>> results = new ArrayList<>();
+            for (List<Measurement> track : tracks) {
+                results.add(executor.submit(() -> new MeasurementEnhancer(GASOLINE_CAR).reprocess(track)));
+            }
+            for (int i = 0; i < tracks.size(); i++) {
+                List<Measurement> parallel = results.get(i).get();
+                List<Measurement> sequential = new MeasurementEnhancer(GASOLINE_CAR).reprocess(tracks.get(i));
+                Assert.assertThat(parallel.size(), CoreMatchers.is(PARALLEL_TRACK_SIZE));
+                for (int j = 0; j < parallel.size(); j++) {
+                    Assert.assertThat(parallel.get(j).getAllProperties(),
+                            CoreMatchers.is(sequential.get(j).getAllProperties()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates OBD measurements along a path, where a part lacks the MAF.
+     */
+    private static List<Measurement> createTrack(int size, Random random) {
+        List<Measurement> measurements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Measurement measurement = new PrimitiveMeasurement(51.9 + i * 1e-4, 7.6 + Math.sin(i * 0.01) * 1e-3);
+            measurement.setTime(1500000000000L + i * 1000L);
+            measurement.setProperty(Measurement.PropertyKey.SPEED, random.nextDouble() * 130);
+            measurement.setProperty(Measurement.PropertyKey.GPS_ALTITUDE, 60 + random.nextDouble() * 5);
+            measurement.setProperty(Measurement.PropertyKey.RPM, 800 + random.nextDouble() * 3000);
+            measurement.setProperty(Measurement.PropertyKey.INTAKE_TEMPERATURE, 20 + random.nextDouble() * 20);
+            measurement.setProperty(Measurement.PropertyKey.INTAKE_PRESSURE, 30 + random.nextDouble() * 70);
+            if (random.nextInt(10) < 5) {
+                measurement.setProperty(Measurement.PropertyKey.MAF, random.nextDouble() * 40);
+            }
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+}
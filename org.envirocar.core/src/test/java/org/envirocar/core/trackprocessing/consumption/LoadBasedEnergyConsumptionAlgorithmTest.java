@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.consumption;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LoadBasedEnergyConsumptionAlgorithmTest {
+
+    private static final int CHUNK_SIZE = 37;
+
+    @Test
+    public void testSeriesEqualsSequential() {
+        List<Measurement> measurements = createTrack(1000, new Random(1));
+        double[] expected = calculateSequential(measurements, Car.FuelType.GASOLINE);
+
+        double[] actual = new LoadBasedEnergyConsumptionAlgorithm(Car.FuelType.GASOLINE)
+                .calculateConsumption(MeasurementSeries.of(measurements));
+        assertBitwiseEquals(expected, actual);
+    }
+
+    @Test
+    public void testIndexEqualsSequential() {
+        List<Measurement> measurements = createTrack(200, new Random(2));
+        double[] expected = calculateSequential(measurements, Car.FuelType.DIESEL);
+
+        LoadBasedEnergyConsumptionAlgorithm algorithm = new LoadBasedEnergyConsumptionAlgorithm(Car.FuelType.DIESEL);
+        MeasurementSeries series = MeasurementSeries.of(measurements);
+        double[] actual = new double[series.size()];
+        // in reverse order, as the result must not depend on previous calls.
+        for (int i = series.size() - 1; i >= 0; i--) {
+            actual[i] = algorithm.calculateConsumption(series, i);
+        }
+        assertBitwiseEquals(expected, actual);
+    }
+
+    @Test
+    public void testParallelChunksEqualSequential() throws Exception {
+        List<Measurement> measurements = createTrack(2000, new Random(3));
+        double[] expected = calculateSequential(measurements, Car.FuelType.GASOLINE);
+
+        LoadBasedEnergyConsumptionAlgorithm algorithm = new LoadBasedEnergyConsumptionAlgorithm(Car.FuelType.GASOLINE);
+        MeasurementSeries series = MeasurementSeries.of(measurements);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[]>> chunks = new ArrayList<>();
+            for (int from = 0; from < series.size(); from += CHUNK_SIZE) {
+                int start = from;
+                int end = Math.min(from + CHUNK_SIZE, series.size());
+                chunks.add(executor.submit(() -> algorithm.calculateConsumption(series, start, end)));
+            }
+
+            double[] actual = new double[series.size()];
+            int offset = 0;
+            for (Future<double[]> chunk : chunks) {
+                double[] values = chunk.get(10, TimeUnit.SECONDS);
+                System.arraycopy(values, 0, actual, offset, values.length);
+                offset += values.length;
+            }
+            assertBitwiseEquals(expected, actual);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes the values with the per-measurement method, where measurements lacking required
+     * parameters result in NaN.
+     */
+    private static double[] calculateSequential(List<Measurement> measurements, Car.FuelType fuelType) {
+        LoadBasedEnergyConsumptionAlgorithm algorithm = new LoadBasedEnergyConsumptionAlgorithm(fuelType);
+        double[] result = new double[measurements.size()];
+        for (int i = 0; i < measurements.size(); i++) {
+            try {
+                result[i] = algorithm.calculateConsumption(measurements.get(i));
+            } catch (Exception e) {
+                result[i] = Double.NaN;
+            }
+        }
+        return result;
+    }
+
+    private static void assertBitwiseEquals(double[] expected, double[] actual) {
+        Assert.assertThat(actual.length, CoreMatchers.is(expected.length));
+        int computed = 0;
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertThat("index " + i, Double.doubleToLongBits(actual[i]),
+                    CoreMatchers.is(Double.doubleToLongBits(expected[i])));
+            if (!Double.isNaN(expected[i])) {
+                computed++;
+            }
+        }
+        Assert.assertTrue(computed > expected.length / 2);
+    }
+
+    /**
+     * Creates measurements with hills, stops and gaps in the speed, altitude and position.
+     */
+    private static List<Measurement> createTrack(int size, Random random) {
+        List<Measurement> measurements = new ArrayList<>(size);
+        double speed = 0;
+        for (int i = 0; i < size; i++) {
+            Measurement measurement = random.nextInt(20) == 0 ?
+                    new PrimitiveMeasurement() :
+                    new PrimitiveMeasurement(51.9 + i * 2e-4, 7.6 + Math.sin(i * 0.01) * 1e-3);
+            measurement.setTime(1500000000000L + i * 1000L + random.nextInt(200));
+            speed = Math.max(0, Math.min(140, speed + random.nextGaussian() * 5));
+            int gap = random.nextInt(20);
+            if (gap == 1) {
+                measurement.setProperty(Measurement.PropertyKey.GPS_SPEED, speed);
+            } else if (gap != 2) {
+                measurement.setProperty(Measurement.PropertyKey.SPEED, speed);
+            }
+            if (gap != 3) {
+                measurement.setProperty(Measurement.PropertyKey.GPS_ALTITUDE, 60 + Math.sin(i * 0.05) * 20);
+            }
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.simplification;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.CarImpl;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.envirocar.core.trackprocessing.MeasurementEnhancer;
+import org.envirocar.core.utils.GeodesicDistance;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TrackSimplifierTest {
+
+    private static final Car CAR = new CarImpl("manufacturer", "model", Car.FuelType.GASOLINE, 2010, 1600);
+
+    /**
+     * Simplifies a highway drive of 30 minutes at 1 Hz with GPS noise and checks the reduction
+     * as well as the geometric and the consumption error.
+     */
+    @Test
+    public void testHighwayDrive() {
+        List<Measurement> track = createHighwayDrive(1800, new Random(1));
+        List<Measurement> kept = TrackSimplifier.forMeasurements().simplify(track);
+
+        Assert.assertSame(track.get(0), kept.get(0));
+        Assert.assertSame(track.get(track.size() - 1), kept.get(kept.size() - 1));
+
+        // the error of the dropped positions against the position interpolated between the kept ones
+        double maxError = 0;
+        int next = 1;
+        for (Measurement measurement : track) {
+            while (kept.get(next).getTime() < measurement.getTime()) {
+                next++;
+            }
+            Measurement start = kept.get(next - 1);
+            Measurement end = kept.get(next);
+            double fraction = (double) (measurement.getTime() - start.getTime()) / (end.getTime() - start.getTime());
+            double error = GeodesicDistance.distance(measurement.getLatitude(), measurement.getLongitude(),
+                    start.getLatitude() + fraction * (end.getLatitude() - start.getLatitude()),
+                    start.getLongitude() + fraction * (end.getLongitude() - start.getLongitude()));
+            maxError = Math.max(maxError, error);
+            if (measurement == end) {
+                next = Math.min(next + 1, kept.size() - 1);
+            }
+        }
+
+        double consumption = integrate(track, Measurement.PropertyKey.ENERGY_CONSUMPTION);
+        double simplifiedConsumption = integrate(kept, Measurement.PropertyKey.ENERGY_CONSUMPTION);
+        double consumptionError = Math.abs(simplifiedConsumption - consumption) / consumption;
+
+        Assert.assertTrue(kept.size() < track.size() / 4);
+        Assert.assertTrue(maxError <= TrackSimplifier.DEFAULT_SPATIAL_TOLERANCE * 1.01);
+        Assert.assertTrue(consumptionError < 0.01);
+        for (int i = 1; i < kept.size(); i++) {
+            Assert.assertTrue(kept.get(i).getTime() - kept.get(i - 1).getTime() <= TrackSimplifier.DEFAULT_TEMPORAL_TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testStreamingEqualsBatch() {
+        List<Measurement> track = createHighwayDrive(600, new Random(2));
+        List<Measurement> batch = TrackSimplifier.forMeasurements().simplify(track);
+
+        TrackSimplifier<Measurement> simplifier = TrackSimplifier.forMeasurements();
+        List<Measurement> streamed = new ArrayList<>();
+        for (Measurement measurement : track) {
+            List<Measurement> kept = new ArrayList<>();
+            simplifier.offer(measurement, kept);
+            streamed.addAll(kept);
+        }
+        // the last measurement is only decided on flush.
+        Assert.assertNotSame(track.get(track.size() - 1), streamed.get(streamed.size() - 1));
+        simplifier.flush(streamed);
+
+        Assert.assertThat(streamed, CoreMatchers.is(batch));
+    }
+
+    @Test
+    public void testMeasurementsWithoutPositionAreKept() {
+        List<Measurement> track = createHighwayDrive(100, new Random(3));
+        Measurement withoutPosition = new PrimitiveMeasurement();
+        withoutPosition.setTime(track.get(50).getTime());
+        withoutPosition.setProperty(Measurement.PropertyKey.SPEED, 120.0);
+        track.set(50, withoutPosition);
+
+        List<Measurement> kept = TrackSimplifier.forMeasurements().simplify(track);
+        int index = kept.indexOf(withoutPosition);
+        Assert.assertTrue(index > 0);
+        // the measurements enclosing the gap are kept as well.
+        Assert.assertSame(track.get(49), kept.get(index - 1));
+        Assert.assertSame(track.get(51), kept.get(index + 1));
+    }
+
+    @Test
+    public void testChangingValuesAreKept() {
+        List<Measurement> track = createHighwayDrive(100, new Random(4));
+        List<Measurement> kept = TrackSimplifier.forMeasurements().simplify(track);
+
+        Measurement peak = track.get(track.size() / 2);
+        Assert.assertFalse(kept.contains(peak));
+        peak.setProperty(Measurement.PropertyKey.CONSUMPTION, 20.0);
+
+        Assert.assertTrue(TrackSimplifier.forMeasurements().simplify(track).contains(peak));
+    }
+
+    /**
+     * @return the integral of the property over time with the trapezoidal rule.
+     */
+    private static double integrate(List<Measurement> measurements, Measurement.PropertyKey key) {
+        double result = 0;
+        for (int i = 1; i < measurements.size(); i++) {
+            double hours = (measurements.get(i).getTime() - measurements.get(i - 1).getTime()) / 3600000.0;
+            result += hours * (measurements.get(i).getProperty(key) + measurements.get(i - 1).getProperty(key)) / 2;
+        }
+        return result;
+    }
+
+    /**
+     * Creates a drive on a highway with long straight segments and wide curves, a smoothly
+     * varying speed and a GPS noise of about one meter.
+     */
+    private static List<Measurement> createHighwayDrive(int seconds, Random random) {
+        List<Measurement> track = new ArrayList<>(seconds);
+        double latitude = 51.9;
+        double longitude = 7.6;
+        double heading = 0;
+        double metersPerDegree = 6371008.8 * Math.PI / 180.0;
+        for (int i = 0; i < seconds; i++) {
+            double speed = 120 + 10 * Math.sin(i / 120.0);
+            // a wide curve every five minutes
+            if (i % 300 >= 240) {
+                heading += Math.toRadians(0.5);
+            }
+            double meters = speed / 3.6;
+            latitude += meters * Math.cos(heading) / metersPerDegree;
+            longitude += meters * Math.sin(heading) / (metersPerDegree * Math.cos(Math.toRadians(latitude)));
+
+            Measurement measurement = new PrimitiveMeasurement(
+                    latitude + random.nextGaussian() / metersPerDegree,
+                    longitude + random.nextGaussian() / (metersPerDegree * Math.cos(Math.toRadians(latitude))));
+            measurement.setTime(1500000000000L + i * 1000L);
+            measurement.setProperty(Measurement.PropertyKey.GPS_SPEED, speed);
+            measurement.setProperty(Measurement.PropertyKey.GPS_ALTITUDE, 60 + 10 * Math.sin(i / 200.0));
+            track.add(measurement);
+        }
+
+        MeasurementEnhancer enhancer = new MeasurementEnhancer(CAR);
+        for (Measurement measurement : track) {
+            enhancer.enhance(measurement);
+        }
+        return track;
+    }
+}
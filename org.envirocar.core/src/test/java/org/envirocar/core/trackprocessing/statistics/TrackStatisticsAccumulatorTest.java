@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.CarImpl;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.entity.TrackImpl;
+import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TrackStatisticsAccumulatorTest {
+
+    private static final int FIXTURE_SIZE = 20000;
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testGasolineOnlineEqualsRecomputation() throws Exception {
+        assertOnlineEqualsRecomputation(Car.FuelType.GASOLINE, createTrack(FIXTURE_SIZE, false));
+    }
+
+    @Test
+    public void testDieselOnlineEqualsRecomputation() throws Exception {
+        assertOnlineEqualsRecomputation(Car.FuelType.DIESEL, createTrack(FIXTURE_SIZE, true));
+    }
+
+    @Test
+    public void testRecordingTrackEqualsRecomputation() throws Exception {
+        List<Measurement> measurements = createTrack(FIXTURE_SIZE, false);
+        TrackImpl track = new TrackImpl();
+        track.setCar(new CarImpl("manufacturer", "model", Car.FuelType.GASOLINE, 2010));
+
+        // the statistics are queried after each measurement as while recording.
+        TrackStatistics online = null;
+        for (Measurement measurement : measurements) {
+            track.getMeasurements().add(measurement);
+            online = track.getStatistics();
+        }
+
+        TrackStatistics recomputed = new TrackStatisticsProcessor(Car.FuelType.GASOLINE)
+                .computeStatistics(MeasurementSeries.of(measurements));
+        assertEqualStatistics(recomputed, online);
+        Assert.assertEquals(recomputed.getDistance(), track.getDistanceOfTrack(), TOLERANCE);
+    }
+
+    @Test
+    public void testStoredStatisticsOfLazyTrack() {
+        TrackImpl track = new TrackImpl();
+        track.setLazyMeasurements(true);
+        TrackStatistics stored = new TrackStatistics(10, 1.5, false, 0, 0, 0, 500, 10);
+        track.setStatistics(stored);
+
+        Assert.assertThat(track.getStatistics(), CoreMatchers.sameInstance(stored));
+        Assert.assertThat(track.getDistanceOfTrack(), CoreMatchers.is(1.5));
+    }
+
+    @Test
+    public void testAverageSpeed() {
+        TrackStatisticsAccumulator accumulator = new TrackStatisticsAccumulator(null);
+        Assert.assertNull(accumulator.getStatistics().getAverageSpeed());
+
+        Measurement obd = new MeasurementImpl();
+        obd.setProperty(Measurement.PropertyKey.SPEED, 40.0);
+        obd.setProperty(Measurement.PropertyKey.GPS_SPEED, 100.0);
+        Measurement gps = new MeasurementImpl();
+        gps.setProperty(Measurement.PropertyKey.GPS_SPEED, 60.0);
+        accumulator.add(obd);
+        accumulator.add(gps);
+        accumulator.add(new MeasurementImpl());
+
+        TrackStatistics statistics = accumulator.getStatistics();
+        Assert.assertThat(statistics.getMeasurementCount(), CoreMatchers.is(3));
+        Assert.assertThat(statistics.getAverageSpeed(), CoreMatchers.is(50.0));
+    }
+
+    @Test
+    public void testResumedEqualsContinuous() throws Exception {
+        List<Measurement> measurements = createTrack(FIXTURE_SIZE, false);
+        ConsumptionAlgorithm algorithm = ConsumptionAlgorithm.fromFuelType(Car.FuelType.GASOLINE);
+
+        TrackStatisticsAccumulator first = new TrackStatisticsAccumulator(algorithm);
+        for (Measurement measurement : measurements.subList(0, FIXTURE_SIZE / 2)) {
+            first.add(measurement);
+        }
+        TrackStatisticsAccumulator resumed = new TrackStatisticsAccumulator(algorithm,
+                first.getStatistics(), first.getLastLatitude(), first.getLastLongitude());
+        for (Measurement measurement : measurements.subList(FIXTURE_SIZE / 2, FIXTURE_SIZE)) {
+            resumed.add(measurement);
+        }
+
+        TrackStatistics continuous = new TrackStatisticsProcessor(Car.FuelType.GASOLINE)
+                .computeStatistics(MeasurementSeries.of(measurements));
+        assertEqualStatistics(continuous, resumed.getStatistics());
+    }
+
+    @Test
+    public void testResumedWithoutAlgorithm() {
+        TrackStatistics stored = new TrackStatistics(10, 1.5, true, 20, 30, 10, 500, 10);
+        TrackStatisticsAccumulator resumed = new TrackStatisticsAccumulator(null, stored,
+                Double.NaN, Double.NaN);
+        Measurement measurement = new MeasurementImpl(51.9, 7.6);
+        measurement.setProperty(Measurement.PropertyKey.SPEED, 60.0);
+        resumed.add(measurement);
+
+        // the consumption cannot be continued without the fuel type.
+        TrackStatistics statistics = resumed.getStatistics();
+        Assert.assertFalse(statistics.isConsumptionSupported());
+        Assert.assertThat(statistics.getMeasurementCount(), CoreMatchers.is(11));
+        Assert.assertThat(statistics.getSpeedSum(), CoreMatchers.is(560.0));
+        Assert.assertThat(statistics.getDistance(), CoreMatchers.is(1.5));
+        Assert.assertThat(resumed.getLastLatitude(), CoreMatchers.is(51.9));
+    }
+
+    private static void assertOnlineEqualsRecomputation(Car.FuelType fuelType, List<Measurement> measurements) throws Exception {
+        TrackStatisticsProcessor processor = new TrackStatisticsProcessor(fuelType);
+        TrackStatisticsAccumulator accumulator = processor.newAccumulator();
+        for (Measurement measurement : measurements) {
+            accumulator.add(measurement);
+        }
+        assertEqualStatistics(processor.computeStatistics(MeasurementSeries.of(measurements)),
+                accumulator.getStatistics());
+    }
+
+    private static void assertEqualStatistics(TrackStatistics expected, TrackStatistics actual) throws Exception {
+        Assert.assertThat(actual.getMeasurementCount(), CoreMatchers.is(expected.getMeasurementCount()));
+        Assert.assertThat(actual.getConsumptionCount(), CoreMatchers.is(expected.getConsumptionCount()));
+        Assert.assertThat(actual.getSpeedCount(), CoreMatchers.is(expected.getSpeedCount()));
+        Assert.assertEquals(expected.getDistance(), actual.getDistance(), TOLERANCE);
+        Assert.assertEquals(expected.getCO2Average(), actual.getCO2Average(), TOLERANCE);
+        Assert.assertEquals(expected.getFuelConsumptionPerHour(), actual.getFuelConsumptionPerHour(), TOLERANCE);
+        Assert.assertEquals(expected.getAverageSpeed(), actual.getAverageSpeed(), TOLERANCE);
+    }
+
+    /**
+     * Creates measurements along a path, where a part lacks a position or the parameters
+     * required for the consumption.
+     */
+    private static List<Measurement> createTrack(int size, boolean diesel) {
+        Random random = new Random(7);
+        List<Measurement> measurements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Measurement measurement = new MeasurementImpl();
+            measurement.setTime(1500000000000L + i * 1000L);
+            if (random.nextInt(20) > 0) {
+                measurement.setLatitude(51.9 + i * 1e-4);
+                measurement.setLongitude(7.6 + Math.sin(i * 0.01) * 1e-3);
+            }
+            if (random.nextInt(10) < 9) {
+                measurement.setProperty(Measurement.PropertyKey.SPEED, random.nextDouble() * 130);
+            } else {
+                measurement.setProperty(Measurement.PropertyKey.GPS_SPEED, random.nextDouble() * 130);
+            }
+            if (random.nextInt(10) < 8) {
+                measurement.setProperty(Measurement.PropertyKey.CONSUMPTION, random.nextDouble() * 12);
+            }
+            int maf = random.nextInt(10);
+            if (maf < 7) {
+                measurement.setProperty(Measurement.PropertyKey.MAF, random.nextDouble() * 40);
+            } else if (maf < 9) {
+                measurement.setProperty(Measurement.PropertyKey.CALCULATED_MAF, random.nextDouble() * 40);
+            }
+            if (diesel && random.nextInt(10) < 8) {
+                measurement.setProperty(Measurement.PropertyKey.LAMBDA_VOLTAGE, random.nextDouble() * 1.2);
+                measurement.setProperty(Measurement.PropertyKey.LAMBDA_VOLTAGE_ER, random.nextDouble() * 2.5);
+            }
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+}
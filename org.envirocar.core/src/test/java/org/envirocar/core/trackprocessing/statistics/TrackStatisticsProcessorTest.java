@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.exception.FuelConsumptionException;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TrackStatisticsProcessorTest {
+
+    private static final int FIXTURE_SIZE = 50000;
+
+    @Test
+    public void testGasolineStatisticsEqualSeparatePasses() throws Exception {
+        assertEqualStatistics(Car.FuelType.GASOLINE, createTrack(FIXTURE_SIZE, false));
+    }
+
+    @Test
+    public void testDieselStatisticsEqualSeparatePasses() throws Exception {
+        assertEqualStatistics(Car.FuelType.DIESEL, createTrack(FIXTURE_SIZE, true));
+    }
+
+    @Test
+    public void testDistanceEqualsSeparatePass() {
+        List<Measurement> measurements = createTrack(FIXTURE_SIZE, false);
+        for (int i = 0; i < measurements.size(); i++) {
+            measurements.get(i).setLatitude(51.9 + i * 1e-4);
+            measurements.get(i).setLongitude(7.6 + Math.sin(i * 0.01) * 1e-3);
+        }
+        TrackStatisticsProcessor processor = new TrackStatisticsProcessor(Car.FuelType.GASOLINE);
+        MeasurementSeries series = MeasurementSeries.of(measurements);
+
+        double distance = processor.computeStatistics(series).getDistance();
+        Assert.assertThat(distance, CoreMatchers.is(processor.computeDistanceOfTrack(measurements)));
+        Assert.assertEquals(distance, series.getTotalDistance(), 1e-6);
+    }
+
+    @Test
+    public void testNoConsumptionValues() {
+        List<Measurement> measurements = new ArrayList<>();
+        measurements.add(new MeasurementImpl());
+        TrackStatistics statistics = new TrackStatisticsProcessor(Car.FuelType.GASOLINE)
+                .computeStatistics(MeasurementSeries.of(measurements));
+        Assert.assertThat(statistics.getConsumptionCount(), CoreMatchers.is(0));
+        try {
+            statistics.getFuelConsumptionPerHour();
+            Assert.fail("expected a FuelConsumptionException");
+        } catch (FuelConsumptionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnknownFuelType() {
+        TrackStatistics statistics = new TrackStatisticsProcessor(null)
+                .computeStatistics(MeasurementSeries.of(createTrack(10, false)));
+        Assert.assertThat(statistics.getDistance(), CoreMatchers.is(0.0));
+        try {
+            statistics.getCO2Average();
+            Assert.fail("expected a FuelConsumptionException");
+        } catch (FuelConsumptionException e) {
+            // expected
+        }
+    }
+
+    private static void assertEqualStatistics(Car.FuelType fuelType, List<Measurement> measurements) throws Exception {
+        TrackStatisticsProcessor processor = new TrackStatisticsProcessor(fuelType);
+        TrackStatistics statistics = processor.computeStatistics(MeasurementSeries.of(measurements));
+
+        Assert.assertThat(statistics.getMeasurementCount(), CoreMatchers.is(measurements.size()));
+        Assert.assertThat(statistics.getCO2Average(), CoreMatchers.is(processor.getCO2Average(measurements)));
+        Assert.assertThat(statistics.getFuelConsumptionPerHour(),
+                CoreMatchers.is(processor.getFuelConsumptionPerHour(measurements)));
+    }
+
+    /**
+     * Creates measurements without positions, where a part lacks the parameters required for
+     * the consumption.
+     */
+    private static List<Measurement> createTrack(int size, boolean diesel) {
+        Random random = new Random(42);
+        List<Measurement> measurements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Measurement measurement = new MeasurementImpl();
+            measurement.setTime(1500000000000L + i * 1000L);
+            measurement.setProperty(Measurement.PropertyKey.SPEED, random.nextDouble() * 130);
+            if (random.nextInt(10) < 8) {
+                measurement.setProperty(Measurement.PropertyKey.CONSUMPTION, random.nextDouble() * 12);
+            }
+            int maf = random.nextInt(10);
+            if (maf < 7) {
+                measurement.setProperty(Measurement.PropertyKey.MAF, random.nextDouble() * 40);
+            } else if (maf < 9) {
+                measurement.setProperty(Measurement.PropertyKey.CALCULATED_MAF, random.nextDouble() * 40);
+            }
+            if (diesel && random.nextInt(10) < 8) {
+                measurement.setProperty(Measurement.PropertyKey.LAMBDA_VOLTAGE, random.nextDouble() * 1.2);
+                measurement.setProperty(Measurement.PropertyKey.LAMBDA_VOLTAGE_ER, random.nextDouble() * 2.5);
+            }
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+}
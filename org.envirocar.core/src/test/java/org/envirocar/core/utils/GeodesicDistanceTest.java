@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class GeodesicDistanceTest {
+
+    private static final int SEGMENTS = 100000;
+
+    @Test
+    public void testVincentyReference() {
+        // Flinders Peak to Buninyong, the example of Vincenty's paper.
+        Assert.assertEquals(54972.271, GeodesicDistance.vincenty(
+                -37.95103342, 144.42486789, -37.65282114, 143.92649554), 0.001);
+        Assert.assertEquals(54972.271, GeodesicDistance.distance(
+                -37.95103342, 144.42486789, -37.65282114, 143.92649554), 0.001);
+    }
+
+    @Test
+    public void testShortSegmentErrorBounds() {
+        Assert.assertTrue(maximumError(1000.0) < 0.0002);
+        Assert.assertTrue(maximumError(10000.0) < 0.005);
+    }
+
+    @Test
+    public void testEdgeCases() {
+        Assert.assertEquals(0.0, GeodesicDistance.distance(51.9, 7.6, 51.9, 7.6), 0.0);
+        Assert.assertEquals(0.0, GeodesicDistance.vincenty(51.9, 7.6, 51.9, 7.6), 0.0);
+
+        // segments across the antimeridian are short as well.
+        double across = GeodesicDistance.distance(10.0, 179.9995, 10.0, -179.9995);
+        Assert.assertEquals(GeodesicDistance.vincenty(10.0, 179.9995, 10.0, -179.9995), across, 0.0001);
+        Assert.assertEquals(109.6, across, 0.1);
+    }
+
+    @Test
+    public void testTotalDistanceOfGpsSegments() {
+        // segments between consecutive GPS fixes.
+        double[] points = createSegments(new Random(7), 30.0);
+        double vincenty = sum(points, false);
+        Assert.assertEquals(vincenty, sum(points, true), vincenty * 1e-5);
+    }
+
+    private static double maximumError(double maximumLength) {
+        double[] points = createSegments(new Random(42), maximumLength);
+        double maximum = 0.0;
+        for (int i = 0; i < points.length; i += 4) {
+            double error = Math.abs(
+                    GeodesicDistance.distance(points[i], points[i + 1], points[i + 2], points[i + 3]) -
+                    GeodesicDistance.vincenty(points[i], points[i + 1], points[i + 2], points[i + 3]));
+            maximum = Math.max(maximum, error);
+        }
+        return maximum;
+    }
+
+    private static double sum(double[] points, boolean kernel) {
+        double sum = 0.0;
+        for (int i = 0; i < points.length; i += 4) {
+            sum += kernel ?
+                    GeodesicDistance.distance(points[i], points[i + 1], points[i + 2], points[i + 3]) :
+                    GeodesicDistance.vincenty(points[i], points[i + 1], points[i + 2], points[i + 3]);
+        }
+        return sum;
+    }
+
+    /**
+     * @return random segments up to the given length in meters as lat1, lng1, lat2, lng2.
+     */
+    private static double[] createSegments(Random random, double maximumLength) {
+        double[] points = new double[SEGMENTS * 4];
+        for (int i = 0; i < points.length; i += 4) {
+            double latitude = -85.0 + 170.0 * random.nextDouble();
+            double longitude = -180.0 + 360.0 * random.nextDouble();
+            double length = maximumLength * random.nextDouble();
+            double bearing = 2.0 * Math.PI * random.nextDouble();
+            points[i] = latitude;
+            points[i + 1] = longitude;
+            points[i + 2] = latitude + Math.toDegrees(length * Math.cos(bearing) / 6371000.0);
+            points[i + 3] = longitude + Math.toDegrees(length * Math.sin(bearing) / 6371000.0 /
+                    Math.cos(Math.toRadians(latitude)));
+        }
+        return points;
+    }
+}
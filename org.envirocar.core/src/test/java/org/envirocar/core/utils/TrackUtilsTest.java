@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.utils;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.CarImpl;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.envirocar.core.exception.NoMeasurementsException;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TrackUtilsTest {
+
+    @Test
+    public void testTimeRangeMatchesObfuscatedTrack() throws NoMeasurementsException {
+        // 10 m and 10 s per step, i.e., the 250 m around start and end dominate the first and
+        // last minute.
+        Track track = createTrack(61);
+
+        long[] range = TrackUtils.getNonObfuscatedTimeRange(track, track.getMeasurements());
+        Assert.assertThat(range[0], CoreMatchers.is(250000L));
+        Assert.assertThat(range[1], CoreMatchers.is(350000L));
+
+        List<Measurement> obfuscated = TrackUtils.getObfuscatedTrack(track).getMeasurements();
+        Assert.assertThat(range[0], CoreMatchers.is(obfuscated.get(0).getTime()));
+        Assert.assertThat(range[1], CoreMatchers.is(obfuscated.get(obfuscated.size() - 1).getTime()));
+    }
+
+    @Test(expected = NoMeasurementsException.class)
+    public void testTimeRangeOfCompletelyObfuscatedTrack() throws NoMeasurementsException {
+        Track track = createTrack(40);
+        TrackUtils.getNonObfuscatedTimeRange(track, track.getMeasurements());
+    }
+
+    private static Track createTrack(int numMeasurements) {
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < numMeasurements; i++) {
+            Measurement measurement = new MeasurementImpl(51.9 + i * 0.00009, 7.6);
+            measurement.setTime(i * 10000L);
+            measurements.add(measurement);
+        }
+
+        Track track = new TrackImpl();
+        track.setCar(new CarImpl("VW", "Golf", Car.FuelType.GASOLINE, 2010, 1400));
+        track.setMeasurements(measurements);
+        track.setStartTime(0L);
+        track.setEndTime((numMeasurements - 1) * 10000L);
+        return track;
+    }
+}
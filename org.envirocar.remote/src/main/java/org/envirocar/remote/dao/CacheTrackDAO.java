@@ -21,6 +21,7 @@ package org.envirocar.remote.dao;
 import org.envirocar.core.CacheDirectoryProvider;
 import org.envirocar.core.dao.AbstractCacheDAO;
 import org.envirocar.core.dao.TrackDAO;
+import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.exception.NotConnectedException;
 
@@ -28,6 +29,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 
 
@@ -106,6 +108,18 @@ public class CacheTrackDAO extends AbstractCacheDAO implements TrackDAO {
         return Observable.error(new NotConnectedException("Not implemented for Cache DAO"));
     }
 
+    @Override
+    public Track createTrack(Track track, Flowable<Measurement> measurements) throws
+            NotConnectedException {
+        throw new NotConnectedException("Not implemented for Cache DAO");
+    }
+
+    @Override
+    public Observable<Track> createTrackObservable(Track track,
+                                                   Flowable<Measurement> measurements) {
+        return Observable.error(new NotConnectedException("Not implemented for Cache DAO"));
+    }
+
     @Override
     public void deleteTrack(Track track) throws
             NotConnectedException {
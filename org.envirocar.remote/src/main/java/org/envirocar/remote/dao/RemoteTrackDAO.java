@@ -22,6 +22,7 @@ import com.google.common.base.Preconditions;
 
 import org.envirocar.core.UserManager;
 import org.envirocar.core.dao.TrackDAO;
+import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.exception.DataCreationFailureException;
 import org.envirocar.core.exception.DataRetrievalFailureException;
@@ -29,6 +30,7 @@ import org.envirocar.core.exception.NotConnectedException;
 import org.envirocar.core.exception.ResourceConflictException;
 import org.envirocar.core.exception.UnauthorizedException;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.remote.serde.TrackRequestBody;
 import org.envirocar.remote.service.EnviroCarService;
 import org.envirocar.remote.service.TrackService;
 import org.envirocar.remote.util.EnvirocarServiceUtils;
@@ -39,6 +41,7 @@ import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
@@ -177,7 +180,28 @@ public class RemoteTrackDAO extends BaseRemoteDAO<TrackDAO, TrackService> implem
         final TrackService trackService = EnviroCarService.getTrackService();
         Call<ResponseBody> uploadTrackCall =
                 trackService.uploadTrack(userManager.getUser().getUsername(), track);
+        return executeUpload(track, uploadTrackCall);
+    }
+
+    @Override
+    public Track createTrack(Track track, Flowable<Measurement> measurements) throws
+            DataCreationFailureException, NotConnectedException, UnauthorizedException {
+        LOG.info("createTrack() streaming measurements");
+
+        // check whether the getUserStatistic is logged in
+        if (!userManager.isLoggedIn()) {
+            throw new UnauthorizedException("The getUserStatistic is not logged in");
+        }
+
+        // the measurements are serialized while the request is written.
+        final TrackService trackService = EnviroCarService.getTrackService();
+        Call<ResponseBody> uploadTrackCall = trackService.uploadTrack(
+                userManager.getUser().getUsername(), new TrackRequestBody(track, measurements));
+        return executeUpload(track, uploadTrackCall);
+    }
 
+    private Track executeUpload(Track track, Call<ResponseBody> uploadTrackCall) throws
+            DataCreationFailureException, NotConnectedException, UnauthorizedException {
         try {
             Response<ResponseBody> response = uploadTrackCall.execute();
 
@@ -221,6 +245,25 @@ public class RemoteTrackDAO extends BaseRemoteDAO<TrackDAO, TrackService> implem
         });
     }
 
+    @Override
+    public Observable<Track> createTrackObservable(Track track,
+                                                   Flowable<Measurement> measurements) {
+        return Observable.create(emitter -> {
+            if (emitter.isDisposed())
+                return;
+            LOG.info("call: creating remote track.");
+            try {
+                emitter.onNext(createTrack(track, measurements));
+            } catch (DataCreationFailureException |
+                    NotConnectedException |
+                    UnauthorizedException e) {
+                LOG.error(e.getMessage(), e);
+                emitter.onError(e);
+            }
+            emitter.onComplete();
+        });
+    }
+
     @Override
     public List<Track> getTrackIds() throws NotConnectedException, UnauthorizedException {
         return getTrackIds(100);
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.remote.serde;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.Track;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Iterator;
+
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Request body that writes a track with {@link TrackSerde#writeTrack(Track, Iterator,
+ * JsonWriter)} while its measurements are read from a flowable, e.g., a database cursor.
+ * The flowable is subscribed again on every write, e.g., when the request is retried.
+ *
+ * @author dewall
+ */
+public class TrackRequestBody extends RequestBody {
+    private static final MediaType CONTENT_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private final Track track;
+    private final Flowable<Measurement> measurements;
+
+    /**
+     * Constructor.
+     *
+     * @param track        the track to upload.
+     * @param measurements the measurements of the track in time order.
+     */
+    public TrackRequestBody(Track track, Flowable<Measurement> measurements) {
+        this.track = track;
+        this.measurements = measurements;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Iterator<Measurement> iterator = measurements.blockingIterable().iterator();
+        try {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(sink.outputStream(), "UTF-8"));
+            new TrackSerde().writeTrack(track, iterator, writer);
+            writer.flush();
+        } catch (RuntimeException e) {
+            // errors of the flowable are rethrown by its iterator.
+            throw new IOException("Unable to read the measurements of the track", e);
+        } finally {
+            // releases the underlying cursor when the upload is aborted.
+            ((Disposable) iterator).dispose();
+        }
+    }
+}
@@ -50,6 +50,7 @@ import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -121,26 +122,7 @@ public class TrackSerde extends AbstractJsonSerde implements JsonSerializer<Trac
     public JsonElement serialize(Track src, Type typeOfSrc, JsonSerializationContext context) {
         LOG.info("serialize() track");
         // set the properties of the json object
-        JsonObject trackProperties = new JsonObject();
-        trackProperties.addProperty(Track.KEY_TRACK_NAME, src.getName());
-        trackProperties.addProperty(Track.KEY_TRACK_DESC,
-                src.getDescription());
-        trackProperties.addProperty(Track.KEY_TRACK_SENSOR, src.getCar().getId());
-
-        try {
-            if (src.getMetadata() != null) {
-                JSONObject json = src.getMetadata().toJson();
-                JSONArray names = json.names();
-                for (int i = 0; i < names.length(); i++) {
-                    trackProperties.addProperty(names.get(i).toString(),
-                            json.getString(names.get(i).toString()));
-                }
-            } else {
-                LOG.warn("The track does not provide metadata!");
-            }
-        } catch (JSONException e) {
-            LOG.severe("Error while parsing metadata of track", e);
-        }
+        JsonObject trackProperties = createTrackProperties(src);
 
         // serialize the array of features.
         JsonArray trackFeatures = new JsonArray();
@@ -168,6 +150,67 @@ public class TrackSerde extends AbstractJsonSerde implements JsonSerializer<Trac
         return result;
     }
 
+    /**
+     * Writes a track in the same format as {@link #serialize(Track, Type,
+     * JsonSerializationContext)}, but takes its measurements from an iterator instead of the
+     * track's measurement list. Only a single measurement is held as json at a time, i.e., the
+     * measurements can be streamed from the database while the track is uploaded.
+     *
+     * @param track        the track to write.
+     * @param measurements the measurements of the track in time order.
+     * @param out          the writer to write the track to.
+     * @throws IOException if the track has no measurements or writing fails.
+     */
+    public void writeTrack(Track track, Iterator<Measurement> measurements, JsonWriter out)
+            throws IOException {
+        LOG.info("writeTrack() track");
+        if (!measurements.hasNext()) {
+            throw new IOException("Track did not contain any non obfuscated measurements.");
+        }
+
+        Gson gson = new Gson();
+        out.beginObject();
+        out.name(Track.KEY_TRACK_TYPE).value("FeatureCollection");
+        out.name(Track.KEY_TRACK_PROPERTIES);
+        gson.toJson(createTrackProperties(track), out);
+
+        out.name(Track.KEY_TRACK_FEATURES);
+        out.beginArray();
+        try {
+            while (measurements.hasNext()) {
+                gson.toJson(createMeasurementProperties(measurements.next(), track.getCar()), out);
+            }
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private JsonObject createTrackProperties(Track src) {
+        JsonObject trackProperties = new JsonObject();
+        trackProperties.addProperty(Track.KEY_TRACK_NAME, src.getName());
+        trackProperties.addProperty(Track.KEY_TRACK_DESC,
+                src.getDescription());
+        trackProperties.addProperty(Track.KEY_TRACK_SENSOR, src.getCar().getId());
+
+        try {
+            if (src.getMetadata() != null) {
+                JSONObject json = src.getMetadata().toJson();
+                JSONArray names = json.names();
+                for (int i = 0; i < names.length(); i++) {
+                    trackProperties.addProperty(names.get(i).toString(),
+                            json.getString(names.get(i).toString()));
+                }
+            } else {
+                LOG.warn("The track does not provide metadata!");
+            }
+        } catch (JSONException e) {
+            LOG.severe("Error while parsing metadata of track", e);
+        }
+        return trackProperties;
+    }
+
     private JsonElement createMeasurementProperties(Measurement src, Car car) throws
             JSONException {
         // Create the Geometry json object
@@ -25,6 +25,7 @@ import org.envirocar.core.entity.Track;
 import java.util.List;
 
 import io.reactivex.Observable;
+import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
@@ -81,6 +82,9 @@ public interface TrackService {
     @POST("users/{getUserStatistic}/tracks/")
     Call<ResponseBody> uploadTrack(@Path("getUserStatistic") String user, @Body Track track);
 
+    @POST("users/{getUserStatistic}/tracks/")
+    Call<ResponseBody> uploadTrack(@Path("getUserStatistic") String user, @Body RequestBody track);
+
     @DELETE("users/{getUserStatistic}/tracks/{track}")
     Call<ResponseBody> deleteTrack(@Path("getUserStatistic") String user, @Path("track") String track);
 
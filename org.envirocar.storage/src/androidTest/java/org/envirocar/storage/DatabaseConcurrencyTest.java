@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Checks that UI queries are not blocked by a recording transaction that is still open.
+ */
+public class DatabaseConcurrencyTest extends InstrumentationTestCase {
+
+    private static final String DATABASE_NAME = "concurrency-test";
+
+    /**
+     * Only bounds how long a blocked query may hang the test, it is not a latency target.
+     */
+    private static final long DEADLOCK_TIMEOUT_SECONDS = 10;
+
+    private Context context;
+    private BriteDatabase database;
+    private EnviroCarDBImpl enviroCarDB;
+    private ExecutorService writer;
+    private ExecutorService reader;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = DatabaseModule.openDatabase(context,
+                new SqlBrite.Builder().build(), DATABASE_NAME);
+        enviroCarDB = new EnviroCarDBImpl(database, Schedulers.trampoline());
+        writer = Executors.newSingleThreadExecutor();
+        reader = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        writer.shutdownNow();
+        reader.shutdownNow();
+        writer.awaitTermination(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        reader.awaitTermination(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+        super.tearDown();
+    }
+
+    @Test
+    public void testReadsDoNotWaitForOpenWriteTransaction() throws Exception {
+        Track track = new TrackImpl();
+        track.setName("recording");
+        track.setTrackStatus(Track.TrackStatus.ONGOING);
+        track.setLength(0.0);
+        enviroCarDB.insertTrack(track);
+        enviroCarDB.appendMeasurements(track, Collections.singletonList(createMeasurement(track, 1000)));
+
+        CountDownLatch transactionOpen = new CountDownLatch(1);
+        CountDownLatch readsDone = new CountDownLatch(1);
+        Future<?> recording = writer.submit(() -> {
+            BriteDatabase.Transaction transaction = database.newTransaction();
+            try {
+                track.setEndTime(2000L);
+                enviroCarDB.appendMeasurements(track,
+                        Collections.singletonList(createMeasurement(track, 2000)));
+                transaction.markSuccessful();
+                transactionOpen.countDown();
+                // keep the transaction open until the reader is done.
+                readsDone.await();
+            } finally {
+                transaction.end();
+            }
+            return null;
+        });
+
+        Assert.assertTrue(transactionOpen.await(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // the queries complete while the write transaction is still open and see the
+        // last committed state only.
+        Future<List<Measurement>> reads = reader.submit(() -> {
+            Assert.assertEquals(1, enviroCarDB.getAllLocalTrackSummaries().blockingFirst().size());
+            Assert.assertEquals(1, enviroCarDB.getAllLocalTracks(true).blockingFirst().size());
+            return enviroCarDB.getMeasurementsFlowable(track.getTrackID()).toList().blockingGet();
+        });
+        List<Measurement> measurements = reads.get(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertEquals(1, measurements.size());
+        Assert.assertEquals(1000, measurements.get(0).getTime());
+        Assert.assertFalse("the write transaction must still be open", recording.isDone());
+
+        readsDone.countDown();
+        recording.get(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        measurements = enviroCarDB.getMeasurementsFlowable(track.getTrackID())
+                .toList().blockingGet();
+        Assert.assertEquals(2, measurements.size());
+        Assert.assertEquals(2000, measurements.get(1).getTime());
+    }
+
+    private Measurement createMeasurement(Track track, long time) {
+        Measurement measurement = new MeasurementImpl(51.9, 7.6);
+        measurement.setTime(time);
+        measurement.setTrackId(track.getTrackID());
+        measurement.setProperty(Measurement.PropertyKey.SPEED, 50.0);
+        return measurement;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Deletes a large number of tracks at once and verifies that their measurements are removed and
+ * the freed space is returned to the file system.
+ */
+public class DatabaseDeletionTest extends InstrumentationTestCase {
+    private static final String DATABASE_NAME = "deletion-fixture";
+    private static final int NUM_TRACKS = 200;
+    private static final int MEASUREMENTS_PER_TRACK = 100;
+
+    @Test
+    public void testDeleteTracksReclaimsSpace() throws Exception {
+        Context context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+
+        BriteDatabase database = DatabaseModule.openDatabase(context,
+                new SqlBrite.Builder().build(), DATABASE_NAME);
+        // reclaims the free space synchronously after each deletion.
+        EnviroCarDBImpl enviroCarDB = new EnviroCarDBImpl(database, Schedulers.trampoline(),
+                Schedulers.trampoline());
+        try {
+            List<Track.TrackId> trackIds = new ArrayList<>();
+            for (int i = 0; i < NUM_TRACKS; i++) {
+                Track track = new TrackImpl();
+                track.setName("track " + i);
+                track.setTrackStatus(Track.TrackStatus.FINISHED);
+                track.setLength(0.0);
+                enviroCarDB.insertTrack(track);
+                trackIds.add(track.getTrackID());
+
+                List<Measurement> measurements = new ArrayList<>();
+                for (int j = 0; j < MEASUREMENTS_PER_TRACK; j++) {
+                    Measurement measurement = new MeasurementImpl(51.9 + j * 0.0001, 7.6);
+                    measurement.setTime(1000L * j);
+                    measurement.setTrackId(track.getTrackID());
+                    measurement.setProperty(Measurement.PropertyKey.SPEED, 50.0);
+                    measurements.add(measurement);
+                }
+                enviroCarDB.insertMeasurements(measurements);
+            }
+            checkpoint(database);
+            long sizeBefore = databaseSize(context);
+
+            enviroCarDB.deleteTracks(trackIds);
+            checkpoint(database);
+
+            Assert.assertThat(enviroCarDB.getAllTracks(true).blockingFirst().size(), CoreMatchers.is(0));
+            Cursor measurements = database.query("SELECT COUNT(*) FROM measurements");
+            measurements.moveToFirst();
+            Assert.assertThat(measurements.getInt(0), CoreMatchers.is(0));
+            measurements.close();
+            Assert.assertTrue(databaseSize(context) < sizeBefore);
+        } finally {
+            database.close();
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    private static void checkpoint(BriteDatabase database) {
+        // moves the write-ahead log into the database file, which is then truncated.
+        Cursor cursor = database.query("PRAGMA wal_checkpoint(TRUNCATE)");
+        cursor.moveToFirst();
+        cursor.close();
+    }
+
+    private static long databaseSize(Context context) {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        return file.length();
+    }
+}
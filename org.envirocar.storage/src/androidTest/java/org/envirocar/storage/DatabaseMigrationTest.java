@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.test.InstrumentationTestCase;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.internal.TrackSummary;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Upgrades fixture databases of all historical schema versions and verifies that no recorded
+ * data is lost.
+ */
+public class DatabaseMigrationTest extends InstrumentationTestCase {
+    private static final String FIXTURE_NAME = "migration-fixture";
+
+    // tracks table of an "envirocar" database at version 9, which lacks the metadata and car id
+    // columns.
+    private static final String TRACKS_V9 = "create table tracks (_id INTEGER primary key, " +
+            "name BLOB, descr BLOB, remoteId BLOB, state BLOB, length BLOB, start_time BLOB, " +
+            "end_time BLOB, car_manufacturer BLOB, car_model BLOB, fuel_type BLOB, " +
+            "engine_displacement BLOB, car_construction_year BLOB, vin BLOB);";
+
+    private static final String TRACKS_V11 = "create table tracks (_id INTEGER primary key, " +
+            "name BLOB, descr BLOB, remoteId BLOB, state BLOB, trackMetadata BLOB, length BLOB, " +
+            "start_time BLOB, end_time BLOB, car_manufacturer BLOB, car_model BLOB, " +
+            "fuel_type BLOB, engine_displacement BLOB, car_construction_year BLOB, vin BLOB, " +
+            "carId BLOB);";
+
+    private static final String LEGACY_MEASUREMENTS = "create table measurements (" +
+            "_id INTEGER primary key autoincrement, latitude BLOB, longitude BLOB, time BLOB, " +
+            "properties BLOB, track INTEGER);";
+
+    @Test
+    public void testMigrationFromVersion9() throws Exception {
+        assertMigration(9, TRACKS_V9);
+    }
+
+    @Test
+    public void testMigrationFromVersion10() throws Exception {
+        assertMigration(10, TRACKS_V11);
+    }
+
+    @Test
+    public void testMigrationFromVersion11() throws Exception {
+        assertMigration(11, TRACKS_V11);
+    }
+
+    @Test
+    public void testMigrationPathIsComplete() throws Exception {
+        for (int version = 9; version < DatabaseModule.DATABASE_VERSION; version++) {
+            Assert.assertNotNull(DatabaseMigrations.findMigrationPath(version,
+                    DatabaseModule.DATABASE_VERSION));
+        }
+    }
+
+    private void assertMigration(int version, String tracksSchema) {
+        Context context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(FIXTURE_NAME);
+
+        SupportSQLiteOpenHelper fixture = openHelper(context, new SupportSQLiteOpenHelper.Callback(version) {
+            @Override
+            public void onCreate(SupportSQLiteDatabase db) {
+                db.execSQL(tracksSchema);
+                db.execSQL(LEGACY_MEASUREMENTS);
+                db.execSQL("INSERT INTO tracks (_id, name, state) VALUES (1, 'fixture', 'FINISHED')");
+                db.execSQL("INSERT INTO measurements (latitude, longitude, time, properties, track) " +
+                        "VALUES (51.9, 7.6, 1000, '{\"SPEED\":42.5,\"RPM\":2000}', 1)");
+                db.execSQL("INSERT INTO measurements (latitude, longitude, time, properties, track) " +
+                        "VALUES (51.91, 7.61, 2000, '{\"SPEED\":44.0,\"UNKNOWN\":1}', 1)");
+            }
+
+            @Override
+            public void onUpgrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+            }
+        });
+        fixture.getWritableDatabase();
+        fixture.close();
+
+        SupportSQLiteOpenHelper helper = openHelper(context,
+                new EnviroCarDBCallback(DatabaseModule.DATABASE_VERSION));
+        SupportSQLiteDatabase db = helper.getWritableDatabase();
+        try {
+            Cursor tracks = db.query("SELECT * FROM tracks");
+            Assert.assertThat(tracks.getCount(), CoreMatchers.is(1));
+            for (String column : TrackTable.COLUMNS) {
+                Assert.assertTrue(column, tracks.getColumnIndex(column) != -1);
+            }
+            tracks.close();
+
+            Cursor measurements = db.query("SELECT * FROM measurements WHERE track = 1 ORDER BY time");
+            Assert.assertThat(measurements.getCount(), CoreMatchers.is(2));
+            measurements.moveToFirst();
+            Measurement first = MeasurementTable.fromCursor(measurements);
+            Assert.assertThat(first.getTime(), CoreMatchers.is(1000L));
+            Assert.assertThat(first.getLatitude(), CoreMatchers.is(51.9));
+            Assert.assertThat(first.getProperty(Measurement.PropertyKey.SPEED), CoreMatchers.is(42.5));
+            Assert.assertThat(first.getProperty(Measurement.PropertyKey.RPM), CoreMatchers.is(2000.0));
+            measurements.moveToNext();
+            Measurement second = MeasurementTable.fromCursor(measurements);
+            Assert.assertThat(second.getProperty(Measurement.PropertyKey.SPEED), CoreMatchers.is(44.0));
+            measurements.close();
+
+            Cursor index = db.query("SELECT name FROM sqlite_master WHERE type = 'index' " +
+                    "AND tbl_name = 'measurements'");
+            Assert.assertTrue(index.getCount() > 0);
+            index.close();
+
+            Cursor summaries = db.query("SELECT * FROM track_summaries WHERE track = 1");
+            Assert.assertTrue(summaries.moveToFirst());
+            TrackSummary summary = TrackSummaryTable.fromCursor(summaries);
+            Assert.assertThat(summary.getMeasurementCount(), CoreMatchers.is(2));
+            Assert.assertThat(summary.getDuration(), CoreMatchers.is(1000L));
+            Assert.assertThat(summary.getAverageSpeed(), CoreMatchers.is(43.25));
+            Assert.assertTrue(summary.getDistance() > 0);
+            summaries.close();
+        } finally {
+            helper.close();
+            context.deleteDatabase(FIXTURE_NAME);
+        }
+    }
+
+    private SupportSQLiteOpenHelper openHelper(Context context, SupportSQLiteOpenHelper.Callback callback) {
+        return new FrameworkSQLiteOpenHelperFactory().create(
+                SupportSQLiteOpenHelper.Configuration.builder(context)
+                        .name(FIXTURE_NAME)
+                        .callback(callback)
+                        .build());
+    }
+}
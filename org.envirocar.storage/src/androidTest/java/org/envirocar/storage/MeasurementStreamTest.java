@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
+/**
+ * Streams the measurements of a stored track with
+ * {@link EnviroCarDBImpl#getMeasurementsFlowable(Track.TrackId, long, long, java.util.Set)}.
+ */
+public class MeasurementStreamTest extends InstrumentationTestCase {
+    private static final String DATABASE_NAME = "stream-fixture";
+    private static final int NUM_MEASUREMENTS = 20;
+    private static final long START_TIME = 1500000000000L;
+
+    private Context context;
+    private BriteDatabase database;
+    private EnviroCarDBImpl enviroCarDB;
+    private Track track;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = DatabaseModule.openDatabase(context, new SqlBrite.Builder().build(),
+                DATABASE_NAME);
+        enviroCarDB = new EnviroCarDBImpl(database, Schedulers.trampoline());
+
+        track = new TrackImpl();
+        track.setName("stream");
+        track.setTrackStatus(Track.TrackStatus.FINISHED);
+        enviroCarDB.insertTrack(track);
+
+        // inserted in reverse order, thus the stream has to order by time.
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = NUM_MEASUREMENTS - 1; i >= 0; i--) {
+            Measurement measurement = new MeasurementImpl(51.9 + i * 0.0001, 7.6);
+            measurement.setTime(time(i));
+            measurement.setTrackId(track.getTrackID());
+            measurement.setProperty(Measurement.PropertyKey.SPEED, (double) i);
+            measurement.setProperty(Measurement.PropertyKey.RPM, 1000.0 + i);
+            measurements.add(measurement);
+        }
+        enviroCarDB.insertMeasurements(measurements);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+        super.tearDown();
+    }
+
+    @Test
+    public void testProjectionReadsOnlyRequestedProperties() {
+        List<Measurement> measurements = enviroCarDB.getMeasurementsFlowable(track.getTrackID(),
+                time(5), time(9), EnumSet.of(Measurement.PropertyKey.SPEED))
+                .toList().blockingGet();
+
+        // both bounds are inclusive.
+        Assert.assertThat(measurements.size(), CoreMatchers.is(5));
+        for (int i = 0; i < measurements.size(); i++) {
+            Measurement measurement = measurements.get(i);
+            Assert.assertThat(measurement.getTime(), CoreMatchers.is(time(5 + i)));
+            Assert.assertThat(measurement.getLatitude(), CoreMatchers.is(51.9 + (5 + i) * 0.0001));
+            Assert.assertThat(measurement.getLongitude(), CoreMatchers.is(7.6));
+            Assert.assertThat(measurement.getTrackId(), CoreMatchers.is(track.getTrackID()));
+            Assert.assertThat(measurement.getProperty(Measurement.PropertyKey.SPEED),
+                    CoreMatchers.is((double) 5 + i));
+            Assert.assertFalse(measurement.hasProperty(Measurement.PropertyKey.RPM));
+        }
+
+        // without properties, only the coordinates and the time are read.
+        Measurement position = enviroCarDB.getMeasurementsFlowable(track.getTrackID(),
+                Long.MIN_VALUE, Long.MAX_VALUE, EnumSet.noneOf(Measurement.PropertyKey.class))
+                .blockingFirst();
+        Assert.assertThat(position.getTime(), CoreMatchers.is(time(0)));
+        Assert.assertTrue(position.getAllProperties().isEmpty());
+    }
+
+    @Test
+    public void testAllPropertiesInTimeOrder() {
+        List<Measurement> measurements = enviroCarDB.getMeasurementsFlowable(track.getTrackID())
+                .toList().blockingGet();
+
+        Assert.assertThat(measurements.size(), CoreMatchers.is(NUM_MEASUREMENTS));
+        for (int i = 0; i < NUM_MEASUREMENTS; i++) {
+            Assert.assertThat(measurements.get(i).getTime(), CoreMatchers.is(time(i)));
+            Assert.assertThat(measurements.get(i).getProperty(Measurement.PropertyKey.RPM),
+                    CoreMatchers.is(1000.0 + i));
+        }
+    }
+
+    @Test
+    public void testEmitsOnlyRequestedMeasurements() {
+        TestSubscriber<Measurement> subscriber = enviroCarDB
+                .getMeasurementsFlowable(track.getTrackID()).test(0);
+        subscriber.assertNoValues();
+
+        subscriber.request(3);
+        subscriber.assertValueCount(3);
+        subscriber.assertNotComplete();
+
+        subscriber.request(2);
+        subscriber.assertValueCount(5);
+        Assert.assertThat(subscriber.values().get(4).getTime(), CoreMatchers.is(time(4)));
+
+        // nothing is emitted after the subscription has been cancelled.
+        subscriber.cancel();
+        subscriber.request(NUM_MEASUREMENTS);
+        subscriber.assertValueCount(5);
+        subscriber.assertNotComplete();
+
+        subscriber = enviroCarDB.getMeasurementsFlowable(track.getTrackID()).test(0);
+        subscriber.request(NUM_MEASUREMENTS + 1);
+        subscriber.assertValueCount(NUM_MEASUREMENTS);
+        subscriber.assertComplete();
+    }
+
+    @Test
+    public void testArchivedTrackKeepsTimeRange() {
+        Assert.assertTrue(enviroCarDB.archiveTrack(track.getTrackID()));
+
+        List<Measurement> measurements = enviroCarDB.getMeasurementsFlowable(track.getTrackID(),
+                time(5), time(9), EnumSet.of(Measurement.PropertyKey.SPEED))
+                .toList().blockingGet();
+        Assert.assertThat(measurements.size(), CoreMatchers.is(5));
+        Assert.assertThat(measurements.get(0).getTime(), CoreMatchers.is(time(5)));
+        Assert.assertThat(measurements.get(4).getTime(), CoreMatchers.is(time(9)));
+    }
+
+    private static long time(int index) {
+        return START_TIME + index * 1000L;
+    }
+}
@@ -25,10 +25,12 @@ import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.MeasurementImpl;
 import org.envirocar.core.entity.Track;
 import org.hamcrest.CoreMatchers;
-import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * To work on unit tests, switch the Test Artifact in the Build Variants view.
  */
@@ -44,14 +46,24 @@ public class MeasurementTableTest extends InstrumentationTestCase {
         m.setProperty(Measurement.PropertyKey.CONSUMPTION, 1.1);
         ContentValues vals = MeasurementTable.toContentValues(m);
 
-        Object props = vals.get(MeasurementTable.KEY_PROPERTIES);
-
-        JSONObject obj = new JSONObject(props.toString());
+        Assert.assertThat(vals.getAsDouble(MeasurementTable.getColumnName(
+                Measurement.PropertyKey.CONSUMPTION)), CoreMatchers.is(1.1));
+        Assert.assertThat(vals.getAsDouble(MeasurementTable.getColumnName(
+                Measurement.PropertyKey.SPEED)), CoreMatchers.is(Double.MAX_VALUE));
+        Assert.assertThat(vals.containsKey(MeasurementTable.getColumnName(
+                Measurement.PropertyKey.CALCULATED_MAF)), CoreMatchers.is(false));
+        Assert.assertThat(vals.containsKey(MeasurementTable.getColumnName(
+                Measurement.PropertyKey.CO2)), CoreMatchers.is(false));
+    }
 
-        Assert.assertThat(obj.get(Measurement.PropertyKey.CONSUMPTION.name()), CoreMatchers.is(1.1));
-        Assert.assertThat(obj.get(Measurement.PropertyKey.SPEED.name()), CoreMatchers.is(Double.MAX_VALUE));
-        Assert.assertThat(obj.has(Measurement.PropertyKey.CALCULATED_MAF.name()), CoreMatchers.is(false));
-        Assert.assertThat(obj.has(Measurement.PropertyKey.CO2.name()), CoreMatchers.is(false));
+    @Test
+    public void testColumnNamesAreUnique() throws Exception {
+        Set<String> columns = new HashSet<>();
+        for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+            Assert.assertTrue(columns.add(MeasurementTable.getColumnName(key)));
+        }
+        Assert.assertThat(columns.contains(MeasurementTable.KEY_TIME), CoreMatchers.is(false));
+        Assert.assertThat(columns.contains(MeasurementTable.KEY_TRACK), CoreMatchers.is(false));
     }
 
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Reads a stored track through a {@link PagedMeasurementList} with small pages.
+ */
+public class PagedMeasurementListTest extends InstrumentationTestCase {
+    private static final String DATABASE_NAME = "paging-fixture";
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_RESIDENT_PAGES = 2;
+    private static final int NUM_MEASUREMENTS = 35;
+    // measurements 9 and 10 share their time and are split by a page boundary.
+    private static final int TIE = 9;
+
+    private Context context;
+    private BriteDatabase database;
+    private Track track;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = DatabaseModule.openDatabase(context, new SqlBrite.Builder().build(),
+                DATABASE_NAME);
+        EnviroCarDBImpl enviroCarDB = new EnviroCarDBImpl(database, Schedulers.trampoline());
+
+        track = new TrackImpl();
+        track.setName("paged");
+        track.setTrackStatus(Track.TrackStatus.FINISHED);
+        enviroCarDB.insertTrack(track);
+
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < NUM_MEASUREMENTS; i++) {
+            Measurement measurement = new MeasurementImpl(51.9 + i * 0.0001, 7.6);
+            measurement.setTime(1500000000000L + (i > TIE ? i - 1 : i) * 1000L);
+            measurement.setTrackId(track.getTrackID());
+            measurement.setProperty(Measurement.PropertyKey.SPEED, (double) i);
+            measurements.add(measurement);
+        }
+        enviroCarDB.insertMeasurements(measurements);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+        super.tearDown();
+    }
+
+    @Test
+    public void testPageBoundaries() {
+        PagedMeasurementList list = newList();
+        Assert.assertThat(list.size(), CoreMatchers.is(NUM_MEASUREMENTS));
+
+        // the last page is only partially filled.
+        for (int i : new int[]{0, PAGE_SIZE - 1, PAGE_SIZE, 3 * PAGE_SIZE - 1, 3 * PAGE_SIZE,
+                NUM_MEASUREMENTS - 1}) {
+            Assert.assertThat(list.get(i).getProperty(Measurement.PropertyKey.SPEED),
+                    CoreMatchers.is((double) i));
+        }
+
+        try {
+            list.get(NUM_MEASUREMENTS);
+            Assert.fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            list.get(-1);
+            Assert.fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEqualTimesKeepTheirOrderAcrossPages() {
+        PagedMeasurementList list = newList();
+        Assert.assertThat(list.get(TIE).getTime(), CoreMatchers.is(list.get(TIE + 1).getTime()));
+
+        // the second page is loaded first.
+        Assert.assertThat(list.get(TIE + 1).getProperty(Measurement.PropertyKey.SPEED),
+                CoreMatchers.is((double) TIE + 1));
+        Assert.assertThat(list.get(TIE).getProperty(Measurement.PropertyKey.SPEED),
+                CoreMatchers.is((double) TIE));
+
+        List<Measurement> all = new ArrayList<>(list);
+        for (int i = 0; i < NUM_MEASUREMENTS; i++) {
+            Assert.assertThat(all.get(i).getProperty(Measurement.PropertyKey.SPEED),
+                    CoreMatchers.is((double) i));
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPageIsEvicted() {
+        PagedMeasurementList list = newList();
+        list.get(0);
+        list.get(PAGE_SIZE);
+        list.get(0);
+
+        // resident pages are not read again, thus changes only show up in reloaded pages.
+        database.execute("UPDATE " + MeasurementTable.TABLE_NAME + " SET " +
+                MeasurementTable.getColumnName(Measurement.PropertyKey.SPEED) + " = -1");
+
+        // loading the third page evicts the second one, which has been used least recently.
+        Assert.assertThat(list.get(2 * PAGE_SIZE).getProperty(Measurement.PropertyKey.SPEED),
+                CoreMatchers.is(-1.0));
+        Assert.assertThat(list.get(0).getProperty(Measurement.PropertyKey.SPEED),
+                CoreMatchers.is(0.0));
+        Assert.assertThat(list.get(PAGE_SIZE).getProperty(Measurement.PropertyKey.SPEED),
+                CoreMatchers.is(-1.0));
+    }
+
+    @Test
+    public void testSeriesIsReadColumnWise() {
+        PagedMeasurementList list = newList();
+        MeasurementSeries series = list.toMeasurementSeries();
+
+        Assert.assertThat(series.size(), CoreMatchers.is(NUM_MEASUREMENTS));
+        Assert.assertFalse(series.hasProperty(Measurement.PropertyKey.RPM));
+        for (int i = 0; i < NUM_MEASUREMENTS; i++) {
+            Assert.assertThat(series.getTime(i), CoreMatchers.is(list.get(i).getTime()));
+            Assert.assertThat(series.getLatitude(i), CoreMatchers.is(list.get(i).getLatitude()));
+            Assert.assertThat(series.getProperty(Measurement.PropertyKey.SPEED, i),
+                    CoreMatchers.is((double) i));
+        }
+    }
+
+    private PagedMeasurementList newList() {
+        return new PagedMeasurementList(database, track.getTrackID(), NUM_MEASUREMENTS,
+                PAGE_SIZE, MAX_RESIDENT_PAGES);
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.envirocar.core.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.CompositeDisposable;
+
+/**
+ * Counts the re-executed queries while a simulated ten minute recording at 1 Hz is written as
+ * fast as possible.
+ */
+public class QueryNotificationTest extends InstrumentationTestCase {
+    private static final Logger LOG = Logger.getLogger(QueryNotificationTest.class);
+
+    private static final String DATABASE_NAME = "notification-benchmark";
+    private static final int RECORDED_SECONDS = 600;
+
+    @Test
+    public void testNotificationsAreScopedAndCoalesced() throws Exception {
+        Context context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+
+        BriteDatabase database = DatabaseModule.openDatabase(context,
+                DatabaseModule.newSqlBrite(), DATABASE_NAME);
+        EnviroCarDBImpl enviroCarDB = new EnviroCarDBImpl(database);
+        CompositeDisposable disposables = new CompositeDisposable();
+        try {
+            Track other = insertTrack(enviroCarDB, Track.TrackStatus.FINISHED);
+            enviroCarDB.insertMeasurement(createMeasurement(other, 0));
+            Track recording = insertTrack(enviroCarDB, Track.TrackStatus.ONGOING);
+            enviroCarDB.insertMeasurement(createMeasurement(recording, 0));
+
+            AtomicInteger otherQueries = new AtomicInteger();
+            AtomicInteger recordingQueries = new AtomicInteger();
+            disposables.add(enviroCarDB.fetchTrack(Observable.just(other), false)
+                    .subscribe(track -> otherQueries.incrementAndGet()));
+            disposables.add(enviroCarDB.fetchTrack(Observable.just(recording), false)
+                    .subscribe(track -> recordingQueries.incrementAndGet()));
+            Thread.sleep(2 * DatabaseModule.QUERY_COALESCE_WINDOW_MILLIS);
+
+            long start = System.currentTimeMillis();
+            for (int i = 1; i <= RECORDED_SECONDS; i++) {
+                Measurement measurement = createMeasurement(recording, i * 1000L);
+                recording.setEndTime(measurement.getTime());
+                enviroCarDB.appendMeasurements(recording, Collections.singletonList(measurement));
+            }
+            long duration = System.currentTimeMillis() - start;
+            Thread.sleep(2 * DatabaseModule.QUERY_COALESCE_WINDOW_MILLIS);
+
+            LOG.info(String.format("%s writes in %s ms: %s queries of the recording track, " +
+                            "%s queries of the other track", RECORDED_SECONDS, duration,
+                    recordingQueries.get(), otherQueries.get()));
+
+            // queries of other tracks are not notified at all.
+            Assert.assertEquals(1, otherQueries.get());
+            // queries of the recording track are re-executed at most once per window.
+            long maxQueries = 2 + duration / DatabaseModule.QUERY_COALESCE_WINDOW_MILLIS + 1;
+            Assert.assertTrue(recordingQueries.get() + " queries", recordingQueries.get() <= maxQueries);
+            Assert.assertTrue(recordingQueries.get() > 1);
+        } finally {
+            disposables.dispose();
+            database.close();
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    private static Track insertTrack(EnviroCarDBImpl enviroCarDB, Track.TrackStatus status)
+            throws Exception {
+        Track track = new TrackImpl();
+        track.setName("benchmark");
+        track.setTrackStatus(status);
+        track.setLength(0.0);
+        enviroCarDB.insertTrack(track);
+        return track;
+    }
+
+    private static Measurement createMeasurement(Track track, long time) {
+        Measurement measurement = new MeasurementImpl(51.9, 7.6);
+        measurement.setTime(time);
+        measurement.setTrackId(track.getTrackID());
+        measurement.setProperty(Measurement.PropertyKey.SPEED, 50.0);
+        return measurement;
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+/**
+ * Enforces retention policies on a populated database with a virtual clock.
+ */
+public class StorageRetentionTest extends InstrumentationTestCase {
+    private static final String DATABASE_NAME = "retention-fixture";
+    private static final int MEASUREMENTS_PER_TRACK = 100;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private Context context;
+    private BriteDatabase database;
+    private EnviroCarDBImpl enviroCarDB;
+    private TestScheduler scheduler;
+
+    private Track oldUploaded;
+    private Track recentUploaded;
+    private Track oldLocal;
+    private Track recentLocal;
+    private Track ongoing;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = DatabaseModule.openDatabase(context, new SqlBrite.Builder().build(),
+                DATABASE_NAME);
+        enviroCarDB = new EnviroCarDBImpl(database, Schedulers.trampoline());
+        scheduler = new TestScheduler();
+        scheduler.advanceTimeTo(400 * DAY, TimeUnit.MILLISECONDS);
+
+        oldUploaded = insertTrack("remote-1", Track.TrackStatus.FINISHED, 10 * DAY);
+        recentUploaded = insertTrack("remote-2", Track.TrackStatus.FINISHED, 300 * DAY);
+        oldLocal = insertTrack(null, Track.TrackStatus.FINISHED, 5 * DAY);
+        recentLocal = insertTrack(null, Track.TrackStatus.FINISHED, 350 * DAY);
+        ongoing = insertTrack(null, Track.TrackStatus.ONGOING, 399 * DAY);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+        super.tearDown();
+    }
+
+    @Test
+    public void testMaxAgeDeletesExpiredUploadedTracks() {
+        StorageRetention retention = new StorageRetention(database, enviroCarDB, scheduler);
+        retention.setPolicy(new RetentionPolicy(RetentionPolicy.UNLIMITED, 365 * DAY, false));
+
+        retention.enforce();
+        scheduler.triggerActions();
+
+        Assert.assertFalse(retention.isRunning());
+        Assert.assertFalse(exists(oldUploaded));
+        Assert.assertTrue(exists(recentUploaded));
+        // local tracks are never deleted, regardless of their age.
+        Assert.assertTrue(exists(oldLocal));
+        Assert.assertThat(countMeasurements(oldLocal), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+    }
+
+    @Test
+    public void testHeadersOnlyRunsInSlices() {
+        StorageRetention retention = new StorageRetention(database, enviroCarDB, scheduler, 1);
+        retention.setPolicy(new RetentionPolicy(RetentionPolicy.UNLIMITED,
+                RetentionPolicy.UNLIMITED, true));
+
+        retention.enforce();
+        scheduler.triggerActions();
+
+        // the first slice only trims the oldest uploaded track.
+        Assert.assertTrue(retention.isRunning());
+        Assert.assertThat(countMeasurements(oldUploaded), CoreMatchers.is(0));
+        Assert.assertThat(countMeasurements(recentUploaded), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+
+        scheduler.advanceTimeBy(StorageRetention.SLICE_PAUSE, TimeUnit.MILLISECONDS);
+        Assert.assertThat(countMeasurements(recentUploaded), CoreMatchers.is(0));
+
+        scheduler.advanceTimeBy(StorageRetention.SLICE_PAUSE, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(retention.isRunning());
+
+        // headers and summaries are kept.
+        Assert.assertTrue(exists(oldUploaded));
+        Assert.assertThat(enviroCarDB.getTrack(oldUploaded.getTrackID(), true).blockingFirst()
+                .getEndTime(), CoreMatchers.is(10 * DAY));
+        Assert.assertThat(countMeasurements(oldLocal), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+    }
+
+    @Test
+    public void testMaxDatabaseSizeDeletesUploadedAndArchivesLocalTracks() {
+        StorageRetention retention = new StorageRetention(database, enviroCarDB, scheduler, 1);
+        // a limit that can never be satisfied.
+        retention.setPolicy(new RetentionPolicy(0, RetentionPolicy.UNLIMITED, false));
+
+        retention.enforce();
+        for (int i = 0; i < 10 && retention.isRunning(); i++) {
+            scheduler.advanceTimeBy(StorageRetention.SLICE_PAUSE, TimeUnit.MILLISECONDS);
+        }
+
+        Assert.assertFalse(retention.isRunning());
+        Assert.assertFalse(exists(oldUploaded));
+        Assert.assertFalse(exists(recentUploaded));
+
+        // finished local tracks are archived, but still readable.
+        Assert.assertThat(countMeasurements(oldLocal), CoreMatchers.is(0));
+        Assert.assertThat(countMeasurements(recentLocal), CoreMatchers.is(0));
+        Assert.assertThat(enviroCarDB.getTrack(oldLocal.getTrackID()).blockingFirst()
+                .getMeasurements().size(), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+
+        // the recording track is left untouched.
+        Assert.assertThat(countMeasurements(ongoing), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+    }
+
+    @Test
+    public void testSliceArchivesAtMostOneTrack() {
+        StorageRetention retention = new StorageRetention(database, enviroCarDB, scheduler);
+        // a limit that can never be satisfied.
+        retention.setPolicy(new RetentionPolicy(0, RetentionPolicy.UNLIMITED, false));
+
+        retention.enforce();
+        scheduler.triggerActions();
+
+        // the first slice deletes the uploaded tracks and stops before archiving.
+        Assert.assertTrue(retention.isRunning());
+        Assert.assertFalse(exists(recentUploaded));
+        Assert.assertThat(countMeasurements(oldLocal), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+
+        scheduler.advanceTimeBy(StorageRetention.SLICE_PAUSE, TimeUnit.MILLISECONDS);
+        Assert.assertThat(countMeasurements(oldLocal), CoreMatchers.is(0));
+        Assert.assertThat(countMeasurements(recentLocal), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+
+        // archived tracks are not selected again.
+        scheduler.advanceTimeBy(StorageRetention.SLICE_PAUSE, TimeUnit.MILLISECONDS);
+        Assert.assertThat(countMeasurements(recentLocal), CoreMatchers.is(0));
+        scheduler.advanceTimeBy(StorageRetention.SLICE_PAUSE, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(retention.isRunning());
+    }
+
+    @Test
+    public void testDefaultPolicyKeepsAllTracks() {
+        StorageRetention retention = new StorageRetention(database, enviroCarDB, scheduler);
+
+        retention.enforce();
+        scheduler.triggerActions();
+
+        Assert.assertFalse(retention.isRunning());
+        Assert.assertTrue(exists(oldUploaded));
+        Assert.assertThat(countMeasurements(oldUploaded), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+        Assert.assertThat(countMeasurements(oldLocal), CoreMatchers.is(MEASUREMENTS_PER_TRACK));
+    }
+
+    private Track insertTrack(String remoteId, Track.TrackStatus status, long endTime)
+            throws Exception {
+        Track track = new TrackImpl();
+        track.setName("track " + endTime);
+        track.setRemoteID(remoteId);
+        track.setTrackStatus(status);
+        track.setLength(0.0);
+        track.setStartTime(endTime - MEASUREMENTS_PER_TRACK * 1000L);
+        track.setEndTime(endTime);
+        enviroCarDB.insertTrack(track);
+
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < MEASUREMENTS_PER_TRACK; i++) {
+            Measurement measurement = new MeasurementImpl(51.9 + i * 0.0001, 7.6);
+            measurement.setTime(endTime - (MEASUREMENTS_PER_TRACK - i - 1) * 1000L);
+            measurement.setTrackId(track.getTrackID());
+            measurement.setProperty(Measurement.PropertyKey.SPEED, 50.0);
+            measurements.add(measurement);
+        }
+        enviroCarDB.insertMeasurements(measurements);
+        return track;
+    }
+
+    private boolean exists(Track track) {
+        Cursor cursor = database.query("SELECT 1 FROM " + TrackTable.TABLE_TRACK +
+                " WHERE " + TrackTable.KEY_TRACK_ID + " = " + track.getTrackID().getId());
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private int countMeasurements(Track track) {
+        Cursor cursor = database.query("SELECT COUNT(*) FROM " + MeasurementTable.TABLE_NAME +
+                " WHERE " + MeasurementTable.KEY_TRACK + " = " + track.getTrackID().getId());
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
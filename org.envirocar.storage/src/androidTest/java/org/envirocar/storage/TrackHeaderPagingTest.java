@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Pages through the local tracks with {@link EnviroCarDBImpl#getLocalTrackHeaders(Track, int)}.
+ */
+public class TrackHeaderPagingTest extends InstrumentationTestCase {
+    private static final String DATABASE_NAME = "header-paging-fixture";
+    private static final long START_TIME = 1500000000000L;
+    private static final int PAGE_SIZE = 2;
+
+    private Context context;
+    private BriteDatabase database;
+    private EnviroCarDBImpl enviroCarDB;
+
+    // the local tracks in their expected order.
+    private List<Track> expected;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = DatabaseModule.openDatabase(context, new SqlBrite.Builder().build(),
+                DATABASE_NAME);
+        enviroCarDB = new EnviroCarDBImpl(database, Schedulers.trampoline());
+
+        Track oldest = insertTrack(START_TIME, 3);
+        Track tieLow = insertTrack(START_TIME + 60000, 4);
+        Track tieHigh = insertTrack(START_TIME + 60000, 5);
+        Track newest = insertTrack(START_TIME + 120000, 6);
+        // tracks without measurements have no start time and are listed last.
+        Track empty = insertTrack(START_TIME, 0);
+
+        Track remote = insertTrack(START_TIME + 180000, 2);
+        enviroCarDB.updateTrackRemoteID(remote, "remote");
+
+        // equal start times are ordered by descending id.
+        expected = new ArrayList<>();
+        expected.add(newest);
+        expected.add(tieHigh);
+        expected.add(tieLow);
+        expected.add(oldest);
+        expected.add(empty);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+        super.tearDown();
+    }
+
+    @Test
+    public void testPagesFollowStartTimeAndId() {
+        List<Track> headers = new ArrayList<>();
+        List<Track> page = enviroCarDB.getLocalTrackHeaders(null, PAGE_SIZE).blockingFirst();
+        while (!page.isEmpty()) {
+            Assert.assertTrue(page.size() <= PAGE_SIZE);
+            headers.addAll(page);
+            page = enviroCarDB.getLocalTrackHeaders(page.get(page.size() - 1), PAGE_SIZE)
+                    .blockingFirst();
+        }
+
+        Assert.assertThat(ids(headers), CoreMatchers.is(ids(expected)));
+    }
+
+    @Test
+    public void testTieIsSplitByPageBoundary() {
+        // the first page ends with the first of the two tracks sharing their start time.
+        List<Track> first = enviroCarDB.getLocalTrackHeaders(null, PAGE_SIZE).blockingFirst();
+        Assert.assertThat(first.get(1).getTrackID(), CoreMatchers.is(expected.get(1).getTrackID()));
+
+        List<Track> second = enviroCarDB.getLocalTrackHeaders(first.get(1), PAGE_SIZE)
+                .blockingFirst();
+        Assert.assertThat(ids(second), CoreMatchers.is(ids(expected.subList(2, 4))));
+    }
+
+    @Test
+    public void testPagesAreStableWhenTracksAreAdded() throws Exception {
+        List<Track> first = enviroCarDB.getLocalTrackHeaders(null, PAGE_SIZE).blockingFirst();
+
+        // a new recording starts after the first page has been shown.
+        insertTrack(START_TIME + 240000, 2);
+
+        List<Track> second = enviroCarDB.getLocalTrackHeaders(first.get(1), PAGE_SIZE)
+                .blockingFirst();
+        Assert.assertThat(ids(second), CoreMatchers.is(ids(expected.subList(2, 4))));
+    }
+
+    @Test
+    public void testHeadersAreTakenFromTheSummary() {
+        Track header = enviroCarDB.getLocalTrackHeaders(null, 1).blockingFirst().get(0);
+        Assert.assertThat(header.getTrackID(), CoreMatchers.is(expected.get(0).getTrackID()));
+        Assert.assertThat(header.getStartTime(), CoreMatchers.is(START_TIME + 120000));
+        Assert.assertThat(header.getEndTime(), CoreMatchers.is(START_TIME + 125000));
+        Assert.assertTrue(header.hasProperty(Measurement.PropertyKey.SPEED));
+
+        // the measurements are only read once they are accessed.
+        List<Measurement> measurements = header.getMeasurements();
+        Assert.assertThat(measurements.size(), CoreMatchers.is(6));
+        Assert.assertThat(measurements.get(5).getTime(), CoreMatchers.is(START_TIME + 125000));
+    }
+
+    private Track insertTrack(long startTime, int numMeasurements) throws Exception {
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < numMeasurements; i++) {
+            Measurement measurement = new MeasurementImpl(51.9 + i * 0.0001, 7.6);
+            measurement.setTime(startTime + i * 1000L);
+            measurement.setProperty(Measurement.PropertyKey.SPEED, 50.0);
+            measurements.add(measurement);
+        }
+
+        Track track = new TrackImpl();
+        track.setName("track " + startTime);
+        track.setTrackStatus(Track.TrackStatus.FINISHED);
+        track.setMeasurements(measurements);
+        enviroCarDB.insertTrack(track);
+        return track;
+    }
+
+    private static List<Long> ids(List<Track> tracks) {
+        List<Long> ids = new ArrayList<>();
+        for (Track track : tracks) {
+            ids.add(track.getTrackID().getId());
+        }
+        return ids;
+    }
+}
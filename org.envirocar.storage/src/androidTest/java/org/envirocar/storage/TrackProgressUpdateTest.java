@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.test.InstrumentationTestCase;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.CarImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Updates a recorded track with {@link EnviroCarDBImpl#updateTrackProgress(Track)}.
+ */
+public class TrackProgressUpdateTest extends InstrumentationTestCase {
+    private static final String DATABASE_NAME = "progress-fixture";
+    private static final long START_TIME = 1500000000000L;
+
+    private Context context;
+    private BriteDatabase database;
+    private EnviroCarDBImpl enviroCarDB;
+    private Track track;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = DatabaseModule.openDatabase(context, new SqlBrite.Builder().build(),
+                DATABASE_NAME);
+        enviroCarDB = new EnviroCarDBImpl(database, Schedulers.trampoline());
+
+        track = new TrackImpl();
+        track.setName("recording");
+        track.setDescription("description");
+        track.setTrackStatus(Track.TrackStatus.ONGOING);
+        track.setCar(new CarImpl("car", "VW", "Golf", Car.FuelType.GASOLINE, 2010, 1400));
+        track.setStartTime(START_TIME);
+        track.setEndTime(START_TIME);
+        track.setLength(0.0);
+        enviroCarDB.insertTrack(track);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+        super.tearDown();
+    }
+
+    @Test
+    public void testOnlyEndTimeAndLengthAreUpdated() {
+        Map<String, String> before = readRow();
+
+        // attributes other than the progress are only written by a full update.
+        track.setName("renamed");
+        track.setDescription("changed");
+        track.setTrackStatus(Track.TrackStatus.FINISHED);
+        track.setEndTime(START_TIME + 60000);
+        track.setLength(1.5);
+        Assert.assertTrue(enviroCarDB.updateTrackProgress(track));
+
+        Map<String, String> after = readRow();
+        Assert.assertThat(after.remove(TrackTable.KEY_TRACK_END_TIME),
+                CoreMatchers.is(String.valueOf(START_TIME + 60000)));
+        Assert.assertThat(Double.valueOf(after.remove(TrackTable.KEY_TRACK_LENGTH)),
+                CoreMatchers.is(1.5));
+        before.remove(TrackTable.KEY_TRACK_END_TIME);
+        before.remove(TrackTable.KEY_TRACK_LENGTH);
+        Assert.assertThat(after, CoreMatchers.is(before));
+    }
+
+    @Test
+    public void testRepeatedUpdatesRebindAllParameters() {
+        track.setEndTime(START_TIME + 1000);
+        track.setLength(0.5);
+        Assert.assertTrue(enviroCarDB.updateTrackProgress(track));
+
+        // the compiled statement is reused, thus stale bindings must not leak into this update.
+        track.setEndTime(null);
+        track.setLength(null);
+        Assert.assertTrue(enviroCarDB.updateTrackProgress(track));
+        Map<String, String> row = readRow();
+        Assert.assertNull(row.get(TrackTable.KEY_TRACK_END_TIME));
+        Assert.assertNull(row.get(TrackTable.KEY_TRACK_LENGTH));
+
+        Track deleted = new TrackImpl();
+        deleted.setTrackID(new Track.TrackId(track.getTrackID().getId() + 1));
+        Assert.assertFalse(enviroCarDB.updateTrackProgress(deleted));
+    }
+
+    private Map<String, String> readRow() {
+        Cursor cursor = database.query("SELECT * FROM " + TrackTable.TABLE_TRACK +
+                " WHERE " + TrackTable.KEY_TRACK_ID + "=" + track.getTrackID().getId());
+        try {
+            Assert.assertTrue(cursor.moveToFirst());
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < cursor.getColumnCount(); i++) {
+                row.put(cursor.getColumnName(i), cursor.getString(i));
+            }
+            return row;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import org.envirocar.core.entity.Measurement;
+
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import io.reactivex.functions.Function;
+
+/**
+ * Read-only list of the measurements of an archived track, which are decoded on first access.
+ * This allows to hand out tracks whose measurements are possibly never accessed, e.g., in track
+ * lists, without decoding their archives.
+ *
+ * @author dewall
+ */
+class ArchivedMeasurementList extends AbstractList<Measurement> {
+
+    private final int size;
+    private final Function<Long, List<Measurement>> decoder;
+    private final long trackId;
+    private List<Measurement> measurements;
+
+    /**
+     * Constructor.
+     *
+     * @param trackId the id of the archived track.
+     * @param size    the number of archived measurements.
+     * @param decoder the function reading and decoding the archive of a track.
+     */
+    ArchivedMeasurementList(long trackId, int size, Function<Long, List<Measurement>> decoder) {
+        this.trackId = trackId;
+        this.size = size;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public synchronized Measurement get(int index) {
+        if (measurements == null) {
+            List<Measurement> decoded;
+            try {
+                decoded = decoder.apply(trackId);
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to decode archive of track " + trackId, e);
+            }
+            if (decoded == null) {
+                // the track has been deleted or reprocessed since this list has been created.
+                throw new ConcurrentModificationException(
+                        "Archive of track " + trackId + " no longer exists");
+            }
+            measurements = decoded;
+        }
+        return measurements.get(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
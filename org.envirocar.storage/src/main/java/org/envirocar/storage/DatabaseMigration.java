@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * A single step of the database schema migration that upgrades a database from
+ * {@link #startVersion} to {@link #endVersion} without losing its contents.
+ *
+ * @author dewall
+ */
+abstract class DatabaseMigration {
+
+    final int startVersion;
+    final int endVersion;
+
+    /**
+     * Constructor.
+     *
+     * @param startVersion the version of the database this migration starts from.
+     * @param endVersion   the version of the database after this migration.
+     */
+    DatabaseMigration(int startVersion, int endVersion) {
+        this.startVersion = startVersion;
+        this.endVersion = endVersion;
+    }
+
+    /**
+     * Applies the migration. This is executed within the upgrade transaction of the database.
+     *
+     * @param db the database to migrate.
+     */
+    abstract void migrate(SupportSQLiteDatabase db);
+
+    @Override
+    public String toString() {
+        return String.format("Migration[%s -> %s]", startVersion, endVersion);
+    }
+}
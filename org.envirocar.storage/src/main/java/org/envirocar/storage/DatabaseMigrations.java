@@ -0,0 +1,374 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.internal.TrackSummary;
+import org.envirocar.core.logging.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All schema migrations of the "envirocar" database, starting at version 9. The separate legacy
+ * "obd2" database of {@link EnviroCarDBOpenHelper} is neither migrated nor imported.
+ *
+ * @author dewall
+ */
+final class DatabaseMigrations {
+    private static final Logger LOG = Logger.getLogger(DatabaseMigrations.class);
+
+    /**
+     * Versions 9 to 11 share the measurement layout with JSON encoded properties, but older
+     * databases may lack track columns that were added over time. This adds missing columns.
+     */
+    static final DatabaseMigration MIGRATION_9_10 = new DatabaseMigration(9, 10) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            addMissingTrackColumns(db);
+        }
+    };
+
+    static final DatabaseMigration MIGRATION_10_11 = new DatabaseMigration(10, 11) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            addMissingTrackColumns(db);
+        }
+    };
+
+    /**
+     * Moves all measurements from the JSON encoded properties column into typed columns.
+     */
+    static final DatabaseMigration MIGRATION_11_12 = new DatabaseMigration(11, 12) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            migrateToTypedMeasurements(db);
+        }
+    };
+
+    /**
+     * Adds the index on track and time of the measurements table.
+     */
+    static final DatabaseMigration MIGRATION_12_13 = new DatabaseMigration(12, 13) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            db.execSQL(MeasurementTable.CREATE_INDEX);
+        }
+    };
+
+    /**
+     * Adds the track summaries table and computes the summaries of all existing tracks.
+     */
+    static final DatabaseMigration MIGRATION_13_14 = new DatabaseMigration(13, 14) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            db.execSQL(TrackSummaryTable.CREATE);
+            rebuildTrackSummaries(db);
+        }
+    };
+
+    /**
+     * Adds the table of archived track measurements.
+     */
+    static final DatabaseMigration MIGRATION_14_15 = new DatabaseMigration(14, 15) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            db.execSQL(TrackArchiveTable.CREATE);
+        }
+    };
+
+    /**
+     * Adds the property counts to the track summaries.
+     */
+    static final DatabaseMigration MIGRATION_15_16 = new DatabaseMigration(15, 16) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            // the column already exists if the summaries table has been created by 13 to 14.
+            Set<String> columns = getColumnNames(db, TrackSummaryTable.TABLE_NAME);
+            if (!columns.contains(TrackSummaryTable.KEY_PROPERTY_COUNTS)) {
+                db.execSQL("ALTER TABLE " + TrackSummaryTable.TABLE_NAME +
+                        " ADD COLUMN " + TrackSummaryTable.KEY_PROPERTY_COUNTS + " TEXT");
+            }
+            countSummaryProperties(db);
+        }
+    };
+
+    /**
+     * Adds the accumulated statistics to the track summaries. The statistics of existing tracks
+     * are left empty and computed from the measurements when required.
+     */
+    static final DatabaseMigration MIGRATION_16_17 = new DatabaseMigration(16, 17) {
+        @Override
+        void migrate(SupportSQLiteDatabase db) {
+            Set<String> columns = getColumnNames(db, TrackSummaryTable.TABLE_NAME);
+            addSummaryColumn(db, columns, TrackSummaryTable.KEY_STATISTICS_COUNT, "INTEGER");
+            addSummaryColumn(db, columns, TrackSummaryTable.KEY_FUEL_CONSUMPTION_SUM, "REAL");
+            addSummaryColumn(db, columns, TrackSummaryTable.KEY_FUEL_CONSUMPTION_COUNT, "INTEGER");
+            addSummaryColumn(db, columns, TrackSummaryTable.KEY_CO2_EMISSION_SUM, "REAL");
+        }
+    };
+
+    static final List<DatabaseMigration> ALL = Collections.unmodifiableList(new ArrayList<DatabaseMigration>() {
+        {
+            add(MIGRATION_9_10);
+            add(MIGRATION_10_11);
+            add(MIGRATION_11_12);
+            add(MIGRATION_12_13);
+            add(MIGRATION_13_14);
+            add(MIGRATION_14_15);
+            add(MIGRATION_15_16);
+            add(MIGRATION_16_17);
+        }
+    });
+
+    private DatabaseMigrations() {
+    }
+
+    /**
+     * Resolves the ordered list of migrations that upgrade a database step by step.
+     *
+     * @param oldVersion the current version of the database.
+     * @param newVersion the target version of the database.
+     * @return the migrations to apply, or null if there is no complete migration path.
+     */
+    static List<DatabaseMigration> findMigrationPath(int oldVersion, int newVersion) {
+        List<DatabaseMigration> path = new ArrayList<>();
+        int version = oldVersion;
+        while (version < newVersion) {
+            DatabaseMigration next = null;
+            for (DatabaseMigration migration : ALL) {
+                if (migration.startVersion == version && migration.endVersion <= newVersion) {
+                    next = migration;
+                    break;
+                }
+            }
+            if (next == null) {
+                return null;
+            }
+            path.add(next);
+            version = next.endVersion;
+        }
+        return path;
+    }
+
+    /**
+     * Recomputes the summaries of all tracks from their measurements.
+     *
+     * @param db the database to repair.
+     */
+    static void rebuildTrackSummaries(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TrackSummaryTable.TABLE_NAME);
+        List<TrackSummary> summaries = TrackSummaryTable.fromMeasurementCursor(
+                db.query(TrackSummaryTable.rebuildQuery(null)));
+        for (TrackSummary summary : summaries) {
+            db.insert(TrackSummaryTable.TABLE_NAME, SQLiteDatabase.CONFLICT_REPLACE,
+                    TrackSummaryTable.toContentValues(summary));
+        }
+        LOG.info(String.format("Rebuilt the summaries of %s tracks.", summaries.size()));
+    }
+
+    /**
+     * Stores the property counts of all track summaries. Measurement rows are counted per column
+     * by SQLite, archived tracks are decoded once.
+     *
+     * @param db the database to migrate.
+     */
+    private static void countSummaryProperties(SupportSQLiteDatabase db) {
+        Measurement.PropertyKey[] keys = Measurement.PropertyKey.values();
+        StringBuilder sql = new StringBuilder("SELECT ").append(MeasurementTable.KEY_TRACK);
+        for (Measurement.PropertyKey key : keys) {
+            sql.append(", COUNT(").append(MeasurementTable.getColumnName(key)).append(")");
+        }
+        sql.append(" FROM ").append(MeasurementTable.TABLE_NAME)
+                .append(" GROUP BY ").append(MeasurementTable.KEY_TRACK);
+
+        Cursor cursor = db.query(sql.toString());
+        try {
+            while (cursor.moveToNext()) {
+                Map<Measurement.PropertyKey, Integer> counts = new EnumMap<>(Measurement.PropertyKey.class);
+                for (Measurement.PropertyKey key : keys) {
+                    int count = cursor.getInt(key.ordinal() + 1);
+                    if (count > 0) {
+                        counts.put(key, count);
+                    }
+                }
+                storePropertyCounts(db, cursor.getLong(0), counts);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Cursor archives = db.query("SELECT " + TrackArchiveTable.KEY_TRACK + ", " +
+                TrackArchiveTable.KEY_DATA + " FROM " + TrackArchiveTable.TABLE_NAME);
+        try {
+            while (archives.moveToNext()) {
+                Track.TrackId trackId = new Track.TrackId(archives.getLong(0));
+                TrackSummary summary = new TrackSummary(trackId);
+                try {
+                    for (Measurement measurement : MeasurementArchiveCodec.decode(archives.getBlob(1), trackId)) {
+                        summary.add(measurement);
+                    }
+                } catch (IOException e) {
+                    LOG.error(String.format("Unable to decode archive of track %s", trackId), e);
+                }
+                storePropertyCounts(db, trackId.getId(), summary.getPropertyCounts());
+            }
+        } finally {
+            archives.close();
+        }
+    }
+
+    private static void storePropertyCounts(SupportSQLiteDatabase db, long trackId,
+                                            Map<Measurement.PropertyKey, Integer> counts) {
+        ContentValues values = new ContentValues();
+        values.put(TrackSummaryTable.KEY_PROPERTY_COUNTS, TrackSummaryTable.encodePropertyCounts(counts));
+        db.update(TrackSummaryTable.TABLE_NAME, SQLiteDatabase.CONFLICT_NONE, values,
+                TrackSummaryTable.KEY_TRACK + "=" + trackId, null);
+    }
+
+    private static void addMissingTrackColumns(SupportSQLiteDatabase db) {
+        Set<String> existing = getColumnNames(db, TrackTable.TABLE_TRACK);
+        for (String column : TrackTable.COLUMNS) {
+            if (!existing.contains(column)) {
+                LOG.info(String.format("Adding missing column %s to the tracks table.", column));
+                db.execSQL("ALTER TABLE " + TrackTable.TABLE_TRACK + " ADD COLUMN " + column + " BLOB");
+            }
+        }
+    }
+
+    /**
+     * Adds a column to the track summaries, unless the table has been created with it.
+     */
+    private static void addSummaryColumn(SupportSQLiteDatabase db, Set<String> columns, String column, String type) {
+        if (!columns.contains(column)) {
+            db.execSQL("ALTER TABLE " + TrackSummaryTable.TABLE_NAME + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    private static Set<String> getColumnNames(SupportSQLiteDatabase db, String table) {
+        Set<String> columns = new HashSet<>();
+        Cursor cursor = db.query("PRAGMA table_info(" + table + ")");
+        try {
+            int name = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(name));
+            }
+        } finally {
+            cursor.close();
+        }
+        return columns;
+    }
+
+    /**
+     * Moves all measurements from the JSON encoded properties column into the typed per-property
+     * columns. The table is rebuilt and swapped in place, so that the recorded tracks are kept.
+     *
+     * @param db the database to migrate.
+     */
+    private static void migrateToTypedMeasurements(SupportSQLiteDatabase db) {
+        String typedTable = MeasurementTable.TABLE_NAME + "_typed";
+        db.execSQL("DROP TABLE IF EXISTS " + typedTable);
+        db.execSQL(MeasurementTable.createStatement(typedTable));
+
+        SupportSQLiteStatement insert = db.compileStatement(
+                MeasurementTable.insertStatement(typedTable));
+        Cursor cursor = db.query("SELECT * FROM " + MeasurementTable.TABLE_NAME +
+                " ORDER BY " + MeasurementTable.KEY_ROWID + " ASC");
+        int migrated = 0;
+        try {
+            int latitude = cursor.getColumnIndex(MeasurementTable.KEY_LATITUDE);
+            int longitude = cursor.getColumnIndex(MeasurementTable.KEY_LONGITUDE);
+            int time = cursor.getColumnIndex(MeasurementTable.KEY_TIME);
+            int track = cursor.getColumnIndex(MeasurementTable.KEY_TRACK);
+            int properties = cursor.getColumnIndex(MeasurementTable.KEY_LEGACY_PROPERTIES);
+
+            while (cursor.moveToNext()) {
+                Measurement measurement = new MeasurementImpl();
+                measurement.setLatitude(cursor.getDouble(latitude));
+                measurement.setLongitude(cursor.getDouble(longitude));
+                measurement.setTime(cursor.getLong(time));
+                measurement.setTrackId(new Track.TrackId(cursor.getLong(track)));
+                if (properties != -1) {
+                    readLegacyProperties(cursor.getString(properties), measurement);
+                }
+
+                MeasurementTable.bind(insert, measurement);
+                insert.executeInsert();
+                migrated++;
+            }
+        } finally {
+            cursor.close();
+            closeQuietly(insert);
+        }
+
+        db.execSQL(MeasurementTable.DELETE);
+        db.execSQL("ALTER TABLE " + typedTable + " RENAME TO " + MeasurementTable.TABLE_NAME);
+        LOG.info(String.format("Migrated %s measurements to typed columns.", migrated));
+    }
+
+    private static void closeQuietly(SupportSQLiteStatement statement) {
+        try {
+            statement.close();
+        } catch (IOException e) {
+            LOG.warn(e.getMessage(), e);
+        }
+    }
+
+    private static void readLegacyProperties(String rawData, Measurement measurement) {
+        if (rawData == null) {
+            return;
+        }
+
+        try {
+            JSONObject json = new JSONObject(rawData);
+            JSONArray names = json.names();
+            if (names != null) {
+                for (int j = 0; j < names.length(); j++) {
+                    String key = names.getString(j);
+                    try {
+                        measurement.setProperty(Measurement.PropertyKey.valueOf(key),
+                                json.getDouble(key));
+                    } catch (IllegalArgumentException e) {
+                        LOG.warn("Unknown measurement property " + key + " skipped.");
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            LOG.severe("could not load properties", e);
+        }
+    }
+}
@@ -28,12 +28,17 @@ import com.squareup.sqlbrite3.SqlBrite;
 
 import org.envirocar.core.EnviroCarDB;
 import org.envirocar.core.injection.InjectApplicationScope;
+import org.envirocar.core.injection.InjectDatabaseWriteScheduler;
 import org.envirocar.core.logging.Logger;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import io.reactivex.Scheduler;
 import io.reactivex.schedulers.Schedulers;
 
 /**
@@ -47,36 +52,90 @@ public final class DatabaseModule {
 
     // configs
     private static final String DATABASE_NAME = "envirocar";
-    private static final int DATABASE_VERSION = 11;
+    static final int DATABASE_VERSION = 17;
+
 
+    /**
+     * Window within which subsequent change notifications of a query are coalesced.
+     */
+    static final long QUERY_COALESCE_WINDOW_MILLIS = 250;
 
     @Provides
     @Singleton
     SqlBrite provideSqlBrite() {
+        return newSqlBrite();
+    }
+
+    /**
+     * Creates a SqlBrite instance, whose queries are re-executed at most once per
+     * {@link #QUERY_COALESCE_WINDOW_MILLIS}. The first notification is delivered immediately,
+     * subsequent notifications within the window are merged into the latest one.
+     *
+     * @return the SqlBrite instance.
+     */
+    static SqlBrite newSqlBrite() {
         return new SqlBrite.Builder()
                 .logger(message -> LOG.info(message))
+                .queryTransformer(queries -> queries.throttleLatest(
+                        QUERY_COALESCE_WINDOW_MILLIS, TimeUnit.MILLISECONDS, Schedulers.io(), true))
                 .build();
     }
 
     @Provides
     @Singleton
     BriteDatabase provideBriteDatabase(@InjectApplicationScope Context context, SqlBrite sqlBrite) {
+        return openDatabase(context, sqlBrite, DATABASE_NAME);
+    }
+
+    /**
+     * Single thread on which recording writes are serialized, so that they never contend with
+     * each other and do not occupy the io threads that serve the UI queries.
+     */
+    @Provides
+    @Singleton
+    @InjectDatabaseWriteScheduler
+    Scheduler provideDatabaseWriteScheduler() {
+        return Schedulers.from(Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "envirocar-db-writer")));
+    }
+
+    /**
+     * Opens the database in write-ahead logging mode, which lets queries run concurrently on
+     * separate connections while a write transaction is in progress. Query notifications are
+     * delivered on the io scheduler.
+     *
+     * @param context  the application context.
+     * @param sqlBrite the SqlBrite instance to wrap the database with.
+     * @param name     the name of the database file.
+     * @return the opened database.
+     */
+    static BriteDatabase openDatabase(Context context, SqlBrite sqlBrite, String name) {
         SupportSQLiteOpenHelper.Configuration config = SupportSQLiteOpenHelper.Configuration.builder(context)
-                .name(DATABASE_NAME)
+                .name(name)
                 .callback(new EnviroCarDBCallback(DATABASE_VERSION))
                 .build();
 
         SupportSQLiteOpenHelper helper = new FrameworkSQLiteOpenHelperFactory().create(config);
+        helper.setWriteAheadLoggingEnabled(true);
         BriteDatabase db = sqlBrite.wrapDatabaseHelper(helper, Schedulers.io());
-        db.setLoggingEnabled(true);
+        // logging every statement is only affordable in debug builds.
+        db.setLoggingEnabled(BuildConfig.DEBUG);
 
         return db;
     }
 
     @Provides
     @Singleton
-    EnviroCarDB provideEnvirocarDB(BriteDatabase briteDatabase) {
-        return new EnviroCarDBImpl(briteDatabase);
+    EnviroCarDB provideEnvirocarDB(BriteDatabase briteDatabase,
+                                   @InjectDatabaseWriteScheduler Scheduler writeScheduler) {
+        return new EnviroCarDBImpl(briteDatabase, writeScheduler);
+    }
+
+    @Provides
+    @Singleton
+    StorageRetention provideStorageRetention(BriteDatabase briteDatabase, EnviroCarDB enviroCarDB,
+                                             @InjectDatabaseWriteScheduler Scheduler writeScheduler) {
+        return new StorageRetention(briteDatabase, enviroCarDB, writeScheduler);
     }
 
 }
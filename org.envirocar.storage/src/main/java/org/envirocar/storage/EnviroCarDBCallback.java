@@ -23,6 +23,8 @@ import androidx.sqlite.db.SupportSQLiteOpenHelper;
 
 import org.envirocar.core.logging.Logger;
 
+import java.util.List;
+
 /**
  * @author dewall
  */
@@ -38,21 +40,45 @@ class EnviroCarDBCallback extends SupportSQLiteOpenHelper.Callback {
         super(version);
     }
 
+    @Override
+    public void onConfigure(SupportSQLiteDatabase db) {
+        // Deleted tracks leave free pages behind, which are returned to the file system
+        // step-wise by incremental vacuums. The mode only takes effect when set before the
+        // first table is created, existing databases are converted by a one-time full vacuum
+        // on the maintenance scheduler of EnviroCarDBImpl.
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+    }
+
     @Override
     public void onCreate(SupportSQLiteDatabase db) {
         LOG.info("On create enviroCar database");
 //            db.execSQL("PRAGMA foreign_keys=ON;");
         db.execSQL(TrackTable.CREATE);
         db.execSQL(MeasurementTable.CREATE);
+        db.execSQL(MeasurementTable.CREATE_INDEX);
+        db.execSQL(TrackSummaryTable.CREATE);
+        db.execSQL(TrackArchiveTable.CREATE);
     }
 
     @Override
     public void onUpgrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
-        LOG.info("On update enviroCar database");
-        db.execSQL(MeasurementTable.DELETE);
-        db.execSQL(TrackTable.DELETE);
-        db.execSQL(TrackTable.CREATE);
-        db.execSQL(MeasurementTable.CREATE);
+        LOG.info(String.format("Upgrading enviroCar database from version %s to version %s.",
+                oldVersion, newVersion));
+        List<DatabaseMigration> migrations = DatabaseMigrations.findMigrationPath(oldVersion, newVersion);
+        if (migrations == null) {
+            LOG.warn(String.format("No migration path from version %s to %s. Recreating the database.",
+                    oldVersion, newVersion));
+            db.execSQL(TrackArchiveTable.DELETE);
+            db.execSQL(TrackSummaryTable.DELETE);
+            db.execSQL(MeasurementTable.DELETE);
+            db.execSQL(TrackTable.DELETE);
+            onCreate(db);
+            return;
+        }
 
+        for (DatabaseMigration migration : migrations) {
+            LOG.info(String.format("Applying %s", migration));
+            migration.migrate(db);
+        }
     }
 }
@@ -22,27 +22,45 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
 import com.squareup.sqlbrite3.BriteDatabase;
 
 import org.envirocar.core.EnviroCarDB;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.internal.TrackSummary;
 import org.envirocar.core.exception.MeasurementSerializationException;
 import org.envirocar.core.exception.TrackSerializationException;
+import org.envirocar.core.injection.InjectDatabaseWriteScheduler;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProvider;
 import org.envirocar.core.util.TrackMetadata;
 import org.json.JSONException;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
 import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
 
 
 /**
@@ -54,16 +72,59 @@ import io.reactivex.functions.Function;
 public class EnviroCarDBImpl implements EnviroCarDB {
     private static final Logger LOG = Logger.getLogger(EnviroCarDBImpl.class);
 
+    // number of free pages returned to the file system per incremental vacuum step.
+    private static final int RECLAIM_PAGES_PER_STEP = 256;
+
+    // value of PRAGMA auto_vacuum in incremental mode.
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
     protected BriteDatabase briteDatabase;
+    private final Scheduler maintenanceScheduler;
+    private final Scheduler conversionScheduler;
+    private final Object conversionLock = new Object();
+    private volatile boolean incrementalAutoVacuum;
+
+    // compiled once and reused for all batched measurement inserts.
+    private SupportSQLiteStatement insertMeasurementStatement;
+    private SupportSQLiteStatement updateTrackProgressStatement;
 
     /**
      * Constructor.
      *
      * @param briteDatabase the Database instance.
      */
-    @Inject
     public EnviroCarDBImpl(BriteDatabase briteDatabase) {
+        this(briteDatabase, Schedulers.single());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param briteDatabase        the Database instance.
+     * @param maintenanceScheduler the scheduler to run background maintenance, e.g., the
+     *                             reclamation of free space, on.
+     */
+    @Inject
+    public EnviroCarDBImpl(BriteDatabase briteDatabase,
+                           @InjectDatabaseWriteScheduler Scheduler maintenanceScheduler) {
+        this(briteDatabase, maintenanceScheduler, Schedulers.io());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param briteDatabase        the Database instance.
+     * @param maintenanceScheduler the scheduler to run background maintenance, e.g., the
+     *                             reclamation of free space, on.
+     * @param conversionScheduler  the scheduler to run the one-time switch of an existing
+     *                             database to incremental auto vacuum on, which rewrites the
+     *                             whole database.
+     */
+    public EnviroCarDBImpl(BriteDatabase briteDatabase, Scheduler maintenanceScheduler,
+                           Scheduler conversionScheduler) {
         this.briteDatabase = briteDatabase;
+        this.maintenanceScheduler = maintenanceScheduler;
+        this.conversionScheduler = conversionScheduler;
     }
 
     @Override
@@ -78,6 +139,39 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                         " WHERE " + TrackTable.KEY_TRACK_ID + "=" + trackId, lazy);
     }
 
+    @Override
+    public Maybe<Track> findTrack(Track.TrackId trackId, boolean lazy) {
+        return Maybe.fromCallable(() -> {
+            Track track = null;
+            Cursor cursor = briteDatabase.query(
+                    "SELECT * FROM " + TrackTable.TABLE_TRACK +
+                            " WHERE " + TrackTable.KEY_TRACK_ID + "=" + trackId);
+            try {
+                if (cursor.moveToFirst()) {
+                    track = TrackTable.MAPPER.apply(cursor);
+                }
+            } finally {
+                cursor.close();
+            }
+            if (track == null) {
+                return null;
+            }
+            return lazy ? fetchLazySilent(track) : fetchMeasurementsSilent(track);
+        });
+    }
+
+    @Override
+    public Observable<Track> getPagedTrack(Track.TrackId trackId) {
+        return briteDatabase
+                .createQuery(TrackTable.TABLE_TRACK,
+                        "SELECT * FROM " + TrackTable.TABLE_TRACK +
+                                " WHERE " + TrackTable.KEY_TRACK_ID + "=" + trackId)
+                .mapToOne(TrackTable.MAPPER)
+                .take(1)
+                .timeout(100, TimeUnit.MILLISECONDS)
+                .map(this::fetchPagedMeasurementsSilent);
+    }
+
     @Override
     public Observable<List<Track>> getAllTracks() {
         return getAllTracks(false);
@@ -109,8 +203,117 @@ public class EnviroCarDBImpl implements EnviroCarDB {
 
     @Override
     public Observable<Integer> getAllLocalTracksCount() {
-        return Observable.just(briteDatabase.getReadableDatabase().query("SELECT * FROM " + TrackTable.TABLE_TRACK +
-                " WHERE " + TrackTable.KEY_REMOTE_ID + " IS NULL").getCount());
+        return Observable.fromCallable(() -> {
+            Cursor cursor = briteDatabase.query("SELECT COUNT(*) FROM " + TrackTable.TABLE_TRACK +
+                    " WHERE " + TrackTable.KEY_REMOTE_ID + " IS NULL");
+            try {
+                return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            } finally {
+                cursor.close();
+            }
+        });
+    }
+
+    @Override
+    public Observable<List<Track>> getLocalTrackHeaders(Track after, int limit) {
+        // start and end time are taken from the summary, which also provides the measurement
+        // count of the lazily paged measurement list and the property counts.
+        String startTime = "COALESCE(s." + TrackSummaryTable.KEY_START_TIME +
+                ", t." + TrackTable.KEY_TRACK_START_TIME + ", 0)";
+        StringBuilder columns = new StringBuilder("t." + TrackTable.KEY_TRACK_ID);
+        for (String column : TrackTable.COLUMNS) {
+            if (column.equals(TrackTable.KEY_TRACK_START_TIME)) {
+                columns.append(", ").append(startTime).append(" AS ").append(column);
+            } else if (column.equals(TrackTable.KEY_TRACK_END_TIME)) {
+                columns.append(", COALESCE(s.").append(TrackSummaryTable.KEY_END_TIME)
+                        .append(", t.").append(column).append(") AS ").append(column);
+            } else {
+                columns.append(", t.").append(column);
+            }
+        }
+        columns.append(", COALESCE(s.").append(TrackSummaryTable.KEY_MEASUREMENT_COUNT)
+                .append(", 0) AS ").append(TrackSummaryTable.KEY_MEASUREMENT_COUNT);
+        columns.append(", s.").append(TrackSummaryTable.KEY_PROPERTY_COUNTS);
+        for (String column : TrackSummaryTable.STATISTICS_COLUMNS) {
+            columns.append(", s.").append(column);
+        }
+        columns.append(", a.").append(TrackArchiveTable.KEY_TRACK).append(" IS NOT NULL AS archived");
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns)
+                .append(" FROM ").append(TrackTable.TABLE_TRACK).append(" t")
+                .append(" LEFT JOIN ").append(TrackSummaryTable.TABLE_NAME).append(" s")
+                .append(" ON s.").append(TrackSummaryTable.KEY_TRACK)
+                .append(" = t.").append(TrackTable.KEY_TRACK_ID)
+                .append(" LEFT JOIN ").append(TrackArchiveTable.TABLE_NAME).append(" a")
+                .append(" ON a.").append(TrackArchiveTable.KEY_TRACK)
+                .append(" = t.").append(TrackTable.KEY_TRACK_ID)
+                .append(" WHERE t.").append(TrackTable.KEY_REMOTE_ID).append(" IS NULL");
+        if (after != null) {
+            long afterTime = after.getStartTime() != null ? after.getStartTime() : 0;
+            long afterId = after.getTrackID().getId();
+            sql.append(" AND (").append(startTime).append(" < ").append(afterTime)
+                    .append(" OR (").append(startTime).append(" = ").append(afterTime)
+                    .append(" AND t.").append(TrackTable.KEY_TRACK_ID).append(" < ").append(afterId)
+                    .append("))");
+        }
+        sql.append(" ORDER BY ").append(startTime).append(" DESC, t.")
+                .append(TrackTable.KEY_TRACK_ID).append(" DESC")
+                .append(" LIMIT ").append(limit);
+
+        return Observable.create(emitter -> {
+            Cursor cursor = briteDatabase.query(sql.toString());
+            List<Track> tracks = new ArrayList<>(cursor.getCount());
+            try {
+                int count = cursor.getColumnIndex(TrackSummaryTable.KEY_MEASUREMENT_COUNT);
+                int archived = cursor.getColumnIndex("archived");
+                int propertyCounts = cursor.getColumnIndex(TrackSummaryTable.KEY_PROPERTY_COUNTS);
+                while (cursor.moveToNext()) {
+                    Track track = TrackTable.fromCursor(cursor);
+                    long trackId = track.getTrackID().getId();
+                    track.setMeasurements(cursor.getInt(archived) != 0 ?
+                            new ArchivedMeasurementList(trackId, cursor.getInt(count), this::readArchive) :
+                            new PagedMeasurementList(briteDatabase, track.getTrackID(), cursor.getInt(count)));
+                    if (!cursor.isNull(propertyCounts)) {
+                        track.setPropertyCounts(TrackSummaryTable.readPropertyCounts(cursor));
+                    }
+                    TrackStatistics statistics = TrackSummaryTable.readStatistics(cursor);
+                    if (statistics != null) {
+                        track.setStatistics(statistics);
+                    }
+                    tracks.add(track);
+                }
+            } finally {
+                cursor.close();
+            }
+            emitter.onNext(tracks);
+            emitter.onComplete();
+        });
+    }
+
+    @Override
+    public Observable<List<TrackSummary>> getAllLocalTrackSummaries() {
+        StringBuilder columns = new StringBuilder("t." + TrackTable.KEY_TRACK_ID +
+                " AS " + TrackSummaryTable.KEY_TRACK);
+        for (String column : TrackSummaryTable.COLUMNS) {
+            columns.append(", s.").append(column);
+        }
+        return Observable.create(emitter -> {
+            Cursor cursor = briteDatabase.query("SELECT " + columns +
+                    " FROM " + TrackTable.TABLE_TRACK + " t" +
+                    " LEFT JOIN " + TrackSummaryTable.TABLE_NAME + " s" +
+                    " ON s." + TrackSummaryTable.KEY_TRACK + " = t." + TrackTable.KEY_TRACK_ID +
+                    " WHERE t." + TrackTable.KEY_REMOTE_ID + " IS NULL");
+            List<TrackSummary> summaries = new ArrayList<>(cursor.getCount());
+            try {
+                while (cursor.moveToNext()) {
+                    summaries.add(TrackSummaryTable.fromCursor(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+            emitter.onNext(summaries);
+            emitter.onComplete();
+        });
     }
 
     @Override
@@ -129,7 +332,17 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     public Observable<Void> clearTables() {
         return Observable.create(emitter -> {
             BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
-            // TODO
+            try {
+                briteDatabase.delete(MeasurementTable.TABLE_NAME, null);
+                briteDatabase.delete(TrackArchiveTable.TABLE_NAME, null);
+                briteDatabase.delete(TrackSummaryTable.TABLE_NAME, null);
+                briteDatabase.delete(TrackTable.TABLE_TRACK, null);
+                transaction.markSuccessful();
+            } finally {
+                transaction.end();
+            }
+            scheduleSpaceReclamation();
+            emitter.onComplete();
         });
     }
 
@@ -150,6 +363,8 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                     briteDatabase.insert(MeasurementTable.TABLE_NAME, SQLiteDatabase.CONFLICT_FAIL,
                             MeasurementTable.toContentValues(measurement));
                 }
+                updateTrackSummaries(track.getMeasurements());
+                storeTrackStatistics(track);
             }
 
             transaction.markSuccessful();
@@ -190,6 +405,30 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                 });
     }
 
+    @Override
+    public synchronized boolean updateTrackProgress(Track track) {
+        if (updateTrackProgressStatement == null) {
+            updateTrackProgressStatement = briteDatabase.getWritableDatabase()
+                    .compileStatement(TrackTable.UPDATE_PROGRESS);
+        }
+
+        SupportSQLiteStatement statement = updateTrackProgressStatement;
+        statement.clearBindings();
+        if (track.getEndTime() != null) {
+            statement.bindLong(1, track.getEndTime());
+        } else {
+            statement.bindNull(1);
+        }
+        if (track.getLength() != null) {
+            statement.bindDouble(2, track.getLength());
+        } else {
+            statement.bindNull(2);
+        }
+        statement.bindLong(3, track.getTrackID().getId());
+        // progress updates are frequent and no query observes them, thus no query is notified.
+        return statement.executeUpdateDelete() > 0;
+    }
+
     @Override
     public boolean updateCarIdOfTracks(String currentId, String newId) {
         ContentValues values = new ContentValues();
@@ -201,9 +440,24 @@ public class EnviroCarDBImpl implements EnviroCarDB {
 
     @Override
     public void deleteTrack(Track.TrackId trackId) {
-        briteDatabase.delete(TrackTable.TABLE_TRACK,
-                TrackTable.KEY_TRACK_ID + "='" + trackId + "'");
-        deleteMeasurementsOfTrack(trackId);
+        deleteTracks(Collections.singletonList(trackId));
+    }
+
+    @Override
+    public void deleteTracks(Collection<Track.TrackId> trackIds) {
+        if (trackIds.isEmpty()) {
+            return;
+        }
+
+        StringBuilder ids = new StringBuilder();
+        for (Track.TrackId trackId : trackIds) {
+            if (ids.length() > 0) {
+                ids.append(", ");
+            }
+            ids.append(trackId.getId());
+        }
+        deleteTracksWhere(" IN (" + ids + ")");
+        LOG.info(String.format("deleteTracks(): %s tracks deleted", trackIds.size()));
     }
 
     @Override
@@ -222,25 +476,281 @@ public class EnviroCarDBImpl implements EnviroCarDB {
 
     @Override
     public Observable<List<Track.TrackId>> deleteAllRemoteTracks() {
-        return briteDatabase.createQuery(TrackTable.TABLE_TRACK,
-                "SELECT " + TrackTable.KEY_TRACK_ID + ", " + TrackTable.KEY_REMOTE_ID +
-                        " FROM " + TrackTable.TABLE_TRACK +
-                        " WHERE " + TrackTable.KEY_REMOTE_ID + " IS NOT NULL")
-                .map(query -> query.run())
-                .map(TrackTable.TO_TRACK_ID_LIST_MAPPER)
-                .map(trackIds -> {
-                    for (Track.TrackId trackId : trackIds)
-                        deleteTrack(trackId);
-                    return trackIds;
-                });
+        return Observable.fromCallable(() -> {
+            String remoteTracks = "SELECT " + TrackTable.KEY_TRACK_ID +
+                    " FROM " + TrackTable.TABLE_TRACK +
+                    " WHERE " + TrackTable.KEY_REMOTE_ID + " IS NOT NULL";
+
+            List<Track.TrackId> trackIds;
+            BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
+            try {
+                Cursor cursor = briteDatabase.query(remoteTracks);
+                try {
+                    trackIds = TrackTable.TO_TRACK_ID_LIST_MAPPER.apply(cursor);
+                } finally {
+                    cursor.close();
+                }
+                deleteTracksWhere(" IN (" + remoteTracks + ")");
+                transaction.markSuccessful();
+            } finally {
+                transaction.end();
+            }
+            return trackIds;
+        });
+    }
+
+    /**
+     * Deletes all tracks matching a condition on the track id together with their measurements
+     * and summaries within one transaction, and schedules the reclamation of the freed space.
+     *
+     * @param trackFilter an SQL condition on the track id, e.g., an IN clause.
+     */
+    private void deleteTracksWhere(String trackFilter) {
+        BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
+        try {
+            briteDatabase.delete(MeasurementTable.TABLE_NAME,
+                    MeasurementTable.KEY_TRACK + trackFilter);
+            briteDatabase.delete(TrackArchiveTable.TABLE_NAME,
+                    TrackArchiveTable.KEY_TRACK + trackFilter);
+            briteDatabase.delete(TrackSummaryTable.TABLE_NAME,
+                    TrackSummaryTable.KEY_TRACK + trackFilter);
+            briteDatabase.delete(TrackTable.TABLE_TRACK,
+                    TrackTable.KEY_TRACK_ID + trackFilter);
+            transaction.markSuccessful();
+        } finally {
+            transaction.end();
+        }
+        scheduleSpaceReclamation();
+    }
+
+    /**
+     * Returns the pages freed by deletions to the file system in small chunks on the
+     * maintenance scheduler, so that neither the deleting caller nor concurrent writers are
+     * blocked for long. Requires the incremental auto vacuum mode, which is set up for new
+     * databases by {@link EnviroCarDBCallback} and switched on for existing ones before the
+     * first reclamation.
+     */
+    private void scheduleSpaceReclamation() {
+        if (incrementalAutoVacuum) {
+            maintenanceScheduler.scheduleDirect(this::reclaimFreeSpace);
+            return;
+        }
+        // the switch rewrites the whole database, which must not occupy the maintenance
+        // scheduler, i.e., the write lane of a recording.
+        conversionScheduler.scheduleDirect(() -> {
+            if (enableIncrementalAutoVacuum()) {
+                maintenanceScheduler.scheduleDirect(this::reclaimFreeSpace);
+            }
+        });
+    }
+
+    private void reclaimFreeSpace() {
+        int reclaimed = 0;
+        int previous = Integer.MAX_VALUE;
+        int freePages = reclaimFreePages(RECLAIM_PAGES_PER_STEP);
+        // stops as well if no more pages are freed, e.g., due to concurrent deletions.
+        while (freePages > 0 && freePages < previous) {
+            reclaimed += RECLAIM_PAGES_PER_STEP;
+            previous = freePages;
+            freePages = reclaimFreePages(RECLAIM_PAGES_PER_STEP);
+        }
+        LOG.info(String.format("Reclaimed up to %s free database pages.", reclaimed));
+    }
+
+    /**
+     * Switches an existing database to the incremental auto vacuum mode. This requires a full
+     * vacuum, which runs outside of a transaction and only once per database. The vacuum blocks
+     * all writes until it is done, thus it is deferred to a later deletion while a track is
+     * being recorded.
+     *
+     * @return true if the database is in incremental auto vacuum mode.
+     */
+    private boolean enableIncrementalAutoVacuum() {
+        synchronized (conversionLock) {
+            if (incrementalAutoVacuum) {
+                return true;
+            }
+            SupportSQLiteDatabase db = briteDatabase.getWritableDatabase();
+            if (queryAutoVacuum(db) != AUTO_VACUUM_INCREMENTAL) {
+                if (hasOngoingTrack()) {
+                    LOG.info("A track is being recorded. Deferring the switch to incremental " +
+                            "auto vacuum.");
+                    return false;
+                }
+                LOG.info("Switching enviroCar database to incremental auto vacuum.");
+                try {
+                    db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                    db.execSQL("VACUUM");
+                } catch (RuntimeException e) {
+                    LOG.error("Unable to switch to incremental auto vacuum", e);
+                    return false;
+                }
+            }
+            incrementalAutoVacuum = queryAutoVacuum(db) == AUTO_VACUUM_INCREMENTAL;
+            return incrementalAutoVacuum;
+        }
+    }
+
+    private boolean hasOngoingTrack() {
+        Cursor cursor = briteDatabase.query("SELECT 1 FROM " + TrackTable.TABLE_TRACK +
+                " WHERE " + TrackTable.KEY_TRACK_STATE + "='" + Track.TrackStatus.ONGOING + "'" +
+                " LIMIT 1");
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static int queryAutoVacuum(SupportSQLiteDatabase db) {
+        Cursor cursor = db.query("PRAGMA auto_vacuum");
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the number of free pages before this step.
+     */
+    private int reclaimFreePages(int pages) {
+        SupportSQLiteDatabase db = briteDatabase.getWritableDatabase();
+        int freePages;
+        Cursor count = db.query("PRAGMA freelist_count");
+        try {
+            freePages = count.moveToFirst() ? count.getInt(0) : 0;
+        } finally {
+            count.close();
+        }
+        if (freePages > 0) {
+            // the pragma only frees pages while its result rows are stepped through.
+            Cursor vacuum = db.query("PRAGMA incremental_vacuum(" + pages + ")");
+            try {
+                while (vacuum.moveToNext()) {
+                    // nothing to read
+                }
+            } finally {
+                vacuum.close();
+            }
+        }
+        return freePages;
     }
 
     @Override
     public void insertMeasurement(final Measurement measurement) throws
             MeasurementSerializationException {
         LOG.info("inserted measurement into track " + measurement.getTrackId());
-        briteDatabase.insert(MeasurementTable.TABLE_NAME, SQLiteDatabase.CONFLICT_FAIL,
-                MeasurementTable.toContentValues(measurement));
+        insertMeasurements(Collections.singletonList(measurement));
+    }
+
+    @Override
+    public synchronized void insertMeasurements(final List<Measurement> measurements) throws
+            MeasurementSerializationException {
+        if (measurements.isEmpty()) {
+            return;
+        }
+
+        LOG.info(String.format("insertMeasurements(): inserting %s measurements", measurements.size()));
+        BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
+        try {
+            if (insertMeasurementStatement == null) {
+                insertMeasurementStatement = briteDatabase.getWritableDatabase().compileStatement(
+                        MeasurementTable.insertStatement(MeasurementTable.TABLE_NAME));
+            }
+
+            // only the queries on the measurements of the affected tracks are notified.
+            Set<String> triggers = null;
+            Track.TrackId triggerTrack = null;
+            for (Measurement measurement : measurements) {
+                if (triggerTrack == null || triggerTrack.getId() != measurement.getTrackId().getId()) {
+                    triggerTrack = measurement.getTrackId();
+                    triggers = Collections.singleton(MeasurementTable.trigger(triggerTrack));
+                }
+                MeasurementTable.bind(insertMeasurementStatement, measurement);
+                briteDatabase.executeInsert(triggers, insertMeasurementStatement);
+            }
+            updateTrackSummaries(measurements);
+            transaction.markSuccessful();
+        } finally {
+            transaction.end();
+        }
+    }
+
+    @Override
+    public synchronized void appendMeasurements(final Track track, final List<Measurement> measurements)
+            throws MeasurementSerializationException {
+        BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
+        try {
+            insertMeasurements(measurements);
+            storeTrackStatistics(track);
+            updateTrackProgress(track);
+            transaction.markSuccessful();
+        } finally {
+            transaction.end();
+        }
+    }
+
+    @Override
+    public synchronized int replaceMeasurements(final List<Track> tracks)
+            throws MeasurementSerializationException {
+        int replaced = 0;
+        BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
+        try {
+            for (Track track : tracks) {
+                long trackId = track.getTrackID().getId();
+                if (!isReplaceable(track.getTrackID())) {
+                    LOG.warn(String.format("replaceMeasurements(): track %s is being recorded " +
+                            "or has been deleted. Skipping it.", trackId));
+                    continue;
+                }
+
+                List<Measurement> measurements = track.getMeasurements();
+                briteDatabase.delete(TrackSummaryTable.TABLE_NAME,
+                        TrackSummaryTable.KEY_TRACK + "=" + trackId);
+
+                if (isArchived(track.getTrackID()) && !MeasurementArchiveCodec.canEncode(measurements)) {
+                    // the new values cannot be archived, thus the track falls back to rows.
+                    briteDatabase.delete(TrackArchiveTable.TABLE_NAME,
+                            TrackArchiveTable.KEY_TRACK + "=" + trackId);
+                    insertMeasurements(measurements);
+                } else if (isArchived(track.getTrackID())) {
+                    ContentValues values = new ContentValues();
+                    values.put(TrackArchiveTable.KEY_MEASUREMENT_COUNT, measurements.size());
+                    values.put(TrackArchiveTable.KEY_DATA, MeasurementArchiveCodec.encode(measurements));
+                    briteDatabase.update(TrackArchiveTable.TABLE_NAME, SQLiteDatabase.CONFLICT_FAIL,
+                            values, TrackArchiveTable.KEY_TRACK + "=" + trackId);
+                    updateTrackSummaries(measurements);
+                } else {
+                    briteDatabase.delete(MeasurementTable.TABLE_NAME,
+                            MeasurementTable.KEY_TRACK + "=" + trackId);
+                    insertMeasurements(measurements);
+                }
+                storeTrackStatistics(track);
+                updateTrack(track);
+                replaced++;
+            }
+            transaction.markSuccessful();
+        } finally {
+            transaction.end();
+        }
+        LOG.info(String.format("replaceMeasurements(): measurements of %s tracks replaced", replaced));
+        return replaced;
+    }
+
+    /**
+     * @return true if the track exists and is not being recorded.
+     */
+    private boolean isReplaceable(Track.TrackId trackId) {
+        Cursor cursor = briteDatabase.query("SELECT " + TrackTable.KEY_TRACK_STATE +
+                " FROM " + TrackTable.TABLE_TRACK +
+                " WHERE " + TrackTable.KEY_TRACK_ID + "=" + trackId);
+        try {
+            return cursor.moveToFirst()
+                    && !Track.TrackStatus.ONGOING.toString().equals(cursor.getString(0));
+        } finally {
+            cursor.close();
+        }
     }
 
     @Override
@@ -327,15 +837,144 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                         " LIMIT 1", lazy);
     }
 
-    private void deleteMeasurementsOfTrack(Track.TrackId trackId) {
+    @Override
+    public Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId) {
+        return getMeasurementsFlowable(trackId, Long.MIN_VALUE, Long.MAX_VALUE, null);
+    }
+
+    @Override
+    public Flowable<Measurement> getMeasurementsFlowable(
+            Track.TrackId trackId, long startTime, long endTime,
+            Set<Measurement.PropertyKey> properties) {
+        return Flowable.defer(() -> {
+            List<Measurement> archived = readArchive(trackId.getId());
+            if (archived != null) {
+                // archives are decoded at once, thus all properties are available anyway.
+                return Flowable.fromIterable(archived)
+                        .filter(m -> m.getTime() >= startTime && m.getTime() <= endTime);
+            }
+            return streamMeasurements("SELECT " + MeasurementTable.projection(properties) +
+                    " FROM " + MeasurementTable.TABLE_NAME +
+                    " WHERE " + MeasurementTable.KEY_TRACK + "=" + trackId.getId() +
+                    " AND " + MeasurementTable.KEY_TIME + " BETWEEN " + startTime + " AND " + endTime +
+                    " ORDER BY " + MeasurementTable.KEY_TIME + " ASC");
+        });
+    }
+
+    @Override
+    public boolean archiveTrack(Track.TrackId trackId) {
+        List<Measurement> measurements;
+        BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
+        try {
+            if (isArchived(trackId)) {
+                return false;
+            }
+
+            measurements = MeasurementTable.fromCursorToList(briteDatabase.query(
+                    "SELECT * FROM " + MeasurementTable.TABLE_NAME +
+                            " WHERE " + MeasurementTable.KEY_TRACK + "=" + trackId.getId() +
+                            " ORDER BY " + MeasurementTable.KEY_TIME + " ASC, " +
+                            MeasurementTable.KEY_ROWID + " ASC"));
+            if (measurements.isEmpty()) {
+                return false;
+            }
+            if (!MeasurementArchiveCodec.canEncode(measurements)) {
+                LOG.warn(String.format("archiveTrack(): track %s contains values that cannot " +
+                        "be archived. Keeping its measurements.", trackId));
+                return false;
+            }
+
+            ContentValues values = new ContentValues();
+            values.put(TrackArchiveTable.KEY_TRACK, trackId.getId());
+            values.put(TrackArchiveTable.KEY_MEASUREMENT_COUNT, measurements.size());
+            values.put(TrackArchiveTable.KEY_DATA, MeasurementArchiveCodec.encode(measurements));
+            briteDatabase.insert(TrackArchiveTable.TABLE_NAME, SQLiteDatabase.CONFLICT_FAIL, values);
+            briteDatabase.delete(MeasurementTable.TABLE_NAME,
+                    MeasurementTable.KEY_TRACK + "=" + trackId.getId());
+            transaction.markSuccessful();
+        } finally {
+            transaction.end();
+        }
+
+        LOG.info(String.format("archiveTrack(): %s measurements of track %s archived",
+                measurements.size(), trackId));
+        scheduleSpaceReclamation();
+        return true;
+    }
+
+    @Override
+    public void deleteMeasurements(Track.TrackId trackId) {
         BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
         try {
             briteDatabase.delete(MeasurementTable.TABLE_NAME,
-                    MeasurementTable.KEY_TRACK + "='" + trackId + "'");
+                    MeasurementTable.KEY_TRACK + "=" + trackId.getId());
+            briteDatabase.delete(TrackArchiveTable.TABLE_NAME,
+                    TrackArchiveTable.KEY_TRACK + "=" + trackId.getId());
             transaction.markSuccessful();
         } finally {
             transaction.end();
         }
+        scheduleSpaceReclamation();
+    }
+
+    private boolean isArchived(Track.TrackId trackId) {
+        Cursor cursor = briteDatabase.query("SELECT 1 FROM " + TrackArchiveTable.TABLE_NAME +
+                " WHERE " + TrackArchiveTable.KEY_TRACK + "=" + trackId.getId());
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the decoded measurements of an archived track, or null if it is not archived.
+     * @throws IllegalStateException if the archive is corrupt.
+     */
+    private List<Measurement> readArchive(long trackId) {
+        Cursor cursor = briteDatabase.query("SELECT " + TrackArchiveTable.KEY_DATA +
+                " FROM " + TrackArchiveTable.TABLE_NAME +
+                " WHERE " + TrackArchiveTable.KEY_TRACK + "=" + trackId);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return MeasurementArchiveCodec.decode(cursor.getBlob(0), new Track.TrackId(trackId));
+        } catch (IOException e) {
+            // an empty list would let the archive be overwritten, e.g., when reprocessing.
+            throw new IllegalStateException("Unable to decode archive of track " + trackId, e);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the measurements of a track in time order, either from its archive or its rows.
+     */
+    private List<Measurement> readMeasurements(Track.TrackId trackId) {
+        List<Measurement> archived = readArchive(trackId.getId());
+        if (archived != null) {
+            return archived;
+        }
+        return MeasurementTable.fromCursorToList(briteDatabase.query(
+                "SELECT * FROM " + MeasurementTable.TABLE_NAME +
+                        " WHERE " + MeasurementTable.KEY_TRACK +
+                        "=" + trackId +
+                        " ORDER BY " + MeasurementTable.KEY_TIME + " ASC"));
+    }
+
+    private Flowable<Measurement> streamMeasurements(String sql) {
+        // the cursor is opened on subscription and only advanced as far as requested downstream.
+        return Flowable.generate(
+                () -> new MeasurementCursor(briteDatabase.query(sql)),
+                (cursor, emitter) -> {
+                    if (cursor.cursor.moveToNext()) {
+                        emitter.onNext(MeasurementTable.fromCursor(cursor.cursor, cursor.indices));
+                    } else {
+                        emitter.onComplete();
+                    }
+                },
+                cursor -> cursor.cursor.close());
     }
 
     @Override
@@ -343,7 +982,8 @@ public class EnviroCarDBImpl implements EnviroCarDB {
         BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
         try {
             briteDatabase.delete(MeasurementTable.TABLE_NAME,
-                    MeasurementTable.KEY_TRACK + "='" + trackId + "' AND " + MeasurementTable.KEY_TIME + " >= " + time);
+                    MeasurementTable.KEY_TRACK + "=" + trackId + " AND " + MeasurementTable.KEY_TIME + " >= " + time);
+            rebuildTrackSummary(trackId);
             transaction.markSuccessful();
         } finally {
             transaction.end();
@@ -352,12 +992,12 @@ public class EnviroCarDBImpl implements EnviroCarDB {
 
     private Observable<Track> fetchMeasurements(final Track track) {
         return briteDatabase.createQuery(
-                MeasurementTable.TABLE_NAME,
+                measurementTriggers(track.getTrackID()),
                 "SELECT * FROM " + MeasurementTable.TABLE_NAME +
                         " WHERE " + MeasurementTable.KEY_TRACK +
-                        "=\"" + track.getTrackID() + "\"" +
+                        "=" + track.getTrackID() +
                         " ORDER BY " + MeasurementTable.KEY_TIME + " ASC")
-                .mapToList(MeasurementTable.MAPPER)
+                .map(query -> readMeasurements(track.getTrackID()))
                 .map(measurements -> {
                     track.setMeasurements(measurements);
                     track.setLazyMeasurements(false);
@@ -367,10 +1007,10 @@ public class EnviroCarDBImpl implements EnviroCarDB {
 
     private Observable<Track> fetchStartTime(final Track track) {
         return briteDatabase.createQuery(
-                MeasurementTable.TABLE_NAME,
+                measurementTriggers(track.getTrackID()),
                 "SELECT * FROM " + MeasurementTable.TABLE_NAME +
                         " WHERE " + MeasurementTable.KEY_TRACK +
-                        "=\"" + track.getTrackID() + "\"" +
+                        "=" + track.getTrackID() +
                         " ORDER BY " + MeasurementTable.KEY_TIME + " ASC" +
                         " LIMIT 1")
                 .mapToOne(MeasurementTable.MAPPER)
@@ -381,6 +1021,14 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                 });
     }
 
+    /**
+     * @return the triggers of queries on the measurements of a track, i.e., changes of this
+     * track and changes of the whole table, like deletions.
+     */
+    private static List<String> measurementTriggers(Track.TrackId trackId) {
+        return Arrays.asList(MeasurementTable.TABLE_NAME, MeasurementTable.trigger(trackId));
+    }
+
     private Observable<Track> fetchTrackObservable(String sql, boolean lazy) {
         return briteDatabase
                 .createQuery(TrackTable.TABLE_TRACK, sql)
@@ -396,7 +1044,7 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                 return null;
 
             // return the track either leither or completly fetched.
-            return lazy ? fetchStartEndTimeSilent(track) : fetchMeasurementsSilent(track);
+            return lazy ? fetchLazySilent(track) : fetchMeasurementsSilent(track);
         });
     }
 
@@ -417,9 +1065,17 @@ public class EnviroCarDBImpl implements EnviroCarDB {
 
     private ObservableTransformer<List<Track>, List<Track>> fetchTracks(boolean lazy) {
         return trackObservable -> trackObservable.map(tracks -> {
+            // the summaries of all tracks are read at once instead of querying each track.
+            Map<Long, TrackSummary> summaries = lazy ? fetchTrackSummaries() : null;
             for (Track track : tracks) {
                 if (lazy) {
-                    fetchStartEndTimeSilent(track);
+                    track.setLazyMeasurements(true);
+                    TrackSummary summary = summaries.get(track.getTrackID().getId());
+                    if (summary != null) {
+                        applyTrackSummary(track, summary);
+                    } else {
+                        fetchStartEndTimeSilent(track);
+                    }
                 } else {
                     fetchMeasurementsSilent(track);
                 }
@@ -429,43 +1085,162 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     }
 
     private Track fetchMeasurementsSilent(final Track track) {
-        track.setMeasurements(MeasurementTable.fromCursorToList(briteDatabase.query(
-                "SELECT * FROM " + MeasurementTable.TABLE_NAME +
-                        " WHERE " + MeasurementTable.KEY_TRACK +
-                        "=\"" + track.getTrackID() + "\"" +
-                        " ORDER BY " + MeasurementTable.KEY_TIME + " ASC", (String[]) null)));
+        track.setMeasurements(readMeasurements(track.getTrackID()));
         track.setLazyMeasurements(false);
         return track;
     }
 
+    private Track fetchPagedMeasurementsSilent(final Track track) {
+        // archives are compact and decoded at once, only measurement rows are paged.
+        List<Measurement> archived = readArchive(track.getTrackID().getId());
+        track.setMeasurements(archived != null ? archived :
+                new PagedMeasurementList(briteDatabase, track.getTrackID()));
+        track.setLazyMeasurements(false);
+        // the supported properties are taken from the summary instead of paging through the track.
+        return fetchStartEndTimeSilent(track);
+    }
+
+    private Track fetchLazySilent(final Track track) {
+        // the stored statistics remain valid as long as no measurements are loaded.
+        track.setLazyMeasurements(true);
+        return fetchStartEndTimeSilent(track);
+    }
+
     private Track fetchStartEndTimeSilent(final Track track) {
-        Cursor startTime = briteDatabase.query(
-                "SELECT " + MeasurementTable.KEY_TIME +
+        Cursor summary = briteDatabase.query(
+                "SELECT * FROM " + TrackSummaryTable.TABLE_NAME +
+                        " WHERE " + TrackSummaryTable.KEY_TRACK + "=" + track.getTrackID());
+        try {
+            if (summary.moveToFirst()) {
+                return applyTrackSummary(track, TrackSummaryTable.fromCursor(summary));
+            }
+        } finally {
+            summary.close();
+        }
+
+        // no summary available, e.g., for a track without measurements.
+        Cursor times = briteDatabase.query(
+                "SELECT MIN(" + MeasurementTable.KEY_TIME + "), MAX(" + MeasurementTable.KEY_TIME + ")" +
                         " FROM " + MeasurementTable.TABLE_NAME +
                         " WHERE " + MeasurementTable.KEY_TRACK +
-                        "=\"" + track.getTrackID() + "\"" +
-                        " ORDER BY " + MeasurementTable.KEY_TIME + " ASC LIMIT 1");
+                        "=" + track.getTrackID());
+        try {
+            if (times.moveToFirst() && !times.isNull(0)) {
+                track.setStartTime(times.getLong(0));
+                track.setEndTime(times.getLong(1));
+            }
+        } finally {
+            times.close();
+        }
+        return track;
+    }
 
-        if (startTime.moveToFirst()) {
-            track.setStartTime(
-                    startTime.getLong(
-                            startTime.getColumnIndex(MeasurementTable.KEY_TIME)));
+    private Track applyTrackSummary(Track track, TrackSummary summary) {
+        if (summary.getStartTime() != null) {
+            track.setStartTime(summary.getStartTime());
+            track.setEndTime(summary.getEndTime());
+        }
+        track.setPropertyCounts(summary.getPropertyCounts());
+        TrackStatistics statistics = summary.getStatistics();
+        if (statistics != null) {
+            track.setStatistics(statistics);
         }
+        return track;
+    }
 
-        Cursor endTime = briteDatabase.query(
-                "SELECT " + MeasurementTable.KEY_TIME +
-                        " FROM " + MeasurementTable.TABLE_NAME +
-                        " WHERE " + MeasurementTable.KEY_TRACK +
-                        "=\"" + track.getTrackID() + "\"" +
-                        " ORDER BY " + MeasurementTable.KEY_TIME + " DESC LIMIT 1");
+    private Map<Long, TrackSummary> fetchTrackSummaries() {
+        Map<Long, TrackSummary> summaries = new HashMap<>();
+        Cursor cursor = briteDatabase.query("SELECT * FROM " + TrackSummaryTable.TABLE_NAME);
+        try {
+            while (cursor.moveToNext()) {
+                TrackSummary summary = TrackSummaryTable.fromCursor(cursor);
+                summaries.put(summary.getTrackId().getId(), summary);
+            }
+        } finally {
+            cursor.close();
+        }
+        return summaries;
+    }
 
-        if (endTime.moveToFirst()) {
-            track.setEndTime(
-                    endTime.getLong(
-                            startTime.getColumnIndex(MeasurementTable.KEY_TIME)));
+    /**
+     * Adds measurements to the stored summaries of their tracks. The measurements have to be
+     * ordered by time per track.
+     */
+    private void updateTrackSummaries(List<Measurement> measurements) {
+        TrackSummary summary = null;
+        for (Measurement measurement : measurements) {
+            Track.TrackId trackId = measurement.getTrackId();
+            if (summary == null || summary.getTrackId().getId() != trackId.getId()) {
+                if (summary != null) {
+                    storeTrackSummary(summary);
+                }
+                summary = fetchTrackSummary(trackId);
+            }
+            summary.add(measurement);
         }
+        if (summary != null) {
+            storeTrackSummary(summary);
+        }
+    }
 
-        return track;
+    /**
+     * Stores the statistics of a track with its summary, which has to contain all measurements
+     * of the track already. The statistics of recording tracks are accumulated per measurement
+     * and therefore do not require a scan of the track.
+     */
+    private void storeTrackStatistics(Track track) {
+        if (!(track instanceof TrackStatisticsProvider)) {
+            return;
+        }
+        TrackSummary summary = fetchTrackSummary(track.getTrackID());
+        summary.setStatistics(((TrackStatisticsProvider) track).getStatistics());
+        storeTrackSummary(summary);
+    }
+
+    private TrackSummary fetchTrackSummary(Track.TrackId trackId) {
+        Cursor cursor = briteDatabase.query(
+                "SELECT * FROM " + TrackSummaryTable.TABLE_NAME +
+                        " WHERE " + TrackSummaryTable.KEY_TRACK + "=" + trackId.getId());
+        try {
+            return cursor.moveToFirst() ? TrackSummaryTable.fromCursor(cursor) : new TrackSummary(trackId);
+        } finally {
+            cursor.close();
+        }
     }
 
+    private void storeTrackSummary(TrackSummary summary) {
+        briteDatabase.insert(TrackSummaryTable.TABLE_NAME, SQLiteDatabase.CONFLICT_REPLACE,
+                TrackSummaryTable.toContentValues(summary));
+    }
+
+    private void rebuildTrackSummary(Track.TrackId trackId) {
+        briteDatabase.delete(TrackSummaryTable.TABLE_NAME,
+                TrackSummaryTable.KEY_TRACK + "=" + trackId.getId());
+        List<Measurement> archived = readArchive(trackId.getId());
+        if (archived != null) {
+            TrackSummary summary = new TrackSummary(trackId);
+            for (Measurement measurement : archived) {
+                summary.add(measurement);
+            }
+            storeTrackSummary(summary);
+            return;
+        }
+        for (TrackSummary summary : TrackSummaryTable.fromMeasurementCursor(briteDatabase.query(
+                TrackSummaryTable.rebuildQuery("=" + trackId.getId())))) {
+            storeTrackSummary(summary);
+        }
+    }
+
+    /**
+     * A measurement cursor together with its resolved column indices.
+     */
+    private static final class MeasurementCursor {
+        private final Cursor cursor;
+        private final MeasurementTable.ColumnIndices indices;
+
+        private MeasurementCursor(Cursor cursor) {
+            this.cursor = cursor;
+            this.indices = new MeasurementTable.ColumnIndices(cursor);
+        }
+    }
 }
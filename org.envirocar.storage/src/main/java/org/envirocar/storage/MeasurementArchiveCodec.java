@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.PrimitiveMeasurement;
+import org.envirocar.core.entity.Track;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact encoding of all measurements of a finished track.
+ * <p>
+ * The measurements are stored column by column: the timestamps as deltas to their predecessor,
+ * the coordinates quantized to {@link #COORDINATE_RESOLUTION} degrees (about 1 cm, far below
+ * the GPS accuracy) as deltas, and each property as a presence bitmap followed by the deltas of
+ * its values quantized to {@link #PROPERTY_RESOLUTION}. All numbers are written as zigzag
+ * varints and the result is deflated.
+ *
+ * @author dewall
+ */
+final class MeasurementArchiveCodec {
+
+    /**
+     * Resolution of latitude and longitude in degrees.
+     */
+    static final double COORDINATE_RESOLUTION = 1e-7;
+
+    /**
+     * Absolute resolution of all property values in their respective unit.
+     */
+    static final double PROPERTY_RESOLUTION = 1e-4;
+
+    /**
+     * Largest absolute quantized value, which keeps the deltas of any two values within a long
+     * and all values exactly representable when decoded.
+     */
+    private static final long MAX_QUANTIZED = 1L << 52;
+
+    private static final int VERSION = 1;
+
+    private MeasurementArchiveCodec() {
+    }
+
+    /**
+     * Checks whether all values of the given measurements are within the quantizable range.
+     * Measurements with values outside of it, e.g., sensor errors, have to be stored as rows.
+     *
+     * @param measurements the measurements to check.
+     * @return true if the measurements can be encoded.
+     */
+    static boolean canEncode(List<Measurement> measurements) {
+        for (Measurement measurement : measurements) {
+            if (!isQuantizable(measurement.getLatitude(), COORDINATE_RESOLUTION)
+                    || !isQuantizable(measurement.getLongitude(), COORDINATE_RESOLUTION)) {
+                return false;
+            }
+            for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                Double value = measurement.getProperty(key);
+                if (isStored(value) && !isQuantizable(value, PROPERTY_RESOLUTION)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes measurements in the given order.
+     *
+     * @param measurements the measurements to encode.
+     * @return the encoded measurements.
+     * @throws IllegalArgumentException if a value is outside of the quantizable range.
+     * @see #canEncode(List)
+     */
+    static byte[] encode(List<Measurement> measurements) {
+        if (!canEncode(measurements)) {
+            throw new IllegalArgumentException("Measurement values exceed the quantizable range");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            bytes.write(VERSION);
+            DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes));
+            int count = measurements.size();
+            writeVarint(out, count);
+
+            long previous = 0;
+            for (Measurement measurement : measurements) {
+                writeSigned(out, measurement.getTime() - previous);
+                previous = measurement.getTime();
+            }
+
+            previous = 0;
+            for (Measurement measurement : measurements) {
+                long value = quantize(measurement.getLatitude(), COORDINATE_RESOLUTION);
+                writeSigned(out, value - previous);
+                previous = value;
+            }
+
+            previous = 0;
+            for (Measurement measurement : measurements) {
+                long value = quantize(measurement.getLongitude(), COORDINATE_RESOLUTION);
+                writeSigned(out, value - previous);
+                previous = value;
+            }
+
+            List<Measurement.PropertyKey> keys = new ArrayList<>();
+            for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                for (Measurement measurement : measurements) {
+                    if (isStored(measurement.getProperty(key))) {
+                        keys.add(key);
+                        break;
+                    }
+                }
+            }
+
+            writeVarint(out, keys.size());
+            for (Measurement.PropertyKey key : keys) {
+                // keys are stored by name, which stays stable when the enum is extended.
+                out.writeUTF(key.name());
+
+                byte[] presence = new byte[(count + 7) / 8];
+                for (int i = 0; i < count; i++) {
+                    if (isStored(measurements.get(i).getProperty(key))) {
+                        presence[i / 8] |= 1 << (i % 8);
+                    }
+                }
+                out.write(presence);
+
+                previous = 0;
+                for (Measurement measurement : measurements) {
+                    Double property = measurement.getProperty(key);
+                    if (isStored(property)) {
+                        long value = quantize(property, PROPERTY_RESOLUTION);
+                        writeSigned(out, value - previous);
+                        previous = value;
+                    }
+                }
+            }
+            out.close();
+        } catch (IOException e) {
+            // cannot happen when writing to memory.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes measurements that have been encoded with {@link #encode(List)}.
+     *
+     * @param data    the encoded measurements.
+     * @param trackId the id of the track to assign to the measurements.
+     * @return the decoded measurements in their original order.
+     * @throws IOException if the data is corrupt or of an unknown version.
+     */
+    static List<Measurement> decode(byte[] data, Track.TrackId trackId) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        int version = bytes.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported measurement archive version " + version);
+        }
+
+        DataInputStream in = new DataInputStream(new InflaterInputStream(bytes));
+        try {
+            int count = readVarint(in);
+            List<Measurement> measurements = new ArrayList<>(count);
+
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                Measurement measurement = new PrimitiveMeasurement();
+                measurement.setTrackId(trackId);
+                previous += readSigned(in);
+                measurement.setTime(previous);
+                measurements.add(measurement);
+            }
+
+            previous = 0;
+            for (Measurement measurement : measurements) {
+                previous += readSigned(in);
+                measurement.setLatitude(previous * COORDINATE_RESOLUTION);
+            }
+
+            previous = 0;
+            for (Measurement measurement : measurements) {
+                previous += readSigned(in);
+                measurement.setLongitude(previous * COORDINATE_RESOLUTION);
+            }
+
+            int keyCount = readVarint(in);
+            for (int k = 0; k < keyCount; k++) {
+                String name = in.readUTF();
+                Measurement.PropertyKey key = null;
+                try {
+                    key = Measurement.PropertyKey.valueOf(name);
+                } catch (IllegalArgumentException e) {
+                    // the values of unknown properties are read but skipped.
+                }
+
+                byte[] presence = new byte[(count + 7) / 8];
+                in.readFully(presence);
+
+                previous = 0;
+                for (int i = 0; i < count; i++) {
+                    if ((presence[i / 8] & (1 << (i % 8))) != 0) {
+                        previous += readSigned(in);
+                        if (key != null) {
+                            measurements.get(i).setPropertyValue(key, previous * PROPERTY_RESOLUTION);
+                        }
+                    }
+                }
+            }
+            return measurements;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static boolean isStored(Double value) {
+        return value != null && MeasurementTable.isStorable(value);
+    }
+
+    private static boolean isQuantizable(Double value, double resolution) {
+        return value == null || (MeasurementTable.isStorable(value)
+                && Math.abs(value / resolution) <= MAX_QUANTIZED);
+    }
+
+    private static long quantize(Double value, double resolution) {
+        return value == null ? 0 : Math.round(value / resolution);
+    }
+
+    private static void writeSigned(OutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readSigned(InputStream in) throws IOException {
+        long value = readVarintLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        return (int) readVarintLong(in);
+    }
+
+    private static long readVarintLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("Unexpected end of measurement archive");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in measurement archive");
+    }
+}
@@ -21,22 +21,26 @@ package org.envirocar.storage;
 import android.content.ContentValues;
 import android.database.Cursor;
 
+import androidx.sqlite.db.SupportSQLiteStatement;
+
 import org.envirocar.core.entity.Measurement;
-import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.entity.PrimitiveMeasurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.logging.Logger;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Set;
 
 import io.reactivex.functions.Function;
 
 /**
- * TODO JavaDoc
+ * Table storing the measurements of all tracks. Every {@link Measurement.PropertyKey} has its own
+ * nullable REAL column, so that values are stored and read as numbers without any intermediate
+ * serialization.
  *
  * @author dewall
  */
@@ -48,81 +52,257 @@ class MeasurementTable {
     public static final String KEY_LONGITUDE = "longitude";
     public static final String KEY_LATITUDE = "latitude";
     public static final String KEY_ROWID = "_id";
-    public static final String KEY_PROPERTIES = "properties";
     public static final String KEY_TRACK = "track";
 
-    protected static final String CREATE =
-            "create table " + TABLE_NAME + " (" +
-                    KEY_ROWID + " INTEGER primary key autoincrement, " +
-                    KEY_LATITUDE + " BLOB, " +
-                    KEY_LONGITUDE + " BLOB, " +
-                    KEY_TIME + " BLOB, " +
-                    KEY_PROPERTIES + " BLOB, " +
-                    KEY_TRACK + " INTEGER);";
+    /**
+     * JSON encoded properties column of the schema up to database version 11. Only used for
+     * migrating existing databases.
+     */
+    public static final String KEY_LEGACY_PROPERTIES = "properties";
+
+    private static final Measurement.PropertyKey[] PROPERTY_KEYS = Measurement.PropertyKey.values();
+    private static final String[] PROPERTY_COLUMNS = new String[PROPERTY_KEYS.length];
+
+    static {
+        for (Measurement.PropertyKey key : PROPERTY_KEYS) {
+            PROPERTY_COLUMNS[key.ordinal()] = key.name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    protected static final String CREATE = createStatement(TABLE_NAME);
 
     protected static final String DELETE =
             "DROP TABLE IF EXISTS " + TABLE_NAME;
 
+    /**
+     * Nearly all reads select the measurements of a single track ordered by time.
+     */
+    protected static final String CREATE_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_track_time_idx ON " +
+                    TABLE_NAME + " (" + KEY_TRACK + ", " + KEY_TIME + ")";
+
     protected static final Function<Cursor, Measurement> MAPPER = cursor -> fromCursor(cursor);
 
+    /**
+     * Returns the name of the trigger that notifies queries about changes of the measurements
+     * of a single track, whereas the table name notifies about changes of any measurement.
+     *
+     * @param trackId the id of the track.
+     * @return the trigger name.
+     */
+    public static String trigger(Track.TrackId trackId) {
+        return TABLE_NAME + "/" + trackId.getId();
+    }
+
+    /**
+     * @param tableName the name of the table to create.
+     * @return the create statement of the measurement schema for the given table name.
+     */
+    static String createStatement(String tableName) {
+        StringBuilder sb = new StringBuilder("create table ")
+                .append(tableName).append(" (")
+                .append(KEY_ROWID).append(" INTEGER primary key autoincrement, ")
+                .append(KEY_LATITUDE).append(" REAL, ")
+                .append(KEY_LONGITUDE).append(" REAL, ")
+                .append(KEY_TIME).append(" INTEGER, ")
+                .append(KEY_TRACK).append(" INTEGER");
+        for (String column : PROPERTY_COLUMNS) {
+            sb.append(", ").append(column).append(" REAL");
+        }
+        return sb.append(");").toString();
+    }
+
+    /**
+     * @param key the property key
+     * @return the name of the column that stores the values of the given property.
+     */
+    public static String getColumnName(Measurement.PropertyKey key) {
+        return PROPERTY_COLUMNS[key.ordinal()];
+    }
+
+    /**
+     * @param properties the properties to select, or null for all properties.
+     * @return the comma separated list of columns that have to be selected in order to map the
+     * coordinates, the time, the track, and the given properties of measurements.
+     */
+    static String projection(Set<Measurement.PropertyKey> properties) {
+        if (properties == null) {
+            return "*";
+        }
+
+        StringBuilder sb = new StringBuilder()
+                .append(KEY_LATITUDE).append(", ")
+                .append(KEY_LONGITUDE).append(", ")
+                .append(KEY_TIME).append(", ")
+                .append(KEY_TRACK);
+        for (Measurement.PropertyKey key : properties) {
+            sb.append(", ").append(PROPERTY_COLUMNS[key.ordinal()]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param tableName the name of the table to insert into.
+     * @return an insert statement for all columns except the row id, to be bound with
+     * {@link #bind(SupportSQLiteStatement, Measurement)}.
+     */
+    static String insertStatement(String tableName) {
+        StringBuilder columns = new StringBuilder()
+                .append(KEY_LATITUDE).append(", ")
+                .append(KEY_LONGITUDE).append(", ")
+                .append(KEY_TIME).append(", ")
+                .append(KEY_TRACK);
+        StringBuilder params = new StringBuilder("?, ?, ?, ?");
+        for (String column : PROPERTY_COLUMNS) {
+            columns.append(", ").append(column);
+            params.append(", ?");
+        }
+        return "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + params + ")";
+    }
+
+    /**
+     * Binds all values of a measurement to a statement created by {@link #insertStatement(String)}.
+     *
+     * @param statement   the compiled insert statement.
+     * @param measurement the measurement to bind.
+     */
+    static void bind(SupportSQLiteStatement statement, Measurement measurement) {
+        statement.clearBindings();
+        bindNullable(statement, 1, measurement.getLatitude());
+        bindNullable(statement, 2, measurement.getLongitude());
+        statement.bindLong(3, measurement.getTime());
+        statement.bindLong(4, measurement.getTrackId().getId());
+        for (int i = 0; i < PROPERTY_KEYS.length; i++) {
+            Double value = measurement.getProperty(PROPERTY_KEYS[i]);
+            bindNullable(statement, 5 + i, value != null && isStorable(value) ? value : null);
+        }
+    }
+
+    private static void bindNullable(SupportSQLiteStatement statement, int index, Double value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindDouble(index, value);
+        }
+    }
+
     public static ContentValues toContentValues(Measurement measurement) {
         ContentValues values = new ContentValues();
         values.put(KEY_LATITUDE, measurement.getLatitude());
         values.put(KEY_LONGITUDE, measurement.getLongitude());
         values.put(KEY_TIME, measurement.getTime());
         values.put(KEY_TRACK, measurement.getTrackId().getId());
-        values.put(KEY_PROPERTIES, createPropertiesString(measurement));
+        for (Measurement.PropertyKey key : PROPERTY_KEYS) {
+            Double value = measurement.getProperty(key);
+            if (value != null && isStorable(value)) {
+                values.put(PROPERTY_COLUMNS[key.ordinal()], value);
+            } else if (value != null) {
+                LOG.warn("Error while storing measurement property " + key.name() + "=" + value);
+            }
+        }
         return values;
     }
 
-    private static String createPropertiesString(Measurement measurement) {
-        JSONObject result = new JSONObject();
-        Map<Measurement.PropertyKey, Double> properties = measurement.getAllProperties();
-        for (Measurement.PropertyKey key : properties.keySet()) {
-            try {
-                result.put(key.name(), properties.get(key));
-            } catch (JSONException e) {
-                LOG.warn("Error while parsing measurement property " + key.name() + "=" + properties.get(key) + "; " + e.getMessage());
-            }
-        }
-        return result.toString();
+    /**
+     * SQLite maps non-finite doubles to NULL or fails on them, hence they are not stored at all.
+     */
+    static boolean isStorable(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
     }
 
     public static List<Measurement> fromCursorToList(Cursor c) {
-        List<Measurement> res = new ArrayList<>();
-
-        c.moveToFirst();
-        for (int i = 1; c.moveToNext(); i++) {
-            res.add(fromCursor(c));
+        List<Measurement> res = new ArrayList<>(c.getCount());
+        try {
+            ColumnIndices indices = new ColumnIndices(c);
+            while (c.moveToNext()) {
+                res.add(fromCursor(c, indices));
+            }
+        } finally {
+            c.close();
         }
-
         return res;
     }
 
     public static Measurement fromCursor(Cursor c) {
-        Measurement measurement = new MeasurementImpl();
-        measurement.setLatitude(c.getDouble(c.getColumnIndex(KEY_LATITUDE)));
-        measurement.setLongitude(c.getDouble(c.getColumnIndex(KEY_LONGITUDE)));
-        measurement.setTime(c.getLong(c.getColumnIndex(KEY_TIME)));
-        measurement.setTrackId(new Track.TrackId(
-                c.getLong(c.getColumnIndex(KEY_TRACK))));
-
-        String rawData = c.getString(c.getColumnIndex(KEY_PROPERTIES));
-        if (rawData != null) {
-            try {
-                JSONObject json = new JSONObject(rawData);
-                JSONArray names = json.names();
-                if (names != null) {
-                    for (int j = 0; j < names.length(); j++) {
-                        String key = names.getString(j);
-                        measurement.setProperty(Measurement.PropertyKey.valueOf(key), json
-                                .getDouble(key));
+        return fromCursor(c, new ColumnIndices(c));
+    }
+
+    static Measurement fromCursor(Cursor c, ColumnIndices indices) {
+        Measurement measurement = new PrimitiveMeasurement();
+        measurement.setLatitude(c.getDouble(indices.latitude));
+        measurement.setLongitude(c.getDouble(indices.longitude));
+        measurement.setTime(c.getLong(indices.time));
+        measurement.setTrackId(new Track.TrackId(c.getLong(indices.track)));
+
+        for (int i = 0; i < PROPERTY_KEYS.length; i++) {
+            int column = indices.properties[i];
+            if (column != -1 && !c.isNull(column)) {
+                measurement.setPropertyValue(PROPERTY_KEYS[i], c.getDouble(column));
+            }
+        }
+        return measurement;
+    }
+
+    /**
+     * Reads the rows of a cursor column-wise into a series without creating a measurement per
+     * row. The cursor is closed afterwards.
+     *
+     * @param c the cursor on measurement rows in time order.
+     * @return the series of the rows.
+     */
+    static MeasurementSeries toMeasurementSeries(Cursor c) {
+        try {
+            int size = c.getCount();
+            ColumnIndices indices = new ColumnIndices(c);
+            long[] times = new long[size];
+            double[] latitudes = new double[size];
+            double[] longitudes = new double[size];
+            double[][] properties = new double[PROPERTY_KEYS.length][];
+
+            for (int row = 0; row < size && c.moveToNext(); row++) {
+                times[row] = c.getLong(indices.time);
+                latitudes[row] = c.getDouble(indices.latitude);
+                longitudes[row] = c.getDouble(indices.longitude);
+
+                for (int i = 0; i < PROPERTY_KEYS.length; i++) {
+                    int column = indices.properties[i];
+                    if (column == -1 || c.isNull(column)) {
+                        continue;
+                    }
+                    double[] values = properties[PROPERTY_KEYS[i].ordinal()];
+                    if (values == null) {
+                        values = new double[size];
+                        Arrays.fill(values, Double.NaN);
+                        properties[PROPERTY_KEYS[i].ordinal()] = values;
                     }
+                    values[row] = c.getDouble(column);
                 }
-            } catch (JSONException e) {
-                LOG.severe("could not load properties", e);
+            }
+            return MeasurementSeries.of(times, latitudes, longitudes, properties);
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Resolves the column indices of a cursor once, so that mapping multiple rows does not need
+     * to look them up for every row and every property.
+     */
+    static final class ColumnIndices {
+        final int latitude;
+        final int longitude;
+        final int time;
+        final int track;
+        final int[] properties = new int[PROPERTY_KEYS.length];
+
+        ColumnIndices(Cursor c) {
+            this.latitude = c.getColumnIndex(KEY_LATITUDE);
+            this.longitude = c.getColumnIndex(KEY_LONGITUDE);
+            this.time = c.getColumnIndex(KEY_TIME);
+            this.track = c.getColumnIndex(KEY_TRACK);
+            for (int i = 0; i < PROPERTY_KEYS.length; i++) {
+                properties[i] = c.getColumnIndex(PROPERTY_COLUMNS[i]);
             }
         }
-        return measurement;
     }
 }
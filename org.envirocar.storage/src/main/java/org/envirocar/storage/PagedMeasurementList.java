@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.database.Cursor;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementSeries;
+import org.envirocar.core.entity.Track;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only list of the measurements of a stored track that loads its elements page-wise from
+ * the database on demand. Only a bounded number of pages is kept in memory, so that the memory
+ * footprint stays constant regardless of the length of the track.
+ * <p>
+ * The size of the list is determined once on creation, i.e., the list is a snapshot of the
+ * measurements that were stored at that time.
+ * <p>
+ * Pages are loaded on a keyset instead of an offset: the key (time, row id) of the last
+ * measurement of each page is remembered, and the next page starts after this key. Thereby,
+ * reading a track in order costs a single pass over its measurements. Accessing a page whose
+ * start is not yet known walks the index from the nearest known key once, reading only the
+ * keys, and remembers the keys of all pages on the way.
+ * <p>
+ * The {@link MeasurementSeries} of the track is read column-wise from the database instead of
+ * through the pages.
+ *
+ * @author dewall
+ */
+class PagedMeasurementList extends AbstractList<Measurement> implements MeasurementSeries.Source {
+
+    static final int DEFAULT_PAGE_SIZE = 500;
+    static final int DEFAULT_MAX_RESIDENT_PAGES = 4;
+
+    // ordered by the row id as well to get a stable order for measurements with equal time.
+    private static final String ORDER_BY_KEY = " ORDER BY " + MeasurementTable.KEY_TIME +
+            " ASC, " + MeasurementTable.KEY_ROWID + " ASC";
+
+    private final BriteDatabase database;
+    private final Track.TrackId trackId;
+    private final int size;
+    private final int pageSize;
+    private final Map<Integer, List<Measurement>> pages;
+
+    // the key of the last measurement of each page, or -1 as row id if it is not known yet.
+    private final long[] lastTimes;
+    private final long[] lastRowIds;
+
+    /**
+     * Constructor.
+     *
+     * @param database the database to load the measurements from.
+     * @param trackId  the id of the track.
+     */
+    PagedMeasurementList(BriteDatabase database, Track.TrackId trackId) {
+        this(database, trackId, countMeasurements(database, trackId));
+    }
+
+    /**
+     * Constructor for a track whose number of measurements is already known, e.g., from its
+     * summary.
+     *
+     * @param database the database to load the measurements from.
+     * @param trackId  the id of the track.
+     * @param size     the number of measurements of the track.
+     */
+    PagedMeasurementList(BriteDatabase database, Track.TrackId trackId, int size) {
+        this(database, trackId, size, DEFAULT_PAGE_SIZE, DEFAULT_MAX_RESIDENT_PAGES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param database          the database to load the measurements from.
+     * @param trackId           the id of the track.
+     * @param size              the number of measurements of the track.
+     * @param pageSize          the number of measurements per page.
+     * @param maxResidentPages  the maximum number of pages kept in memory.
+     */
+    PagedMeasurementList(BriteDatabase database, Track.TrackId trackId, int size, int pageSize,
+                         final int maxResidentPages) {
+        if (pageSize <= 0 || maxResidentPages <= 0) {
+            throw new IllegalArgumentException("page size and resident pages have to be positive");
+        }
+        this.database = database;
+        this.trackId = trackId;
+        this.pageSize = pageSize;
+        this.size = size;
+        int pageCount = (size + pageSize - 1) / pageSize;
+        this.lastTimes = new long[pageCount];
+        this.lastRowIds = new long[pageCount];
+        Arrays.fill(lastRowIds, -1);
+        this.pages = new LinkedHashMap<Integer, List<Measurement>>(maxResidentPages + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Measurement>> eldest) {
+                return size() > maxResidentPages;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Measurement get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int pageIndex = index / pageSize;
+        List<Measurement> page = pages.get(pageIndex);
+        if (page == null) {
+            page = loadPage(pageIndex);
+            pages.put(pageIndex, page);
+        }
+
+        int offset = index % pageSize;
+        if (offset >= page.size()) {
+            // measurements have been deleted since this list has been created.
+            throw new IndexOutOfBoundsException("Index: " + index + " is no longer stored");
+        }
+        return page.get(offset);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads the measurements column-wise in a single pass, without creating them or loading
+     * pages. The series holds all measurements of the track in primitive arrays.
+     */
+    @Override
+    public MeasurementSeries toMeasurementSeries() {
+        return MeasurementTable.toMeasurementSeries(database.query(
+                "SELECT * FROM " + MeasurementTable.TABLE_NAME +
+                        " WHERE " + MeasurementTable.KEY_TRACK + "=" + trackId.getId() +
+                        ORDER_BY_KEY + " LIMIT " + size));
+    }
+
+    private List<Measurement> loadPage(int pageIndex) {
+        String after = "";
+        if (pageIndex > 0) {
+            if (lastRowIds[pageIndex - 1] < 0 && !seekPageKeys(pageIndex - 1)) {
+                // measurements have been deleted since this list has been created.
+                return Collections.emptyList();
+            }
+            after = afterKey(pageIndex - 1);
+        }
+
+        Cursor cursor = database.query("SELECT * FROM " + MeasurementTable.TABLE_NAME +
+                " WHERE " + MeasurementTable.KEY_TRACK + "=" + trackId.getId() + after +
+                ORDER_BY_KEY + " LIMIT " + pageSize);
+        List<Measurement> page = new ArrayList<>(cursor.getCount());
+        try {
+            MeasurementTable.ColumnIndices indices = new MeasurementTable.ColumnIndices(cursor);
+            int rowId = cursor.getColumnIndexOrThrow(MeasurementTable.KEY_ROWID);
+            while (cursor.moveToNext()) {
+                page.add(MeasurementTable.fromCursor(cursor, indices));
+                if (page.size() == pageSize) {
+                    lastTimes[pageIndex] = cursor.getLong(indices.time);
+                    lastRowIds[pageIndex] = cursor.getLong(rowId);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return page;
+    }
+
+    /**
+     * Reads the keys of the pages following the nearest page with a known key up to the given
+     * page.
+     *
+     * @return true if the key of the page is known afterwards.
+     */
+    private boolean seekPageKeys(int pageIndex) {
+        int known = pageIndex - 1;
+        while (known >= 0 && lastRowIds[known] < 0) {
+            known--;
+        }
+
+        // the index on track and time contains the row id, thus only the index is read.
+        Cursor cursor = database.query("SELECT " + MeasurementTable.KEY_TIME + ", " +
+                MeasurementTable.KEY_ROWID + " FROM " + MeasurementTable.TABLE_NAME +
+                " WHERE " + MeasurementTable.KEY_TRACK + "=" + trackId.getId() +
+                (known >= 0 ? afterKey(known) : "") + ORDER_BY_KEY +
+                " LIMIT " + ((long) (pageIndex - known) * pageSize));
+        try {
+            int count = 0;
+            while (cursor.moveToNext()) {
+                count++;
+                if (count % pageSize == 0) {
+                    int page = known + count / pageSize;
+                    lastTimes[page] = cursor.getLong(0);
+                    lastRowIds[page] = cursor.getLong(1);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return lastRowIds[pageIndex] >= 0;
+    }
+
+    /**
+     * @return the condition selecting the measurements after the last one of the given page.
+     */
+    private String afterKey(int pageIndex) {
+        long time = lastTimes[pageIndex];
+        // the range on time is resolved with the index, the row id only separates equal times.
+        return " AND " + MeasurementTable.KEY_TIME + " >= " + time +
+                " AND (" + MeasurementTable.KEY_TIME + " > " + time + " OR " +
+                MeasurementTable.KEY_ROWID + " > " + lastRowIds[pageIndex] + ")";
+    }
+
+    private static int countMeasurements(BriteDatabase database, Track.TrackId trackId) {
+        Cursor cursor = database.query(
+                "SELECT COUNT(*) FROM " + MeasurementTable.TABLE_NAME +
+                        " WHERE " + MeasurementTable.KEY_TRACK + "=" + trackId.getId());
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+/**
+ * Limits for the locally stored tracks that are enforced by {@link StorageRetention}.
+ * <p>
+ * Tracks that only exist on this device are never deleted by a policy. When the database
+ * exceeds its size limit, their measurements are archived instead.
+ *
+ * @author dewall
+ */
+public final class RetentionPolicy {
+
+    /**
+     * Indicates that a limit is not enforced.
+     */
+    public static final long UNLIMITED = -1;
+
+    /**
+     * Keeps all tracks. Tracks are only deleted or archived when the user opted into limits.
+     */
+    public static final RetentionPolicy DEFAULT = new RetentionPolicy(
+            UNLIMITED, UNLIMITED, false);
+
+    /**
+     * The limits the user can opt into in the settings. Keeps the stored data below 500 MB.
+     */
+    public static final RetentionPolicy LIMITED = new RetentionPolicy(
+            500L * 1024 * 1024, UNLIMITED, false);
+
+    private final long maxDatabaseSize;
+    private final long maxAge;
+    private final boolean headersOnlyForUploadedTracks;
+
+    /**
+     * Constructor.
+     *
+     * @param maxDatabaseSize              the maximum size of the stored data in bytes, or
+     *                                     {@link #UNLIMITED}. Above this size, tracks
+     *                                     available on the server are deleted oldest first, and
+     *                                     afterwards the remaining finished tracks are archived.
+     * @param maxAge                       the maximum time in milliseconds after their end that
+     *                                     tracks available on the server are kept, or
+     *                                     {@link #UNLIMITED}.
+     * @param headersOnlyForUploadedTracks whether only the headers and summaries of tracks
+     *                                     available on the server are kept, while their
+     *                                     measurements are deleted.
+     */
+    public RetentionPolicy(long maxDatabaseSize, long maxAge,
+                           boolean headersOnlyForUploadedTracks) {
+        this.maxDatabaseSize = maxDatabaseSize;
+        this.maxAge = maxAge;
+        this.headersOnlyForUploadedTracks = headersOnlyForUploadedTracks;
+    }
+
+    public long getMaxDatabaseSize() {
+        return maxDatabaseSize;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public boolean isHeadersOnlyForUploadedTracks() {
+        return headersOnlyForUploadedTracks;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy{" +
+                "maxDatabaseSize=" + maxDatabaseSize +
+                ", maxAge=" + maxAge +
+                ", headersOnlyForUploadedTracks=" + headersOnlyForUploadedTracks +
+                '}';
+    }
+}
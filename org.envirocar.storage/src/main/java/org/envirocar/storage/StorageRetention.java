@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.database.Cursor;
+
+import com.squareup.sqlbrite3.BriteDatabase;
+
+import org.envirocar.core.EnviroCarDB;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Enforces a {@link RetentionPolicy} on the locally stored tracks.
+ * <p>
+ * The work is split into small steps, each of which deletes, trims or archives a few tracks
+ * within its own short transaction. Steps are executed in slices that end after
+ * {@link #SLICE_BUDGET} milliseconds, with a pause of {@link #SLICE_PAUSE} milliseconds between
+ * two slices, so that recording writes and UI queries are never held up for long. Archiving
+ * cannot be split, as a track is archived within a single transaction. Therefore, a slice
+ * archives at most one track of at most {@link #MAX_ARCHIVE_MEASUREMENTS} measurements and
+ * does nothing else. Larger tracks are left as they are. The scheduler
+ * executes the slices and serves as the clock, which makes the retention testable with a
+ * virtual time scheduler.
+ *
+ * @author dewall
+ */
+public class StorageRetention {
+    private static final Logger LOG = Logger.getLogger(StorageRetention.class);
+
+    static final long SLICE_BUDGET = 50;
+    static final long SLICE_PAUSE = 500;
+    static final int DELETE_BATCH_SIZE = 10;
+    static final int MAX_ARCHIVE_MEASUREMENTS = 10000;
+
+    private static final String END_TIME = "COALESCE(s." + TrackSummaryTable.KEY_END_TIME +
+            ", t." + TrackTable.KEY_TRACK_END_TIME + ", t." + TrackTable.KEY_TRACK_START_TIME + ")";
+    private static final String HAS_MEASUREMENTS = "(EXISTS (SELECT 1 FROM " +
+            MeasurementTable.TABLE_NAME + " WHERE " + MeasurementTable.KEY_TRACK + " = t." +
+            TrackTable.KEY_TRACK_ID + ") OR EXISTS (SELECT 1 FROM " +
+            TrackArchiveTable.TABLE_NAME + " WHERE " + TrackArchiveTable.KEY_TRACK + " = t." +
+            TrackTable.KEY_TRACK_ID + "))";
+
+    private final BriteDatabase briteDatabase;
+    private final EnviroCarDB enviroCarDB;
+    private final Scheduler scheduler;
+    private final int maxStepsPerSlice;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Set<Long> unarchivable = new HashSet<>();
+
+    private volatile RetentionPolicy policy = RetentionPolicy.DEFAULT;
+
+    /**
+     * Constructor.
+     *
+     * @param briteDatabase the database to inspect.
+     * @param enviroCarDB   the database to modify.
+     * @param scheduler     the scheduler to run the slices on, which is also used as clock.
+     */
+    public StorageRetention(BriteDatabase briteDatabase, EnviroCarDB enviroCarDB,
+                            Scheduler scheduler) {
+        this(briteDatabase, enviroCarDB, scheduler, Integer.MAX_VALUE);
+    }
+
+    StorageRetention(BriteDatabase briteDatabase, EnviroCarDB enviroCarDB, Scheduler scheduler,
+                     int maxStepsPerSlice) {
+        this.briteDatabase = briteDatabase;
+        this.enviroCarDB = enviroCarDB;
+        this.scheduler = scheduler;
+        this.maxStepsPerSlice = maxStepsPerSlice;
+    }
+
+    public RetentionPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(RetentionPolicy policy) {
+        LOG.info("setPolicy(): " + policy);
+        this.policy = policy;
+    }
+
+    /**
+     * Enforces the policy now and then periodically.
+     *
+     * @param period the period between two enforcements.
+     * @param unit   the unit of the period.
+     * @return the disposable to stop the periodic enforcement.
+     */
+    public Disposable start(long period, TimeUnit unit) {
+        return scheduler.schedulePeriodicallyDirect(this::enforce, 0, period, unit);
+    }
+
+    /**
+     * Starts to enforce the policy unless an enforcement is already in progress.
+     */
+    public void enforce() {
+        if (running.compareAndSet(false, true)) {
+            scheduler.scheduleDirect(() -> {
+                // tracks that failed to be archived are retried with each enforcement.
+                unarchivable.clear();
+                runSlice();
+            });
+        }
+    }
+
+    /**
+     * @return true while the policy is being enforced.
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private void runSlice() {
+        long deadline = scheduler.now(TimeUnit.MILLISECONDS) + SLICE_BUDGET;
+        try {
+            for (int steps = 0; steps < maxStepsPerSlice &&
+                    (steps == 0 || scheduler.now(TimeUnit.MILLISECONDS) < deadline); steps++) {
+                Step result = step(policy, steps == 0);
+                if (result == Step.SATISFIED) {
+                    LOG.info("Retention policy is satisfied.");
+                    running.set(false);
+                    return;
+                } else if (result == Step.END_SLICE) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Error while enforcing the retention policy", e);
+            running.set(false);
+            return;
+        }
+        scheduler.scheduleDirect(this::runSlice, SLICE_PAUSE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes the most important action that is required by the policy.
+     *
+     * @param firstOfSlice whether this is the first step of a slice, which is the only step
+     *                     that may archive a track.
+     * @return {@link Step#SATISFIED} if the policy is satisfied, or cannot be satisfied any
+     * further.
+     */
+    Step step(RetentionPolicy policy, boolean firstOfSlice) {
+        if (policy.getMaxAge() != RetentionPolicy.UNLIMITED) {
+            long oldest = scheduler.now(TimeUnit.MILLISECONDS) - policy.getMaxAge();
+            List<Track.TrackId> expired = queryTrackIds("t." + TrackTable.KEY_REMOTE_ID +
+                    " IS NOT NULL AND " + END_TIME + " < " + oldest, DELETE_BATCH_SIZE);
+            if (!expired.isEmpty()) {
+                LOG.info(String.format("Deleting %s expired tracks", expired.size()));
+                enviroCarDB.deleteTracks(expired);
+                return Step.CONTINUE;
+            }
+        }
+
+        if (policy.isHeadersOnlyForUploadedTracks()) {
+            List<Track.TrackId> uploaded = queryTrackIds("t." + TrackTable.KEY_REMOTE_ID +
+                    " IS NOT NULL AND " + HAS_MEASUREMENTS, 1);
+            if (!uploaded.isEmpty()) {
+                LOG.info(String.format("Deleting the measurements of uploaded track %s",
+                        uploaded.get(0)));
+                enviroCarDB.deleteMeasurements(uploaded.get(0));
+                return Step.CONTINUE;
+            }
+        }
+
+        if (policy.getMaxDatabaseSize() != RetentionPolicy.UNLIMITED &&
+                getUsedBytes() > policy.getMaxDatabaseSize()) {
+            // tracks available on the server can be downloaded again.
+            List<Track.TrackId> uploaded = queryTrackIds("t." + TrackTable.KEY_REMOTE_ID +
+                    " IS NOT NULL", 1);
+            if (!uploaded.isEmpty()) {
+                LOG.info(String.format("Deleting uploaded track %s to reduce the database size",
+                        uploaded.get(0)));
+                enviroCarDB.deleteTracks(uploaded);
+                return Step.CONTINUE;
+            }
+
+            // local tracks are only compacted, but never deleted.
+            if (!firstOfSlice) {
+                return Step.END_SLICE;
+            }
+            List<Track.TrackId> local = queryTrackIds(archivableCondition(), 1);
+            if (!local.isEmpty()) {
+                Track.TrackId trackId = local.get(0);
+                LOG.info(String.format("Archiving track %s to reduce the database size", trackId));
+                if (!enviroCarDB.archiveTrack(trackId)) {
+                    LOG.warn(String.format("Track %s cannot be archived. Skipping it.", trackId));
+                    unarchivable.add(trackId.getId());
+                }
+                return Step.END_SLICE;
+            }
+            LOG.warn("The database exceeds its size limit, but nothing more can be removed.");
+        }
+        return Step.SATISFIED;
+    }
+
+    /**
+     * @return the condition selecting the finished local tracks whose measurements are still
+     * stored as rows and can be archived within a single slice.
+     */
+    private String archivableCondition() {
+        StringBuilder condition = new StringBuilder("t.")
+                .append(TrackTable.KEY_REMOTE_ID).append(" IS NULL AND t.")
+                .append(TrackTable.KEY_TRACK_STATE).append(" = '")
+                .append(Track.TrackStatus.FINISHED).append("' AND NOT EXISTS (SELECT 1 FROM ")
+                .append(TrackArchiveTable.TABLE_NAME).append(" WHERE ")
+                .append(TrackArchiveTable.KEY_TRACK).append(" = t.")
+                .append(TrackTable.KEY_TRACK_ID).append(") AND (SELECT COUNT(*) FROM ")
+                .append(MeasurementTable.TABLE_NAME).append(" WHERE ")
+                .append(MeasurementTable.KEY_TRACK).append(" = t.")
+                .append(TrackTable.KEY_TRACK_ID).append(") BETWEEN 1 AND ")
+                .append(MAX_ARCHIVE_MEASUREMENTS);
+        if (!unarchivable.isEmpty()) {
+            condition.append(" AND t.").append(TrackTable.KEY_TRACK_ID).append(" NOT IN (");
+            String separator = "";
+            for (Long trackId : unarchivable) {
+                condition.append(separator).append(trackId);
+                separator = ", ";
+            }
+            condition.append(")");
+        }
+        return condition.toString();
+    }
+
+    /**
+     * @return the ids of the tracks matching the condition, oldest first.
+     */
+    private List<Track.TrackId> queryTrackIds(String condition, int limit) {
+        Cursor cursor = briteDatabase.query("SELECT t." + TrackTable.KEY_TRACK_ID +
+                " FROM " + TrackTable.TABLE_TRACK + " t" +
+                " LEFT JOIN " + TrackSummaryTable.TABLE_NAME + " s" +
+                " ON s." + TrackSummaryTable.KEY_TRACK + " = t." + TrackTable.KEY_TRACK_ID +
+                " WHERE " + condition +
+                " ORDER BY " + END_TIME + " ASC LIMIT " + limit);
+        try {
+            List<Track.TrackId> result = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                result.add(new Track.TrackId(cursor.getLong(0)));
+            }
+            return result;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * The outcome of a single step.
+     */
+    enum Step {
+        /**
+         * The policy is satisfied, or cannot be satisfied any further.
+         */
+        SATISFIED,
+        /**
+         * Further steps are required and may be executed within the current slice.
+         */
+        CONTINUE,
+        /**
+         * Further steps are required, but the current slice has to end, e.g., after a track
+         * has been archived.
+         */
+        END_SLICE
+    }
+
+    /**
+     * @return the size of all pages of the database that are in use.
+     */
+    long getUsedBytes() {
+        return (queryLong("PRAGMA page_count") - queryLong("PRAGMA freelist_count")) *
+                queryLong("PRAGMA page_size");
+    }
+
+    private long queryLong(String sql) {
+        Cursor cursor = briteDatabase.query(sql);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+/**
+ * Table storing the measurements of archived tracks encoded by {@link MeasurementArchiveCodec}.
+ * The measurement rows of a track are removed once it has been archived.
+ *
+ * @author dewall
+ */
+class TrackArchiveTable {
+
+    public static final String TABLE_NAME = "track_archives";
+    public static final String KEY_TRACK = "track";
+    public static final String KEY_MEASUREMENT_COUNT = "measurement_count";
+    public static final String KEY_DATA = "data";
+
+    protected static final String CREATE =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                    KEY_TRACK + " INTEGER primary key, " +
+                    KEY_MEASUREMENT_COUNT + " INTEGER NOT NULL, " +
+                    KEY_DATA + " BLOB NOT NULL);";
+
+    protected static final String DELETE = "DROP TABLE IF EXISTS " + TABLE_NAME;
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.internal.TrackSummary;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.functions.Function;
+
+/**
+ * Table storing one {@link TrackSummary} per track. The summaries are updated whenever
+ * measurements are written and can be rebuilt from the measurements table at any time.
+ *
+ * @author dewall
+ */
+class TrackSummaryTable {
+
+    public static final String TABLE_NAME = "track_summaries";
+    public static final String KEY_TRACK = "track";
+    public static final String KEY_START_TIME = "start_time";
+    public static final String KEY_END_TIME = "end_time";
+    public static final String KEY_MEASUREMENT_COUNT = "measurement_count";
+    public static final String KEY_DISTANCE = "distance";
+    public static final String KEY_SPEED_SUM = "speed_sum";
+    public static final String KEY_SPEED_COUNT = "speed_count";
+    public static final String KEY_LAST_LATITUDE = "last_latitude";
+    public static final String KEY_LAST_LONGITUDE = "last_longitude";
+    public static final String KEY_PROPERTY_COUNTS = "property_counts";
+    public static final String KEY_STATISTICS_COUNT = "statistics_count";
+    public static final String KEY_FUEL_CONSUMPTION_SUM = "fuel_consumption_sum";
+    public static final String KEY_FUEL_CONSUMPTION_COUNT = "fuel_consumption_count";
+    public static final String KEY_CO2_EMISSION_SUM = "co2_emission_sum";
+
+    protected static final String CREATE =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                    KEY_TRACK + " INTEGER primary key, " +
+                    KEY_START_TIME + " INTEGER, " +
+                    KEY_END_TIME + " INTEGER, " +
+                    KEY_MEASUREMENT_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                    KEY_DISTANCE + " REAL NOT NULL DEFAULT 0, " +
+                    KEY_SPEED_SUM + " REAL NOT NULL DEFAULT 0, " +
+                    KEY_SPEED_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                    KEY_LAST_LATITUDE + " REAL, " +
+                    KEY_LAST_LONGITUDE + " REAL, " +
+                    KEY_PROPERTY_COUNTS + " TEXT, " +
+                    KEY_STATISTICS_COUNT + " INTEGER, " +
+                    KEY_FUEL_CONSUMPTION_SUM + " REAL, " +
+                    KEY_FUEL_CONSUMPTION_COUNT + " INTEGER, " +
+                    KEY_CO2_EMISSION_SUM + " REAL);";
+
+    protected static final String DELETE = "DROP TABLE IF EXISTS " + TABLE_NAME;
+
+    /**
+     * All columns of the summaries table apart from the track id.
+     */
+    protected static final String[] COLUMNS = {
+            KEY_START_TIME, KEY_END_TIME, KEY_MEASUREMENT_COUNT, KEY_DISTANCE, KEY_SPEED_SUM,
+            KEY_SPEED_COUNT, KEY_LAST_LATITUDE, KEY_LAST_LONGITUDE, KEY_PROPERTY_COUNTS,
+            KEY_STATISTICS_COUNT, KEY_FUEL_CONSUMPTION_SUM, KEY_FUEL_CONSUMPTION_COUNT,
+            KEY_CO2_EMISSION_SUM};
+
+    /**
+     * The columns required by {@link #readStatistics(Cursor)}.
+     */
+    protected static final String[] STATISTICS_COLUMNS = {
+            KEY_DISTANCE, KEY_SPEED_SUM, KEY_SPEED_COUNT, KEY_STATISTICS_COUNT,
+            KEY_FUEL_CONSUMPTION_SUM, KEY_FUEL_CONSUMPTION_COUNT, KEY_CO2_EMISSION_SUM};
+
+    protected static final Function<Cursor, TrackSummary> MAPPER = cursor -> fromCursor(cursor);
+
+    public static ContentValues toContentValues(TrackSummary summary) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_TRACK, summary.getTrackId().getId());
+        values.put(KEY_START_TIME, summary.getStartTime());
+        values.put(KEY_END_TIME, summary.getEndTime());
+        values.put(KEY_MEASUREMENT_COUNT, summary.getMeasurementCount());
+        putNullable(values, KEY_LAST_LATITUDE, summary.getLastLatitude());
+        putNullable(values, KEY_LAST_LONGITUDE, summary.getLastLongitude());
+        values.put(KEY_PROPERTY_COUNTS, encodePropertyCounts(summary.getPropertyCounts()));
+
+        // the distance and speeds are always accumulated, the fuel consumption is only stored
+        // with complete statistics. Its count is null if the fuel type is not supported.
+        TrackStatistics statistics = summary.getAccumulatedStatistics();
+        values.put(KEY_DISTANCE, statistics.getDistance());
+        values.put(KEY_SPEED_SUM, statistics.getSpeedSum());
+        values.put(KEY_SPEED_COUNT, statistics.getSpeedCount());
+        if (summary.getStatistics() != null) {
+            values.put(KEY_STATISTICS_COUNT, statistics.getMeasurementCount());
+            values.put(KEY_FUEL_CONSUMPTION_SUM, statistics.getConsumptionSum());
+            values.put(KEY_CO2_EMISSION_SUM, statistics.getCO2Sum());
+            if (statistics.isConsumptionSupported()) {
+                values.put(KEY_FUEL_CONSUMPTION_COUNT, statistics.getConsumptionCount());
+            } else {
+                values.putNull(KEY_FUEL_CONSUMPTION_COUNT);
+            }
+        } else {
+            values.putNull(KEY_STATISTICS_COUNT);
+            values.putNull(KEY_FUEL_CONSUMPTION_SUM);
+            values.putNull(KEY_FUEL_CONSUMPTION_COUNT);
+            values.putNull(KEY_CO2_EMISSION_SUM);
+        }
+        return values;
+    }
+
+    /**
+     * Maps the current row to a summary. Missing or null columns, e.g., of tracks without a
+     * summary in an outer join, result in empty values.
+     *
+     * @param c the cursor to read from.
+     * @return the summary of the current row.
+     */
+    public static TrackSummary fromCursor(Cursor c) {
+        TrackSummary summary = new TrackSummary(new Track.TrackId(c.getLong(c.getColumnIndex(KEY_TRACK))));
+        summary.setStartTime(getLong(c, KEY_START_TIME));
+        summary.setEndTime(getLong(c, KEY_END_TIME));
+        summary.setPropertyCounts(readPropertyCounts(c));
+
+        double lastLatitude = getDouble(c, KEY_LAST_LATITUDE, Double.NaN);
+        double lastLongitude = getDouble(c, KEY_LAST_LONGITUDE, Double.NaN);
+        TrackStatistics statistics = readStatistics(c);
+        if (statistics != null) {
+            summary.restoreStatistics(statistics, true, lastLatitude, lastLongitude);
+        } else {
+            summary.restoreStatistics(new TrackStatistics(getInt(c, KEY_MEASUREMENT_COUNT),
+                    getDouble(c, KEY_DISTANCE, 0.0), false, 0, 0, 0,
+                    getDouble(c, KEY_SPEED_SUM, 0.0), getInt(c, KEY_SPEED_COUNT)),
+                    false, lastLatitude, lastLongitude);
+        }
+        return summary;
+    }
+
+    /**
+     * Reads the statistics of the current row. The distance and the speeds are shared with the
+     * summary, whereas the fuel consumption has been accumulated for the fuel type of the track.
+     *
+     * @param c the cursor to read from, containing the {@link #STATISTICS_COLUMNS}.
+     * @return the statistics, or null if they are missing or do not cover all measurements.
+     */
+    public static TrackStatistics readStatistics(Cursor c) {
+        Long statisticsCount = getLong(c, KEY_STATISTICS_COUNT);
+        if (statisticsCount == null || statisticsCount != getInt(c, KEY_MEASUREMENT_COUNT)) {
+            return null;
+        }
+        int fuelConsumptionCount = c.getColumnIndex(KEY_FUEL_CONSUMPTION_COUNT);
+        return new TrackStatistics(statisticsCount.intValue(),
+                getDouble(c, KEY_DISTANCE, 0.0),
+                fuelConsumptionCount != -1 && !c.isNull(fuelConsumptionCount),
+                getDouble(c, KEY_CO2_EMISSION_SUM, 0.0),
+                getDouble(c, KEY_FUEL_CONSUMPTION_SUM, 0.0),
+                getInt(c, KEY_FUEL_CONSUMPTION_COUNT),
+                getDouble(c, KEY_SPEED_SUM, 0.0),
+                getInt(c, KEY_SPEED_COUNT));
+    }
+
+    /**
+     * Reads the property counts column of the current row.
+     *
+     * @param c the cursor to read from.
+     * @return the number of measurements per property, empty if the column is missing or null.
+     */
+    public static Map<Measurement.PropertyKey, Integer> readPropertyCounts(Cursor c) {
+        int index = c.getColumnIndex(KEY_PROPERTY_COUNTS);
+        return decodePropertyCounts(index == -1 || c.isNull(index) ? null : c.getString(index));
+    }
+
+    /**
+     * Encodes property counts as comma separated name=count pairs. Names are used instead of
+     * ordinals, so that the stored counts survive changes of the property keys.
+     *
+     * @param counts the number of measurements per property.
+     * @return the encoded counts.
+     */
+    static String encodePropertyCounts(Map<Measurement.PropertyKey, Integer> counts) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Measurement.PropertyKey, Integer> entry : counts.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey().name()).append('=').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param encoded counts encoded by {@link #encodePropertyCounts(Map)}, or null.
+     * @return the decoded counts. Unknown properties are skipped.
+     */
+    static Map<Measurement.PropertyKey, Integer> decodePropertyCounts(String encoded) {
+        Map<Measurement.PropertyKey, Integer> counts = new EnumMap<>(Measurement.PropertyKey.class);
+        if (encoded == null || encoded.isEmpty()) {
+            return counts;
+        }
+        for (String pair : encoded.split(",")) {
+            int separator = pair.indexOf('=');
+            try {
+                counts.put(Measurement.PropertyKey.valueOf(pair.substring(0, separator)),
+                        Integer.parseInt(pair.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                // skip counts of removed property keys and corrupt entries.
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Computes the summaries of all tracks contained in a measurement cursor. The cursor has to
+     * be ordered by track and time and is closed afterwards.
+     *
+     * @param c the cursor of measurements.
+     * @return the summaries of all tracks contained in the cursor.
+     */
+    public static List<TrackSummary> fromMeasurementCursor(Cursor c) {
+        List<TrackSummary> summaries = new ArrayList<>();
+        try {
+            MeasurementTable.ColumnIndices indices = new MeasurementTable.ColumnIndices(c);
+            TrackSummary summary = null;
+            while (c.moveToNext()) {
+                Measurement measurement = MeasurementTable.fromCursor(c, indices);
+                if (summary == null || summary.getTrackId().getId() != measurement.getTrackId().getId()) {
+                    summary = new TrackSummary(measurement.getTrackId());
+                    summaries.add(summary);
+                }
+                summary.add(measurement);
+            }
+        } finally {
+            c.close();
+        }
+        return summaries;
+    }
+
+    /**
+     * @param trackFilter an SQL condition on the track column, or null for all tracks.
+     * @return a query selecting the measurements required to rebuild summaries, ordered as
+     * required by {@link #fromMeasurementCursor(Cursor)}.
+     */
+    static String rebuildQuery(String trackFilter) {
+        return "SELECT * FROM " + MeasurementTable.TABLE_NAME +
+                (trackFilter != null ? " WHERE " + MeasurementTable.KEY_TRACK + trackFilter : "") +
+                " ORDER BY " + MeasurementTable.KEY_TRACK + " ASC, " +
+                MeasurementTable.KEY_TIME + " ASC";
+    }
+
+    private static void putNullable(ContentValues values, String column, double value) {
+        if (Double.isNaN(value)) {
+            values.putNull(column);
+        } else {
+            values.put(column, value);
+        }
+    }
+
+    private static Long getLong(Cursor c, String column) {
+        int index = c.getColumnIndex(column);
+        return index == -1 || c.isNull(index) ? null : c.getLong(index);
+    }
+
+    private static int getInt(Cursor c, String column) {
+        int index = c.getColumnIndex(column);
+        return index == -1 || c.isNull(index) ? 0 : c.getInt(index);
+    }
+
+    private static Double getDouble(Cursor c, String column, Double defaultValue) {
+        int index = c.getColumnIndex(column);
+        return index == -1 || c.isNull(index) ? defaultValue : c.getDouble(index);
+    }
+}
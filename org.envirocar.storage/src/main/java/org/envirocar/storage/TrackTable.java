@@ -84,6 +84,16 @@ class TrackTable {
 
     protected static final String DELETE = "DROP TABLE IF EXISTS " + TABLE_TRACK;
 
+    /**
+     * All columns of the tracks table apart from the primary key.
+     */
+    protected static final String[] COLUMNS = {
+            KEY_TRACK_NAME, KEY_TRACK_DESCRIPTION, KEY_REMOTE_ID, KEY_TRACK_STATE,
+            KEY_TRACK_METADATA, KEY_TRACK_LENGTH, KEY_TRACK_START_TIME, KEY_TRACK_END_TIME,
+            KEY_TRACK_CAR_MANUFACTURER, KEY_TRACK_CAR_MODEL, KEY_TRACK_CAR_FUEL_TYPE,
+            KEY_TRACK_CAR_ENGINE_DISPLACEMENT, KEY_TRACK_CAR_YEAR, KEY_TRACK_CAR_VIN,
+            KEY_TRACK_CAR_ID};
+
     protected static final Function<Cursor, Track> MAPPER = cursor -> fromCursor(cursor);
 
     public static final Function<? super Cursor, ? extends Observable<Track.TrackId>>
@@ -141,6 +151,16 @@ class TrackTable {
         return values;
     }
 
+    /**
+     * Statement updating the columns that change while a track is recorded. The end time and the
+     * length have to be bound to the first and second, the track id to the third parameter.
+     */
+    protected static final String UPDATE_PROGRESS =
+            "UPDATE " + TABLE_TRACK + " SET " +
+                    KEY_TRACK_END_TIME + " = ?, " +
+                    KEY_TRACK_LENGTH + " = ? " +
+                    "WHERE " + KEY_TRACK_ID + " = ?";
+
     public static Track fromCursor(Cursor c) {
         Track track = new TrackImpl();
         track.setTrackID(new Track.TrackId(c.getLong(c.getColumnIndex(KEY_TRACK_ID))));
@@ -19,6 +19,7 @@
 package org.envirocar.storage.dao;
 
 import org.envirocar.core.dao.TrackDAO;
+import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.EnviroCarDB;
 
@@ -26,6 +27,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 
 
@@ -111,6 +113,21 @@ public class LocalTrackDAO implements TrackDAO {
         return database.insertTrackObservable(track);
     }
 
+    @Override
+    public Track createTrack(Track track, Flowable<Measurement> measurements) {
+        return null;
+    }
+
+    @Override
+    public Observable<Track> createTrackObservable(Track track,
+                                                   Flowable<Measurement> measurements) {
+        return measurements.toList()
+                .flatMapObservable(list -> {
+                    track.setMeasurements(list);
+                    return database.insertTrackObservable(track);
+                });
+    }
+
     @Override
     public void deleteTrack(Track track) {
         database.deleteTrack(track);
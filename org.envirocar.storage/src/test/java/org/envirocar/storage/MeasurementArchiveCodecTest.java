@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class MeasurementArchiveCodecTest {
+
+    private static final Track.TrackId TRACK_ID = new Track.TrackId(42);
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Measurement> measurements = createTrack(1000);
+
+        byte[] encoded = MeasurementArchiveCodec.encode(measurements);
+        List<Measurement> decoded = MeasurementArchiveCodec.decode(encoded, TRACK_ID);
+
+        Assert.assertThat(decoded.size(), CoreMatchers.is(measurements.size()));
+        for (int i = 0; i < measurements.size(); i++) {
+            Measurement expected = measurements.get(i);
+            Measurement actual = decoded.get(i);
+
+            Assert.assertThat(actual.getTrackId(), CoreMatchers.is(TRACK_ID));
+            Assert.assertThat(actual.getTime(), CoreMatchers.is(expected.getTime()));
+            Assert.assertEquals(expected.getLatitude(), actual.getLatitude(), 5e-8);
+            Assert.assertEquals(expected.getLongitude(), actual.getLongitude(), 5e-8);
+
+            for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                Double value = expected.getProperty(key);
+                if (value == null || value.isNaN() || value.isInfinite()) {
+                    Assert.assertFalse(actual.hasProperty(key));
+                } else {
+                    Assert.assertEquals(value, actual.getProperty(key), 5e-5);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyTrack() throws IOException {
+        byte[] encoded = MeasurementArchiveCodec.encode(new ArrayList<>());
+        Assert.assertTrue(MeasurementArchiveCodec.decode(encoded, TRACK_ID).isEmpty());
+    }
+
+    /**
+     * Approximate size of a row of the measurement table including the SQLite record and cell
+     * overhead: 1 header byte per column, 8 bytes per REAL value, a 6 byte time, a 2 byte track
+     * id, 7 bytes for the cell header and pointer, and about 18 bytes for the (track, time) index
+     * entry. NULL properties only take their header byte.
+     */
+    private static int rowSize(Measurement measurement) {
+        int columns = 5 + Measurement.PropertyKey.values().length;
+        int values = 8 * (2 + measurement.getAllProperties().size()) + 6 + 2;
+        return 1 + columns + values + 7 + 18;
+    }
+
+    @Test
+    public void testCompression() {
+        List<Measurement> measurements = createTrack(3600);
+
+        int rowSize = 0;
+        for (Measurement measurement : measurements) {
+            rowSize += rowSize(measurement);
+        }
+
+        int archiveSize = MeasurementArchiveCodec.encode(measurements).length;
+        Assert.assertTrue("archive of " + archiveSize + " bytes for " + rowSize + " bytes of rows",
+                archiveSize * 5 <= rowSize);
+    }
+
+    @Test
+    public void testUnquantizableValues() {
+        List<Measurement> measurements = createTrack(10);
+        Assert.assertTrue(MeasurementArchiveCodec.canEncode(measurements));
+
+        measurements.get(3).setProperty(Measurement.PropertyKey.SPEED, Double.MAX_VALUE);
+        Assert.assertFalse(MeasurementArchiveCodec.canEncode(measurements));
+
+        measurements.get(3).setProperty(Measurement.PropertyKey.SPEED, -1e15);
+        Assert.assertFalse(MeasurementArchiveCodec.canEncode(measurements));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeUnquantizableValues() {
+        List<Measurement> measurements = createTrack(10);
+        measurements.get(3).setProperty(Measurement.PropertyKey.SPEED, Double.MAX_VALUE);
+        MeasurementArchiveCodec.encode(measurements);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersion() throws IOException {
+        MeasurementArchiveCodec.decode(new byte[]{(byte) 0x7f}, TRACK_ID);
+    }
+
+    private static List<Measurement> createTrack(int size) {
+        Random random = new Random(1337);
+        List<Measurement> result = new ArrayList<>(size);
+
+        long time = 1500000000000L;
+        double latitude = 51.9606649;
+        double longitude = 7.6261347;
+        double speed = 30;
+        for (int i = 0; i < size; i++) {
+            time += 1000 + random.nextInt(50);
+            latitude += random.nextGaussian() * 1e-5;
+            longitude += random.nextGaussian() * 1e-5;
+            speed = Math.max(0, speed + random.nextGaussian());
+
+            Measurement measurement = new MeasurementImpl(latitude, longitude);
+            measurement.setTrackId(TRACK_ID);
+            measurement.setTime(time);
+            measurement.setProperty(Measurement.PropertyKey.SPEED, speed);
+            measurement.setProperty(Measurement.PropertyKey.RPM, (double) (800 + random.nextInt(2000)));
+            measurement.setProperty(Measurement.PropertyKey.CONSUMPTION, speed / 4.2);
+            if (i % 5 == 0) {
+                // sparse property with gaps
+                measurement.setProperty(Measurement.PropertyKey.GPS_ACCURACY, 3 + random.nextDouble());
+            }
+            if (i == 17) {
+                measurement.setProperty(Measurement.PropertyKey.MAF, Double.NaN);
+            }
+            result.add(measurement);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2013 - 2019 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.storage;
+
+import org.envirocar.core.entity.Measurement;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class TrackSummaryTableTest {
+
+    @Test
+    public void testPropertyCountsRoundTrip() {
+        Map<Measurement.PropertyKey, Integer> counts = new EnumMap<>(Measurement.PropertyKey.class);
+        counts.put(Measurement.PropertyKey.SPEED, 1200);
+        counts.put(Measurement.PropertyKey.CO2, 7);
+
+        String encoded = TrackSummaryTable.encodePropertyCounts(counts);
+        Assert.assertThat(TrackSummaryTable.decodePropertyCounts(encoded), CoreMatchers.is(counts));
+        Assert.assertTrue(TrackSummaryTable.decodePropertyCounts(
+                TrackSummaryTable.encodePropertyCounts(new EnumMap<>(Measurement.PropertyKey.class))).isEmpty());
+        Assert.assertTrue(TrackSummaryTable.decodePropertyCounts(null).isEmpty());
+    }
+
+    @Test
+    public void testUnknownPropertiesAreSkipped() {
+        Map<Measurement.PropertyKey, Integer> counts = TrackSummaryTable.decodePropertyCounts(
+                "SPEED=3,REMOVED_PROPERTY=4,RPM=x,MAF=2");
+        Assert.assertThat(counts.size(), CoreMatchers.is(2));
+        Assert.assertThat(counts.get(Measurement.PropertyKey.SPEED), CoreMatchers.is(3));
+        Assert.assertThat(counts.get(Measurement.PropertyKey.MAF), CoreMatchers.is(2));
+    }
+}